@@ -1,6 +1,8 @@
 plugins {
     java
+    `java-test-fixtures`
     application
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "org.example"
@@ -26,6 +28,72 @@ dependencies {
     // Project dependencies
     implementation("jakarta.persistence:jakarta.persistence-api:3.1.0")
     implementation("org.hibernate.orm:hibernate-core:6.4.4.Final")
+    implementation("org.hibernate.orm:hibernate-jcache:6.4.4.Final")
+    runtimeOnly("org.ehcache:ehcache:3.10.8:jakarta")
     runtimeOnly("com.h2database:h2:2.2.224")
     implementation("org.slf4j:slf4j-simple:2.0.9")
-}
\ No newline at end of file
+
+    // Factory y entidades sintéticas compartidas por las pruebas y los benchmarks (src/testFixtures)
+    testFixturesImplementation("org.hibernate.orm:hibernate-core:6.4.4.Final")
+    jmhImplementation(testFixtures(project))
+
+    testImplementation(platform("org.junit:junit-bom:5.10.2"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
+
+// Datos sintéticos para pruebas de carga: ./gradlew generarCarga -Pcarga="--pacientes=100000 --citas=1000000"
+tasks.register<JavaExec>("generarCarga") {
+    group = "application"
+    description = "Genera datos sintéticos de carga con org.example.carga.GeneradorCarga."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("org.example.carga.GeneradorCarga")
+    args = (project.findProperty("carga") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: emptyList()
+}
+
+// Exportación de citas: ./gradlew exportarCitas -Pexportacion="--mes=2025-01 --formato=columnar --salida=citas-2025-01.hcit"
+tasks.register<JavaExec>("exportarCitas") {
+    group = "application"
+    description = "Exporta citas a CSV o al formato por columnas con org.example.exportacion.ExportadorCitas."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("org.example.exportacion.ExportadorCitas")
+    args = (project.findProperty("exportacion") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: emptyList()
+}
+
+// Migraciones de datos de bases anteriores: ./gradlew migrarDatos [-Pmigracion="--url=jdbc:h2:file:./data/hospidb"]
+tasks.register<JavaExec>("migrarDatos") {
+    group = "application"
+    description = "Actualiza el esquema y aplica las migraciones de datos pendientes con org.example.configuracion.MigracionesDatos."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("org.example.configuracion.MigracionesDatos")
+    args = (project.findProperty("migracion") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: emptyList()
+}
+
+// Varios hospitales en bases separadas: HOSPITAL_FRAGMENTOS=url1,url2 ./gradlew demoFragmentos
+tasks.register<JavaExec>("demoFragmentos") {
+    group = "application"
+    description = "Reparte hospitales entre las bases de HOSPITAL_FRAGMENTOS con org.example.DemoFragmentos."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("org.example.DemoFragmentos")
+}
+
+// Directorio, historial de cambios, lista de espera y métricas sobre una base en memoria: ./gradlew demoServicios
+tasks.register<JavaExec>("demoServicios") {
+    group = "application"
+    description = "Muestra los servicios de apoyo a las reservas con org.example.DemoServicios."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("org.example.DemoServicios")
+}
+
+// Benchmarks (src/jmh): ./gradlew jmh  -> build/results/jmh/results.json
+jmh {
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+}
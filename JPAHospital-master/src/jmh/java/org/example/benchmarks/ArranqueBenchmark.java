@@ -0,0 +1,54 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.configuracion.PerfilPersistencia;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Tiempo de arranque de la EntityManagerFactory con cada {@link PerfilPersistencia}, sobre una base H2 en archivo
+ * cuyo esquema ya existe: DESARROLLO lo inspecciona y actualiza, PRODUCCION solo lo valida.
+ * Cada medición es un arranque completo (con la caché de segundo nivel) seguido del cierre de la factory.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@State(Scope.Benchmark)
+public class ArranqueBenchmark {
+
+    @Param({"DESARROLLO", "PRODUCCION"})
+    public PerfilPersistencia perfil;
+
+    private Path directorio;
+    private Map<String, Object> url;
+
+    @Setup(Level.Trial)
+    public void crearEsquema() throws IOException {
+        directorio = Files.createTempDirectory("arranque");
+        url = Map.of("jakarta.persistence.jdbc.url", "jdbc:h2:file:" + directorio.resolve("hospidb").toAbsolutePath());
+        PerfilPersistencia.DESARROLLO.crearEntityManagerFactory(Map.of(
+                "jakarta.persistence.jdbc.url", url.get("jakarta.persistence.jdbc.url"),
+                "hibernate.show_sql", "false")).close();
+    }
+
+    @TearDown(Level.Trial)
+    public void borrarBase() throws IOException {
+        try (Stream<Path> archivos = Files.walk(directorio)) {
+            archivos.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void arrancar() {
+        EntityManagerFactory emf = perfil.crearEntityManagerFactory(url);
+        emf.close();
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.EspecialidadMedica;
+import org.example.servicios.CitaManager;
+import org.example.servicios.HuecoLibre;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de {@link CitaManager#buscarHuecosLibres} para un departamento de 50 médicos y 20 salas
+ * con alrededor de un año de citas: una semana totalmente ocupada (peor caso, recorre todas las agendas
+ * sin encontrar huecos) y una semana libre.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BuscarHuecosBenchmark {
+
+    // Las citas se reparten entre 3 especialidades de 20 salas cada una, con 3 horas entre citas por sala
+    @Param({"175000"})
+    public int citas;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private CitaManager citaManager;
+    private LocalDateTime semanaOcupada;
+    private LocalDateTime semanaLibre;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = DatosPrueba.crearFactory("huecos");
+        DatosBenchmark datos = DatosBenchmark.sembrar(emf, 1, 150, 60, 2_000, citas, 42);
+        em = emf.createEntityManager();
+        citaManager = new CitaManager(em);
+        semanaOcupada = datos.inicioCitas.plusDays(30);
+        semanaLibre = datos.inicioCitas.plusDays(400);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public List<HuecoLibre> semanaOcupada() {
+        em.clear();
+        return citaManager.buscarHuecosLibres(EspecialidadMedica.CARDIOLOGIA, semanaOcupada, semanaOcupada.plusDays(7), 10);
+    }
+
+    @Benchmark
+    public List<HuecoLibre> semanaLibre() {
+        em.clear();
+        return citaManager.buscarHuecosLibres(EspecialidadMedica.CARDIOLOGIA, semanaLibre, semanaLibre.plusDays(7), 10);
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Cita;
+import org.example.entidades.EstadoCita;
+import org.example.servicios.CitaException;
+import org.example.servicios.CitaManager;
+import org.example.servicios.CitaService;
+import org.example.servicios.FiltroCitas;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cierre del día: pasar todas las citas PROGRAMADA a NO_ASISTIO cargándolas una por una
+ * frente a una única sentencia UPDATE con {@link CitaService#cambiarEstadoMasivo}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CambioEstadoBenchmark {
+
+    @Param({"10000", "100000"})
+    public int citas;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private CitaService citaService;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = DatosPrueba.crearFactory("estados");
+        DatosBenchmark.sembrar(emf, 2, 40, 20, 1_000, citas, 42);
+        em = emf.createEntityManager();
+        citaService = new CitaManager(em);
+    }
+
+    @Setup(Level.Invocation)
+    public void reiniciarEstados() {
+        // SQL nativo: volver a PROGRAMADA no es una transición válida
+        em.getTransaction().begin();
+        em.createNativeQuery("UPDATE Cita SET estado = 'PROGRAMADA'").executeUpdate();
+        em.getTransaction().commit();
+        em.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public int cargarYModificar() {
+        em.getTransaction().begin();
+        List<Cita> programadas = em.createQuery("SELECT c FROM Cita c WHERE c.estado = :estado", Cita.class)
+                .setParameter("estado", EstadoCita.PROGRAMADA)
+                .getResultList();
+        programadas.forEach(c -> c.setEstado(EstadoCita.NO_ASISTIO));
+        em.getTransaction().commit();
+        em.clear();
+        return programadas.size();
+    }
+
+    @Benchmark
+    public int updateMasivo() throws CitaException {
+        em.getTransaction().begin();
+        int cantidad = citaService.cambiarEstadoMasivo(EstadoCita.PROGRAMADA, EstadoCita.NO_ASISTIO, FiltroCitas.TODAS);
+        em.getTransaction().commit();
+        return cantidad;
+    }
+}
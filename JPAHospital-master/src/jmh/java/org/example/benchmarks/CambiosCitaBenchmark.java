@@ -0,0 +1,106 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.cambios.ArchivoCambios;
+import org.example.cambios.PublicadorCambios;
+import org.example.cambios.RegistroCambiosCita;
+import org.example.entidades.Cita;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de registrar los cambios de las citas ({@link RegistroCambiosCita}): cada operación programa una cita y,
+ * en la misma transacción, la completa, con el historial desactivado o activo. Con el historial activo un
+ * {@link PublicadorCambios} entrega los cambios a un archivo en segundo plano mientras se mide; al terminar se
+ * imprimen los cambios entregados por segundo y el retraso entre el registro y la entrega.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CambiosCitaBenchmark {
+
+    @Param({"false", "true"})
+    public boolean historial;
+
+    private EntityManagerFactory emf;
+    private DatosBenchmark datos;
+    private Path archivo;
+    private ArchivoCambios consumidor;
+    private PublicadorCambios publicador;
+    private long siguiente;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        emf = DatosPrueba.crearFactory("cambios", Map.of(RegistroCambiosCita.PROPIEDAD, String.valueOf(historial)));
+        datos = DatosBenchmark.sembrar(emf, 1, 30, 30, 1_000, 0, 42);
+        if (RegistroCambiosCita.activo(emf) != historial) throw new IllegalStateException("El historial no quedó " + historial);
+        if (historial) {
+            archivo = Files.createTempFile("cambios-citas", ".csv");
+            Files.delete(archivo);
+            consumidor = new ArchivoCambios(archivo);
+            publicador = new PublicadorCambios(emf, "benchmark", List.of(consumidor), PublicadorCambios.TAMANIO_LOTE_POR_DEFECTO,
+                    Duration.ofMillis(50)).iniciar();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws IOException {
+        if (publicador != null) {
+            publicador.close();
+            publicador.publicarPendientes();
+            PublicadorCambios.Estadisticas estadisticas = publicador.estadisticas();
+            System.out.printf("%nPublicador: %d cambios entregados (%.0f/s), retraso p50 %.1f ms, p99 %.1f ms, pendientes %d%n",
+                    estadisticas.entregados(), estadisticas.porSegundo(), estadisticas.retraso().p50() / 1e6,
+                    estadisticas.retraso().p99() / 1e6, publicador.pendientes());
+            // Comprobación: cada operación dejó dos cambios y todos llegaron al archivo
+            if (estadisticas.entregados() != 2 * siguiente || consumidor.getEscritos() != estadisticas.entregados()) {
+                throw new IllegalStateException("Se entregaron " + estadisticas.entregados() + " cambios de " + 2 * siguiente);
+            }
+            consumidor.close();
+            Files.deleteIfExists(archivo);
+        }
+        emf.close();
+    }
+
+    @Benchmark
+    public Long programarYCompletar() {
+        // Cada cita en un horario distinto; las validaciones de agenda no forman parte de la medición
+        long n = siguiente++;
+        int m = (int) (n % datos.medicos.size());
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Cita cita = Cita.builder()
+                    .paciente(em.getReference(Paciente.class, datos.pacientes.get(ThreadLocalRandom.current().nextInt(datos.pacientes.size()))))
+                    .medico(em.getReference(Medico.class, datos.medicos.get(m)))
+                    .sala(em.getReference(Sala.class, datos.salaDeMedico.get(m)))
+                    .fechaHora(datos.inicioCitas.plusHours(DatosBenchmark.HORAS_ENTRE_CITAS * n))
+                    .costo(BigDecimal.valueOf(15_000))
+                    .estado(EstadoCita.PROGRAMADA)
+                    .build();
+            em.persist(cita);
+            em.flush();
+            cita.setEstado(EstadoCita.COMPLETADA);
+            em.getTransaction().commit();
+            return cita.getId();
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Cita;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.example.servicios.CitaException;
+import org.example.servicios.CitaManagerAsync;
+import org.example.servicios.CitaManagerConcurrente;
+import org.example.servicios.CitaService;
+import org.example.servicios.DisponibilidadIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de carga de {@link CitaManagerAsync} frente a la API sincrónica: cuántas reservas por segundo
+ * atiende un único hilo llamador con la API bloqueante y con la asíncrona, según las operaciones en curso, y cuántas
+ * atiende la API sincrónica con tantos hilos llamadores como operaciones en curso admite la asíncrona.
+ *
+ * Con H2 en memoria cada reserva solo consume CPU, así que la latencia de red de una base remota se simula
+ * con una espera antes de cada operación ({@code latenciaMs}); es la espera la que la API asíncrona solapa.
+ * Todas las reservas son aceptadas: cada una usa un médico y un horario distintos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CitaServiceAsyncBenchmark {
+    private static final int RESERVAS_POR_INVOCACION = 64;
+
+    /** Operaciones en curso a la vez con la API asíncrona. */
+    @Param({"1", "4", "16"})
+    public int concurrencia;
+
+    @Param({"0", "5"})
+    public int latenciaMs;
+
+    private EntityManagerFactory emf;
+    private CitaService sincronico;
+    private CitaManagerAsync asincronico;
+    private List<Medico> medicos;
+    private List<Sala> salas;
+    private Paciente paciente;
+    private LocalDateTime inicio;
+    private ExecutorService llamadores;
+    private final AtomicLong turno = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = DatosPrueba.crearFactory("async");
+        DatosBenchmark datos = DatosBenchmark.sembrar(emf, 1, 48, 48, 10, 0, 42);
+        EntityManager em = emf.createEntityManager();
+        medicos = datos.medicos.stream().map(id -> em.find(Medico.class, id)).toList();
+        salas = datos.salaDeMedico.stream().map(id -> em.find(Sala.class, id)).toList();
+        paciente = em.find(Paciente.class, datos.pacientes.get(0));
+        em.close();
+        inicio = datos.inicioCitas;
+        sincronico = conLatencia(new CitaManagerConcurrente(emf, new DisponibilidadIndex(emf)), latenciaMs);
+        asincronico = new CitaManagerAsync(sincronico, concurrencia);
+        llamadores = Executors.newFixedThreadPool(concurrencia);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        asincronico.close();
+        llamadores.shutdown();
+        emf.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESERVAS_POR_INVOCACION)
+    public void sincronico() throws CitaException {
+        for (int i = 0; i < RESERVAS_POR_INVOCACION; i++) {
+            long t = turno.getAndIncrement();
+            int m = (int) (t % medicos.size());
+            sincronico.programarCita(paciente, medicos.get(m), salas.get(m), horario(t), BigDecimal.TEN, "carga");
+        }
+    }
+
+    /**
+     * La API bloqueante con {@code concurrencia} hilos, cada uno ocupado durante toda la reserva.
+     */
+    @Benchmark
+    @OperationsPerInvocation(RESERVAS_POR_INVOCACION)
+    public void sincronicoConHilos() throws Exception {
+        List<Future<Cita>> reservas = new ArrayList<>(RESERVAS_POR_INVOCACION);
+        for (int i = 0; i < RESERVAS_POR_INVOCACION; i++) {
+            long t = turno.getAndIncrement();
+            int m = (int) (t % medicos.size());
+            reservas.add(llamadores.submit(() -> sincronico.programarCita(paciente, medicos.get(m), salas.get(m), horario(t), BigDecimal.TEN, "carga")));
+        }
+        for (Future<Cita> reserva : reservas) reserva.get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RESERVAS_POR_INVOCACION)
+    public void asincronico() {
+        // Carga de lazo cerrado: cada cadena envía la siguiente reserva cuando termina la anterior
+        AtomicInteger restantes = new AtomicInteger(RESERVAS_POR_INVOCACION);
+        CompletableFuture<?>[] cadenas = new CompletableFuture<?>[concurrencia];
+        for (int i = 0; i < concurrencia; i++) {
+            cadenas[i] = siguiente(restantes);
+        }
+        CompletableFuture.allOf(cadenas).join();
+    }
+
+    private CompletableFuture<Void> siguiente(AtomicInteger restantes) {
+        if (restantes.getAndDecrement() <= 0) return CompletableFuture.completedFuture(null);
+        long t = turno.getAndIncrement();
+        int m = (int) (t % medicos.size());
+        CompletableFuture<Cita> reserva = asincronico.programarCitaAsync(paciente, medicos.get(m), salas.get(m), horario(t), BigDecimal.TEN, "carga");
+        return reserva.thenCompose(cita -> siguiente(restantes));
+    }
+
+    private LocalDateTime horario(long t) {
+        return inicio.plusHours(DatosBenchmark.HORAS_ENTRE_CITAS * (t / medicos.size()));
+    }
+
+    /**
+     * Envuelve el servicio para que cada operación espere antes de ejecutarse, como si la base estuviera en otra máquina.
+     */
+    private static CitaService conLatencia(CitaService servicio, int latenciaMs) {
+        if (latenciaMs == 0) return servicio;
+        return (CitaService) Proxy.newProxyInstance(CitaService.class.getClassLoader(), new Class<?>[]{CitaService.class},
+                (proxy, metodo, args) -> {
+                    Thread.sleep(latenciaMs);
+                    try {
+                        return metodo.invoke(servicio, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
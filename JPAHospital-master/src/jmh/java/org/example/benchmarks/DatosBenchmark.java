@@ -0,0 +1,170 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.entidades.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.example.DatosPrueba.medico;
+import static org.example.DatosPrueba.paciente;
+
+/**
+ * Base H2 en memoria con datos sintéticos para los benchmarks.
+ *
+ * Cada hospital tiene un departamento por especialidad de {@link #ESPECIALIDADES}; médicos y salas se reparten
+ * en ronda entre los departamentos. Cada médico atiende siempre en la misma sala de su departamento y las citas
+ * de una sala se separan 3 horas, de modo que los datos respetan el búfer de 2 horas y la especialidad.
+ */
+final class DatosBenchmark {
+    static final EspecialidadMedica[] ESPECIALIDADES = {
+            EspecialidadMedica.CARDIOLOGIA, EspecialidadMedica.PEDIATRIA, EspecialidadMedica.TRAUMATOLOGIA};
+    static final long HORAS_ENTRE_CITAS = 3;
+    private static final int TAMANIO_LOTE = 1000;
+
+    final EntityManagerFactory emf;
+    /** Primera fecha usada por las citas generadas; los horarios anteriores (y futuros) quedan libres. */
+    final LocalDateTime inicioCitas = LocalDateTime.now().plusDays(7).withHour(8).withMinute(0).withSecond(0).withNano(0);
+    final List<Long> hospitales = new ArrayList<>();
+    final List<Long> medicos = new ArrayList<>();
+    final List<Long> salas = new ArrayList<>();
+    final List<Long> pacientes = new ArrayList<>();
+    /** Sala fija de cada médico, en el mismo orden que {@link #medicos}. */
+    final List<Long> salaDeMedico = new ArrayList<>();
+    /** Horario de la primera cita de cada médico (si tiene), útil para provocar choques. */
+    final Map<Long, LocalDateTime> primeraCitaDeMedico = new HashMap<>();
+
+    private DatosBenchmark(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    static DatosBenchmark sembrar(EntityManagerFactory emf, int hospitales, int medicos, int salas, int pacientes, int citas, long semilla) {
+        DatosBenchmark datos = new DatosBenchmark(emf);
+        datos.sembrarEstructura(hospitales, medicos, salas);
+        datos.sembrarPacientes(pacientes);
+        datos.sembrarCitas(citas, new SplittableRandom(semilla));
+        return datos;
+    }
+
+    /**
+     * Arma un hospital completo sin persistir, igual que el de {@code Main}.
+     *
+     * @param sufijo Valor único por invocación, para no repetir DNI, matrículas ni números de sala.
+     */
+    static Hospital hospitalCompleto(int sufijo) {
+        Hospital hospital = Hospital.builder().nombre("Hospital " + sufijo).direccion("Calle " + sufijo).telefono("261-000-0000").build();
+        for (int i = 0; i < ESPECIALIDADES.length; i++) {
+            Departamento departamento = Departamento.builder().nombre(ESPECIALIDADES[i].getDescripcion()).especialidad(ESPECIALIDADES[i]).build();
+            hospital.agregarDepartamento(departamento);
+            departamento.agregarSala(Sala.builder().numero("S-" + sufijo + "-" + i).tipo("Consultorio").departamento(departamento).build());
+            departamento.agregarMedico(medico(sufijo * ESPECIALIDADES.length + i, ESPECIALIDADES[i]));
+        }
+        for (int i = 0; i < ESPECIALIDADES.length; i++) {
+            hospital.agregarPaciente(paciente(sufijo * ESPECIALIDADES.length + i));
+        }
+        return hospital;
+    }
+
+    private void sembrarEstructura(int cantidadHospitales, int cantidadMedicos, int cantidadSalas) {
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        List<Departamento> departamentos = new ArrayList<>();
+        List<Hospital> creados = new ArrayList<>();
+        for (int h = 0; h < cantidadHospitales; h++) {
+            Hospital hospital = Hospital.builder().nombre("Hospital " + h).direccion("Calle " + h).telefono("261-000-0000").build();
+            for (EspecialidadMedica especialidad : ESPECIALIDADES) {
+                Departamento departamento = Departamento.builder().nombre(especialidad.getDescripcion()).especialidad(especialidad).build();
+                hospital.agregarDepartamento(departamento);
+                departamentos.add(departamento);
+            }
+            creados.add(hospital);
+        }
+        List<List<Sala>> salasPorDepartamento = new ArrayList<>();
+        departamentos.forEach(d -> salasPorDepartamento.add(new ArrayList<>()));
+        for (int s = 0; s < Math.max(cantidadSalas, departamentos.size()); s++) {
+            int d = s % departamentos.size();
+            Sala sala = Sala.builder().numero("S-" + s).tipo("Consultorio").departamento(departamentos.get(d)).build();
+            departamentos.get(d).agregarSala(sala);
+            salasPorDepartamento.get(d).add(sala);
+        }
+        List<Medico> creadosMedicos = new ArrayList<>();
+        List<Sala> salasAsignadas = new ArrayList<>();
+        for (int m = 0; m < cantidadMedicos; m++) {
+            int d = m % departamentos.size();
+            Departamento departamento = departamentos.get(d);
+            Medico medico = medico(m, departamento.getEspecialidad());
+            departamento.agregarMedico(medico);
+            creadosMedicos.add(medico);
+            List<Sala> propias = salasPorDepartamento.get(d);
+            salasAsignadas.add(propias.get((m / departamentos.size()) % propias.size()));
+        }
+        creados.forEach(em::persist);
+        em.getTransaction().commit();
+
+        creados.forEach(h -> hospitales.add(h.getId()));
+        salasPorDepartamento.forEach(lista -> lista.forEach(s -> salas.add(s.getId())));
+        creadosMedicos.forEach(m -> medicos.add(m.getId()));
+        salasAsignadas.forEach(s -> salaDeMedico.add(s.getId()));
+        em.close();
+    }
+
+    private void sembrarPacientes(int cantidad) {
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        List<Paciente> lote = new ArrayList<>();
+        for (int p = 0; p < cantidad; p++) {
+            Paciente paciente = paciente(p);
+            paciente.setHospital(em.getReference(Hospital.class, hospitales.get(p % hospitales.size())));
+            em.persist(paciente);
+            lote.add(paciente);
+            if (lote.size() == TAMANIO_LOTE) {
+                cerrarLote(em, lote);
+            }
+        }
+        cerrarLote(em, lote);
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    private void cerrarLote(EntityManager em, List<Paciente> lote) {
+        em.flush();
+        lote.forEach(p -> pacientes.add(p.getId()));
+        lote.clear();
+        em.clear();
+    }
+
+    private void sembrarCitas(int cantidad, SplittableRandom azar) {
+        if (pacientes.isEmpty() || medicos.isEmpty()) return;
+        Map<Long, Integer> turnoDeSala = new HashMap<>();
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        for (int c = 0; c < cantidad; c++) {
+            int m = azar.nextInt(medicos.size());
+            Long medicoId = medicos.get(m);
+            Long salaId = salaDeMedico.get(m);
+            int turno = turnoDeSala.merge(salaId, 1, Integer::sum) - 1;
+            LocalDateTime fechaHora = inicioCitas.plusHours(HORAS_ENTRE_CITAS * turno);
+            primeraCitaDeMedico.putIfAbsent(medicoId, fechaHora);
+            em.persist(Cita.builder()
+                    .paciente(em.getReference(Paciente.class, pacientes.get(azar.nextInt(pacientes.size()))))
+                    .medico(em.getReference(Medico.class, medicoId))
+                    .sala(em.getReference(Sala.class, salaId))
+                    .fechaHora(fechaHora)
+                    .costo(BigDecimal.valueOf(10_000 + azar.nextInt(40_000)))
+                    .estado(EstadoCita.PROGRAMADA)
+                    .build());
+            if ((c + 1) % TAMANIO_LOTE == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.getTransaction().commit();
+        em.close();
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Cita;
+import org.example.entidades.CambioCita;
+import org.hibernate.jpa.HibernateHints;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cómo detecta un sistema externo las citas que cambiaron desde su última lectura: releyendo la versión de todas
+ * las citas y comparándolas con las que ya conocía ({@code sondeo}) o leyendo el historial de cambios a partir del
+ * último id procesado ({@code historial}). Antes de cada lectura se modifican {@value #MODIFICADAS} citas al azar.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DeteccionCambiosBenchmark {
+    private static final int MODIFICADAS = 20;
+
+    @Param({"sondeo", "historial"})
+    public String ruta;
+
+    @Param({"100000"})
+    public int citas;
+
+    private EntityManagerFactory emf;
+    private List<Long> ids;
+    private final Map<Long, Long> versiones = new HashMap<>();
+    private long ultimaConfirmacion;
+    private int version;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = DatosPrueba.crearFactory("deteccion");
+        DatosBenchmark.sembrar(emf, 1, 30, 30, 1_000, citas, 42);
+        EntityManager em = emf.createEntityManager();
+        ids = em.createQuery("SELECT c.id FROM Cita c", Long.class).getResultList();
+        em.close();
+        // Estado inicial de cada ruta: todas las versiones conocidas y todo el historial leído
+        sondear();
+        leerHistorial();
+
+        // Comprobación: ambas rutas detectan las citas modificadas
+        modificar();
+        if (sondear() != MODIFICADAS || leerHistorial() != MODIFICADAS) {
+            throw new IllegalStateException("No se detectaron las " + MODIFICADAS + " citas modificadas.");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void modificar() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            ThreadLocalRandom azar = ThreadLocalRandom.current();
+            for (long id : azar.longs(0, ids.size()).distinct().limit(MODIFICADAS).toArray()) {
+                em.find(Cita.class, ids.get((int) id)).setObservaciones("Revisión " + ++version);
+            }
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        emf.close();
+    }
+
+    @Benchmark
+    public int detectar() {
+        return "historial".equals(ruta) ? leerHistorial() : sondear();
+    }
+
+    private int sondear() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            int cambiadas = 0;
+            for (Object[] fila : em.createQuery("SELECT c.id, c.version FROM Cita c", Object[].class).getResultList()) {
+                Long anterior = versiones.put((Long) fila[0], (Long) fila[1]);
+                if (anterior != null && !anterior.equals(fila[1])) cambiadas++;
+            }
+            return cambiadas;
+        } finally {
+            em.close();
+        }
+    }
+
+    private int leerHistorial() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            // Cada transacción se lee completa, así que basta con la última confirmación leída
+            List<CambioCita> cambios = em.createQuery("SELECT c FROM CambioCita c WHERE c.confirmacion > :ultima "
+                            + "ORDER BY c.confirmacion, c.id", CambioCita.class)
+                    .setParameter("ultima", ultimaConfirmacion)
+                    .setHint(HibernateHints.HINT_READ_ONLY, true)
+                    .getResultList();
+            if (!cambios.isEmpty()) ultimaConfirmacion = cambios.get(cambios.size() - 1).getConfirmacion();
+            return cambios.size();
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.servicios.CacheDirectorio;
+import org.example.servicios.DirectorioManager;
+import org.example.servicios.FichaPaciente;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Búsqueda de pacientes por DNI entre 2M, consultando siempre el índice único ({@code consulta}) o con
+ * {@link CacheDirectorio} ({@code cache}). Las búsquedas se concentran en 50.000 pacientes (los que se atienden en
+ * esos días) y una de cada 20 es de un DNI no registrado. En modo SampleTime JMH informa los percentiles (p0.99);
+ * al terminar se imprime la tasa de aciertos de la caché.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DirectorioBenchmark {
+    private static final int PACIENTES_FRECUENTES = 50_000;
+
+    @Param({"consulta", "cache"})
+    public String ruta;
+
+    @Param({"2000000"})
+    public int pacientes;
+
+    private EntityManagerFactory emf;
+    private CacheDirectorio cache;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = DatosPrueba.crearFactory("directorio");
+        DatosBenchmark.sembrar(emf, 10, 30, 30, pacientes, 0, 42);
+        cache = "cache".equals(ruta) ? CacheDirectorio.de(emf) : null;
+
+        // Comprobación: se encuentran los pacientes registrados y no los demás
+        if (buscar(50_000_000 + pacientes - 1).isEmpty() || buscar(49_999_999).isPresent()) {
+            throw new IllegalStateException("La búsqueda por DNI no devolvió lo esperado.");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        if (cache != null) {
+            CacheDirectorio.Estadisticas estadisticas = cache.estadisticas();
+            System.out.printf("%nCaché: %.1f %% de aciertos, %d entradas, %s%n", estadisticas.tasaAciertos() * 100,
+                    estadisticas.entradas(), estadisticas);
+        }
+        emf.close();
+    }
+
+    @Benchmark
+    public Optional<FichaPaciente> porDni() {
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        int frecuentes = Math.min(PACIENTES_FRECUENTES, pacientes);
+        // Los DNI no registrados son los anteriores a 50.000.000
+        return buscar(azar.nextInt(20) == 0 ? 49_000_000 + azar.nextInt(frecuentes) : 50_000_000 + azar.nextInt(frecuentes) * (pacientes / frecuentes));
+    }
+
+    private Optional<FichaPaciente> buscar(int dni) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return new DirectorioManager(em, cache).buscarPacientePorDni(String.valueOf(dni));
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Cita;
+import org.example.entidades.Medico;
+import org.example.exportacion.ExportadorCitas;
+import org.example.exportacion.LectorColumnar;
+import org.example.servicios.CitaManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exportación de todas las citas: armando el archivo con {@code getCitasPorMedico} médico por médico (lo que se
+ * hacía hasta ahora) y con {@link ExportadorCitas} en CSV y por columnas. El contador {@code filas} es la cantidad
+ * de citas exportadas por segundo; con {@code -prof gc} se ve la memoria asignada por cita.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExportacionBenchmark {
+
+    @Param({"porMedico", "csv", "columnar"})
+    public String ruta;
+
+    @Param({"100000"})
+    public int citas;
+
+    private EntityManagerFactory emf;
+    private List<Long> medicos;
+    private Path archivo;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Contador {
+        public long filas;
+    }
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        emf = DatosPrueba.crearFactory("exportacion");
+        medicos = DatosBenchmark.sembrar(emf, 2, 60, 30, 500, citas, 42).medicos;
+        archivo = Files.createTempFile("citas", "porMedico".equals(ruta) ? ".csv" : "." + ruta);
+
+        // Comprobación: el archivo tiene todas las citas y el formato por columnas se vuelve a leer completo
+        long exportadas = exportar();
+        long leidas = "columnar".equals(ruta) ? LectorColumnar.leer(archivo, c -> { }) : exportadas;
+        if (exportadas != citas || leidas != citas) {
+            throw new IllegalStateException("Se exportaron " + exportadas + " citas y se leyeron " + leidas + " de " + citas);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws IOException {
+        emf.close();
+        Files.deleteIfExists(archivo);
+    }
+
+    @Benchmark
+    public void exportar(Contador contador) throws IOException {
+        contador.filas += exportar();
+    }
+
+    private long exportar() throws IOException {
+        return switch (ruta) {
+            case "csv" -> new ExportadorCitas(emf).exportar(null, ExportadorCitas.Formato.CSV, archivo).filas();
+            case "columnar" -> new ExportadorCitas(emf).exportar(null, ExportadorCitas.Formato.COLUMNAR, archivo).filas();
+            default -> exportarPorMedico();
+        };
+    }
+
+    private long exportarPorMedico() throws IOException {
+        long filas = 0;
+        try (BufferedWriter salida = Files.newBufferedWriter(archivo)) {
+            salida.write("id,fechaHora,estado,costo,medico,sala,paciente\n");
+            for (Long id : medicos) {
+                EntityManager em = emf.createEntityManager();
+                try {
+                    Medico medico = em.find(Medico.class, id);
+                    for (Cita c : new CitaManager(em).getCitasPorMedico(medico)) {
+                        salida.write(c.getId() + "," + c.getFechaHora() + "," + c.getEstado() + "," + c.getCosto().toPlainString() + ","
+                                + medico.getNombre() + " " + medico.getApellido() + "," + c.getSala().getNumero() + ","
+                                + c.getPaciente().getNombre() + " " + c.getPaciente().getApellido() + "\n");
+                        filas++;
+                    }
+                } finally {
+                    em.close();
+                }
+            }
+        }
+        return filas;
+    }
+}
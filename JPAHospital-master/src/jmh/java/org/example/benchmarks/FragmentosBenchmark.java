@@ -0,0 +1,83 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import org.example.configuracion.FragmentosHospital;
+import org.example.configuracion.PerfilPersistencia;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.Medico;
+import org.example.servicios.CitaManagerFragmentado;
+import org.example.servicios.CitaService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo del reparto de hospitales entre bases ({@link FragmentosHospital}) con la misma cantidad total de datos:
+ * el listado de las citas de un médico va a una sola base, mientras que la búsqueda de huecos libres y la de
+ * pacientes por DNI (un DNI no registrado, que obliga a consultar todas las bases) se hacen en paralelo en todas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FragmentosBenchmark {
+
+    @Param({"1", "4"})
+    public int fragmentos;
+
+    @Param({"porMedico", "huecos", "dni"})
+    public String operacion;
+
+    @Param({"50000"})
+    public int citas;
+
+    private FragmentosHospital bases;
+    private CitaService servicio;
+    private final List<Medico> medicos = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < fragmentos; i++) urls.add("jdbc:h2:mem:fragmento-" + fragmentos + "-" + i + ";DB_CLOSE_DELAY=-1");
+        bases = FragmentosHospital.crear(PerfilPersistencia.DESARROLLO, urls, Map.of(
+                "hibernate.hbm2ddl.auto", "create-drop",
+                "hibernate.show_sql", "false",
+                "hibernate.format_sql", "false"));
+        // Cada base recibe su parte de los hospitales, médicos, salas, pacientes y citas
+        for (int i = 0; i < fragmentos; i++) {
+            DatosBenchmark datos = DatosBenchmark.sembrar(bases.factory(i), 4 / fragmentos, 60 / fragmentos, 30 / fragmentos,
+                    2000 / fragmentos, citas / fragmentos, 42 + i);
+            EntityManager em = bases.factory(i).createEntityManager();
+            datos.medicos.forEach(id -> medicos.add(em.createQuery(
+                    "SELECT m FROM Medico m JOIN FETCH m.departamento WHERE m.id = :id", Medico.class).setParameter("id", id).getSingleResult()));
+            em.close();
+        }
+        servicio = new CitaManagerFragmentado(bases);
+
+        // Comprobación: todas las citas son accesibles a través del servicio
+        long total = medicos.stream().mapToLong(m -> servicio.getResumenCitasPorMedico(m).size()).sum();
+        if (total != citas / fragmentos * fragmentos) throw new IllegalStateException("Se encontraron " + total + " citas de " + citas);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        bases.close();
+    }
+
+    @Benchmark
+    public Object operar() {
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        return switch (operacion) {
+            case "huecos" -> {
+                LocalDateTime desde = LocalDateTime.now().plusDays(7 + azar.nextInt(30));
+                yield servicio.buscarHuecosLibres(EspecialidadMedica.CARDIOLOGIA, desde, desde.plusDays(7), 20);
+            }
+            case "dni" -> bases.buscarPacientesPorDni("99999999");
+            default -> servicio.getResumenCitasPorMedico(medicos.get(azar.nextInt(medicos.size())));
+        };
+    }
+}
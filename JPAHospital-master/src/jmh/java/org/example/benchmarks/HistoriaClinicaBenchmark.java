@@ -0,0 +1,72 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.EntradaHistoria;
+import org.example.entidades.HistoriaClinica;
+import org.example.entidades.Paciente;
+import org.example.entidades.TipoEntradaHistoria;
+import org.example.servicios.HistoriaClinicaManager;
+import org.example.servicios.HistoriaClinicaService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de agregar una entrada a una historia clínica y de leer las últimas entradas, según el tamaño de la historia.
+ * Ambos deberían mantenerse constantes: agregar no carga la colección y la lectura usa el índice (historia, fecha).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HistoriaClinicaBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int entradas;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private HistoriaClinicaService historias;
+    private Long historiaId;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = DatosPrueba.crearFactory("historia");
+        DatosBenchmark datos = DatosBenchmark.sembrar(emf, 1, 3, 3, 1, 0, 42);
+        em = emf.createEntityManager();
+        historias = new HistoriaClinicaManager(em);
+        em.getTransaction().begin();
+        HistoriaClinica historia = em.find(Paciente.class, datos.pacientes.get(0)).getHistoriaClinica();
+        historiaId = historia.getId();
+        for (int i = 0; i < entradas; i++) {
+            historia.agregarDiagnostico("Diagnóstico " + i);
+        }
+        em.getTransaction().commit();
+        em.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public EntradaHistoria agregarEntrada() {
+        em.getTransaction().begin();
+        HistoriaClinica historia = em.find(HistoriaClinica.class, historiaId);
+        EntradaHistoria entrada = historia.agregarEntrada(TipoEntradaHistoria.TRATAMIENTO, "Control");
+        em.getTransaction().commit();
+        em.clear();
+        return entrada;
+    }
+
+    @Benchmark
+    public List<EntradaHistoria> ultimasEntradas() {
+        List<EntradaHistoria> ultimas = historias.getUltimasEntradas(em.getReference(HistoriaClinica.class, historiaId), null, 20);
+        em.clear();
+        return ultimas;
+    }
+}
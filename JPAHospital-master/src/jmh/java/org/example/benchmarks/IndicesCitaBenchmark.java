@@ -0,0 +1,108 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Medico;
+import org.example.entidades.Sala;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de los caminos de acceso a Cita (disponibilidad por médico y por sala, listado por paciente
+ * y conteo por estado) sobre una tabla grande. Antes de medir, verifica con EXPLAIN que H2 usa los
+ * índices compuestos declarados en la entidad; si no los usa, el benchmark falla.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IndicesCitaBenchmark {
+
+    @Param({"1000000"})
+    public int citas;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private Medico medico;
+    private Sala sala;
+    private Long pacienteId;
+    private LocalDateTime fecha;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = DatosPrueba.crearFactory("indices");
+        DatosBenchmark datos = DatosBenchmark.sembrar(emf, 5, 300, 150, 20_000, citas, 42);
+        em = emf.createEntityManager();
+        medico = em.find(Medico.class, datos.medicos.get(0));
+        sala = em.find(Sala.class, datos.salaDeMedico.get(0));
+        pacienteId = datos.pacientes.get(0);
+        fecha = datos.primeraCitaDeMedico.get(medico.getId()).plusDays(30);
+
+        verificarPlan("SELECT COUNT(*) FROM Cita WHERE medico_id = " + medico.getId()
+                + " AND fechaHora BETWEEN TIMESTAMP '2030-01-01 00:00:00' AND TIMESTAMP '2030-01-01 04:00:00' AND estado IN ('PROGRAMADA', 'EN_CURSO', 'COMPLETADA')", "IDX_CITA_MEDICO_FECHA");
+        verificarPlan("SELECT COUNT(*) FROM Cita WHERE sala_id = " + sala.getId()
+                + " AND fechaHora BETWEEN TIMESTAMP '2030-01-01 00:00:00' AND TIMESTAMP '2030-01-01 04:00:00' AND estado IN ('PROGRAMADA', 'EN_CURSO', 'COMPLETADA')", "IDX_CITA_SALA_FECHA");
+        // Forma de la consulta paginada por clave de getCitasPorPaciente
+        verificarPlan("SELECT * FROM Cita WHERE paciente_id = " + pacienteId
+                + " AND fechaHora < TIMESTAMP '2030-01-01 00:00:00' ORDER BY fechaHora DESC", "IDX_CITA_PACIENTE_FECHA");
+        verificarPlan("SELECT COUNT(*) FROM Cita WHERE estado = 'PROGRAMADA'", "IDX_CITA_ESTADO_FECHA");
+    }
+
+    private void verificarPlan(String sql, String indice) {
+        String plan = String.valueOf(em.createNativeQuery("EXPLAIN " + sql).getSingleResult());
+        System.out.println("\n" + plan);
+        if (!plan.toUpperCase().contains(indice)) {
+            throw new IllegalStateException("La consulta no usa el índice " + indice + ":\n" + plan);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public Long disponibilidadMedico() {
+        return em.createQuery("SELECT COUNT(c) FROM Cita c WHERE c.medico = :medico AND c.fechaHora BETWEEN :inicio AND :fin"
+                        + " AND c.estado IN :bloqueantes", Long.class)
+                .setParameter("medico", medico)
+                .setParameter("bloqueantes", EstadoCita.BLOQUEANTES)
+                .setParameter("inicio", fecha.minusHours(2))
+                .setParameter("fin", fecha.plusHours(2))
+                .getSingleResult();
+    }
+
+    @Benchmark
+    public Long disponibilidadSala() {
+        return em.createQuery("SELECT COUNT(c) FROM Cita c WHERE c.sala = :sala AND c.fechaHora BETWEEN :inicio AND :fin"
+                        + " AND c.estado IN :bloqueantes", Long.class)
+                .setParameter("sala", sala)
+                .setParameter("bloqueantes", EstadoCita.BLOQUEANTES)
+                .setParameter("inicio", fecha.minusHours(2))
+                .setParameter("fin", fecha.plusHours(2))
+                .getSingleResult();
+    }
+
+    @Benchmark
+    public List<Long> idsPorPaciente() {
+        return em.createQuery("SELECT c.id FROM Cita c WHERE c.paciente.id = :paciente AND c.fechaHora < :hasta ORDER BY c.fechaHora DESC", Long.class)
+                .setParameter("paciente", pacienteId)
+                .setParameter("hasta", fecha)
+                .setMaxResults(50)
+                .getResultList();
+    }
+
+    @Benchmark
+    public Long programadasDelDia() {
+        return em.createQuery("SELECT COUNT(c) FROM Cita c WHERE c.estado = :estado AND c.fechaHora BETWEEN :inicio AND :fin", Long.class)
+                .setParameter("estado", EstadoCita.PROGRAMADA)
+                .setParameter("inicio", fecha)
+                .setParameter("fin", fecha.plusDays(1))
+                .getSingleResult();
+    }
+}
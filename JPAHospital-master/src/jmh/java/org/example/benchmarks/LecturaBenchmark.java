@@ -0,0 +1,74 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Cita;
+import org.example.entidades.Medico;
+import org.example.servicios.CitaManager;
+import org.example.servicios.CitaManagerConcurrente;
+import org.example.servicios.CitaService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listado de citas de un médico dentro de una transacción de lectura y escritura (como cuando se consulta con el
+ * mismo EntityManager que reserva), con la sesión de solo lectura de {@link CitaManagerConcurrente} y contra una
+ * réplica (otra base H2 con los mismos datos). Con {@code -prof gc} se ve la memoria asignada por consulta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LecturaBenchmark {
+
+    @Param({"lecturaEscritura", "soloLectura", "replica"})
+    public String ruta;
+
+    @Param({"100000"})
+    public int citas;
+
+    private EntityManagerFactory emf;
+    private EntityManagerFactory replica;
+    private CitaService servicio;
+    private Medico medico;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = DatosPrueba.crearFactory("lectura");
+        DatosBenchmark datos = DatosBenchmark.sembrar(emf, 2, 60, 30, 500, citas, 42);
+        if ("replica".equals(ruta)) {
+            // La misma semilla sobre una base vacía genera los mismos datos con los mismos ids
+            replica = DatosPrueba.crearFactory("lectura-replica", Map.of(
+                    "hibernate.cache.use_second_level_cache", "false",
+                    "hibernate.cache.use_query_cache", "false"));
+            DatosBenchmark.sembrar(replica, 2, 60, 30, 500, citas, 42);
+        }
+        EntityManager em = emf.createEntityManager();
+        medico = em.find(Medico.class, datos.medicos.get(0));
+        em.close();
+        servicio = new CitaManagerConcurrente(emf, replica == null ? emf : replica, null, CitaManagerConcurrente.Bloqueo.PESIMISTA);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        if (replica != null) replica.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public List<Cita> citasPorMedico() {
+        if (!"lecturaEscritura".equals(ruta)) return servicio.getCitasPorMedico(medico);
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            List<Cita> resultado = new CitaManager(em).getCitasPorMedico(medico);
+            em.getTransaction().commit(); // El flush revisa cada cita cargada buscando cambios
+            return resultado;
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.cambios.PublicadorCambios;
+import org.example.entidades.Cita;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.EstadoSolicitudEspera;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.example.entidades.SolicitudEspera;
+import org.example.servicios.AsignadorListaEspera;
+import org.example.servicios.CitaException;
+import org.example.servicios.ListaEsperaManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de cancelar una cita cuando hay una solicitud en lista de espera para su horario. Con {@code sincronica}
+ * la transacción que cancela también asigna el horario; con {@code segundoPlano} solo cancela y
+ * {@link AsignadorListaEspera} asigna después, leyendo el historial de cambios. Al terminar se comprueba que cada
+ * horario cancelado quedó asignado y, en segundo plano, se imprime el retraso hasta la asignación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ListaEsperaBenchmark {
+
+    @Param({"sincronica", "segundoPlano"})
+    public String asignacion;
+
+    private EntityManagerFactory emf;
+    private DatosBenchmark datos;
+    private PublicadorCambios publicador;
+    private long siguiente;
+    private Long citaId;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = DatosPrueba.crearFactory("espera");
+        datos = DatosBenchmark.sembrar(emf, 1, 30, 30, 1_000, 0, 42);
+        if (asignacion.equals("segundoPlano")) {
+            publicador = new PublicadorCambios(emf, AsignadorListaEspera.PUBLICADOR,
+                    List.of(new AsignadorListaEspera(emf)), PublicadorCambios.TAMANIO_LOTE_POR_DEFECTO,
+                    Duration.ofMillis(50)).iniciar();
+        }
+    }
+
+    /**
+     * Una cita en un horario nuevo y una solicitud que solo acepta ese horario.
+     */
+    @Setup(Level.Invocation)
+    public void reservar() throws CitaException {
+        long n = siguiente++;
+        int m = (int) (n % datos.medicos.size());
+        LocalDateTime fecha = datos.inicioCitas.plusHours(DatosBenchmark.HORAS_ENTRE_CITAS * n);
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Medico medico = em.find(Medico.class, datos.medicos.get(m));
+            Cita cita = Cita.builder()
+                    .paciente(em.getReference(Paciente.class, datos.pacientes.get((int) (n % datos.pacientes.size()))))
+                    .medico(medico)
+                    .sala(em.getReference(Sala.class, datos.salaDeMedico.get(m)))
+                    .fechaHora(fecha)
+                    .costo(BigDecimal.valueOf(15_000))
+                    .estado(EstadoCita.PROGRAMADA)
+                    .build();
+            em.persist(cita);
+            new ListaEsperaManager(em).anotar(SolicitudEspera.builder()
+                    .paciente(em.getReference(Paciente.class, datos.pacientes.get((int) ((n + 1) % datos.pacientes.size()))))
+                    .especialidad(medico.getEspecialidad())
+                    .desde(fecha).hasta(fecha)
+                    .costo(BigDecimal.valueOf(15_000))
+                    .build());
+            em.getTransaction().commit();
+            citaId = cita.getId();
+        } finally {
+            em.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        if (publicador != null) {
+            publicador.close();
+            publicador.publicarPendientes();
+            PublicadorCambios.Estadisticas estadisticas = publicador.estadisticas();
+            System.out.printf("%nAsignador: retraso p50 %.1f ms, p99 %.1f ms%n",
+                    estadisticas.retraso().p50() / 1e6, estadisticas.retraso().p99() / 1e6);
+        }
+        // Comprobación: cada horario cancelado pasó a una solicitud de la lista de espera
+        EntityManager em = emf.createEntityManager();
+        try {
+            long asignadas = em.createQuery("SELECT COUNT(s) FROM SolicitudEspera s WHERE s.estado = :asignada", Long.class)
+                    .setParameter("asignada", EstadoSolicitudEspera.ASIGNADA)
+                    .getSingleResult();
+            long canceladas = em.createQuery("SELECT COUNT(c) FROM Cita c WHERE c.estado = :cancelada", Long.class)
+                    .setParameter("cancelada", EstadoCita.CANCELADA)
+                    .getSingleResult();
+            if (asignadas != canceladas) {
+                throw new IllegalStateException("Se asignaron " + asignadas + " de " + canceladas + " horarios cancelados");
+            }
+        } finally {
+            em.close();
+        }
+        emf.close();
+    }
+
+    @Benchmark
+    public boolean cancelar() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Cita cita = em.find(Cita.class, citaId);
+            cita.setEstado(EstadoCita.CANCELADA);
+            boolean asignada = false;
+            if (publicador == null) {
+                em.flush();
+                asignada = new ListaEsperaManager(em)
+                        .ofrecerHorario(cita.getMedico().getId(), cita.getSala().getId(), cita.getFechaHora())
+                        .isPresent();
+            }
+            em.getTransaction().commit();
+            return asignada;
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Cita;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.servicios.CitaManager;
+import org.example.servicios.CitaResumen;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listados de citas por médico y por paciente, con entidades y con proyecciones.
+ * El contexto de persistencia se limpia en cada invocación para medir la carga completa.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ListadoCitasBenchmark {
+
+    @Param({"10000", "100000"})
+    public int citas;
+
+    @Param({"60"})
+    public int medicos;
+
+    @Param({"500"})
+    public int pacientes;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private CitaManager manager;
+    private Long medicoId;
+    private Long pacienteId;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = DatosPrueba.crearFactory("listado");
+        DatosBenchmark datos = DatosBenchmark.sembrar(emf, 2, medicos, medicos / 2, pacientes, citas, 42);
+        em = emf.createEntityManager();
+        manager = new CitaManager(em);
+        medicoId = datos.medicos.get(0);
+        pacienteId = datos.pacientes.get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        em.close();
+        emf.close();
+    }
+
+    @Setup(Level.Invocation)
+    public void limpiar() {
+        em.clear();
+    }
+
+    @Benchmark
+    public List<Cita> citasPorMedico() {
+        return manager.getCitasPorMedico(em.getReference(Medico.class, medicoId));
+    }
+
+    @Benchmark
+    public List<Cita> citasPorPaciente() {
+        return manager.getCitasPorPaciente(em.getReference(Paciente.class, pacienteId));
+    }
+
+    @Benchmark
+    public List<CitaResumen> resumenPorMedico() {
+        return manager.getResumenCitasPorMedico(em.getReference(Medico.class, medicoId));
+    }
+
+    @Benchmark
+    public List<CitaResumen> resumenPorPaciente() {
+        return manager.getResumenCitasPorPaciente(em.getReference(Paciente.class, pacienteId));
+    }
+}
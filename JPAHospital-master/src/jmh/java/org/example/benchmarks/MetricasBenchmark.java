@@ -0,0 +1,44 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.servicios.CitaException;
+import org.example.servicios.MetricasCitas;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de registrar las métricas de una llamada a programarCita (tres etapas, la latencia total y un rechazo).
+ * Con {@code -prof gc} la tasa de asignación debe ser cero; con {@code -t 4} se ve la contención entre hilos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricasBenchmark {
+
+    private EntityManagerFactory emf;
+    private MetricasCitas metricas;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = DatosPrueba.crearFactory("metricas");
+        metricas = MetricasCitas.de(emf);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        emf.close();
+    }
+
+    @Benchmark
+    public long registrarProgramarCita() {
+        long inicio = System.nanoTime();
+        long etapa = metricas.etapa(MetricasCitas.Etapa.VALIDACION, inicio);
+        etapa = metricas.etapa(MetricasCitas.Etapa.DISPONIBILIDAD_MEDICO, etapa);
+        etapa = metricas.etapa(MetricasCitas.Etapa.DISPONIBILIDAD_SALA, etapa);
+        metricas.rechazo(CitaException.Motivo.SALA_NO_DISPONIBLE);
+        metricas.operacion(MetricasCitas.Operacion.PROGRAMAR_CITA, inicio);
+        return etapa;
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Departamento;
+import org.example.entidades.Hospital;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.example.servicios.HospitalManager;
+import org.example.servicios.PerfilCarga;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Carga de un hospital de 40 departamentos y 10.000 pacientes con cada {@link PerfilCarga}, frente a recorrer
+ * el agregado navegando las colecciones. Al preparar informa cuántas sentencias usa cada ruta con la caché de segundo
+ * nivel vacía; el tope de sentencias de cada perfil lo verifica HospitalManagerPerfilCargaTest en el build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PerfilCargaBenchmark {
+    private static final int DEPARTAMENTOS = 40;
+    private static final int MEDICOS_POR_DEPARTAMENTO = 5;
+    private static final int SALAS_POR_DEPARTAMENTO = 2;
+    private static final int PACIENTES = 10_000;
+
+    @Param({"DIRECTORIO", "CENSO", "COMPLETO"})
+    public PerfilCarga perfil;
+
+    private EntityManagerFactory emf;
+    private Long hospitalId;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = DatosPrueba.crearFactory("perfiles");
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Hospital hospital = Hospital.builder().nombre("Hospital").direccion("Calle 1").telefono("261-000-0000").build();
+        for (int d = 0; d < DEPARTAMENTOS; d++) {
+            var especialidad = DatosBenchmark.ESPECIALIDADES[d % DatosBenchmark.ESPECIALIDADES.length];
+            Departamento departamento = Departamento.builder().nombre("Departamento " + d).especialidad(especialidad).build();
+            hospital.agregarDepartamento(departamento);
+            for (int m = 0; m < MEDICOS_POR_DEPARTAMENTO; m++) {
+                departamento.agregarMedico(DatosPrueba.medico(d * MEDICOS_POR_DEPARTAMENTO + m, especialidad));
+            }
+            for (int s = 0; s < SALAS_POR_DEPARTAMENTO; s++) {
+                departamento.agregarSala(Sala.builder().numero("S-" + d + "-" + s).tipo("Consultorio").departamento(departamento).build());
+            }
+        }
+        em.persist(hospital);
+        for (int p = 0; p < PACIENTES; p++) {
+            Paciente paciente = DatosPrueba.paciente(p);
+            hospital.agregarPaciente(paciente);
+            em.persist(paciente);
+        }
+        em.getTransaction().commit();
+        em.close();
+        hospitalId = hospital.getId();
+
+        Statistics estadisticas = emf.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+        int elementos = cargarConPerfil();
+        long sentencias = estadisticas.getPrepareStatementCount();
+        estadisticas.clear();
+        recorrer();
+        System.out.printf("%n[%s] %d elementos con %d sentencias (recorriendo el agregado: %d sentencias)%n",
+                perfil, elementos, sentencias, estadisticas.getPrepareStatementCount());
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        emf.close();
+    }
+
+    @Benchmark
+    public int cargarConPerfil() {
+        vaciarCache();
+        EntityManager em = emf.createEntityManager();
+        try {
+            Hospital hospital = new HospitalManager(em).cargar(hospitalId, perfil);
+            em.close(); // Lo que el perfil no inicializó ya no se puede cargar
+            return contar(hospital);
+        } finally {
+            if (em.isOpen()) em.close();
+        }
+    }
+
+    @Benchmark
+    public int recorrer() {
+        vaciarCache();
+        EntityManager em = emf.createEntityManager();
+        try {
+            return contar(em.find(Hospital.class, hospitalId));
+        } finally {
+            em.close();
+        }
+    }
+
+    // Cache.evictAll de JPA no vacía las regiones de colecciones
+    private void vaciarCache() {
+        emf.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    private int contar(Hospital hospital) {
+        int elementos = 0;
+        if (perfil != PerfilCarga.CENSO) {
+            for (Departamento departamento : hospital.getDepartamentos()) {
+                elementos += 1 + departamento.getMedicos().size() + departamento.getSalas().size();
+            }
+            if (elementos != DEPARTAMENTOS * (1 + MEDICOS_POR_DEPARTAMENTO + SALAS_POR_DEPARTAMENTO)) {
+                throw new IllegalStateException("Directorio incompleto: " + elementos);
+            }
+        }
+        if (perfil != PerfilCarga.DIRECTORIO) {
+            elementos += hospital.getPacientes().size();
+        }
+        return elementos;
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Hospital;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistencia en cascada de un hospital completo (departamentos, salas, médicos y pacientes), como en {@code Main}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PersistirHospitalBenchmark {
+
+    private EntityManagerFactory emf;
+    private int siguiente;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = DatosPrueba.crearFactory("persistir");
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        emf.close();
+    }
+
+    @Benchmark
+    public Hospital persistirHospital() {
+        Hospital hospital = DatosBenchmark.hospitalCompleto(siguiente++);
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.persist(hospital);
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+        return hospital;
+    }
+}
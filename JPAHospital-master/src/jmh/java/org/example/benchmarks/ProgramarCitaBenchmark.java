@@ -0,0 +1,87 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Cita;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.example.servicios.CitaException;
+import org.example.servicios.CitaManager;
+import org.example.servicios.DisponibilidadIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validación de {@code programarCita} en el camino que acepta y en el que rechaza por choque de horario,
+ * comparando las consultas COUNT contra el índice de disponibilidad en memoria.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProgramarCitaBenchmark {
+
+    @Param({"consulta", "indice"})
+    public String modo;
+
+    @Param({"10000", "100000", "1000000"})
+    public int citas;
+
+    @Param({"2"})
+    public int hospitales;
+
+    @Param({"60"})
+    public int medicos;
+
+    @Param({"30"})
+    public int salas;
+
+    @Param({"1000"})
+    public int pacientes;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private CitaManager manager;
+    private Paciente paciente;
+    private Medico medico;
+    private Sala sala;
+    private LocalDateTime horarioLibre;
+    private LocalDateTime horarioOcupado;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = DatosPrueba.crearFactory("programar");
+        DatosBenchmark datos = DatosBenchmark.sembrar(emf, hospitales, medicos, salas, pacientes, citas, 42);
+        em = emf.createEntityManager();
+        manager = "indice".equals(modo) ? new CitaManager(em, new DisponibilidadIndex(emf)) : new CitaManager(em);
+        paciente = em.find(Paciente.class, datos.pacientes.get(0));
+        medico = em.find(Medico.class, datos.medicos.get(0));
+        sala = em.find(Sala.class, datos.salaDeMedico.get(0));
+        horarioLibre = datos.inicioCitas.minusDays(3);
+        horarioOcupado = datos.primeraCitaDeMedico.get(medico.getId());
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public Cita aceptar() throws CitaException {
+        return manager.programarCita(paciente, medico, sala, horarioLibre, BigDecimal.TEN, "benchmark");
+    }
+
+    @Benchmark
+    public Object rechazar() {
+        try {
+            return manager.programarCita(paciente, medico, sala, horarioOcupado, BigDecimal.TEN, "benchmark");
+        } catch (CitaException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Cita;
+import org.example.servicios.Agrupacion;
+import org.example.servicios.ReporteAcumulado;
+import org.example.servicios.ReporteManager;
+import org.example.servicios.TotalCitas;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Ingresos y cantidad de citas por departamento o por día: cargando todas las citas y agrupándolas en Java,
+ * con un GROUP BY en la base ({@link ReporteManager}) y leyendo los totales en memoria ({@link ReporteAcumulado}).
+ * La base no guarda sentencias preparadas (QUERY_CACHE_SIZE=0): si no, H2 devuelve el último resultado de un GROUP BY
+ * repetido sin recalcularlo, porque las citas no cambian durante la medición.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReporteBenchmark {
+
+    @Param({"java", "consulta", "acumulado"})
+    public String ruta;
+
+    @Param({"DEPARTAMENTO", "DIA"})
+    public Agrupacion agrupacion;
+
+    @Param({"100000"})
+    public int citas;
+
+    private EntityManagerFactory emf;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = DatosPrueba.crearFactory("reporte", Map.of(
+                "jakarta.persistence.jdbc.url", "jdbc:h2:mem:reporte;DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=0"));
+        DatosBenchmark.sembrar(emf, 2, 60, 30, 500, citas, 42);
+
+        // Comprobación: las tres rutas dan los mismos totales
+        EntityManager em = emf.createEntityManager();
+        List<TotalCitas> esperado = new ReporteManager(em).getTotales(agrupacion, null, null);
+        em.close();
+        List<TotalCitas> obtenido = totales();
+        boolean iguales = esperado.size() == obtenido.size();
+        for (int i = 0; iguales && i < esperado.size(); i++) {
+            iguales = esperado.get(i).clave().equals(obtenido.get(i).clave()) && esperado.get(i).citas() == obtenido.get(i).citas()
+                    && esperado.get(i).ingresos().compareTo(obtenido.get(i).ingresos()) == 0;
+        }
+        if (!iguales) throw new IllegalStateException("Totales distintos: " + esperado + " / " + obtenido);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        emf.close();
+    }
+
+    @Benchmark
+    public List<TotalCitas> totales() {
+        switch (ruta) {
+            case "acumulado":
+                return ReporteAcumulado.de(emf).getTotales(agrupacion, null, null);
+            case "consulta": {
+                EntityManager em = emf.createEntityManager();
+                try {
+                    return new ReporteManager(em).getTotales(agrupacion, null, null);
+                } finally {
+                    em.close();
+                }
+            }
+            default:
+                return agruparEnJava();
+        }
+    }
+
+    private List<TotalCitas> agruparEnJava() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<Cita> todas = em.createQuery("SELECT c FROM Cita c JOIN FETCH c.sala s JOIN FETCH s.departamento", Cita.class).getResultList();
+            Function<Cita, Comparable<?>> clave = agrupacion == Agrupacion.DIA
+                    ? c -> c.getFechaHora().toLocalDate()
+                    : c -> c.getSala().getDepartamento().getId();
+            Map<Comparable<?>, long[]> cantidades = new TreeMap<>();
+            Map<Comparable<?>, BigDecimal> ingresos = new TreeMap<>();
+            for (Cita cita : todas) {
+                Comparable<?> k = clave.apply(cita);
+                cantidades.computeIfAbsent(k, x -> new long[1])[0]++;
+                ingresos.merge(k, cita.getCosto(), BigDecimal::add);
+            }
+            List<TotalCitas> totales = new ArrayList<>();
+            cantidades.forEach((k, n) -> totales.add(new TotalCitas(k, n[0], ingresos.get(k))));
+            return totales;
+        } finally {
+            em.close();
+        }
+    }
+}
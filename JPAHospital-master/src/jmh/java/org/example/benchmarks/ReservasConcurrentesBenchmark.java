@@ -0,0 +1,110 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.example.servicios.CitaException;
+import org.example.servicios.CitaManagerConcurrente;
+import org.example.servicios.DisponibilidadIndex;
+import org.example.servicios.MetricasCitas;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de estrés de {@link CitaManagerConcurrente}: muchos hilos reservan a la vez sobre pocos médicos y salas,
+ * con bloqueo pesimista o con versiones (optimista). Con un solo médico todas las reservas compiten por la misma fila.
+ * Al terminar informa la tasa de reintentos por conflicto de versión y verifica que ninguna cita del mismo médico
+ * o de la misma sala quedó a menos de 2 horas de otra.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class ReservasConcurrentesBenchmark {
+
+    @Param({"consulta", "indice"})
+    public String modo;
+
+    @Param({"PESIMISTA", "OPTIMISTA"})
+    public CitaManagerConcurrente.Bloqueo bloqueo;
+
+    /** Médicos sobre los que compiten los hilos; menos médicos implica más contención. */
+    @Param({"1", "6"})
+    public int medicos;
+
+    private EntityManagerFactory emf;
+    private CitaManagerConcurrente manager;
+    private List<Medico> medicosCargados;
+    private List<Sala> salasCargadas;
+    private Paciente paciente;
+    private LocalDateTime inicio;
+    private final AtomicLong aceptadas = new AtomicLong();
+    private final AtomicLong rechazadas = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = DatosPrueba.crearFactory("concurrente");
+        DatosBenchmark datos = DatosBenchmark.sembrar(emf, 1, medicos, medicos, 10, 0, 42);
+        EntityManager em = emf.createEntityManager();
+        medicosCargados = datos.medicos.stream().map(id -> em.find(Medico.class, id)).toList();
+        salasCargadas = datos.salaDeMedico.stream().map(id -> em.find(Sala.class, id)).toList();
+        paciente = em.find(Paciente.class, datos.pacientes.get(0));
+        em.close();
+        manager = new CitaManagerConcurrente(emf, "indice".equals(modo) ? new DisponibilidadIndex(emf) : null, bloqueo);
+        inicio = LocalDateTime.now().plusDays(1).withNano(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void verificar() {
+        EntityManager em = emf.createEntityManager();
+        List<Object[]> filas = em.createQuery(
+                "SELECT c.medico.id, c.sala.id, c.fechaHora FROM Cita c ORDER BY c.fechaHora", Object[].class).getResultList();
+        em.close();
+        Map<Long, LocalDateTime> ultimaPorMedico = new HashMap<>();
+        Map<Long, LocalDateTime> ultimaPorSala = new HashMap<>();
+        for (Object[] fila : filas) {
+            LocalDateTime fecha = (LocalDateTime) fila[2];
+            verificarBufer(ultimaPorMedico.put((Long) fila[0], fecha), fecha, "médico " + fila[0]);
+            verificarBufer(ultimaPorSala.put((Long) fila[1], fecha), fecha, "sala " + fila[1]);
+        }
+        MetricasCitas.Instantanea metricas = MetricasCitas.de(emf).instantanea();
+        long intentos = aceptadas.get() + rechazadas.get();
+        System.out.printf("%n[%s/%s/%d] aceptadas=%d rechazadas=%d (por conflicto: %d), reintentos=%d (%.2f por reserva), sin dobles reservas en %d citas%n",
+                modo, bloqueo, medicos, aceptadas.get(), rechazadas.get(), metricas.rechazos().get(CitaException.Motivo.CONFLICTO_CONCURRENTE),
+                metricas.reintentos(), intentos == 0 ? 0.0 : (double) metricas.reintentos() / intentos, filas.size());
+        emf.close();
+    }
+
+    private static void verificarBufer(LocalDateTime anterior, LocalDateTime actual, String recurso) {
+        if (anterior != null && Duration.between(anterior, actual).compareTo(Duration.ofHours(2)) <= 0) {
+            throw new IllegalStateException("Doble reserva para " + recurso + ": " + anterior + " y " + actual);
+        }
+    }
+
+    @Benchmark
+    public Object reservar() {
+        ThreadLocalRandom azar = ThreadLocalRandom.current();
+        int m = azar.nextInt(medicosCargados.size());
+        LocalDateTime fechaHora = inicio.plusMinutes(30L * azar.nextInt(20_000));
+        try {
+            Object cita = manager.programarCita(paciente, medicosCargados.get(m), salasCargadas.get(m), fechaHora, BigDecimal.TEN, "estrés");
+            aceptadas.incrementAndGet();
+            return cita;
+        } catch (CitaException e) {
+            rechazadas.incrementAndGet();
+            return e;
+        }
+    }
+}
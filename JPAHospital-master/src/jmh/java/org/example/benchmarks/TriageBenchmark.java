@@ -0,0 +1,87 @@
+package org.example.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Hospital;
+import org.example.entidades.TipoSangre;
+import org.example.servicios.TriageIndex;
+import org.example.servicios.TriageManager;
+import org.example.servicios.TriageService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Búsquedas de triage sobre 1M de pacientes repartidos en 49 hospitales: por tipo de sangre en un hospital
+ * y por alergia, con consultas indexadas ({@link TriageManager}) y con el índice en memoria ({@link TriageIndex}).
+ * Uno de cada 20 pacientes tiene una alergia registrada, entre 10 términos posibles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TriageBenchmark {
+
+    @Param({"1000000"})
+    public int pacientes;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private Hospital hospital;
+    private TriageService consultas;
+    private TriageService indice;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        emf = DatosPrueba.crearFactory("triage");
+        // 49 hospitales: como el tipo de sangre se asigna en ronda (8 tipos), así cada hospital tiene de todos
+        DatosBenchmark datos = DatosBenchmark.sembrar(emf, 49, 147, 147, pacientes, 0, 42);
+        em = emf.createEntityManager();
+        em.getTransaction().begin();
+        em.createNativeQuery("INSERT INTO EntradaHistoria (id, tipo, descripcion, clave, fechaRegistro, historia_id) "
+                + "SELECT NEXT VALUE FOR entrada_historia_seq, 'ALERGIA', 'Alergia ' || MOD(h.id / 20, 10), "
+                + "'alergia ' || MOD(h.id / 20, 10), CURRENT_TIMESTAMP, h.id FROM HistoriaClinica h WHERE MOD(h.id, 20) = 0")
+                .executeUpdate();
+        em.getTransaction().commit();
+        hospital = em.find(Hospital.class, datos.hospitales.get(0));
+        consultas = new TriageManager(em);
+        long inicio = System.nanoTime();
+        indice = TriageIndex.de(emf);
+        System.out.printf("%nÍndice de triage cargado en %d ms%n", (System.nanoTime() - inicio) / 1_000_000);
+        if (tipoSangreIndice().length == 0 || tipoSangreIndice().length != tipoSangreConsulta().length
+                || alergiaIndice().length == 0 || alergiaIndice().length != alergiaConsulta().length) {
+            throw new IllegalStateException("El índice y las consultas no coinciden o no hay pacientes para buscar.");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        em.close();
+        emf.close();
+    }
+
+    @Benchmark
+    public long[] tipoSangreConsulta() {
+        return consultas.getPacientesPorTipoSangre(hospital, TipoSangre.O_NEGATIVO);
+    }
+
+    @Benchmark
+    public long[] tipoSangreIndice() {
+        return indice.getPacientesPorTipoSangre(hospital, TipoSangre.O_NEGATIVO);
+    }
+
+    @Benchmark
+    public long[] alergiaConsulta() {
+        return consultas.getPacientesConAlergia(hospital, "Alergia 3");
+    }
+
+    @Benchmark
+    public long[] alergiaIndice() {
+        return indice.getPacientesConAlergia(hospital, "Alergia 3");
+    }
+
+    @Benchmark
+    public long[] alergiaTodosLosHospitalesIndice() {
+        return indice.getPacientesConAlergia(null, "Alergia 3");
+    }
+}
@@ -0,0 +1,78 @@
+package org.example;
+
+import org.example.configuracion.FragmentosHospital;
+import org.example.entidades.*;
+import org.example.servicios.CitaException;
+import org.example.servicios.CitaManagerFragmentado;
+import org.example.servicios.CitaService;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Varios hospitales repartidos entre las bases de {@code -Dhospital.fragmentos} (o {@code HOSPITAL_FRAGMENTOS}):
+ * registra un hospital por base, programa una cita en cada uno con {@link CitaManagerFragmentado} y busca por DNI
+ * en todas las bases a la vez.
+ *
+ * Uso: {@code HOSPITAL_FRAGMENTOS=jdbc:h2:file:./data/hospidb-0,jdbc:h2:file:./data/hospidb-1 ./gradlew demoFragmentos}
+ */
+public class DemoFragmentos {
+    private static final String DNI_COMPARTIDO = "45678901";
+
+    public static void main(String[] args) {
+        try (FragmentosHospital fragmentos = FragmentosHospital.crear()) {
+            CitaService citaManager = new CitaManagerFragmentado(fragmentos);
+            LocalDateTime horario = LocalDate.now().plusDays(5).atTime(10, 0);
+
+            System.out.println("--- Registrando un hospital por base (" + fragmentos.cantidad() + ") ---");
+            List<Hospital> hospitales = new ArrayList<>();
+            for (int i = 0; i < fragmentos.cantidad(); i++) {
+                Hospital hospital = fragmentos.registrar(hospital(i));
+                hospitales.add(hospital);
+                System.out.println("  - " + hospital.getNombre() + " (hospital " + hospital.getId() + ") quedó en la base "
+                        + fragmentos.indiceDe(hospital));
+            }
+
+            System.out.println("\n--- Programando una cita en cada hospital ---");
+            for (Hospital hospital : hospitales) {
+                Departamento departamento = hospital.getDepartamentos().get(0);
+                try {
+                    citaManager.programarCita(hospital.getPacientes().get(0), departamento.getMedicos().get(0),
+                            departamento.getSalas().get(0), horario, new BigDecimal("25000.00"), "Control anual.");
+                    System.out.println("  - Cita programada en " + hospital.getNombre());
+                } catch (CitaException e) {
+                    System.err.println("  - ERROR CONTROLADO en " + hospital.getNombre() + ": " + e.getMessage());
+                }
+            }
+
+            // La consulta se ejecuta en paralelo en todas las bases y se unen los resultados
+            System.out.println("\n--- Buscando el DNI " + DNI_COMPARTIDO + " en todas las bases ---");
+            fragmentos.buscarPacientesPorDni(DNI_COMPARTIDO).forEach(p -> System.out.println("  - "
+                    + p.getNombreCompleto() + ", " + p.getHospital().getNombre()));
+        }
+    }
+
+    private static Hospital hospital(int i) {
+        Hospital hospital = Hospital.builder()
+                .nombre("Hospital " + (i + 1))
+                .direccion("Av. Alem " + (100 + i))
+                .telefono("261-455-" + (1000 + i))
+                .build();
+        Departamento cardiologia = Departamento.builder().nombre("Cardiología").especialidad(EspecialidadMedica.CARDIOLOGIA).build();
+        hospital.agregarDepartamento(cardiologia);
+        cardiologia.agregarSala(Sala.builder().numero("C-101").tipo("Consultorio").departamento(cardiologia).build());
+        cardiologia.agregarMedico(Medico.builder()
+                .nombre("Juan").apellido("Perez").dni(String.valueOf(12345678 + i)).fechaNacimiento(LocalDate.of(1980, 5, 15))
+                .tipoSangre(TipoSangre.A_POSITIVO).matricula(new Matricula("MP-" + (123456 + i))).especialidad(EspecialidadMedica.CARDIOLOGIA)
+                .build());
+        // El mismo paciente, registrado en todos los hospitales
+        hospital.agregarPaciente(Paciente.builder()
+                .nombre("Maria").apellido("Lopez").dni(DNI_COMPARTIDO).fechaNacimiento(LocalDate.of(1990, 1, 30))
+                .tipoSangre(TipoSangre.AB_POSITIVO).telefono("261-111-2222").direccion("Calle Falsa 123")
+                .build());
+        return hospital;
+    }
+}
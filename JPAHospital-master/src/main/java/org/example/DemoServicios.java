@@ -0,0 +1,145 @@
+package org.example;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.cambios.ArchivoCambios;
+import org.example.cambios.PublicadorCambios;
+import org.example.configuracion.PerfilPersistencia;
+import org.example.entidades.*;
+import org.example.servicios.AsignadorListaEspera;
+import org.example.servicios.CacheDirectorio;
+import org.example.servicios.CitaException;
+import org.example.servicios.CitaManagerConcurrente;
+import org.example.servicios.CitaService;
+import org.example.servicios.DirectorioManager;
+import org.example.servicios.DirectorioService;
+import org.example.servicios.DisponibilidadIndex;
+import org.example.servicios.ListaEsperaManager;
+import org.example.servicios.MetricasCitas;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Los servicios que acompañan a las reservas, sobre una base H2 en memoria: búsquedas en el directorio con su caché,
+ * publicación del historial de cambios de citas a un archivo, asignación de un horario cancelado a la lista de
+ * espera y métricas de citas, también por JMX.
+ *
+ * Uso: {@code ./gradlew demoServicios}
+ */
+public class DemoServicios {
+    private static final Map<String, Object> BASE_EN_MEMORIA = Map.of(
+            "jakarta.persistence.jdbc.url", "jdbc:h2:mem:demoServicios;DB_CLOSE_DELAY=-1",
+            "hibernate.show_sql", "false",
+            "hibernate.format_sql", "false");
+
+    public static void main(String[] args) throws CitaException, IOException {
+        EntityManagerFactory emf = PerfilPersistencia.actual().crearEntityManagerFactory(BASE_EN_MEMORIA);
+        // Una transacción por operación y el índice de disponibilidad en memoria, compartido con la lista de espera
+        DisponibilidadIndex disponibilidad = new DisponibilidadIndex(emf);
+        CitaService citaManager = new CitaManagerConcurrente(emf, disponibilidad);
+        MetricasCitas metricas = MetricasCitas.de(emf);
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Hospital hospital = hospital();
+            em.persist(hospital);
+            em.getTransaction().commit();
+            Departamento cardiologia = hospital.getDepartamentos().get(0);
+            Medico medico = cardiologia.getMedicos().get(0);
+            Sala sala = cardiologia.getSalas().get(0);
+            Paciente maria = hospital.getPacientes().get(0);
+            Paciente carlos = hospital.getPacientes().get(1);
+            LocalDateTime dia = LocalDate.now().plusDays(5).atStartOfDay();
+
+            citaManager.programarCita(maria, medico, sala, dia.withHour(10), new BigDecimal("25000.50"), "Control anual.");
+
+            // --- Directorio: las fichas encontradas, y los DNI que no existen, quedan en la caché ---
+            System.out.println("--- Búsquedas en el directorio ---");
+            CacheDirectorio cache = CacheDirectorio.de(emf);
+            DirectorioService directorio = new DirectorioManager(em, cache);
+            directorio.buscarMedicoPorMatricula("MP-12345").ifPresent(m -> System.out.println("  - Matrícula MP-12345: " + m.nombre() + " " + m.apellido()));
+            directorio.buscarPacientePorDni(maria.getDni()).ifPresent(p -> System.out.println("  - DNI " + p.dni() + ": " + p.nombre() + " " + p.apellido()));
+            System.out.println("  - DNI 99999999 registrado: " + directorio.buscarPacientePorDni("99999999").isPresent());
+            System.out.println("  - DNI 99999999 registrado: " + directorio.buscarPacientePorDni("99999999").isPresent());
+            System.out.println("  - " + cache.estadisticas());
+
+            // --- Lista de espera: el horario de una cita cancelada se ofrece a la primera solicitud pendiente ---
+            System.out.println("\n--- Lista de espera ---");
+            em.getTransaction().begin();
+            SolicitudEspera solicitud = new ListaEsperaManager(em, disponibilidad).anotar(SolicitudEspera.builder()
+                    .paciente(em.find(Paciente.class, carlos.getId()))
+                    .especialidad(EspecialidadMedica.CARDIOLOGIA)
+                    .desde(dia).hasta(dia.plusDays(1))
+                    .prioridad(1).costo(new BigDecimal("30000.00")).observaciones("Consulta de seguimiento.")
+                    .build());
+            em.getTransaction().commit();
+            Cita cancelada = citaManager.programarCita(maria, medico, sala, dia.withHour(15), new BigDecimal("25000.00"),
+                    "Chequeo preoperatorio.");
+            em.getTransaction().begin();
+            em.find(Cita.class, cancelada.getId()).setEstado(EstadoCita.CANCELADA);
+            em.getTransaction().commit();
+            // En una aplicación corre en segundo plano con AsignadorListaEspera.iniciar; aquí se procesa una vez
+            try (PublicadorCambios listaEspera = new PublicadorCambios(emf, AsignadorListaEspera.PUBLICADOR,
+                    List.of(new AsignadorListaEspera(emf, disponibilidad)))) {
+                listaEspera.publicarPendientes();
+            }
+            em.refresh(solicitud);
+            System.out.println("  - La solicitud de " + carlos.getNombreCompleto() + " quedó " + solicitud.getEstado()
+                    + (solicitud.getCita() != null ? " para el " + solicitud.getCita().getFechaHora() : ""));
+
+            // --- Historial de cambios: cada alta y cambio de estado se entrega en orden de confirmación ---
+            System.out.println("\n--- Historial de cambios de citas ---");
+            try (ArchivoCambios archivo = new ArchivoCambios(Path.of("data", "cambios-citas.csv"));
+                 PublicadorCambios publicador = new PublicadorCambios(emf, "demo", List.of(archivo))) {
+                int entregados = publicador.publicarPendientes();
+                System.out.println("  - Cambios publicados en " + archivo.getArchivo() + ": " + entregados
+                        + " (pendientes: " + publicador.pendientes() + ")");
+            }
+
+            // --- Métricas ---
+            System.out.println("\n--- Métricas de citas (también disponibles por JMX en " + metricas.registrarJmx() + ") ---");
+            MetricasCitas.Instantanea instantanea = metricas.instantanea();
+            instantanea.latencias().forEach((operacion, r) -> System.out.printf("  - %s: %d llamadas, p99 %.1f µs%n",
+                    operacion, r.cantidad(), r.p99() / 1_000.0));
+            instantanea.rechazos().forEach((motivo, cantidad) -> {
+                if (cantidad > 0) System.out.println("  - Rechazos por " + motivo + ": " + cantidad);
+            });
+            System.out.println("  - Hibernate: " + instantanea.hibernate());
+        } finally {
+            if (em.getTransaction().isActive()) em.getTransaction().rollback();
+            metricas.desregistrarJmx();
+            em.close();
+            emf.close();
+        }
+    }
+
+    private static Hospital hospital() {
+        Hospital hospital = Hospital.builder()
+                .nombre("Hospital Central de Mendoza")
+                .direccion("Av. Alem 456")
+                .telefono("261-455-6789")
+                .build();
+        Departamento cardiologia = Departamento.builder().nombre("Cardiología").especialidad(EspecialidadMedica.CARDIOLOGIA).build();
+        hospital.agregarDepartamento(cardiologia);
+        cardiologia.agregarSala(Sala.builder().numero("C-101").tipo("Consultorio").departamento(cardiologia).build());
+        cardiologia.agregarMedico(Medico.builder()
+                .nombre("Juan").apellido("Perez").dni("12345678").fechaNacimiento(LocalDate.of(1980, 5, 15))
+                .tipoSangre(TipoSangre.A_POSITIVO).matricula(new Matricula("MP-12345")).especialidad(EspecialidadMedica.CARDIOLOGIA)
+                .build());
+        hospital.agregarPaciente(Paciente.builder()
+                .nombre("Maria").apellido("Lopez").dni("45678901").fechaNacimiento(LocalDate.of(1990, 1, 30))
+                .tipoSangre(TipoSangre.AB_POSITIVO).telefono("261-111-2222").direccion("Calle Falsa 123")
+                .build());
+        hospital.agregarPaciente(Paciente.builder()
+                .nombre("Carlos").apellido("Sanchez").dni("56789012").fechaNacimiento(LocalDate.of(2018, 11, 20))
+                .tipoSangre(TipoSangre.A_NEGATIVO).telefono("261-333-4444").direccion("Av. Siempre Viva 742")
+                .build());
+        return hospital;
+    }
+}
@@ -2,8 +2,8 @@ package org.example;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
-import jakarta.persistence.Persistence;
 import jakarta.persistence.TypedQuery;
+import org.example.configuracion.PerfilPersistencia;
 import org.example.entidades.*;
 import org.example.servicios.CitaException;
 import org.example.servicios.CitaManager;
@@ -16,7 +16,8 @@ import java.util.List;
 
 public class Main {
     public static void main(String[] args) {
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("hospital-persistence-unit");
+        // El perfil (DESARROLLO o PRODUCCION) se elige con -Dhospital.perfil o la variable HOSPITAL_PERFIL
+        EntityManagerFactory emf = PerfilPersistencia.actual().crearEntityManagerFactory();
         EntityManager em = emf.createEntityManager();
         // Se instancia el gestor de citas, pasándole el EntityManager
         CitaService citaManager = new CitaManager(em);
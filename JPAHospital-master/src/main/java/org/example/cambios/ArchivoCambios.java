@@ -0,0 +1,133 @@
+package org.example.cambios;
+
+import org.example.entidades.CambioCita;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Consumidor que agrega cada cambio como una línea CSV a un archivo local, pensado para pruebas y para inspeccionar
+ * el historial. Al abrir un archivo existente continúa después de su última línea e ignora los cambios ya escritos
+ * (los de una confirmación anterior, o de la misma con un id menor o igual), por lo que una entrega repetida no
+ * duplica líneas. No es thread-safe.
+ */
+public final class ArchivoCambios implements ConsumidorCambios, Closeable {
+    static final String CABECERA = "confirmacion,id,cita,tipo,estadoAnterior,estado,medico,sala,paciente,fechaHora,registrado";
+
+    private final Path archivo;
+    private final BufferedWriter salida;
+    private long ultimaConfirmacion;
+    private long ultimoId;
+    private long escritos;
+
+    public ArchivoCambios(Path archivo) throws IOException {
+        this.archivo = Objects.requireNonNull(archivo, "El archivo no puede ser nulo.");
+        if (archivo.getParent() != null) Files.createDirectories(archivo.getParent());
+        boolean nuevo = Files.notExists(archivo) || Files.size(archivo) == 0;
+        if (!nuevo) {
+            long[] ultimo = ultimoEscrito(archivo);
+            this.ultimaConfirmacion = ultimo[0];
+            this.ultimoId = ultimo[1];
+        }
+        this.salida = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        if (nuevo) {
+            salida.write(CABECERA);
+            salida.newLine();
+            salida.flush();
+        }
+    }
+
+    @Override
+    public void consumir(List<CambioCita> lote) throws IOException {
+        for (CambioCita cambio : lote) {
+            long confirmacion = cambio.getConfirmacion();
+            if (confirmacion < ultimaConfirmacion || (confirmacion == ultimaConfirmacion && cambio.getId() <= ultimoId)) {
+                continue;
+            }
+            salida.write(confirmacion + "," + cambio.getId() + "," + cambio.getCitaId() + "," + cambio.getTipo() + ","
+                    + valor(cambio.getEstadoAnterior()) + "," + valor(cambio.getEstado()) + ","
+                    + valor(cambio.getMedicoId()) + "," + valor(cambio.getSalaId()) + "," + valor(cambio.getPacienteId()) + ","
+                    + valor(cambio.getFechaHora()) + "," + cambio.getRegistrado());
+            salida.newLine();
+            ultimaConfirmacion = confirmacion;
+            ultimoId = cambio.getId();
+            escritos++;
+        }
+        // El lote queda en el archivo antes de que el publicador avance su posición
+        salida.flush();
+    }
+
+    public Path getArchivo() {
+        return archivo;
+    }
+
+    /**
+     * Confirmación del último cambio escrito en el archivo, o 0 si no tiene ninguno.
+     */
+    public long getUltimaConfirmacion() {
+        return ultimaConfirmacion;
+    }
+
+    /**
+     * Id del último cambio escrito en el archivo, o 0 si no tiene ninguno.
+     */
+    public long getUltimoId() {
+        return ultimoId;
+    }
+
+    /**
+     * Líneas escritas desde que se abrió el archivo.
+     */
+    public long getEscritos() {
+        return escritos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        salida.close();
+    }
+
+    private static String valor(Object valor) {
+        return valor == null ? "" : valor.toString();
+    }
+
+    /**
+     * Confirmación e id de la última línea del archivo, leída desde el final sin recorrerlo completo.
+     */
+    private static long[] ultimoEscrito(Path archivo) throws IOException {
+        try (RandomAccessFile lector = new RandomAccessFile(archivo.toFile(), "r")) {
+            long fin = lector.length();
+            // Se ignoran los saltos de línea finales
+            while (fin > 0) {
+                lector.seek(fin - 1);
+                if (lector.read() != '\n') break;
+                fin--;
+            }
+            long inicio = fin;
+            while (inicio > 0) {
+                lector.seek(inicio - 1);
+                if (lector.read() == '\n') break;
+                inicio--;
+            }
+            byte[] linea = new byte[(int) (fin - inicio)];
+            lector.seek(inicio);
+            lector.readFully(linea);
+            String texto = new String(linea, StandardCharsets.UTF_8).strip();
+            if (texto.isEmpty() || texto.equals(CABECERA)) return new long[2];
+            try {
+                String[] campos = texto.split(",", 3);
+                return new long[]{Long.parseLong(campos[0]), Long.parseLong(campos[1])};
+            } catch (RuntimeException e) {
+                throw new IOException("La última línea de " + archivo + " no es un cambio de cita: " + texto, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.cambios;
+
+import org.example.entidades.CambioCita;
+
+import java.util.List;
+
+/**
+ * Destino de los cambios de citas que entrega un {@link PublicadorCambios}.
+ */
+@FunctionalInterface
+public interface ConsumidorCambios {
+
+    /**
+     * Recibe un lote de cambios confirmados, en orden de confirmación de sus transacciones y, dentro de cada una, de id.
+     * Si lanza una excepción, el publicador vuelve a entregar el lote completo (a este y a los demás consumidores)
+     * en el siguiente intento: la entrega es "al menos una vez" y cada consumidor puede ignorar los cambios que ya
+     * procesó comparando la confirmación y el id.
+     */
+    void consumir(List<CambioCita> lote) throws Exception;
+}
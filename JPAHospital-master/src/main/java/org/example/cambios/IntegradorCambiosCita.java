@@ -0,0 +1,41 @@
+package org.example.cambios;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.model.naming.Identifier;
+import org.hibernate.boot.model.relational.Namespace;
+import org.hibernate.boot.model.relational.Sequence;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * Registra {@link RegistroCambiosCita} al crear cada SessionFactory, para que ninguna factory escriba citas sin
+ * registrar sus cambios. Hibernate lo encuentra por META-INF/services.
+ *
+ * La secuencia de confirmaciones no genera el id de ninguna entidad, así que se agrega aquí al modelo relacional:
+ * la generación del esquema, que corre después, la crea o la valida como a las demás.
+ */
+public class IntegradorCambiosCita implements Integrator {
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        Object valor = sessionFactory.getProperties().get(RegistroCambiosCita.PROPIEDAD);
+        if (valor != null && !Boolean.parseBoolean(valor.toString())) return;
+
+        Namespace namespace = metadata.getDatabase().getDefaultNamespace();
+        Identifier nombre = Identifier.toIdentifier(RegistroCambiosCita.SECUENCIA);
+        Sequence secuencia = namespace.locateSequence(nombre);
+        if (secuencia == null) {
+            secuencia = namespace.createSequence(nombre, fisico -> new Sequence("orm", namespace.getPhysicalName().getCatalog(),
+                    namespace.getPhysicalName().getSchema(), fisico, 1, 1));
+        }
+        RegistroCambiosCita.registrar(sessionFactory,
+                sessionFactory.getSqlStringGenerationContext().format(secuencia.getName()));
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        RegistroCambiosCita.desregistrar(sessionFactory);
+    }
+}
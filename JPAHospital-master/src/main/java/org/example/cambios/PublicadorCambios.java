@@ -0,0 +1,273 @@
+package org.example.cambios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.TypedQuery;
+import org.example.entidades.CambioCita;
+import org.example.entidades.PosicionCambios;
+import org.example.servicios.Histograma;
+import org.hibernate.jpa.HibernateHints;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entrega en orden de confirmación los {@link CambioCita} registrados en una base a uno o más
+ * {@link ConsumidorCambios}, por lotes, desde un hilo en segundo plano. Cada consulta lee solo los cambios posteriores
+ * al último entregado, cuya posición (confirmación e id) se guarda en {@link PosicionCambios} con el nombre del
+ * publicador para continuar después de reiniciar. Debe haber un único publicador activo por nombre.
+ *
+ * Los ids se asignan al escribir el cambio, así que una transacción lenta puede confirmar después que otra con ids
+ * mayores; por eso el orden es el del número que cada transacción recibe justo antes de confirmar
+ * ({@link RegistroCambiosCita}) y, dentro de una transacción, el de id. Dos transacciones que confirman a la vez
+ * pueden hacerse visibles en el orden inverso al de sus números: un lote se corta antes del primer número que no
+ * sigue al anterior, y ese hueco se espera hasta {@code esperaHuecos} antes de pasarlo de largo, porque un COMMIT
+ * que falla después de tomar su número no lo llena nunca. La entrega es "al menos una vez": si un consumidor falla,
+ * el lote se repite en el siguiente intento.
+ *
+ * Las estadísticas informan los cambios entregados por segundo y el retraso entre el registro de cada cambio y su
+ * entrega.
+ */
+public class PublicadorCambios implements AutoCloseable {
+    public static final int TAMANIO_LOTE_POR_DEFECTO = 500;
+    public static final Duration INTERVALO_POR_DEFECTO = Duration.ofMillis(200);
+    public static final Duration ESPERA_HUECOS_POR_DEFECTO = Duration.ofSeconds(5);
+    /**
+     * Cambios confirmados después de la posición. Los de una transacción sin confirmar no tienen número y quedan fuera.
+     * La primera condición sola recorre el índice; la segunda descarta lo ya entregado de la última confirmación.
+     */
+    private static final String POSTERIORES = " WHERE c.confirmacion >= :confirmacion"
+            + " AND (c.confirmacion > :confirmacion OR c.id > :id)";
+
+    /**
+     * @param porSegundo Cambios entregados por segundo desde la creación del publicador.
+     * @param retraso    Nanosegundos entre el registro de cada cambio y su entrega.
+     * @param huecos      Números de confirmación que se pasaron de largo después de esperarlos.
+     * @param ultimoError Mensaje del último fallo, o null si no hubo ninguno.
+     */
+    public record Estadisticas(long entregados, long lotes, long fallos, long ultimaConfirmacion, long ultimoId,
+                               double porSegundo, Histograma.Resumen retraso, long huecos, String ultimoError) {
+    }
+
+    private final EntityManagerFactory emf;
+    private final String nombre;
+    private final List<ConsumidorCambios> consumidores;
+    private final int tamanioLote;
+    private final Duration intervalo;
+    private final long esperaHuecos;
+    private final long creado = System.nanoTime();
+    private final Histograma retraso = new Histograma();
+    private ScheduledExecutorService executor;
+    private volatile long ultimaConfirmacion = -1;
+    private volatile long ultimoId;
+    private volatile long entregados;
+    private volatile long lotes;
+    private volatile long fallos;
+    private volatile long huecos;
+    // Número de confirmación que falta al principio del próximo lote y desde cuándo (System.nanoTime)
+    private long huecoEsperado = -1;
+    private long huecoDesde;
+    // Si el último lote se cortó antes de un número que falta
+    private boolean cortado;
+    private volatile String ultimoError;
+
+    public PublicadorCambios(EntityManagerFactory emf, String nombre, List<ConsumidorCambios> consumidores) {
+        this(emf, nombre, consumidores, TAMANIO_LOTE_POR_DEFECTO, INTERVALO_POR_DEFECTO);
+    }
+
+    /**
+     * @param tamanioLote Cantidad máxima de cambios por lote.
+     * @param intervalo   Pausa entre consultas cuando no quedan cambios pendientes.
+     */
+    public PublicadorCambios(EntityManagerFactory emf, String nombre, List<ConsumidorCambios> consumidores,
+                             int tamanioLote, Duration intervalo) {
+        this(emf, nombre, consumidores, tamanioLote, intervalo, ESPERA_HUECOS_POR_DEFECTO);
+    }
+
+    /**
+     * @param esperaHuecos Tiempo que se espera un número de confirmación que falta antes de pasarlo de largo.
+     */
+    public PublicadorCambios(EntityManagerFactory emf, String nombre, List<ConsumidorCambios> consumidores,
+                             int tamanioLote, Duration intervalo, Duration esperaHuecos) {
+        if (nombre == null || nombre.isBlank()) throw new IllegalArgumentException("El nombre del publicador no puede estar vacío.");
+        if (consumidores == null || consumidores.isEmpty()) throw new IllegalArgumentException("Debe haber al menos un consumidor.");
+        if (tamanioLote <= 0) throw new IllegalArgumentException("El tamaño de lote debe ser positivo.");
+        if (intervalo == null || intervalo.isNegative() || intervalo.isZero()) throw new IllegalArgumentException("El intervalo debe ser positivo.");
+        if (esperaHuecos == null || esperaHuecos.isNegative()) throw new IllegalArgumentException("La espera de huecos no puede ser negativa.");
+        this.emf = Objects.requireNonNull(emf, "La EntityManagerFactory no puede ser nula.");
+        this.nombre = nombre;
+        this.consumidores = List.copyOf(consumidores);
+        this.tamanioLote = tamanioLote;
+        this.intervalo = intervalo;
+        this.esperaHuecos = esperaHuecos.toNanos();
+    }
+
+    /**
+     * Empieza a publicar en segundo plano. Los fallos no detienen el hilo: se cuentan y se reintenta en la siguiente
+     * consulta.
+     */
+    public synchronized PublicadorCambios iniciar() {
+        if (executor != null) throw new IllegalStateException("El publicador ya está iniciado.");
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "publicador-cambios-" + nombre);
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                publicarPendientes();
+            } catch (RuntimeException e) {
+                registrarFallo(e);
+            }
+        }, 0, intervalo.toNanos(), TimeUnit.NANOSECONDS);
+        return this;
+    }
+
+    /**
+     * Entrega todos los cambios pendientes en el hilo actual y devuelve cuántos entregó. Se detiene ante un fallo
+     * de un consumidor o ante un número de confirmación que todavía se espera.
+     */
+    public synchronized int publicarPendientes() {
+        int total = 0;
+        int entregadosLote;
+        do {
+            entregadosLote = publicarLote();
+            total += entregadosLote;
+        } while (entregadosLote == tamanioLote || (entregadosLote > 0 && cortado));
+        return total;
+    }
+
+    /**
+     * Cambios registrados después del último entregado; consulta la base.
+     */
+    public synchronized long pendientes() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            cargarPosicion(em);
+            return desdePosicion(em.createQuery("SELECT COUNT(c) FROM CambioCita c" + POSTERIORES, Long.class))
+                    .getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    public Estadisticas estadisticas() {
+        double segundos = (System.nanoTime() - creado) / 1e9;
+        long total = entregados;
+        return new Estadisticas(total, lotes, fallos, Math.max(ultimaConfirmacion, 0), ultimoId,
+                segundos > 0 ? total / segundos : 0.0, retraso.resumen(), huecos, ultimoError);
+    }
+
+    @Override
+    public void close() {
+        ScheduledExecutorService actual;
+        synchronized (this) {
+            actual = executor;
+        }
+        if (actual == null) return;
+        actual.shutdown();
+        try {
+            actual.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int publicarLote() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            cargarPosicion(em);
+            List<CambioCita> lote = hastaElHueco(desdePosicion(em.createQuery("SELECT c FROM CambioCita c" + POSTERIORES
+                            + " ORDER BY c.confirmacion, c.id", CambioCita.class))
+                    .setHint(HibernateHints.HINT_READ_ONLY, true)
+                    .setMaxResults(tamanioLote)
+                    .getResultList());
+            if (lote.isEmpty()) return 0;
+
+            for (ConsumidorCambios consumidor : consumidores) {
+                try {
+                    consumidor.consumir(lote);
+                } catch (Exception e) {
+                    registrarFallo(e);
+                    return 0;
+                }
+            }
+
+            CambioCita primero = lote.get(0);
+            CambioCita ultimo = lote.get(lote.size() - 1);
+            em.getTransaction().begin();
+            PosicionCambios posicion = em.find(PosicionCambios.class, nombre);
+            if (posicion == null) {
+                posicion = new PosicionCambios(nombre);
+                em.persist(posicion);
+            }
+            posicion.avanzar(ultimo.getConfirmacion(), ultimo.getId());
+            em.getTransaction().commit();
+
+            huecos += Math.max(primero.getConfirmacion() - ultimaConfirmacion - 1, 0);
+            ultimaConfirmacion = ultimo.getConfirmacion();
+            ultimoId = ultimo.getId();
+            Instant ahora = Instant.now();
+            for (CambioCita cambio : lote) {
+                retraso.registrar(Duration.between(cambio.getRegistrado(), ahora).toNanos());
+            }
+            entregados += lote.size();
+            lotes++;
+            return lote.size();
+        } finally {
+            if (em.getTransaction().isActive()) em.getTransaction().rollback();
+            em.close();
+        }
+    }
+
+    /**
+     * Los cambios del lote hasta antes del primer número de confirmación que no sigue al anterior. Si falta el
+     * siguiente al último entregado, el lote queda vacío hasta que aparezca o se cumpla la espera; después se
+     * entrega lo que sigue y el faltante se cuenta en {@link Estadisticas#huecos()}.
+     */
+    private List<CambioCita> hastaElHueco(List<CambioCita> lote) {
+        cortado = false;
+        if (lote.isEmpty()) return lote;
+        long primera = lote.get(0).getConfirmacion();
+        if (primera > ultimaConfirmacion + 1) {
+            long esperado = ultimaConfirmacion + 1;
+            long ahora = System.nanoTime();
+            if (huecoEsperado != esperado) {
+                huecoEsperado = esperado;
+                huecoDesde = ahora;
+            }
+            if (ahora - huecoDesde < esperaHuecos) return List.of();
+        }
+        long anterior = primera;
+        for (int i = 1; i < lote.size(); i++) {
+            long confirmacion = lote.get(i).getConfirmacion();
+            if (confirmacion > anterior + 1) {
+                cortado = true;
+                return lote.subList(0, i);
+            }
+            anterior = confirmacion;
+        }
+        return lote;
+    }
+
+    private void cargarPosicion(EntityManager em) {
+        if (ultimaConfirmacion >= 0) return;
+        PosicionCambios posicion = em.find(PosicionCambios.class, nombre);
+        ultimoId = posicion == null ? 0 : posicion.getUltimoId();
+        ultimaConfirmacion = posicion == null ? 0 : posicion.getUltimaConfirmacion();
+    }
+
+    private <T> TypedQuery<T> desdePosicion(TypedQuery<T> query) {
+        return query.setParameter("confirmacion", ultimaConfirmacion).setParameter("id", ultimoId);
+    }
+
+    private void registrarFallo(Exception e) {
+        fallos++;
+        ultimoError = e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+}
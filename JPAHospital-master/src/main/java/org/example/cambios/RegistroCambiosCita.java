@@ -0,0 +1,231 @@
+package org.example.cambios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.entidades.CambioCita;
+import org.example.entidades.Cita;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.TipoCambioCita;
+import org.hibernate.Session;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AutoFlushEvent;
+import org.hibernate.event.spi.AutoFlushEventListener;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.FlushEvent;
+import org.hibernate.event.spi.FlushEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+
+/**
+ * Escribe un {@link CambioCita} por cada inserción, actualización y borrado de {@link Cita}, en la misma transacción
+ * que el cambio.
+ *
+ * Los registros se juntan mientras Hibernate hace el flush y se escriben al terminarlo, en un lote, con una sesión
+ * que comparte la conexión y la transacción de la que hizo el flush: si la transacción se revierte, los registros
+ * también. Un UPDATE masivo no genera eventos por cita, así que
+ * {@link org.example.servicios.CitaManager#cambiarEstadoMasivo} escribe los suyos con un INSERT ... SELECT.
+ *
+ * Justo antes de confirmar, cada transacción que escribió registros toma el valor siguiente de la secuencia
+ * {@value #SECUENCIA} y se lo asigna a sus registros. Una transacción revertida antes de confirmar no toma ninguno,
+ * así que los números de las confirmadas son consecutivos; solo un COMMIT que falla después de tomarlo deja un hueco.
+ * Entre tomar el número y confirmar no queda más que el COMMIT, por lo que los números siguen casi siempre el orden
+ * de confirmación; {@link PublicadorCambios} espera los que faltan antes de pasarlos de largo. Ninguna transacción
+ * espera a otra: la secuencia no bloquea y cada una actualiza solo sus propios registros.
+ *
+ * Son listeners de eventos de Hibernate y no callbacks de JPA ({@code @EntityListeners} en {@link Cita}): los
+ * callbacks de JPA no pueden usar el EntityManager, no reciben el estado anterior de la cita (el estado previo de
+ * cada cambio) y no tienen un punto antes del COMMIT donde numerar la transacción.
+ *
+ * {@link IntegradorCambiosCita} lo registra en cada EntityManagerFactory, salvo que la propiedad {@value #PROPIEDAD}
+ * sea "false".
+ */
+public final class RegistroCambiosCita implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+        FlushEventListener, AutoFlushEventListener {
+    public static final String PROPIEDAD = "hospital.cambios.registrar";
+    /** Secuencia de los números de confirmación; {@link IntegradorCambiosCita} la agrega al esquema. */
+    public static final String SECUENCIA = "confirmacion_cambio_seq";
+
+    private static final Map<SessionFactoryImplementor, RegistroCambiosCita> INSTANCIAS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    // Transacción en curso de cada sesión que escribió o va a escribir registros
+    private final Map<EventSource, Transaccion> transacciones = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // Sentencia que devuelve el valor siguiente de la secuencia, en el dialecto de la factory
+    private final String siguienteConfirmacion;
+
+    private RegistroCambiosCita(String siguienteConfirmacion) {
+        this.siguienteConfirmacion = siguienteConfirmacion;
+    }
+
+    /**
+     * @param secuencia Nombre calificado de {@value #SECUENCIA} en la base de la factory.
+     */
+    static void registrar(SessionFactoryImplementor sessionFactory, String secuencia) {
+        RegistroCambiosCita registro = new RegistroCambiosCita(
+                sessionFactory.getJdbcServices().getDialect().getSequenceSupport().getSequenceNextValString(secuencia));
+        EventListenerRegistry listeners = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        listeners.appendListeners(EventType.POST_INSERT, registro);
+        listeners.appendListeners(EventType.POST_UPDATE, registro);
+        listeners.appendListeners(EventType.POST_DELETE, registro);
+        // Después de los listeners por defecto, es decir, con el flush ya hecho
+        listeners.appendListeners(EventType.FLUSH, registro);
+        listeners.appendListeners(EventType.AUTO_FLUSH, registro);
+        INSTANCIAS.put(sessionFactory, registro);
+    }
+
+    static void desregistrar(SessionFactoryImplementor sessionFactory) {
+        INSTANCIAS.remove(sessionFactory);
+    }
+
+    /**
+     * Indica si los cambios de las citas de la factory se registran.
+     */
+    public static boolean activo(EntityManagerFactory emf) {
+        return INSTANCIAS.containsKey(emf.unwrap(SessionFactoryImplementor.class));
+    }
+
+    /**
+     * Identificador de la transacción en curso del EntityManager, para los registros que se escriben sin pasar por
+     * los eventos de entidad; los registros que lo llevan reciben el número de confirmación de la transacción.
+     *
+     * @throws IllegalStateException si la factory no registra los cambios de las citas.
+     */
+    public static String transaccion(EntityManager em) {
+        RegistroCambiosCita registro = INSTANCIAS.get(em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class));
+        if (registro == null) throw new IllegalStateException("La factory no registra los cambios de las citas.");
+        return registro.transaccion(em.unwrap(EventSource.class)).id;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (!(event.getEntity() instanceof Cita cita)) return;
+        agregar(event.getSession(), cambio(event.getSession(), cita, TipoCambioCita.CREADA, null));
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Cita cita)) return;
+        EstadoCita anterior = null;
+        if (event.getOldState() != null) {
+            String[] propiedades = event.getPersister().getPropertyNames();
+            for (int i = 0; i < propiedades.length; i++) {
+                if ("estado".equals(propiedades[i])) anterior = (EstadoCita) event.getOldState()[i];
+            }
+        }
+        TipoCambioCita tipo = anterior != null && anterior != cita.getEstado() ? TipoCambioCita.ESTADO : TipoCambioCita.MODIFICADA;
+        agregar(event.getSession(), cambio(event.getSession(), cita, tipo, anterior));
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (!(event.getEntity() instanceof Cita cita)) return;
+        agregar(event.getSession(), cambio(event.getSession(), cita, TipoCambioCita.ELIMINADA, null));
+    }
+
+    @Override
+    public void onFlush(FlushEvent event) {
+        escribir(event.getSession());
+    }
+
+    @Override
+    public void onAutoFlush(AutoFlushEvent event) {
+        escribir(event.getSession());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private CambioCita cambio(EventSource session, Cita cita, TipoCambioCita tipo, EstadoCita anterior) {
+        return CambioCita.builder()
+                .citaId(cita.getId())
+                .tipo(tipo)
+                .estadoAnterior(anterior)
+                .estado(cita.getEstado())
+                .medicoId(cita.getMedico() != null ? cita.getMedico().getId() : null)
+                .salaId(cita.getSala() != null ? cita.getSala().getId() : null)
+                .pacienteId(cita.getPaciente() != null ? cita.getPaciente().getId() : null)
+                .fechaHora(cita.getFechaHora())
+                .registrado(Instant.now())
+                .transaccion(transaccion(session).id)
+                .build();
+    }
+
+    private void agregar(EventSource session, CambioCita cambio) {
+        transaccion(session).pendientes.add(cambio);
+    }
+
+    /**
+     * La transacción en curso de la sesión; la primera vez se registra para numerarla al confirmar.
+     */
+    private Transaccion transaccion(EventSource session) {
+        Transaccion transaccion = transacciones.get(session);
+        if (transaccion != null) return transaccion;
+        Transaccion nueva = new Transaccion();
+        transacciones.put(session, nueva);
+        session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) s -> numerarConfirmacion(session, nueva));
+        // Si el flush falla no llega a escribir los pendientes; se descartan junto con la transacción
+        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (exito, s) -> transacciones.remove(session));
+        return nueva;
+    }
+
+    private void escribir(EventSource session) {
+        Transaccion transaccion = transacciones.get(session);
+        if (transaccion == null || transaccion.pendientes.isEmpty()) return;
+        List<CambioCita> cambios = new ArrayList<>(transaccion.pendientes);
+        transaccion.pendientes.clear();
+        // La sesión hija usa la misma conexión y transacción; su flush envía los INSERT por lotes
+        try (Session hija = session.sessionWithOptions().connection().openSession()) {
+            cambios.forEach(hija::persist);
+            hija.flush();
+        }
+        transaccion.escribio = true;
+    }
+
+    /**
+     * Se ejecuta después del último flush y antes del COMMIT. Una transacción que no escribió registros (un cambio
+     * masivo sin citas que cambiar) no toma número, para no dejar huecos.
+     */
+    private void numerarConfirmacion(EventSource session, Transaccion transaccion) {
+        try (Session hija = session.sessionWithOptions().connection().openSession()) {
+            if (!transaccion.escribio && hija.createQuery("SELECT COUNT(c) FROM CambioCita c WHERE c.transaccion = :transaccion",
+                            Long.class)
+                    .setParameter("transaccion", transaccion.id)
+                    .getSingleResult() == 0) {
+                return;
+            }
+            long confirmacion = hija.createNativeQuery(siguienteConfirmacion, Long.class).getSingleResult();
+            hija.createMutationQuery("UPDATE CambioCita c SET c.confirmacion = :confirmacion WHERE c.transaccion = :transaccion")
+                    .setParameter("confirmacion", confirmacion)
+                    .setParameter("transaccion", transaccion.id)
+                    .executeUpdate();
+        }
+    }
+
+    private static final class Transaccion {
+        final String id = UUID.randomUUID().toString();
+        // Cambios del flush en curso
+        final List<CambioCita> pendientes = new ArrayList<>();
+        // Si algún flush escribió registros; los del INSERT ... SELECT de los cambios masivos no pasan por aquí
+        boolean escribio;
+    }
+}
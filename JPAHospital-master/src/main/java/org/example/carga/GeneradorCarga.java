@@ -0,0 +1,258 @@
+package org.example.carga;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.configuracion.PerfilPersistencia;
+import org.example.entidades.*;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Generador de datos sintéticos para pruebas de carga.
+ *
+ * Inserta con una StatelessSession y lotes JDBC, confirmando la transacción cada {@link Configuracion#tamanioLote()}
+ * pacientes, por lo que la memoria usada no depende del volumen generado. Con la misma semilla produce los mismos datos:
+ * las fechas se calculan desde {@link Configuracion#ahora()} y no desde el reloj del sistema.
+ *
+ * Respeta las reglas del dominio: DNI de 8 dígitos, matrículas "MP-" + 6 dígitos, médicos asignados con
+ * {@link Departamento#agregarMedico(Medico)} y citas en salas del departamento del médico, separadas 3 horas
+ * por sala (y por lo tanto también por médico). Debe ejecutarse sobre una base sin datos previos.
+ *
+ * Uso: {@code ./gradlew generarCarga -Pcarga="--hospitales=50 --medicos=5000 --pacientes=2000000 --citas=20000000"}
+ */
+public class GeneradorCarga {
+    private static final long HORAS_ENTRE_CITAS = 3;
+    private static final String[] NOMBRES = {"Juan", "Ana", "Luis", "Maria", "Carlos", "Laura", "Jorge", "Lucia", "Pedro", "Sofia",
+            "Diego", "Valentina", "Martin", "Camila", "Pablo", "Julieta", "Tomas", "Florencia", "Nicolas", "Agustina"};
+    private static final String[] APELLIDOS = {"Perez", "Gomez", "Martinez", "Lopez", "Sanchez", "Rodriguez", "Fernandez", "Garcia",
+            "Romero", "Sosa", "Torres", "Alvarez", "Ruiz", "Ramirez", "Flores", "Benitez", "Acosta", "Medina", "Herrera", "Suarez"};
+    // Una cita pasada ya terminó de algún modo; una futura todavía no pudo completarse
+    private static final EstadoCita[] ESTADOS_PASADAS = {EstadoCita.COMPLETADA, EstadoCita.COMPLETADA, EstadoCita.COMPLETADA,
+            EstadoCita.COMPLETADA, EstadoCita.COMPLETADA, EstadoCita.COMPLETADA, EstadoCita.COMPLETADA,
+            EstadoCita.CANCELADA, EstadoCita.NO_ASISTIO};
+    private static final EstadoCita[] ESTADOS_FUTURAS = {EstadoCita.PROGRAMADA, EstadoCita.PROGRAMADA, EstadoCita.PROGRAMADA,
+            EstadoCita.PROGRAMADA, EstadoCita.PROGRAMADA, EstadoCita.PROGRAMADA, EstadoCita.PROGRAMADA,
+            EstadoCita.PROGRAMADA, EstadoCita.CANCELADA};
+    private static final int DIAS_ANTIGUEDAD_HISTORIAS = 3_650;
+
+    /**
+     * Parámetros de la generación.
+     *
+     * @param salas Cantidad total de salas; se reparten entre los departamentos de todos los hospitales.
+     * @param ahora Fecha que los datos toman como actual: las citas anteriores ya ocurrieron, las posteriores no,
+     *              y las historias clínicas se crean antes. No depende del reloj del sistema.
+     */
+    public record Configuracion(int hospitales, int medicos, int salas, int pacientes, long citas,
+                                long semilla, LocalDateTime inicioCitas, LocalDateTime ahora, int tamanioLote) {
+
+        public Configuracion {
+            int departamentos = hospitales * EspecialidadMedica.values().length;
+            if (hospitales <= 0 || medicos < departamentos || salas < departamentos) {
+                throw new IllegalArgumentException("Se necesita al menos un médico y una sala por departamento (" + departamentos + ").");
+            }
+            if (medicos > 999_999 || pacientes > 70_000_000) {
+                throw new IllegalArgumentException("La cantidad de médicos o pacientes excede el rango de matrículas o DNI.");
+            }
+        }
+
+        public static Configuracion porDefecto() {
+            return new Configuracion(50, 5_000, 2_500, 2_000_000, 20_000_000L, 42L,
+                    LocalDateTime.of(2025, 1, 6, 8, 0), LocalDateTime.of(2026, 1, 1, 0, 0), 1_000);
+        }
+    }
+
+    private final EntityManagerFactory emf;
+    private final Configuracion config;
+    private final SplittableRandom azar;
+
+    private final List<Hospital> hospitales = new ArrayList<>();
+    /** Médicos de cada hospital. */
+    private final List<List<Medico>> medicosPorHospital = new ArrayList<>();
+    /** Sala fija de cada médico. */
+    private final Map<Medico, Integer> salaDeMedico = new HashMap<>();
+    private final List<Sala> salas = new ArrayList<>();
+    /** Próximo turno libre de cada sala, indexado como {@link #salas}. */
+    private int[] turnoDeSala;
+
+    public GeneradorCarga(EntityManagerFactory emf, Configuracion config) {
+        this.emf = emf;
+        this.config = config;
+        this.azar = new SplittableRandom(config.semilla());
+    }
+
+    public static void main(String[] args) {
+        Configuracion config = leerArgumentos(args);
+        Map<String, Object> propiedades = new HashMap<>();
+        propiedades.put("hibernate.show_sql", "false");
+        propiedades.put("hibernate.format_sql", "false");
+        for (String arg : args) {
+            if (arg.startsWith("--url=")) propiedades.put("jakarta.persistence.jdbc.url", arg.substring("--url=".length()));
+        }
+        EntityManagerFactory emf = PerfilPersistencia.actual().crearEntityManagerFactory(propiedades);
+        try {
+            long inicio = System.nanoTime();
+            new GeneradorCarga(emf, config).generar();
+            System.out.printf("Carga generada en %.1f s%n", (System.nanoTime() - inicio) / 1e9);
+        } finally {
+            emf.close();
+        }
+    }
+
+    public void generar() {
+        try (StatelessSession session = emf.unwrap(SessionFactory.class).openStatelessSession()) {
+            session.setJdbcBatchSize(config.tamanioLote());
+            generarEstructura(session);
+            generarPacientesYCitas(session);
+        }
+    }
+
+    private void generarEstructura(StatelessSession session) {
+        EspecialidadMedica[] especialidades = EspecialidadMedica.values();
+        List<Departamento> departamentos = new ArrayList<>();
+        Transaction tx = session.beginTransaction();
+        for (int h = 0; h < config.hospitales(); h++) {
+            Hospital hospital = Hospital.builder()
+                    .nombre("Hospital " + (h + 1)).direccion("Av. Principal " + (h + 1)).telefono(telefono())
+                    .build();
+            session.insert(hospital);
+            hospitales.add(hospital);
+            medicosPorHospital.add(new ArrayList<>());
+            for (EspecialidadMedica especialidad : especialidades) {
+                Departamento departamento = Departamento.builder().nombre(especialidad.getDescripcion()).especialidad(especialidad).build();
+                hospital.agregarDepartamento(departamento);
+                session.insert(departamento);
+                departamentos.add(departamento);
+            }
+        }
+
+        List<List<Integer>> salasPorDepartamento = new ArrayList<>();
+        departamentos.forEach(d -> salasPorDepartamento.add(new ArrayList<>()));
+        for (int s = 0; s < config.salas(); s++) {
+            int d = s % departamentos.size();
+            Departamento departamento = departamentos.get(d);
+            Sala sala = Sala.builder().numero("S-" + (s + 1)).tipo("Consultorio").departamento(departamento).build();
+            departamento.agregarSala(sala);
+            session.insert(sala);
+            salasPorDepartamento.get(d).add(salas.size());
+            salas.add(sala);
+        }
+        turnoDeSala = new int[salas.size()];
+
+        for (int m = 0; m < config.medicos(); m++) {
+            int d = m % departamentos.size();
+            Departamento departamento = departamentos.get(d);
+            Medico medico = Medico.builder()
+                    .nombre(elegir(NOMBRES)).apellido(elegir(APELLIDOS)).dni(String.valueOf(10_000_000 + m))
+                    .fechaNacimiento(LocalDate.of(1950 + azar.nextInt(45), 1 + azar.nextInt(12), 1 + azar.nextInt(28)))
+                    .tipoSangre(elegir(TipoSangre.values()))
+                    .matricula(new Matricula(String.format("MP-%06d", m + 1)))
+                    .especialidad(departamento.getEspecialidad())
+                    .build();
+            departamento.agregarMedico(medico); // valida que la especialidad coincida
+            session.insert(medico);
+            List<Integer> propias = salasPorDepartamento.get(d);
+            salaDeMedico.put(medico, propias.get((m / departamentos.size()) % propias.size()));
+            medicosPorHospital.get(d / especialidades.length).add(medico);
+        }
+        tx.commit();
+    }
+
+    private void generarPacientesYCitas(StatelessSession session) {
+        List<Paciente> lote = new ArrayList<>(config.tamanioLote());
+        long citasGeneradas = 0;
+        for (int p = 0; p < config.pacientes(); p += config.tamanioLote()) {
+            int fin = Math.min(p + config.tamanioLote(), config.pacientes());
+            Transaction tx = session.beginTransaction();
+            for (int i = p; i < fin; i++) {
+                Paciente paciente = Paciente.builder()
+                        .nombre(elegir(NOMBRES)).apellido(elegir(APELLIDOS)).dni(String.valueOf(20_000_000 + i))
+                        .fechaNacimiento(LocalDate.of(1930 + azar.nextInt(90), 1 + azar.nextInt(12), 1 + azar.nextInt(28)))
+                        .tipoSangre(elegir(TipoSangre.values()))
+                        .telefono(telefono()).direccion("Calle " + (1 + azar.nextInt(5_000)) + " N° " + (1 + azar.nextInt(9_999)))
+                        .build();
+                // No se usa Hospital.agregarPaciente para no retener millones de pacientes en la colección
+                paciente.setHospital(hospitales.get(i % hospitales.size()));
+                paciente.setHistoriaClinica(new HistoriaClinica(paciente, relojHistoria()));
+                session.insert(paciente);
+                session.insert(paciente.getHistoriaClinica());
+                lote.add(paciente);
+            }
+            // Las citas se reparten en proporción a los pacientes del lote
+            long citasHastaFin = config.citas() * fin / config.pacientes();
+            for (; citasGeneradas < citasHastaFin; citasGeneradas++) {
+                int i = p + azar.nextInt(lote.size());
+                session.insert(crearCita(lote.get(i - p), i % hospitales.size()));
+            }
+            tx.commit();
+            lote.clear();
+            if ((fin / config.tamanioLote()) % 100 == 0 || fin == config.pacientes()) {
+                System.out.printf("  %,d pacientes y %,d citas generados%n", fin, citasGeneradas);
+            }
+        }
+    }
+
+    private Cita crearCita(Paciente paciente, int hospital) {
+        List<Medico> medicos = medicosPorHospital.get(hospital);
+        Medico medico = medicos.get(azar.nextInt(medicos.size()));
+        int sala = salaDeMedico.get(medico);
+        int turno = turnoDeSala[sala]++;
+        LocalDateTime fechaHora = config.inicioCitas().plusHours(HORAS_ENTRE_CITAS * turno);
+        return Cita.builder()
+                .paciente(paciente)
+                .medico(medico)
+                .sala(salas.get(sala))
+                .fechaHora(fechaHora)
+                .costo(BigDecimal.valueOf(5_000 + azar.nextInt(95_000), 0))
+                .estado(elegir(fechaHora.isBefore(config.ahora()) ? ESTADOS_PASADAS : ESTADOS_FUTURAS))
+                .observaciones("Generada")
+                .build();
+    }
+
+    /**
+     * Reloj fijo en una fecha al azar de los {@value #DIAS_ANTIGUEDAD_HISTORIAS} días anteriores a {@link Configuracion#ahora()}.
+     */
+    private Clock relojHistoria() {
+        LocalDateTime creacion = config.ahora().minusMinutes(azar.nextLong(DIAS_ANTIGUEDAD_HISTORIAS * 24L * 60));
+        return Clock.fixed(creacion.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+    }
+
+    private String telefono() {
+        return "261-" + (100 + azar.nextInt(900)) + "-" + (1000 + azar.nextInt(9000));
+    }
+
+    private <T> T elegir(T[] valores) {
+        return valores[azar.nextInt(valores.length)];
+    }
+
+    private static Configuracion leerArgumentos(String[] args) {
+        Configuracion d = Configuracion.porDefecto();
+        Map<String, String> valores = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento inválido: " + arg + " (se espera --clave=valor)");
+            }
+            valores.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return new Configuracion(
+                Integer.parseInt(valores.getOrDefault("hospitales", String.valueOf(d.hospitales()))),
+                Integer.parseInt(valores.getOrDefault("medicos", String.valueOf(d.medicos()))),
+                Integer.parseInt(valores.getOrDefault("salas", String.valueOf(d.salas()))),
+                Integer.parseInt(valores.getOrDefault("pacientes", String.valueOf(d.pacientes()))),
+                Long.parseLong(valores.getOrDefault("citas", String.valueOf(d.citas()))),
+                Long.parseLong(valores.getOrDefault("semilla", String.valueOf(d.semilla()))),
+                valores.containsKey("inicio") ? LocalDateTime.parse(valores.get("inicio")) : d.inicioCitas(),
+                valores.containsKey("ahora") ? LocalDateTime.parse(valores.get("ahora")) : d.ahora(),
+                Integer.parseInt(valores.getOrDefault("lote", String.valueOf(d.tamanioLote()))));
+    }
+}
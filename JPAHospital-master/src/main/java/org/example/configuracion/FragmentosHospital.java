@@ -0,0 +1,324 @@
+package org.example.configuracion;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import org.example.entidades.Departamento;
+import org.example.entidades.Hospital;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.hibernate.Hibernate;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.proxy.HibernateProxy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Reparte los hospitales entre varias bases (fragmentos), cada una con su propia EntityManagerFactory: todo lo que
+ * cuelga de un hospital (departamentos, salas, médicos, pacientes y citas) vive en la base del hospital, así que
+ * la carga de uno no frena a los demás.
+ *
+ * El fragmento se deduce del id del hospital: con n fragmentos, el fragmento i genera los ids i + 1, i + 1 + n,
+ * i + 1 + 2n... y el hospital de id h está en el fragmento (h - 1) mod n. Al arrancar se comprueba que los
+ * hospitales existentes respetan ese reparto y se ajusta el inicio y el incremento de la columna identidad de cada
+ * base, lo que solo se sabe hacer en H2 y PostgreSQL: con otro dialecto no se admite más de un fragmento. Si el
+ * esquema solo se valida (perfil PRODUCCION) la columna no se toca y debe estar ajustada de antemano;
+ * {@link #registrar(Hospital)} rechaza un id que no corresponde al fragmento. Por eso la cantidad y el orden de las
+ * URLs no pueden cambiar mientras haya datos. Los hospitales nuevos se asignan por turnos con
+ * {@link #registrar(Hospital)}.
+ *
+ * Las demás entidades se ubican por su hospital: {@code Sala.departamento.hospital}, {@code Medico.departamento.hospital}
+ * y {@code Paciente.hospital}. Los ids de esas entidades se repiten entre fragmentos, por lo que dos entidades de
+ * fragmentos distintos no se comparan por id. Las consultas que no se limitan a un hospital se ejecutan en paralelo
+ * en todos los fragmentos con {@link #enTodos(Function)}.
+ */
+public final class FragmentosHospital implements AutoCloseable {
+
+    private final List<EntityManagerFactory> factories;
+    private final ExecutorService executor;
+    private final AtomicInteger turno;
+
+    private FragmentosHospital(List<EntityManagerFactory> factories, boolean ajustarIdentidad) {
+        this.factories = factories;
+        long hospitales = 0;
+        for (int i = 0; i < factories.size(); i++) {
+            hospitales += prepararIdentidad(i, ajustarIdentidad);
+        }
+        this.turno = new AtomicInteger((int) (hospitales % factories.size()));
+        AtomicInteger contador = new AtomicInteger();
+        ThreadFactory fabrica = r -> {
+            Thread hilo = new Thread(r, "fragmentos-hospital-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+        this.executor = Executors.newFixedThreadPool(factories.size(), fabrica);
+    }
+
+    /**
+     * Fragmentos indicados por {@link PerfilPersistencia#urlsFragmentos()}, con el perfil actual; sin URLs hay un
+     * único fragmento, la base de persistence.xml.
+     */
+    public static FragmentosHospital crear() {
+        return crear(PerfilPersistencia.actual(), PerfilPersistencia.urlsFragmentos());
+    }
+
+    /**
+     * @param urls URLs de las bases, en orden; vacía para usar solo la base de persistence.xml.
+     */
+    public static FragmentosHospital crear(PerfilPersistencia perfil, List<String> urls) {
+        return crear(perfil, urls, Map.of());
+    }
+
+    /**
+     * @param urls  URLs de las bases, en orden; vacía para usar solo la base de persistence.xml.
+     * @param extra Propiedades adicionales para todas las factories; tienen prioridad sobre las del perfil.
+     */
+    public static FragmentosHospital crear(PerfilPersistencia perfil, List<String> urls, Map<String, Object> extra) {
+        Objects.requireNonNull(perfil, "El perfil no puede ser nulo.");
+        List<String> destinos = urls == null || urls.isEmpty() ? Collections.singletonList(null) : urls;
+        List<EntityManagerFactory> factories = new ArrayList<>(destinos.size());
+        try {
+            for (String url : destinos) {
+                factories.add(perfil.crearEntityManagerFactoryFragmento(url, extra));
+            }
+            return new FragmentosHospital(Collections.unmodifiableList(factories),
+                    !"validate".equals(extra.getOrDefault("hibernate.hbm2ddl.auto", perfil.propiedades().get("hibernate.hbm2ddl.auto"))));
+        } catch (RuntimeException e) {
+            factories.forEach(EntityManagerFactory::close);
+            throw e;
+        }
+    }
+
+    public int cantidad() {
+        return factories.size();
+    }
+
+    public EntityManagerFactory factory(int indice) {
+        return factories.get(indice);
+    }
+
+    public List<EntityManagerFactory> factories() {
+        return factories;
+    }
+
+    /**
+     * Fragmento donde está (o estará) el hospital con ese id.
+     */
+    public int indiceDe(Long hospitalId) {
+        Objects.requireNonNull(hospitalId, "El id del hospital no puede ser nulo.");
+        return (int) Math.floorMod(hospitalId - 1, (long) factories.size());
+    }
+
+    public int indiceDe(Hospital hospital) {
+        return indiceDe(idDe(hospital));
+    }
+
+    /**
+     * @throws IllegalArgumentException si el departamento no está cargado o no tiene hospital.
+     */
+    public int indiceDe(Departamento departamento) {
+        if (departamento == null || !Hibernate.isInitialized(departamento)) {
+            throw new IllegalArgumentException("El departamento debe estar cargado para saber a qué hospital pertenece.");
+        }
+        return indiceDe(departamento.getHospital());
+    }
+
+    /**
+     * @throws IllegalArgumentException si el departamento de la sala no está cargado.
+     */
+    public int indiceDe(Sala sala) {
+        Objects.requireNonNull(sala, "La sala no puede ser nula.");
+        return indiceDe(sala.getDepartamento());
+    }
+
+    /**
+     * @throws IllegalArgumentException si el departamento del médico no está cargado.
+     */
+    public int indiceDe(Medico medico) {
+        Objects.requireNonNull(medico, "El médico no puede ser nulo.");
+        return indiceDe(medico.getDepartamento());
+    }
+
+    public int indiceDe(Paciente paciente) {
+        Objects.requireNonNull(paciente, "El paciente no puede ser nulo.");
+        return indiceDe(paciente.getHospital());
+    }
+
+    public EntityManagerFactory factoryDe(Long hospitalId) {
+        return factories.get(indiceDe(hospitalId));
+    }
+
+    /**
+     * Persiste el hospital, con sus departamentos, salas, médicos y pacientes en cascada, en el fragmento que le toca.
+     *
+     * @return El mismo hospital, ya con id y separado de cualquier EntityManager.
+     */
+    public Hospital registrar(Hospital hospital) {
+        Objects.requireNonNull(hospital, "El hospital no puede ser nulo.");
+        if (hospital.getId() != null) throw new IllegalArgumentException("El hospital ya está registrado: " + hospital.getId());
+        int indice = Math.floorMod(turno.getAndIncrement(), factories.size());
+        EntityManager em = factories.get(indice).createEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            em.persist(hospital);
+            em.flush();
+            // Una secuencia mal ajustada dejaría al hospital en un fragmento que no corresponde a su id
+            if (indiceDe(hospital.getId()) != indice) {
+                throw new IllegalStateException("La base del fragmento " + indice + " generó el id " + hospital.getId()
+                        + ", que corresponde al fragmento " + indiceDe(hospital.getId()) + ".");
+            }
+            tx.commit();
+            return hospital;
+        } catch (RuntimeException e) {
+            if (tx.isActive()) tx.rollback();
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Ejecuta la operación una vez por fragmento, en paralelo, y devuelve sus resultados en el orden de los fragmentos.
+     * Si alguna falla, se relanza la excepción del primer fragmento que falló.
+     *
+     * @param operacion Recibe el índice del fragmento.
+     */
+    public <T> List<T> enCadaFragmento(IntFunction<T> operacion) {
+        Objects.requireNonNull(operacion, "La operación no puede ser nula.");
+        List<CompletableFuture<T>> parciales = new ArrayList<>(factories.size());
+        for (int i = 0; i < factories.size(); i++) {
+            int indice = i;
+            parciales.add(CompletableFuture.supplyAsync(() -> operacion.apply(indice), executor));
+        }
+        List<T> resultados = new ArrayList<>(factories.size());
+        try {
+            parciales.forEach(parcial -> resultados.add(parcial.join()));
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) throw causa;
+            throw e;
+        }
+        return resultados;
+    }
+
+    /**
+     * Ejecuta la consulta en todos los fragmentos en paralelo, cada uno con su propio EntityManager,
+     * y une los resultados en el orden de los fragmentos.
+     */
+    public <T> List<T> enTodos(Function<EntityManager, List<T>> consulta) {
+        Objects.requireNonNull(consulta, "La consulta no puede ser nula.");
+        List<T> resultado = new ArrayList<>();
+        enCadaFragmento(indice -> {
+            EntityManager em = factories.get(indice).createEntityManager();
+            try {
+                return consulta.apply(em);
+            } finally {
+                em.close();
+            }
+        }).forEach(resultado::addAll);
+        return resultado;
+    }
+
+    /**
+     * Busca a los pacientes con ese DNI en todos los hospitales. El DNI es único dentro de cada base pero no entre
+     * fragmentos (un paciente puede estar registrado en más de un hospital), por lo que puede haber varios.
+     * Los pacientes se devuelven con su hospital cargado.
+     */
+    public List<Paciente> buscarPacientesPorDni(String dni) {
+        Objects.requireNonNull(dni, "El DNI no puede ser nulo.");
+        return enTodos(em -> em.createQuery("SELECT p FROM Paciente p JOIN FETCH p.hospital WHERE p.dni = :dni ORDER BY p.id", Paciente.class)
+                .setParameter("dni", dni)
+                .getResultList());
+    }
+
+    /**
+     * Cierra el executor y las factories de todos los fragmentos.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        factories.forEach(EntityManagerFactory::close);
+    }
+
+    /**
+     * Comprueba que los hospitales de la base respetan el reparto y, si corresponde, hace que la columna identidad
+     * genere solo ids del fragmento.
+     *
+     * @return La cantidad de hospitales de la base.
+     */
+    private long prepararIdentidad(int indice, boolean ajustar) {
+        int cantidad = factories.size();
+        EntityManagerFactory emf = factories.get(indice);
+        EntityManager em = emf.createEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            Long ajenos = em.createQuery("SELECT COUNT(h) FROM Hospital h WHERE MOD(h.id - 1, :cantidad) <> :indice", Long.class)
+                    .setParameter("cantidad", (long) cantidad)
+                    .setParameter("indice", (long) indice)
+                    .getSingleResult();
+            if (ajenos > 0) {
+                throw new IllegalStateException("La base del fragmento " + indice + " tiene " + ajenos
+                        + " hospitales que corresponden a otro fragmento; ¿cambió la cantidad o el orden de las URLs?");
+            }
+            Object[] fila = em.createQuery("SELECT COUNT(h), COALESCE(MAX(h.id), 0) FROM Hospital h", Object[].class).getSingleResult();
+            long hospitales = (Long) fila[0];
+            // Con un único fragmento la secuencia de siempre ya sirve
+            if (cantidad > 1) {
+                long base = (Long) fila[1] + 1;
+                long siguiente = base + Math.floorMod(indice - (base - 1), (long) cantidad);
+                List<String> ajuste = ajusteIdentidad(emf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect(),
+                        siguiente, cantidad);
+                if (ajustar) ajuste.forEach(sentencia -> em.createNativeQuery(sentencia).executeUpdate());
+            }
+            tx.commit();
+            return hospitales;
+        } catch (RuntimeException e) {
+            if (tx.isActive()) tx.rollback();
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Sentencias que hacen que la columna identidad de Hospital continúe en {@code siguiente} de a {@code incremento}.
+     *
+     * @throws IllegalStateException si el dialecto no es H2 ni PostgreSQL.
+     */
+    private static List<String> ajusteIdentidad(Dialect dialecto, long siguiente, int incremento) {
+        if (dialecto instanceof H2Dialect) {
+            return List.of("ALTER TABLE Hospital ALTER COLUMN id RESTART WITH " + siguiente,
+                    "ALTER TABLE Hospital ALTER COLUMN id SET INCREMENT BY " + incremento);
+        }
+        if (dialecto instanceof PostgreSQLDialect) {
+            return List.of("ALTER TABLE Hospital ALTER COLUMN id SET INCREMENT BY " + incremento + " RESTART WITH " + siguiente);
+        }
+        throw new IllegalStateException("No se puede repartir los hospitales en " + incremento + " bases con "
+                + dialecto.getClass().getSimpleName() + ": solo se sabe ajustar la columna identidad en H2 y PostgreSQL.");
+    }
+
+    private static Long idDe(Hospital hospital) {
+        if (hospital == null) throw new IllegalArgumentException("La entidad no pertenece a ningún hospital.");
+        // El id de un proxy se lee sin inicializarlo, también fuera de la sesión
+        if (hospital instanceof HibernateProxy proxy) return (Long) proxy.getHibernateLazyInitializer().getInternalIdentifier();
+        if (hospital.getId() == null) throw new IllegalArgumentException("El hospital todavía no está registrado.");
+        return hospital.getId();
+    }
+}
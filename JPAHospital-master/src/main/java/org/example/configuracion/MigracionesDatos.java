@@ -0,0 +1,248 @@
+package org.example.configuracion;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.cambios.RegistroCambiosCita;
+import org.example.entidades.EntradaHistoria;
+import org.example.entidades.MigracionDatos;
+import org.example.entidades.TipoEntradaHistoria;
+import org.hibernate.Session;
+import org.hibernate.boot.model.relational.QualifiedSequenceName;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Migraciones de datos que el esquema por sí solo no resuelve, para las bases creadas con versiones anteriores.
+ *
+ * Las migraciones no se ejecutan al arrancar: se aplican a pedido sobre la base principal, con
+ * {@code ./gradlew migrarDatos} o {@link #aplicar(EntityManagerFactory)}, después de que Hibernate actualizó el
+ * esquema. Cada una se aplica en su propia transacción junto con la fila de {@link MigracionDatos} que la marca como
+ * hecha, así que ninguna se aplica dos veces.
+ */
+public final class MigracionesDatos {
+    /** Colecciones de HistoriaClinica anteriores a {@link EntradaHistoria}: tabla y columna de cada tipo. */
+    private static final Map<TipoEntradaHistoria, String[]> TABLAS_HISTORIA = Map.of(
+            TipoEntradaHistoria.DIAGNOSTICO, new String[]{"historia_diagnosticos", "diagnostico"},
+            TipoEntradaHistoria.TRATAMIENTO, new String[]{"historia_tratamientos", "tratamiento"},
+            TipoEntradaHistoria.ALERGIA, new String[]{"historia_alergias", "alergia"});
+    private static final int TAMANIO_LOTE = 500;
+
+    private static final List<Migracion> MIGRACIONES = List.of(
+            new Migracion(1, "Colecciones historia_* de HistoriaClinica a EntradaHistoria", MigracionesDatos::migrarHistorias),
+            new Migracion(2, "Versión 0 en las filas creadas antes de las columnas de versión", MigracionesDatos::completarVersiones),
+            new Migracion(3, "Secuencias de ids después de las filas creadas con IDENTITY", MigracionesDatos::ajustarSecuencias),
+            new Migracion(4, "Números de confirmación de CambioCita desde una secuencia", MigracionesDatos::ajustarConfirmaciones));
+
+    private record Migracion(int version, String descripcion, Paso paso) {
+    }
+
+    @FunctionalInterface
+    private interface Paso {
+        void aplicar(Connection conexion, SessionFactoryImplementor sessionFactory) throws SQLException;
+    }
+
+    private MigracionesDatos() {
+    }
+
+    /**
+     * Actualiza el esquema de la base del perfil actual (o de {@code --url=...}) y le aplica las migraciones pendientes.
+     */
+    public static void main(String[] args) {
+        Map<String, Object> propiedades = new HashMap<>();
+        propiedades.put("hibernate.hbm2ddl.auto", "update");
+        propiedades.put("hibernate.show_sql", "false");
+        propiedades.put("hibernate.format_sql", "false");
+        for (String arg : args) {
+            if (!arg.startsWith("--url=")) throw new IllegalArgumentException("Argumento inválido: " + arg + " (se espera --url=...)");
+            propiedades.put("jakarta.persistence.jdbc.url", arg.substring("--url=".length()));
+        }
+        EntityManagerFactory emf = PerfilPersistencia.actual().crearEntityManagerFactory(propiedades);
+        try {
+            List<Integer> aplicadas = aplicar(emf);
+            System.out.println(aplicadas.isEmpty() ? "No hay migraciones de datos pendientes." : "Migraciones de datos aplicadas: " + aplicadas);
+        } finally {
+            emf.close();
+        }
+    }
+
+    /**
+     * Aplica, en orden de versión, las migraciones que la base todavía no tiene y devuelve sus versiones. Si una
+     * falla se revierte solo esa y no se aplican las siguientes. Si otro proceso aplica la misma a la vez, la fila
+     * de una de las dos transacciones choca con la de la otra y esa se revierte.
+     *
+     * @throws IllegalStateException si la factory no actualiza el esquema ({@code hibernate.hbm2ddl.auto=update}):
+     *                               una réplica de lectura o una factory que solo lo valida no se migran.
+     */
+    public static List<Integer> aplicar(EntityManagerFactory emf) {
+        SessionFactoryImplementor sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+        Object esquema = sessionFactory.getProperties().get(AvailableSettings.HBM2DDL_AUTO);
+        if (!"update".equals(esquema)) {
+            throw new IllegalStateException("Las migraciones de datos se aplican sobre la base principal con "
+                    + "hibernate.hbm2ddl.auto=update; la factory usa " + esquema + ".");
+        }
+        Set<Integer> hechas;
+        try (Session session = sessionFactory.openSession()) {
+            hechas = new HashSet<>(session.createQuery("SELECT m.version FROM MigracionDatos m", Integer.class).getResultList());
+        }
+        List<Integer> aplicadas = new ArrayList<>();
+        for (Migracion migracion : MIGRACIONES) {
+            if (hechas.contains(migracion.version())) continue;
+            try (Session session = sessionFactory.openSession()) {
+                session.getTransaction().begin();
+                try {
+                    session.doWork(conexion -> migracion.paso().aplicar(conexion, sessionFactory));
+                    session.persist(new MigracionDatos(migracion.version(), migracion.descripcion()));
+                    session.getTransaction().commit();
+                } catch (RuntimeException e) {
+                    if (session.getTransaction().isActive()) session.getTransaction().rollback();
+                    throw e;
+                }
+            }
+            aplicadas.add(migracion.version());
+        }
+        // Las migraciones escriben por JDBC, sin pasar por la caché de segundo nivel
+        if (!aplicadas.isEmpty()) sessionFactory.getCache().evictAllRegions();
+        return aplicadas;
+    }
+
+    /**
+     * Copia los diagnósticos, tratamientos y alergias de las antiguas tablas historia_* como entradas de la historia,
+     * con la fecha de creación de la historia como fecha de registro, y vacía esas tablas en la misma transacción.
+     */
+    private static void migrarHistorias(Connection conexion, SessionFactoryImplementor sessionFactory) throws SQLException {
+        String siguienteId = sessionFactory.getJdbcServices().getDialect().getSequenceSupport().getSelectSequenceNextValString("entrada_historia_seq");
+        for (Map.Entry<TipoEntradaHistoria, String[]> tabla : TABLAS_HISTORIA.entrySet()) {
+            String nombre = tabla.getValue()[0];
+            String columna = tabla.getValue()[1];
+            if (!existeTabla(conexion.getMetaData(), nombre)) continue;
+
+            int migradas = 0;
+            try (Statement lectura = conexion.createStatement();
+                 ResultSet filas = lectura.executeQuery("SELECT l.historia_id, l." + columna + ", h.fechaCreacion FROM "
+                         + nombre + " l JOIN HistoriaClinica h ON h.id = l.historia_id WHERE l." + columna + " IS NOT NULL");
+                 PreparedStatement insercion = conexion.prepareStatement("INSERT INTO EntradaHistoria "
+                         + "(id, tipo, descripcion, clave, fechaRegistro, historia_id) VALUES (" + siguienteId + ", ?, ?, ?, ?, ?)")) {
+                while (filas.next()) {
+                    String descripcion = filas.getString(2);
+                    Timestamp creada = filas.getTimestamp(3);
+                    insercion.setString(1, tabla.getKey().name());
+                    insercion.setString(2, descripcion);
+                    insercion.setString(3, EntradaHistoria.normalizar(descripcion));
+                    insercion.setTimestamp(4, creada != null ? creada : Timestamp.valueOf(LocalDateTime.now()));
+                    insercion.setLong(5, filas.getLong(1));
+                    insercion.addBatch();
+                    if (++migradas % TAMANIO_LOTE == 0) insercion.executeBatch();
+                }
+                insercion.executeBatch();
+            }
+            // Vacía la tabla en vez de borrarla para que la migración no dependa de sentencias DDL, que algunas bases
+            // confirman de inmediato
+            try (Statement borrado = conexion.createStatement()) {
+                borrado.executeUpdate("DELETE FROM " + nombre);
+            }
+        }
+    }
+
+    /**
+     * Las columnas de versión agregadas sin valor por defecto dejaron en null la versión de las filas existentes, y
+     * Hibernate no puede actualizar esas filas ni incrementar su versión. Se completan con 0.
+     */
+    private static void completarVersiones(Connection conexion, SessionFactoryImplementor sessionFactory) throws SQLException {
+        for (EntityPersister persister : sessionFactory.getMappingMetamodel().streamEntityDescriptors().toList()) {
+            if (!persister.isVersioned() || !persister.getEntityName().equals(persister.getRootEntityName())
+                    || !(persister instanceof AbstractEntityPersister entidad)) {
+                continue;
+            }
+            try (Statement completado = conexion.createStatement()) {
+                completado.executeUpdate("UPDATE " + entidad.getTableName() + " SET " + entidad.getVersionColumnName()
+                        + " = 0 WHERE " + entidad.getVersionColumnName() + " IS NULL");
+            }
+        }
+    }
+
+    /**
+     * Las entidades que antes usaban IDENTITY (como {@link org.example.entidades.Cita}) tienen filas con ids que una
+     * secuencia recién creada por hbm2ddl volvería a generar. Si el próximo bloque de la secuencia se superpone con
+     * los ids existentes, la secuencia se reinicia después del mayor; si no, se deja como está. Leer el valor actual
+     * consume un bloque de ids, que queda sin usar.
+     */
+    private static void ajustarSecuencias(Connection conexion, SessionFactoryImplementor sessionFactory) throws SQLException {
+        Dialect dialect = sessionFactory.getJdbcServices().getDialect();
+        for (EntityPersister persister : sessionFactory.getMappingMetamodel().streamEntityDescriptors().toList()) {
+            if (!persister.getEntityName().equals(persister.getRootEntityName())
+                    || !(persister instanceof AbstractEntityPersister entidad)
+                    || !(persister.getGenerator() instanceof SequenceStyleGenerator generador)
+                    || !generador.getDatabaseStructure().isPhysicalSequence()) {
+                continue;
+            }
+            DatabaseStructure estructura = generador.getDatabaseStructure();
+            String secuencia = sessionFactory.getSqlStringGenerationContext()
+                    .format((QualifiedSequenceName) estructura.getPhysicalName());
+            long maximo = valor(conexion, "SELECT COALESCE(MAX(" + entidad.getIdentifierColumnNames()[0] + "), 0) FROM "
+                    + entidad.getTableName());
+            long siguiente = valor(conexion, dialect.getSequenceSupport().getSequenceNextValString(secuencia));
+            // Con el optimizador pooled, el valor leído es el último id del bloque que reserva
+            if (siguiente - estructura.getIncrementSize() < maximo) {
+                try (Statement ajuste = conexion.createStatement()) {
+                    ajuste.executeUpdate("ALTER SEQUENCE " + secuencia + " RESTART WITH " + (maximo + estructura.getIncrementSize()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Los cambios registrados antes de numerar las confirmaciones reciben el 0, para que se entreguen primero, y la
+     * secuencia de confirmaciones sigue después del mayor número asignado con la antigua tabla de una fila.
+     */
+    private static void ajustarConfirmaciones(Connection conexion, SessionFactoryImplementor sessionFactory) throws SQLException {
+        try (Statement completado = conexion.createStatement()) {
+            completado.executeUpdate("UPDATE CambioCita SET confirmacion = 0 WHERE confirmacion IS NULL AND transaccion IS NULL");
+        }
+        // La secuencia existe solo si la factory registra los cambios de las citas
+        if (!RegistroCambiosCita.activo(sessionFactory)) return;
+        long maximo = valor(conexion, "SELECT COALESCE(MAX(confirmacion), 0) FROM CambioCita");
+        long siguiente = valor(conexion, sessionFactory.getJdbcServices().getDialect().getSequenceSupport()
+                .getSequenceNextValString(RegistroCambiosCita.SECUENCIA));
+        if (siguiente <= maximo) {
+            try (Statement ajuste = conexion.createStatement()) {
+                ajuste.executeUpdate("ALTER SEQUENCE " + RegistroCambiosCita.SECUENCIA + " RESTART WITH " + (maximo + 1));
+            }
+        }
+    }
+
+    private static long valor(Connection conexion, String sql) throws SQLException {
+        try (Statement consulta = conexion.createStatement(); ResultSet resultado = consulta.executeQuery(sql)) {
+            resultado.next();
+            return resultado.getLong(1);
+        }
+    }
+
+    private static boolean existeTabla(DatabaseMetaData metadatos, String nombre) throws SQLException {
+        // Según la base, los nombres sin comillas se guardan en mayúsculas, en minúsculas o como se escribieron
+        for (String variante : new String[]{nombre.toUpperCase(), nombre.toLowerCase(), nombre}) {
+            try (ResultSet tablas = metadatos.getTables(null, null, variante, new String[]{"TABLE"})) {
+                if (tablas.next()) return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.configuracion;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Perfil con el que se arranca la unidad de persistencia "hospital-persistence-unit".
+ *
+ * Se elige con la propiedad de sistema {@code hospital.perfil} o la variable de entorno {@code HOSPITAL_PERFIL}
+ * (por defecto DESARROLLO). Las propiedades del perfil se superponen a las de persistence.xml:
+ * <ul>
+ *     <li>DESARROLLO: actualiza el esquema al arrancar e imprime el SQL formateado por consola.</li>
+ *     <li>PRODUCCION: solo valida el esquema (que debe crearse o migrarse por fuera) y no imprime SQL;
+ *     las sentencias se registran por slf4j en el logger {@code org.hibernate.SQL}, con el nivel que indique
+ *     simplelogger.properties o {@code -Dorg.slf4j.simpleLogger.log.org.hibernate.SQL=debug}.</li>
+ * </ul>
+ * El batching JDBC y el orden de inserciones y actualizaciones están activos en ambos perfiles. Sin perfil,
+ * persistence.xml no toca el esquema ni imprime SQL. Hibernate registra por JBoss Logging, que usa slf4j por
+ * META-INF/services/org.jboss.logging.LoggerProvider.
+ *
+ * Opcionalmente las consultas pueden ir a una réplica de lectura, cuya URL se indica con la propiedad
+ * {@code hospital.lectura.url} o la variable {@code HOSPITAL_LECTURA_URL}, y los hospitales pueden repartirse
+ * entre varias bases ({@link FragmentosHospital}), cuyas URLs se indican separadas por comas con la propiedad
+ * {@code hospital.fragmentos} o la variable {@code HOSPITAL_FRAGMENTOS}.
+ */
+public enum PerfilPersistencia {
+    DESARROLLO(Map.of(
+            "hibernate.hbm2ddl.auto", "update",
+            "hibernate.show_sql", "true",
+            "hibernate.format_sql", "true")),
+    PRODUCCION(Map.of(
+            "hibernate.hbm2ddl.auto", "validate",
+            "hibernate.show_sql", "false",
+            "hibernate.format_sql", "false",
+            "hibernate.highlight_sql", "false"));
+
+    public static final String UNIDAD = "hospital-persistence-unit";
+    public static final String PROPIEDAD = "hospital.perfil";
+    public static final String VARIABLE_ENTORNO = "HOSPITAL_PERFIL";
+    public static final String PROPIEDAD_LECTURA = "hospital.lectura.url";
+    public static final String VARIABLE_ENTORNO_LECTURA = "HOSPITAL_LECTURA_URL";
+    public static final String PROPIEDAD_FRAGMENTOS = "hospital.fragmentos";
+    public static final String VARIABLE_ENTORNO_FRAGMENTOS = "HOSPITAL_FRAGMENTOS";
+
+    private static final AtomicInteger CACHES_FRAGMENTOS = new AtomicInteger();
+
+    private final Map<String, Object> propiedades;
+
+    PerfilPersistencia(Map<String, Object> propiedades) {
+        this.propiedades = propiedades;
+    }
+
+    /**
+     * Perfil indicado por la propiedad de sistema o, si no está, por la variable de entorno.
+     */
+    public static PerfilPersistencia actual() {
+        String valor = System.getProperty(PROPIEDAD, System.getenv(VARIABLE_ENTORNO));
+        if (valor == null || valor.isBlank()) return DESARROLLO;
+        try {
+            return valueOf(valor.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Perfil de persistencia desconocido: " + valor, e);
+        }
+    }
+
+    /**
+     * URL de la réplica de lectura indicada por la propiedad de sistema o la variable de entorno, si hay una.
+     */
+    public static Optional<String> urlLectura() {
+        String valor = System.getProperty(PROPIEDAD_LECTURA, System.getenv(VARIABLE_ENTORNO_LECTURA));
+        return valor == null || valor.isBlank() ? Optional.empty() : Optional.of(valor.trim());
+    }
+
+    /**
+     * URLs de las bases entre las que se reparten los hospitales, indicadas por la propiedad de sistema o la
+     * variable de entorno; vacía si no hay ninguna (todos los hospitales en la base de persistence.xml).
+     */
+    public static List<String> urlsFragmentos() {
+        String valor = System.getProperty(PROPIEDAD_FRAGMENTOS, System.getenv(VARIABLE_ENTORNO_FRAGMENTOS));
+        if (valor == null || valor.isBlank()) return List.of();
+        return Arrays.stream(valor.split(",")).map(String::trim).filter(url -> !url.isEmpty()).toList();
+    }
+
+    /**
+     * Propiedades que el perfil superpone a las de persistence.xml.
+     */
+    public Map<String, Object> propiedades() {
+        return propiedades;
+    }
+
+    public EntityManagerFactory crearEntityManagerFactory() {
+        return crearEntityManagerFactory(Map.of());
+    }
+
+    /**
+     * @param extra Propiedades adicionales; tienen prioridad sobre las del perfil.
+     */
+    public EntityManagerFactory crearEntityManagerFactory(Map<String, Object> extra) {
+        Map<String, Object> todas = new HashMap<>(propiedades);
+        todas.putAll(extra);
+        return Persistence.createEntityManagerFactory(UNIDAD, todas);
+    }
+
+    /**
+     * Crea una factory para consultar la réplica indicada. No valida ni modifica el esquema, que replica
+     * el de la base principal, y no usa la caché de segundo nivel: las regiones de Ehcache se comparten
+     * por nombre y las cerraría la primera de las dos factories que se cierre.
+     */
+    public EntityManagerFactory crearEntityManagerFactoryLectura(String url) {
+        Map<String, Object> extra = new HashMap<>();
+        extra.put("jakarta.persistence.jdbc.url", Objects.requireNonNull(url, "La URL de la réplica no puede ser nula."));
+        extra.put("hibernate.hbm2ddl.auto", "none");
+        extra.put("hibernate.cache.use_second_level_cache", "false");
+        extra.put("hibernate.cache.use_query_cache", "false");
+        return crearEntityManagerFactory(extra);
+    }
+
+    /**
+     * Crea la factory de un fragmento de {@link FragmentosHospital}. Cada fragmento tiene su propio CacheManager
+     * de Ehcache (las mismas regiones de ehcache.xml, con otra URI): los ids se repiten entre bases y, con las
+     * regiones compartidas, una factory leería entidades y consultas cacheadas de otra.
+     *
+     * @param url URL de la base; si es null se usa la de persistence.xml.
+     */
+    public EntityManagerFactory crearEntityManagerFactoryFragmento(String url) {
+        return crearEntityManagerFactoryFragmento(url, Map.of());
+    }
+
+    /**
+     * @param adicionales Propiedades adicionales; tienen prioridad sobre las del perfil.
+     */
+    public EntityManagerFactory crearEntityManagerFactoryFragmento(String url, Map<String, Object> adicionales) {
+        Map<String, Object> extra = new HashMap<>(adicionales);
+        if (url != null) extra.put("jakarta.persistence.jdbc.url", url);
+        URL ehcache = Objects.requireNonNull(PerfilPersistencia.class.getClassLoader().getResource("ehcache.xml"),
+                "No se encontró ehcache.xml en el classpath.");
+        // Ehcache crea un CacheManager por URI; el fragmento no cambia el archivo que se lee
+        extra.put("hibernate.javax.cache.uri", ehcache + "#fragmento-" + CACHES_FRAGMENTOS.incrementAndGet());
+        return crearEntityManagerFactory(extra);
+    }
+}
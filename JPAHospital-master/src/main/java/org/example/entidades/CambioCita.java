@@ -0,0 +1,89 @@
+package org.example.entidades;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Registro de un cambio de una {@link Cita}: su creación, cada cambio de estado, las demás modificaciones
+ * y el borrado. Se escribe en la misma transacción que el cambio y no se modifica, salvo para asignarle al confirmar
+ * el número de confirmación de su transacción ({@link org.example.cambios.RegistroCambiosCita}). La tabla es un
+ * historial que puede leerse en orden de confirmación e id a partir del último procesado; los ids solos siguen el
+ * orden de escritura.
+ *
+ * Guarda los ids de las asociaciones y no las entidades, para que una cita borrada no deje claves foráneas colgando.
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_cambio_cita_cita", columnList = "citaId, id"),
+        @Index(name = "idx_cambio_cita_confirmacion", columnList = "confirmacion, id"),
+        @Index(name = "idx_cambio_cita_transaccion", columnList = "transaccion")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class CambioCita {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cambio_cita_seq")
+    // Sin reservar bloques de ids: siguen el orden en que se escriben los cambios incluso entre procesos
+    @SequenceGenerator(name = "cambio_cita_seq", sequenceName = "cambio_cita_seq", allocationSize = 1)
+    private Long id;
+
+    @Column(nullable = false, updatable = false)
+    private Long citaId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false)
+    private TipoCambioCita tipo;
+
+    // Null en las citas creadas y cuando Hibernate no conoce el estado previo
+    @Enumerated(EnumType.STRING)
+    @Column(updatable = false)
+    private EstadoCita estadoAnterior;
+
+    @Enumerated(EnumType.STRING)
+    @Column(updatable = false)
+    private EstadoCita estado;
+
+    @Column(updatable = false)
+    private Long medicoId;
+
+    @Column(updatable = false)
+    private Long salaId;
+
+    @Column(updatable = false)
+    private Long pacienteId;
+
+    @Column(updatable = false)
+    private LocalDateTime fechaHora;
+
+    @Column(nullable = false, updatable = false)
+    private Instant registrado;
+
+    // Transacción que lo escribió, para numerarla al confirmar; null en los registros anteriores a la numeración
+    @Column(length = 36, updatable = false)
+    private String transaccion;
+
+    // Null hasta que la transacción confirma; los registros anteriores a la numeración tienen 0 (MigracionesDatos)
+    private Long confirmacion;
+
+    @Builder
+    public CambioCita(Long citaId, TipoCambioCita tipo, EstadoCita estadoAnterior, EstadoCita estado, Long medicoId,
+                      Long salaId, Long pacienteId, LocalDateTime fechaHora, Instant registrado, String transaccion) {
+        this.citaId = Objects.requireNonNull(citaId, "El id de la cita no puede ser null");
+        this.tipo = Objects.requireNonNull(tipo, "El tipo de cambio no puede ser null");
+        this.estadoAnterior = estadoAnterior;
+        this.estado = estado;
+        this.medicoId = medicoId;
+        this.salaId = salaId;
+        this.pacienteId = pacienteId;
+        this.fechaHora = fechaHora;
+        this.registrado = registrado != null ? registrado : Instant.now();
+        this.transaccion = transaccion;
+    }
+}
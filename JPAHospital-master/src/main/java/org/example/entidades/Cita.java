@@ -1,6 +1,7 @@
 package org.example.entidades;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
@@ -11,12 +12,19 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_cita_medico_fecha", columnList = "medico_id, fechaHora"),
+        @Index(name = "idx_cita_sala_fecha", columnList = "sala_id, fechaHora"),
+        @Index(name = "idx_cita_paciente_fecha", columnList = "paciente_id, fechaHora"),
+        @Index(name = "idx_cita_estado_fecha", columnList = "estado, fechaHora")
+})
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Cita {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cita_seq")
+    @SequenceGenerator(name = "cita_seq", sequenceName = "cita_seq", allocationSize = 50) // pooled: permite inserciones por lotes
     private Long id;
 
     private LocalDateTime fechaHora;
@@ -38,6 +46,11 @@ public class Cita {
     @JoinColumn(name = "sala_id")
     private Sala sala;
 
+    @Version
+    @ColumnDefault("0") // Las filas existentes reciben 0 al agregarse la columna
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
     @Builder
     public Cita(LocalDateTime fechaHora, BigDecimal costo, String observaciones, EstadoCita estado, Paciente paciente, Medico medico, Sala sala) {
         this.fechaHora = fechaHora;
@@ -48,4 +61,11 @@ public class Cita {
         this.medico = medico;
         this.sala = sala;
     }
+
+    public void setEstado(EstadoCita estado) {
+        if (this.estado != null && this.estado != estado && !this.estado.puedeTransicionarA(estado)) {
+            throw new IllegalStateException("Una cita " + this.estado + " no puede pasar a " + estado + ".");
+        }
+        this.estado = estado;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,63 @@
+package org.example.entidades;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Registro inmutable de una historia clínica (diagnóstico, tratamiento o alergia).
+ * Cada entrada es su propia fila, por lo que agregar una nunca reescribe las anteriores.
+ */
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_entrada_historia_fecha", columnList = "historia_id, fechaRegistro, id"),
+        @Index(name = "idx_entrada_historia_clave", columnList = "tipo, clave")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class EntradaHistoria {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "entrada_historia_seq")
+    @SequenceGenerator(name = "entrada_historia_seq", sequenceName = "entrada_historia_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false)
+    private TipoEntradaHistoria tipo;
+
+    @Column(nullable = false, updatable = false)
+    private String descripcion;
+
+    // Descripción normalizada, para buscar sin distinguir mayúsculas ni acentos usando el índice
+    @Column(nullable = false, updatable = false)
+    private String clave;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime fechaRegistro;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "historia_id", nullable = false, updatable = false)
+    private HistoriaClinica historia;
+
+    EntradaHistoria(HistoriaClinica historia, TipoEntradaHistoria tipo, String descripcion) {
+        this.historia = Objects.requireNonNull(historia, "La historia clínica no puede ser null");
+        this.tipo = Objects.requireNonNull(tipo, "El tipo de entrada no puede ser null");
+        this.descripcion = Objects.requireNonNull(descripcion, "La descripción no puede ser null");
+        this.clave = normalizar(descripcion);
+        this.fechaRegistro = LocalDateTime.now();
+    }
+
+    /**
+     * Forma canónica de un término: sin espacios en los extremos, en minúsculas y sin acentos.
+     */
+    public static String normalizar(String termino) {
+        String sinAcentos = Normalizer.normalize(termino.trim(), Normalizer.Form.NFD).replaceAll("\\p{M}", "");
+        return sinAcentos.toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,9 +1,35 @@
 package org.example.entidades;
 
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum EstadoCita {
     PROGRAMADA,
     EN_CURSO,
     COMPLETADA,
     CANCELADA,
-    NO_ASISTIO
-}
\ No newline at end of file
+    NO_ASISTIO;
+
+    /**
+     * Estados en los que la cita ocupa el horario del médico y de la sala.
+     * Una cita CANCELADA o NO_ASISTIO deja el horario libre para otra.
+     */
+    public static final Set<EstadoCita> BLOQUEANTES = Collections.unmodifiableSet(EnumSet.of(PROGRAMADA, EN_CURSO, COMPLETADA));
+
+    public boolean bloqueaHorario() {
+        return BLOQUEANTES.contains(this);
+    }
+
+    /**
+     * Indica si una cita en este estado puede pasar al estado indicado.
+     * COMPLETADA, CANCELADA y NO_ASISTIO son estados finales.
+     */
+    public boolean puedeTransicionarA(EstadoCita nuevo) {
+        return switch (this) {
+            case PROGRAMADA -> nuevo == EN_CURSO || nuevo == COMPLETADA || nuevo == CANCELADA || nuevo == NO_ASISTIO;
+            case EN_CURSO -> nuevo == COMPLETADA || nuevo == CANCELADA;
+            case COMPLETADA, CANCELADA, NO_ASISTIO -> false;
+        };
+    }
+}
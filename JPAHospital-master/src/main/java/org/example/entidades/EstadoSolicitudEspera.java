@@ -0,0 +1,10 @@
+package org.example.entidades;
+
+public enum EstadoSolicitudEspera {
+    /** Esperando que se libere un horario. */
+    PENDIENTE,
+    /** Recibió una cita en un horario liberado. */
+    ASIGNADA,
+    /** El paciente dejó la lista de espera. */
+    RETIRADA
+}
@@ -5,6 +5,7 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 
+import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -15,7 +16,7 @@ import java.util.Objects;
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class HistoriaClinica {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
     private String numeroHistoria;
@@ -25,36 +26,66 @@ public class HistoriaClinica {
     @JoinColumn(name = "paciente_id", unique = true)
     private Paciente paciente;
 
-    @ElementCollection(fetch = FetchType.LAZY)
-    @CollectionTable(name = "historia_diagnosticos", joinColumns = @JoinColumn(name = "historia_id"))
-    @Column(name = "diagnostico")
-    private List<String> diagnosticos = new ArrayList<>();
-
-    @ElementCollection(fetch = FetchType.LAZY)
-    @CollectionTable(name = "historia_tratamientos", joinColumns = @JoinColumn(name = "historia_id"))
-    @Column(name = "tratamiento")
-    private List<String> tratamientos = new ArrayList<>();
-
-    @ElementCollection(fetch = FetchType.LAZY)
-    @CollectionTable(name = "historia_alergias", joinColumns = @JoinColumn(name = "historia_id"))
-    @Column(name = "alergia")
-    private List<String> alergias = new ArrayList<>();
+    // Lado inverso: agregar una entrada a la colección sin inicializar solo encola un INSERT
+    @Getter(AccessLevel.NONE)
+    @OneToMany(mappedBy = "historia", cascade = {CascadeType.PERSIST, CascadeType.REMOVE}, fetch = FetchType.LAZY)
+    @OrderBy("fechaRegistro, id")
+    private List<EntradaHistoria> entradas = new ArrayList<>();
 
     public HistoriaClinica(Paciente paciente) {
+        this(paciente, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param reloj Fecha la historia y su número; con un reloj fijo la historia es reproducible.
+     */
+    public HistoriaClinica(Paciente paciente, Clock reloj) {
         this.paciente = Objects.requireNonNull(paciente, "El paciente no puede ser null");
-        this.fechaCreacion = LocalDateTime.now();
-        this.numeroHistoria = "HC-" + paciente.getDni() + "-" + System.currentTimeMillis();
+        this.fechaCreacion = LocalDateTime.now(reloj);
+        this.numeroHistoria = "HC-" + paciente.getDni() + "-" + reloj.millis();
+    }
+
+    /**
+     * Agrega una entrada sin cargar las existentes; se inserta al persistir o al hacer flush.
+     */
+    public EntradaHistoria agregarEntrada(TipoEntradaHistoria tipo, String descripcion) {
+        EntradaHistoria entrada = new EntradaHistoria(this, tipo, descripcion);
+        this.entradas.add(entrada);
+        return entrada;
     }
 
     public void agregarDiagnostico(String diagnostico) {
-        this.diagnosticos.add(diagnostico);
+        agregarEntrada(TipoEntradaHistoria.DIAGNOSTICO, diagnostico);
     }
 
     public void agregarTratamiento(String tratamiento) {
-        this.tratamientos.add(tratamiento);
+        agregarEntrada(TipoEntradaHistoria.TRATAMIENTO, tratamiento);
     }
 
     public void agregarAlergia(String alergia) {
-        this.alergias.add(alergia);
+        agregarEntrada(TipoEntradaHistoria.ALERGIA, alergia);
+    }
+
+    /**
+     * Los métodos siguientes cargan la historia completa; para historias largas conviene
+     * HistoriaClinicaService, que pagina desde la entrada más reciente.
+     */
+    public List<String> getDiagnosticos() {
+        return descripciones(TipoEntradaHistoria.DIAGNOSTICO);
+    }
+
+    public List<String> getTratamientos() {
+        return descripciones(TipoEntradaHistoria.TRATAMIENTO);
+    }
+
+    public List<String> getAlergias() {
+        return descripciones(TipoEntradaHistoria.ALERGIA);
+    }
+
+    private List<String> descripciones(TipoEntradaHistoria tipo) {
+        return entradas.stream()
+                .filter(e -> e.getTipo() == tipo)
+                .map(EntradaHistoria::getDescripcion)
+                .toList();
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,10 @@
 package org.example.entidades;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
@@ -10,10 +14,20 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@NamedEntityGraph(name = Hospital.GRAFO_DIRECTORIO, attributeNodes = @NamedAttributeNode("departamentos"))
+// Solo los pacientes: sus historias clínicas quedan sin cargar (Paciente.historias)
+@NamedEntityGraph(name = Hospital.GRAFO_CENSO, attributeNodes = @NamedAttributeNode("pacientes"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "hospital")
 @Getter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Hospital {
+    public static final String GRAFO_DIRECTORIO = "Hospital.directorio";
+    public static final String GRAFO_CENSO = "Hospital.censo";
+
     @Id
+    // IDENTITY a propósito: FragmentosHospital reparte los ids entre las bases ajustando el inicio y el incremento de
+    // esta columna, y los hospitales se crean de a uno, sin lotes que aprovechar
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
@@ -22,6 +36,8 @@ public class Hospital {
     private String telefono;
 
     @OneToMany(mappedBy = "hospital", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "hospital.departamentos")
+    @Fetch(FetchMode.SUBSELECT)
     private List<Departamento> departamentos = new ArrayList<>();
 
     @OneToMany(mappedBy = "hospital", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -1,5 +1,6 @@
 package org.example.entidades;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Embeddable;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -11,6 +12,7 @@ import java.util.Objects;
 @Getter
 @NoArgsConstructor
 public class Matricula implements Serializable {
+    @Column(unique = true) // Una matrícula identifica a un único médico
     private String numero;
 
     public Matricula(String numero) {
@@ -1,6 +1,9 @@
 package org.example.entidades;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -12,6 +15,8 @@ import java.util.List;
 import java.util.Objects;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "medico")
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -30,12 +35,19 @@ public class Medico extends Persona {
     @OneToMany(mappedBy = "medico", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Cita> citas;
 
+    // Versión de la agenda: cada reserva con bloqueo optimista la incrementa
+    @Version
+    @ColumnDefault("0")
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
     // Constructor simplificado para trabajar con SuperBuilder
     protected Medico(MedicoBuilder<?, ?> b) {
         super(b); // Se pasa el builder completo a la clase padre
         this.matricula = Objects.requireNonNull(b.matricula, "La matrícula no puede ser null");
         this.especialidad = Objects.requireNonNull(b.especialidad, "La especialidad no puede ser null");
         this.citas = new ArrayList<>();
+        this.version = 0L; // StatelessSession.insert no copia a la instancia la versión inicial que asigna
     }
 
     public void addCita(Cita cita) {
@@ -0,0 +1,35 @@
+package org.example.entidades;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Migración de datos ya aplicada a la base, para no volver a aplicarla
+ * ({@link org.example.configuracion.MigracionesDatos}).
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class MigracionDatos {
+    @Id
+    private Integer version;
+
+    @Column(nullable = false)
+    private String descripcion;
+
+    @Column(nullable = false)
+    private Instant aplicada;
+
+    public MigracionDatos(int version, String descripcion) {
+        this.version = version;
+        this.descripcion = Objects.requireNonNull(descripcion, "La descripción no puede ser null");
+        this.aplicada = Instant.now();
+    }
+}
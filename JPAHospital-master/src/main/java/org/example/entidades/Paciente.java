@@ -6,12 +6,15 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 @Entity
+@Table(indexes = @Index(name = "idx_paciente_hospital_sangre", columnList = "hospital_id, tipoSangre"))
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -20,8 +23,13 @@ public class Paciente extends Persona {
     private String telefono;
     private String direccion;
 
-    @OneToOne(mappedBy = "paciente", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
-    private HistoriaClinica historiaClinica;
+    // Una sola historia por paciente (paciente_id es único). Es una colección y no un @OneToOne porque del lado
+    // inverso Hibernate carga el @OneToOne siempre, con una consulta por paciente; así un censo no trae las historias
+    @OneToMany(mappedBy = "paciente", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Fetch(FetchMode.SUBSELECT) // Al pedir una historia se cargan las de todos los pacientes de la misma consulta
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private List<HistoriaClinica> historias = new ArrayList<>();
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "hospital_id")
@@ -35,10 +43,20 @@ public class Paciente extends Persona {
         super(b); // Se pasa el builder completo a la clase padre
         this.telefono = Objects.requireNonNull(b.telefono, "El teléfono no puede ser null");
         this.direccion = Objects.requireNonNull(b.direccion, "La dirección no puede ser null");
-        this.historiaClinica = new HistoriaClinica(this);
+        this.historias = new ArrayList<>();
+        this.historias.add(new HistoriaClinica(this));
         this.citas = new ArrayList<>();
     }
 
+    public HistoriaClinica getHistoriaClinica() {
+        return historias.isEmpty() ? null : historias.get(0);
+    }
+
+    public void setHistoriaClinica(HistoriaClinica historiaClinica) {
+        historias.clear();
+        if (historiaClinica != null) historias.add(historiaClinica);
+    }
+
     public void addCita(Cita cita) {
         this.citas.add(cita);
         cita.setPaciente(this);
@@ -17,7 +17,7 @@ import java.util.Objects;
 public abstract class Persona {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE) // Una secuencia pooled por subclase; permite inserciones por lotes
     protected Long id; // AÑADIDO: Clave primaria para todas las subclases
 
     protected String nombre;
@@ -40,6 +40,13 @@ public abstract class Persona {
         this.tipoSangre = Objects.requireNonNull(b.tipoSangre, "El tipo de sangre no puede ser null");
     }
 
+    /**
+     * Corrige un DNI mal cargado; sigue las mismas reglas que al crear la persona.
+     */
+    public void corregirDni(String dni) {
+        this.dni = validarDni(dni);
+    }
+
     public String getNombreCompleto() {
         return nombre + " " + apellido;
     }
@@ -0,0 +1,44 @@
+package org.example.entidades;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Último {@link CambioCita} entregado por un publicador, para continuar desde ahí al reiniciar.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class PosicionCambios {
+    @Id
+    private String publicador;
+
+    // Con valor por defecto para que las posiciones guardadas antes de numerar las confirmaciones sigan desde la 0
+    @ColumnDefault("0")
+    private long ultimaConfirmacion;
+
+    private long ultimoId;
+
+    private Instant actualizado;
+
+    public PosicionCambios(String publicador) {
+        this.publicador = Objects.requireNonNull(publicador, "El nombre del publicador no puede ser null");
+    }
+
+    public void avanzar(long ultimaConfirmacion, long ultimoId) {
+        if (ultimaConfirmacion < this.ultimaConfirmacion
+                || (ultimaConfirmacion == this.ultimaConfirmacion && ultimoId < this.ultimoId)) {
+            throw new IllegalArgumentException("La posición no puede retroceder.");
+        }
+        this.ultimaConfirmacion = ultimaConfirmacion;
+        this.ultimoId = ultimoId;
+        this.actualizado = Instant.now();
+    }
+}
@@ -1,6 +1,9 @@
 package org.example.entidades;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
@@ -11,6 +14,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "sala")
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -30,11 +35,18 @@ public class Sala {
     @OneToMany(mappedBy = "sala")
     private List<Cita> citas = new ArrayList<>();
 
+    // Versión de la agenda: cada reserva con bloqueo optimista la incrementa
+    @Version
+    @ColumnDefault("0")
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
     @Builder
     public Sala(String numero, String tipo, Departamento departamento) {
         this.numero = numero;
         this.tipo = tipo;
         this.departamento = departamento;
+        this.version = 0L; // StatelessSession.insert no copia a la instancia la versión inicial que asigna
     }
 
     public void addCita(Cita cita) {
@@ -0,0 +1,102 @@
+package org.example.entidades;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Pedido de un paciente en la lista de espera: una cita de la especialidad, con un médico en particular o con
+ * cualquiera, en algún horario entre {@code desde} y {@code hasta}. Las solicitudes se atienden por prioridad
+ * (menor valor primero) y, a igual prioridad, por antigüedad.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_solicitud_espera_pendientes", columnList = "estado, especialidad, prioridad, creada"))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class SolicitudEspera {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "solicitud_espera_seq")
+    @SequenceGenerator(name = "solicitud_espera_seq", sequenceName = "solicitud_espera_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "paciente_id", nullable = false)
+    private Paciente paciente;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EspecialidadMedica especialidad;
+
+    // Null si sirve cualquier médico de la especialidad
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "medico_id")
+    private Medico medico;
+
+    @Column(nullable = false)
+    private LocalDateTime desde;
+
+    @Column(nullable = false)
+    private LocalDateTime hasta;
+
+    private int prioridad;
+
+    @Column(nullable = false)
+    private BigDecimal costo;
+
+    private String observaciones;
+
+    @Column(nullable = false)
+    private Instant creada;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoSolicitudEspera estado;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "cita_id")
+    private Cita cita;
+
+    @Version
+    @Setter(AccessLevel.NONE)
+    private Long version;
+
+    @Builder
+    public SolicitudEspera(Paciente paciente, EspecialidadMedica especialidad, Medico medico, LocalDateTime desde,
+                           LocalDateTime hasta, int prioridad, BigDecimal costo, String observaciones) {
+        this.paciente = Objects.requireNonNull(paciente, "El paciente no puede ser null");
+        this.especialidad = Objects.requireNonNull(especialidad, "La especialidad no puede ser null");
+        this.medico = medico;
+        this.desde = Objects.requireNonNull(desde, "La fecha desde no puede ser null");
+        this.hasta = Objects.requireNonNull(hasta, "La fecha hasta no puede ser null");
+        this.prioridad = prioridad;
+        this.costo = costo;
+        this.observaciones = observaciones;
+        this.creada = Instant.now();
+        this.estado = EstadoSolicitudEspera.PENDIENTE;
+    }
+
+    public void asignar(Cita cita) {
+        exigirPendiente();
+        this.cita = Objects.requireNonNull(cita, "La cita no puede ser null");
+        this.estado = EstadoSolicitudEspera.ASIGNADA;
+    }
+
+    public void retirar() {
+        exigirPendiente();
+        this.estado = EstadoSolicitudEspera.RETIRADA;
+    }
+
+    private void exigirPendiente() {
+        if (estado != EstadoSolicitudEspera.PENDIENTE) {
+            throw new IllegalStateException("La solicitud ya está " + estado + ".");
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.entidades;
+
+public enum TipoCambioCita {
+    /** La cita se programó. */
+    CREADA,
+    /** La cita pasó a otro estado. */
+    ESTADO,
+    /** Cambiaron otros datos de la cita (fecha, médico, sala, costo u observaciones). */
+    MODIFICADA,
+    ELIMINADA
+}
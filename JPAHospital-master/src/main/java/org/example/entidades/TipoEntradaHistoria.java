@@ -0,0 +1,7 @@
+package org.example.entidades;
+
+public enum TipoEntradaHistoria {
+    DIAGNOSTICO,
+    TRATAMIENTO,
+    ALERGIA
+}
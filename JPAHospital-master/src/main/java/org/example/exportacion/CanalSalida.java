@@ -0,0 +1,120 @@
+package org.example.exportacion;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Escritura con búfer directo sobre un {@link FileChannel}: los bytes se acumulan en memoria y llegan al
+ * archivo en bloques de {@link #TAMANIO_BUFER}, sin copias intermedias ni objetos por valor escrito.
+ * No es thread-safe. Al cerrarse vacía el búfer pero no cierra el canal.
+ */
+final class CanalSalida implements Closeable {
+    static final int TAMANIO_BUFER = 1 << 20;
+
+    private final FileChannel canal;
+    private final ByteBuffer bufer = ByteBuffer.allocateDirect(TAMANIO_BUFER);
+    private final byte[] digitos = new byte[20];
+    private long escritos;
+
+    CanalSalida(FileChannel canal) {
+        this.canal = canal;
+    }
+
+    /**
+     * Bytes escritos hasta ahora, incluidos los que aún están en el búfer.
+     */
+    long escritos() {
+        return escritos + bufer.position();
+    }
+
+    void octeto(int valor) throws IOException {
+        if (!bufer.hasRemaining()) vaciar();
+        bufer.put((byte) valor);
+    }
+
+    void octetos(byte[] valores) throws IOException {
+        int desde = 0;
+        while (desde < valores.length) {
+            if (!bufer.hasRemaining()) vaciar();
+            int cantidad = Math.min(bufer.remaining(), valores.length - desde);
+            bufer.put(valores, desde, cantidad);
+            desde += cantidad;
+        }
+    }
+
+    /**
+     * Entero de 4 bytes big-endian.
+     */
+    void entero(int valor) throws IOException {
+        if (bufer.remaining() < Integer.BYTES) vaciar();
+        bufer.putInt(valor);
+    }
+
+    /**
+     * Entero sin signo en base 128 (7 bits por byte, el bit alto indica que sigue otro byte).
+     */
+    void varint(long valor) throws IOException {
+        while ((valor & ~0x7FL) != 0) {
+            octeto((int) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        octeto((int) valor);
+    }
+
+    /**
+     * Entero con signo en base 128; los valores de módulo pequeño ocupan pocos bytes sin importar el signo.
+     */
+    void zigzag(long valor) throws IOException {
+        varint((valor << 1) ^ (valor >> 63));
+    }
+
+    /**
+     * Número decimal en ASCII, con al menos {@code ancho} dígitos (se completa con ceros a la izquierda).
+     */
+    void decimal(long valor, int ancho) throws IOException {
+        if (valor < 0) {
+            if (valor == Long.MIN_VALUE) {
+                octetos(Long.toString(valor).getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            octeto('-');
+            valor = -valor;
+        }
+        int pos = digitos.length;
+        do {
+            digitos[--pos] = (byte) ('0' + valor % 10);
+            valor /= 10;
+        } while (valor != 0);
+        for (int i = digitos.length - pos; i < ancho; i++) octeto('0');
+        for (; pos < digitos.length; pos++) octeto(digitos[pos]);
+    }
+
+    /**
+     * Texto en UTF-8. Los textos ASCII se copian carácter a carácter, sin crear el arreglo de bytes.
+     */
+    void texto(String valor) throws IOException {
+        for (int i = 0; i < valor.length(); i++) {
+            if (valor.charAt(i) >= 0x80) {
+                octetos(valor.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        for (int i = 0; i < valor.length(); i++) octeto(valor.charAt(i));
+    }
+
+    @Override
+    public void close() throws IOException {
+        vaciar();
+    }
+
+    private void vaciar() throws IOException {
+        bufer.flip();
+        while (bufer.hasRemaining()) {
+            escritos += canal.write(bufer);
+        }
+        bufer.clear();
+    }
+}
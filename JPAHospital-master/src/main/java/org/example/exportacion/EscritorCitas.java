@@ -0,0 +1,20 @@
+package org.example.exportacion;
+
+import org.example.servicios.CitaResumen;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Formato de archivo en el que {@link ExportadorCitas} vuelca las citas, una por llamada y en orden.
+ * Al cerrarse escribe lo que tenga pendiente; el canal subyacente lo cierra quien lo abrió.
+ */
+interface EscritorCitas extends Closeable {
+
+    void escribir(CitaResumen cita) throws IOException;
+
+    /**
+     * Bytes escritos hasta ahora.
+     */
+    long escritos();
+}
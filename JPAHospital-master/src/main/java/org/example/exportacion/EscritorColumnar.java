@@ -0,0 +1,152 @@
+package org.example.exportacion;
+
+import org.example.servicios.CitaResumen;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Formato binario por columnas, pensado para volúmenes que en CSV serían varias veces más grandes.
+ *
+ * El archivo empieza con {@link #MAGICO} y la versión (un byte), seguidos de bloques de hasta
+ * {@link #FILAS_POR_BLOQUE} filas. Cada bloque es un entero de 4 bytes con su cantidad de filas y luego
+ * una columna tras otra, con enteros en base 128 ({@link CanalSalida#varint} y {@link CanalSalida#zigzag}):
+ * <ul>
+ *     <li>id: diferencia con el id de la fila anterior (zigzag).</li>
+ *     <li>fechaHora: el mínimo del bloque en segundos desde la época (zigzag) y por fila la distancia a ese
+ *     mínimo más uno; 0 es nulo. Las fracciones de segundo no se guardan.</li>
+ *     <li>costo: por fila la escala más uno (0 es nulo) y el valor sin escala (zigzag).</li>
+ *     <li>estado, medico, sala, paciente: un diccionario con los textos distintos del bloque (cantidad y cada
+ *     texto como longitud más UTF-8) y por fila la posición en el diccionario más uno; 0 es nulo.</li>
+ * </ul>
+ * La memoria usada depende del tamaño del bloque y no de la cantidad de filas exportadas.
+ * {@link LectorColumnar} lee estos archivos.
+ */
+final class EscritorColumnar implements EscritorCitas {
+    static final byte[] MAGICO = {'H', 'C', 'I', 'T'};
+    static final int VERSION = 1;
+    static final int FILAS_POR_BLOQUE = 65_536;
+    private static final long FECHA_NULA = Long.MIN_VALUE;
+
+    private final CanalSalida salida;
+    private final long[] ids = new long[FILAS_POR_BLOQUE];
+    private final long[] segundos = new long[FILAS_POR_BLOQUE];
+    private final long[] costos = new long[FILAS_POR_BLOQUE];
+    /** Escala de cada costo, o -1 si es nulo. */
+    private final int[] escalas = new int[FILAS_POR_BLOQUE];
+    private final Diccionario estados = new Diccionario();
+    private final Diccionario medicos = new Diccionario();
+    private final Diccionario salas = new Diccionario();
+    private final Diccionario pacientes = new Diccionario();
+    private int filas;
+    private long ultimoId;
+
+    EscritorColumnar(FileChannel canal) throws IOException {
+        this.salida = new CanalSalida(canal);
+        salida.octetos(MAGICO);
+        salida.octeto(VERSION);
+    }
+
+    @Override
+    public void escribir(CitaResumen cita) throws IOException {
+        ids[filas] = Objects.requireNonNull(cita.id(), "La cita exportada debe tener id.");
+        segundos[filas] = cita.fechaHora() == null ? FECHA_NULA : cita.fechaHora().toEpochSecond(ZoneOffset.UTC);
+        BigDecimal costo = cita.costo();
+        if (costo == null) {
+            escalas[filas] = -1;
+        } else {
+            if (costo.scale() < 0) costo = costo.setScale(0);
+            escalas[filas] = costo.scale();
+            costos[filas] = costo.unscaledValue().longValueExact();
+        }
+        estados.agregar(filas, cita.estado() == null ? null : cita.estado().name());
+        medicos.agregar(filas, cita.medico());
+        salas.agregar(filas, cita.sala());
+        pacientes.agregar(filas, cita.paciente());
+        if (++filas == FILAS_POR_BLOQUE) escribirBloque();
+    }
+
+    @Override
+    public long escritos() {
+        return salida.escritos();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (filas > 0) escribirBloque();
+        salida.close();
+    }
+
+    private void escribirBloque() throws IOException {
+        salida.entero(filas);
+        for (int i = 0; i < filas; i++) {
+            salida.zigzag(ids[i] - ultimoId);
+            ultimoId = ids[i];
+        }
+
+        long base = Long.MAX_VALUE;
+        for (int i = 0; i < filas; i++) {
+            if (segundos[i] != FECHA_NULA) base = Math.min(base, segundos[i]);
+        }
+        if (base == Long.MAX_VALUE) base = 0;
+        salida.zigzag(base);
+        for (int i = 0; i < filas; i++) {
+            salida.varint(segundos[i] == FECHA_NULA ? 0 : segundos[i] - base + 1);
+        }
+
+        for (int i = 0; i < filas; i++) {
+            salida.varint(escalas[i] + 1);
+            if (escalas[i] >= 0) salida.zigzag(costos[i]);
+        }
+
+        estados.escribir(salida, filas);
+        medicos.escribir(salida, filas);
+        salas.escribir(salida, filas);
+        pacientes.escribir(salida, filas);
+        filas = 0;
+    }
+
+    /**
+     * Textos distintos de una columna dentro del bloque actual.
+     */
+    private static final class Diccionario {
+        private final Map<String, Integer> posiciones = new HashMap<>();
+        private final List<String> valores = new ArrayList<>();
+        /** Posición más uno del texto de cada fila; 0 es nulo. */
+        private final int[] filas = new int[FILAS_POR_BLOQUE];
+
+        void agregar(int fila, String valor) {
+            if (valor == null) {
+                filas[fila] = 0;
+                return;
+            }
+            Integer posicion = posiciones.get(valor);
+            if (posicion == null) {
+                valores.add(valor);
+                posicion = valores.size();
+                posiciones.put(valor, posicion);
+            }
+            filas[fila] = posicion;
+        }
+
+        void escribir(CanalSalida salida, int cantidad) throws IOException {
+            salida.varint(valores.size());
+            for (String valor : valores) {
+                byte[] bytes = valor.getBytes(StandardCharsets.UTF_8);
+                salida.varint(bytes.length);
+                salida.octetos(bytes);
+            }
+            for (int i = 0; i < cantidad; i++) salida.varint(filas[i]);
+            posiciones.clear();
+            valores.clear();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.exportacion;
+
+import org.example.servicios.CitaResumen;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.time.LocalDateTime;
+
+/**
+ * CSV en UTF-8 (RFC 4180) con cabecera. Las fechas se escriben como {@code yyyy-MM-dd HH:mm:ss}, los importes
+ * sin notación científica y los valores nulos como campos vacíos. Los textos con comas, comillas o saltos de
+ * línea van entre comillas dobles.
+ */
+final class EscritorCsv implements EscritorCitas {
+    static final String CABECERA = "id,fechaHora,estado,costo,medico,sala,paciente\n";
+
+    private final CanalSalida salida;
+
+    EscritorCsv(FileChannel canal) throws IOException {
+        this.salida = new CanalSalida(canal);
+        salida.texto(CABECERA);
+    }
+
+    @Override
+    public void escribir(CitaResumen cita) throws IOException {
+        if (cita.id() != null) salida.decimal(cita.id(), 1);
+        salida.octeto(',');
+        if (cita.fechaHora() != null) fecha(cita.fechaHora());
+        salida.octeto(',');
+        if (cita.estado() != null) salida.texto(cita.estado().name());
+        salida.octeto(',');
+        if (cita.costo() != null) salida.texto(cita.costo().toPlainString());
+        salida.octeto(',');
+        campo(cita.medico());
+        salida.octeto(',');
+        campo(cita.sala());
+        salida.octeto(',');
+        campo(cita.paciente());
+        salida.octeto('\n');
+    }
+
+    @Override
+    public long escritos() {
+        return salida.escritos();
+    }
+
+    @Override
+    public void close() throws IOException {
+        salida.close();
+    }
+
+    private void fecha(LocalDateTime fechaHora) throws IOException {
+        salida.decimal(fechaHora.getYear(), 4);
+        salida.octeto('-');
+        salida.decimal(fechaHora.getMonthValue(), 2);
+        salida.octeto('-');
+        salida.decimal(fechaHora.getDayOfMonth(), 2);
+        salida.octeto(' ');
+        salida.decimal(fechaHora.getHour(), 2);
+        salida.octeto(':');
+        salida.decimal(fechaHora.getMinute(), 2);
+        salida.octeto(':');
+        salida.decimal(fechaHora.getSecond(), 2);
+    }
+
+    private void campo(String valor) throws IOException {
+        if (valor == null) return;
+        if (!requiereComillas(valor)) {
+            salida.texto(valor);
+            return;
+        }
+        salida.octeto('"');
+        salida.texto(valor.replace("\"", "\"\""));
+        salida.octeto('"');
+    }
+
+    private static boolean requiereComillas(String valor) {
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,187 @@
+package org.example.exportacion;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.configuracion.PerfilPersistencia;
+import org.example.servicios.CitaResumen;
+import org.example.servicios.FiltroCitas;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.SelectionQuery;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Exporta citas con su costo, estado, médico, sala y paciente a un archivo CSV o binario por columnas.
+ *
+ * Las filas se leen con una proyección ({@link CitaResumen}) desde una StatelessSession y un cursor de solo avance,
+ * por lo que no se instancian entidades ni se acumulan en un contexto de persistencia, y se escriben a medida que
+ * llegan a través de un búfer directo sobre un {@link FileChannel}. La memoria usada no depende de la cantidad
+ * de citas exportadas.
+ *
+ * Uso: {@code ./gradlew exportarCitas -Pexportacion="--mes=2025-01 --formato=columnar --salida=citas-2025-01.hcit"}
+ */
+public class ExportadorCitas {
+    static final int TAMANIO_BLOQUE = 1_000;
+    // Se ordena por id para que el archivo sea reproducible y los id de un bloque difieran poco entre sí
+    private static final String SELECT_EXPORTACION = "SELECT new org.example.servicios.CitaResumen("
+            + "c.id, c.fechaHora, c.estado, c.costo, CONCAT(m.nombre, ' ', m.apellido), s.numero, CONCAT(p.nombre, ' ', p.apellido)) "
+            + "FROM Cita c LEFT JOIN c.medico m LEFT JOIN c.sala s LEFT JOIN c.paciente p";
+
+    public enum Formato {
+        CSV {
+            @Override
+            EscritorCitas abrir(FileChannel canal) throws IOException {
+                return new EscritorCsv(canal);
+            }
+        },
+        COLUMNAR {
+            @Override
+            EscritorCitas abrir(FileChannel canal) throws IOException {
+                return new EscritorColumnar(canal);
+            }
+        };
+
+        abstract EscritorCitas abrir(FileChannel canal) throws IOException;
+    }
+
+    /**
+     * Resumen de una exportación.
+     *
+     * @param nanos Duración total, desde la consulta hasta que el archivo quedó escrito.
+     */
+    public record Resultado(long filas, long bytes, long nanos) {
+
+        public double filasPorSegundo() {
+            return nanos == 0 ? 0 : filas * 1e9 / nanos;
+        }
+    }
+
+    private final EntityManagerFactory emf;
+
+    public ExportadorCitas(EntityManagerFactory emf) {
+        this.emf = Objects.requireNonNull(emf, "La EntityManagerFactory no puede ser nula.");
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> valores = leerArgumentos(args);
+        Formato formato = Formato.valueOf(valores.getOrDefault("formato", "csv").toUpperCase(Locale.ROOT));
+        Path salida = Path.of(valores.getOrDefault("salida", formato == Formato.CSV ? "citas.csv" : "citas.hcit"));
+        LocalDateTime desde = null;
+        LocalDateTime hasta = null;
+        if (valores.containsKey("mes")) {
+            YearMonth mes = YearMonth.parse(valores.get("mes"));
+            desde = mes.atDay(1).atStartOfDay();
+            hasta = mes.plusMonths(1).atDay(1).atStartOfDay().minusNanos(1);
+        }
+        if (valores.containsKey("desde")) desde = LocalDateTime.parse(valores.get("desde"));
+        if (valores.containsKey("hasta")) hasta = LocalDateTime.parse(valores.get("hasta"));
+
+        Map<String, Object> propiedades = new HashMap<>();
+        propiedades.put("hibernate.show_sql", "false");
+        propiedades.put("hibernate.format_sql", "false");
+        if (valores.containsKey("url")) propiedades.put("jakarta.persistence.jdbc.url", valores.get("url"));
+        EntityManagerFactory emf = PerfilPersistencia.actual().crearEntityManagerFactory(propiedades);
+        try {
+            Resultado resultado = new ExportadorCitas(emf).exportar(new FiltroCitas(desde, hasta, null, null), formato, salida);
+            System.out.printf("%,d citas exportadas a %s (%,d bytes) en %.1f s: %,.0f citas/s%n", resultado.filas(), salida,
+                    resultado.bytes(), resultado.nanos() / 1e9, resultado.filasPorSegundo());
+        } finally {
+            emf.close();
+        }
+    }
+
+    /**
+     * Exporta las citas que cumplen el filtro, ordenadas por id. Si el archivo existe se reemplaza.
+     *
+     * @param filtro Citas a exportar; null exporta todas.
+     */
+    public Resultado exportar(FiltroCitas filtro, Formato formato, Path destino) throws IOException {
+        Objects.requireNonNull(formato, "El formato no puede ser nulo.");
+        Objects.requireNonNull(destino, "El archivo de destino no puede ser nulo.");
+        FiltroCitas f = filtro == null ? FiltroCitas.TODAS : filtro;
+        long inicio = System.nanoTime();
+        long filas = 0;
+        long bytes;
+
+        try (StatelessSession session = emf.unwrap(SessionFactory.class).openStatelessSession();
+             FileChannel canal = FileChannel.open(destino, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // 1. Una transacción para que todo el archivo salga de la misma foto de la base
+            Transaction tx = session.beginTransaction();
+            modoPerezoso(session, true);
+            try {
+                EscritorCitas escritor = formato.abrir(canal);
+                try (escritor; ScrollableResults<CitaResumen> cursor = consulta(session, f).scroll(ScrollMode.FORWARD_ONLY)) {
+                    // 2. Cada fila se escribe apenas se lee; el driver trae TAMANIO_BLOQUE filas por viaje
+                    while (cursor.next()) {
+                        escritor.escribir(cursor.get());
+                        filas++;
+                    }
+                }
+                bytes = escritor.escritos();
+                tx.commit();
+            } finally {
+                if (tx.isActive()) tx.rollback();
+                modoPerezoso(session, false);
+            }
+        }
+        return new Resultado(filas, bytes, System.nanoTime() - inicio);
+    }
+
+    /**
+     * H2 arma el resultado completo de una consulta (en disco si no entra en memoria) antes de devolver la primera
+     * fila; en modo perezoso lo va generando a medida que avanza el cursor. La opción es de la conexión, que vuelve
+     * al pool, así que se desactiva al terminar. Otras bases ya respetan el fetch size.
+     */
+    private void modoPerezoso(StatelessSession session, boolean activo) {
+        if (!(emf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect() instanceof H2Dialect)) return;
+        session.doWork(conexion -> {
+            try (Statement sentencia = conexion.createStatement()) {
+                sentencia.execute("SET LAZY_QUERY_EXECUTION " + activo);
+            }
+        });
+    }
+
+    private static SelectionQuery<CitaResumen> consulta(StatelessSession session, FiltroCitas f) {
+        List<String> condiciones = new ArrayList<>();
+        if (f.desde() != null) condiciones.add("c.fechaHora >= :desde");
+        if (f.hasta() != null) condiciones.add("c.fechaHora <= :hasta");
+        if (f.medico() != null) condiciones.add("c.medico = :medico");
+        if (f.departamento() != null) condiciones.add("s.departamento = :departamento");
+        String hql = SELECT_EXPORTACION + (condiciones.isEmpty() ? "" : " WHERE " + String.join(" AND ", condiciones)) + " ORDER BY c.id";
+        SelectionQuery<CitaResumen> query = session.createSelectionQuery(hql, CitaResumen.class)
+                .setFetchSize(TAMANIO_BLOQUE);
+        if (f.desde() != null) query.setParameter("desde", f.desde());
+        if (f.hasta() != null) query.setParameter("hasta", f.hasta());
+        if (f.medico() != null) query.setParameter("medico", f.medico());
+        if (f.departamento() != null) query.setParameter("departamento", f.departamento());
+        return query;
+    }
+
+    private static Map<String, String> leerArgumentos(String[] args) {
+        Map<String, String> valores = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Argumento inválido: " + arg + " (se espera --clave=valor)");
+            }
+            valores.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return valores;
+    }
+}
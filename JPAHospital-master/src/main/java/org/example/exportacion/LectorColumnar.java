@@ -0,0 +1,142 @@
+package org.example.exportacion;
+
+import org.example.entidades.EstadoCita;
+import org.example.servicios.CitaResumen;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Lee los archivos del formato por columnas de {@link ExportadorCitas.Formato#COLUMNAR} bloque a bloque,
+ * con memoria acotada por el tamaño del bloque.
+ */
+public final class LectorColumnar {
+    private final FileChannel canal;
+    private final ByteBuffer bufer = ByteBuffer.allocateDirect(CanalSalida.TAMANIO_BUFER);
+
+    private LectorColumnar(FileChannel canal) {
+        this.canal = canal;
+        bufer.limit(0);
+    }
+
+    /**
+     * Entrega cada cita del archivo al consumidor, en el orden en que se exportaron.
+     *
+     * @return La cantidad de citas leídas.
+     * @throws IOException Si el archivo no tiene el formato esperado o no se puede leer.
+     */
+    public static long leer(Path archivo, Consumer<CitaResumen> consumidor) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            return new LectorColumnar(canal).leer(consumidor);
+        }
+    }
+
+    private long leer(Consumer<CitaResumen> consumidor) throws IOException {
+        byte[] magico = new byte[EscritorColumnar.MAGICO.length];
+        for (int i = 0; i < magico.length; i++) magico[i] = octeto();
+        if (!Arrays.equals(magico, EscritorColumnar.MAGICO) || octeto() != EscritorColumnar.VERSION) {
+            throw new IOException("El archivo no es una exportación de citas por columnas (versión " + EscritorColumnar.VERSION + ").");
+        }
+
+        long[] ids = new long[EscritorColumnar.FILAS_POR_BLOQUE];
+        LocalDateTime[] fechas = new LocalDateTime[EscritorColumnar.FILAS_POR_BLOQUE];
+        BigDecimal[] costos = new BigDecimal[EscritorColumnar.FILAS_POR_BLOQUE];
+        String[] estados = new String[EscritorColumnar.FILAS_POR_BLOQUE];
+        String[] medicos = new String[EscritorColumnar.FILAS_POR_BLOQUE];
+        String[] salas = new String[EscritorColumnar.FILAS_POR_BLOQUE];
+        String[] pacientes = new String[EscritorColumnar.FILAS_POR_BLOQUE];
+        long total = 0;
+        long ultimoId = 0;
+        while (hayMas()) {
+            int filas = entero();
+            if (filas <= 0 || filas > EscritorColumnar.FILAS_POR_BLOQUE) {
+                throw new IOException("Bloque con una cantidad de filas inválida: " + filas);
+            }
+            for (int i = 0; i < filas; i++) {
+                ultimoId += zigzag();
+                ids[i] = ultimoId;
+            }
+            long base = zigzag();
+            for (int i = 0; i < filas; i++) {
+                long valor = varint();
+                fechas[i] = valor == 0 ? null : LocalDateTime.ofEpochSecond(base + valor - 1, 0, ZoneOffset.UTC);
+            }
+            for (int i = 0; i < filas; i++) {
+                int escala = (int) varint() - 1;
+                costos[i] = escala < 0 ? null : BigDecimal.valueOf(zigzag(), escala);
+            }
+            columnaTexto(estados, filas);
+            columnaTexto(medicos, filas);
+            columnaTexto(salas, filas);
+            columnaTexto(pacientes, filas);
+
+            for (int i = 0; i < filas; i++) {
+                consumidor.accept(new CitaResumen(ids[i], fechas[i], estados[i] == null ? null : EstadoCita.valueOf(estados[i]),
+                        costos[i], medicos[i], salas[i], pacientes[i]));
+            }
+            total += filas;
+        }
+        return total;
+    }
+
+    private void columnaTexto(String[] destino, int filas) throws IOException {
+        String[] diccionario = new String[Math.toIntExact(varint())];
+        for (int i = 0; i < diccionario.length; i++) {
+            byte[] bytes = new byte[Math.toIntExact(varint())];
+            for (int j = 0; j < bytes.length; j++) bytes[j] = octeto();
+            diccionario[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        for (int i = 0; i < filas; i++) {
+            int posicion = (int) varint();
+            destino[i] = posicion == 0 ? null : diccionario[posicion - 1];
+        }
+    }
+
+    private boolean hayMas() throws IOException {
+        return bufer.hasRemaining() || llenar();
+    }
+
+    private byte octeto() throws IOException {
+        if (!hayMas()) throw new EOFException("El archivo termina en medio de un bloque.");
+        return bufer.get();
+    }
+
+    private int entero() throws IOException {
+        int valor = 0;
+        for (int i = 0; i < Integer.BYTES; i++) valor = (valor << 8) | (octeto() & 0xFF);
+        return valor;
+    }
+
+    private long varint() throws IOException {
+        long valor = 0;
+        for (int desplazamiento = 0; desplazamiento < Long.SIZE; desplazamiento += 7) {
+            byte b = octeto();
+            valor |= (long) (b & 0x7F) << desplazamiento;
+            if (b >= 0) return valor;
+        }
+        throw new IOException("Entero mal formado.");
+    }
+
+    private long zigzag() throws IOException {
+        long valor = varint();
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+    private boolean llenar() throws IOException {
+        bufer.clear();
+        int leidos = 0;
+        while (leidos == 0) leidos = canal.read(bufer);
+        bufer.flip();
+        return leidos > 0;
+    }
+}
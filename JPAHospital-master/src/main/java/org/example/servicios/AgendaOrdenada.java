@@ -0,0 +1,99 @@
+package org.example.servicios;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Conjunto ordenado de horarios (en minutos desde la época) de un único recurso: un médico o una sala.
+ * Se respalda con un arreglo primitivo ordenado, de modo que las consultas de solapamiento son O(log n)
+ * y no generan basura. No es thread-safe; quien la comparte debe sincronizar el acceso.
+ */
+final class AgendaOrdenada {
+    private long[] minutos;
+    private int tamanio;
+
+    AgendaOrdenada() {
+        this.minutos = new long[8];
+    }
+
+    static long aMinutos(LocalDateTime fechaHora) {
+        return Math.floorDiv(fechaHora.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    static LocalDateTime aFecha(long minuto) {
+        return LocalDateTime.ofEpochSecond(minuto * 60, 0, ZoneOffset.UTC);
+    }
+
+    int tamanio() {
+        return tamanio;
+    }
+
+    void agregar(long minuto) {
+        int pos = limiteInferior(minuto);
+        if (tamanio == minutos.length) {
+            minutos = Arrays.copyOf(minutos, tamanio * 2);
+        }
+        System.arraycopy(minutos, pos, minutos, pos + 1, tamanio - pos);
+        minutos[pos] = minuto;
+        tamanio++;
+    }
+
+    /**
+     * Quita una ocurrencia del horario, si existe.
+     */
+    boolean quitar(long minuto) {
+        int pos = limiteInferior(minuto);
+        if (pos == tamanio || minutos[pos] != minuto) return false;
+        System.arraycopy(minutos, pos + 1, minutos, pos, tamanio - pos - 1);
+        tamanio--;
+        return true;
+    }
+
+    /**
+     * Indica si existe algún horario dentro de [desde, hasta], ambos inclusive.
+     */
+    boolean hayEntre(long desde, long hasta) {
+        int pos = limiteInferior(desde);
+        return pos < tamanio && minutos[pos] <= hasta;
+    }
+
+    /**
+     * Cantidad de horarios dentro de [desde, hasta], ambos inclusive.
+     */
+    int contarEntre(long desde, long hasta) {
+        return limiteInferior(hasta + 1) - limiteInferior(desde);
+    }
+
+    /**
+     * Primer horario mayor o igual a {@code desde}, múltiplo de {@code paso}, que queda a más de {@code bufer}
+     * minutos de todos los horarios de la agenda. Salta de choque en choque, sin recorrer minuto a minuto.
+     */
+    long siguienteLibre(long desde, long bufer, long paso) {
+        long candidato = alinear(desde, paso);
+        int pos = limiteInferior(candidato - bufer);
+        while (pos < tamanio && minutos[pos] <= candidato + bufer) {
+            candidato = alinear(minutos[pos] + bufer + 1, paso);
+            pos++;
+        }
+        return candidato;
+    }
+
+    static long alinear(long minuto, long paso) {
+        return Math.floorDiv(minuto + paso - 1, paso) * paso;
+    }
+
+    /**
+     * Primer índice cuyo valor es mayor o igual a {@code minuto}.
+     */
+    private int limiteInferior(long minuto) {
+        int bajo = 0;
+        int alto = tamanio;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (minutos[medio] < minuto) bajo = medio + 1;
+            else alto = medio;
+        }
+        return bajo;
+    }
+}
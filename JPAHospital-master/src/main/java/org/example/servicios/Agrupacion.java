@@ -0,0 +1,30 @@
+package org.example.servicios;
+
+/**
+ * Criterio por el que {@link ReporteService} agrupa las citas. El tipo de la clave de cada {@link TotalCitas}
+ * depende de la agrupación.
+ */
+public enum Agrupacion {
+    /** Departamento de la sala de la cita; la clave es el id del departamento. */
+    DEPARTAMENTO("s.departamento.id", " LEFT JOIN c.sala s"),
+    /** La clave es el id de la sala. */
+    SALA("c.sala.id", ""),
+    /** La clave es el id del médico. */
+    MEDICO("c.medico.id", ""),
+    /** Especialidad del departamento de la sala; la clave es la {@link org.example.entidades.EspecialidadMedica}. */
+    ESPECIALIDAD("d.especialidad", " LEFT JOIN c.sala s LEFT JOIN s.departamento d"),
+    /** La clave es el {@link org.example.entidades.EstadoCita}. */
+    ESTADO("c.estado", ""),
+    /** Día de la cita; la clave es un {@link java.time.LocalDate}. */
+    DIA("cast(c.fechaHora as LocalDate)", "");
+
+    /** Expresión JPQL de la clave, sobre la cita {@code c}. */
+    final String expresion;
+    /** JOIN que necesita la expresión. */
+    final String joins;
+
+    Agrupacion(String expresion, String joins) {
+        this.expresion = expresion;
+        this.joins = joins;
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import org.example.cambios.ConsumidorCambios;
+import org.example.cambios.PublicadorCambios;
+import org.example.cambios.RegistroCambiosCita;
+import org.example.entidades.CambioCita;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.TipoCambioCita;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ofrece a la lista de espera el horario de cada cita cancelada. Lee las cancelaciones del historial de
+ * {@link CambioCita} a través de un {@link PublicadorCambios}, en segundo plano y solo una vez confirmadas, así que
+ * la transacción que cancela no espera la asignación. Las cancelaciones por {@link CitaService#cambiarEstadoMasivo}
+ * también quedan en el historial y se ofrecen igual.
+ *
+ * Cada horario se ofrece en su propia transacción. Si una falla, se revierte solo esa oferta, se registra en el log
+ * y en {@link #getFallidos()}, y el resto del lote sigue; la cancelación no se vuelve a ofrecer.
+ */
+public class AsignadorListaEspera implements ConsumidorCambios {
+    public static final String PUBLICADOR = "lista-espera";
+    private static final Logger LOG = LoggerFactory.getLogger(AsignadorListaEspera.class);
+
+    private final EntityManagerFactory emf;
+    private final DisponibilidadIndex disponibilidad;
+    private final AtomicLong ofrecidos = new AtomicLong();
+    private final AtomicLong asignados = new AtomicLong();
+    private final AtomicLong fallidos = new AtomicLong();
+
+    /**
+     * @throws IllegalStateException si la factory no registra el historial de cambios de citas.
+     */
+    public AsignadorListaEspera(EntityManagerFactory emf) {
+        this(emf, null);
+    }
+
+    /**
+     * @param disponibilidad El índice con el que reserva el resto de la aplicación; si es null se consulta la base de datos.
+     * @throws IllegalStateException si la factory no registra el historial de cambios de citas.
+     */
+    public AsignadorListaEspera(EntityManagerFactory emf, DisponibilidadIndex disponibilidad) {
+        this.emf = Objects.requireNonNull(emf, "La EntityManagerFactory no puede ser nula.");
+        this.disponibilidad = disponibilidad;
+        if (!RegistroCambiosCita.activo(emf)) {
+            throw new IllegalStateException("La lista de espera necesita el historial de cambios de citas ("
+                    + RegistroCambiosCita.PROPIEDAD + ").");
+        }
+    }
+
+    /**
+     * Crea el asignador y empieza a procesar las cancelaciones con un publicador de nombre {@value #PUBLICADOR},
+     * que continúa desde la última cancelación procesada. Cerrar el publicador detiene la asignación.
+     */
+    public static PublicadorCambios iniciar(EntityManagerFactory emf) {
+        return iniciar(emf, null);
+    }
+
+    /**
+     * Como {@link #iniciar(EntityManagerFactory)}, validando los horarios con el índice de la aplicación.
+     */
+    public static PublicadorCambios iniciar(EntityManagerFactory emf, DisponibilidadIndex disponibilidad) {
+        return new PublicadorCambios(emf, PUBLICADOR, List.of(new AsignadorListaEspera(emf, disponibilidad))).iniciar();
+    }
+
+    @Override
+    public void consumir(List<CambioCita> lote) {
+        for (CambioCita cambio : lote) {
+            if (cambio.getTipo() != TipoCambioCita.ESTADO || cambio.getEstado() != EstadoCita.CANCELADA
+                    || cambio.getMedicoId() == null || cambio.getSalaId() == null || cambio.getFechaHora() == null) {
+                continue;
+            }
+            ofrecer(cambio);
+        }
+    }
+
+    /**
+     * Horarios de citas canceladas ofrecidos a la lista de espera.
+     */
+    public long getOfrecidos() {
+        return ofrecidos.get();
+    }
+
+    /**
+     * Solicitudes que recibieron una cita.
+     */
+    public long getAsignados() {
+        return asignados.get();
+    }
+
+    /**
+     * Horarios que no se pudieron ofrecer por un error inesperado.
+     */
+    public long getFallidos() {
+        return fallidos.get();
+    }
+
+    private void ofrecer(CambioCita cambio) {
+        EntityManager em = emf.createEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            boolean asignado = new ListaEsperaManager(em, disponibilidad)
+                    .ofrecerHorario(cambio.getMedicoId(), cambio.getSalaId(), cambio.getFechaHora())
+                    .isPresent();
+            tx.commit();
+            ofrecidos.incrementAndGet();
+            if (asignado) asignados.incrementAndGet();
+        } catch (RuntimeException e) {
+            if (tx.isActive()) tx.rollback();
+            fallidos.incrementAndGet();
+            LOG.warn("No se pudo ofrecer a la lista de espera el horario {} del médico {} (cambio {}): {}",
+                    cambio.getFechaHora(), cambio.getMedicoId(), cambio.getId(), e.toString());
+        } finally {
+            em.close();
+        }
+    }
+}
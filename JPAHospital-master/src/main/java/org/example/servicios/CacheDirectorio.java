@@ -0,0 +1,310 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.entidades.Matricula;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Persona;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Caché en memoria, acotada, de las búsquedas de {@link DirectorioManager}: de cada clave de negocio (DNI o matrícula)
+ * a la ficha encontrada, que es inmutable y se comparte entre hilos.
+ *
+ * Existe una única instancia por EntityManagerFactory. Las entradas vencen después de un tiempo fijo y, al superar
+ * la capacidad, se descartan las usadas hace más tiempo (LRU); también se guardan las claves que no existen, con un
+ * vencimiento más corto, para que las búsquedas repetidas de un DNI no registrado no lleguen a la base. La caché se
+ * divide en segmentos con su propio lock, como las franjas de {@link CitaManagerConcurrente}.
+ *
+ * Al insertar, modificar o borrar un paciente o un médico a través de Hibernate se descartan sus claves (la anterior y
+ * la nueva) al hacer flush y otra vez al confirmar, para que una búsqueda concurrente no vuelva a guardar el valor previo.
+ * Una carga que empezó antes de una invalidación no guarda su resultado. Si la base se modifica por fuera de Hibernate
+ * hay que llamar a {@link #invalidarTodo()}; si no, las fichas afectadas siguen en uso hasta que vencen.
+ */
+public final class CacheDirectorio implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+    public static final int CAPACIDAD_POR_DEFECTO = 100_000;
+    public static final Duration VIGENCIA_POR_DEFECTO = Duration.ofMinutes(10);
+    public static final Duration VIGENCIA_AUSENTES_POR_DEFECTO = Duration.ofSeconds(30);
+    private static final int CANTIDAD_SEGMENTOS = 16;
+
+    private static final Map<SessionFactoryImplementor, CacheDirectorio> INSTANCIAS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Clave de negocio por la que se busca.
+     */
+    public enum Clave {
+        PACIENTE_DNI,
+        MEDICO_DNI,
+        MEDICO_MATRICULA
+    }
+
+    /**
+     * Contadores acumulados desde la creación. Los aciertos de claves inexistentes se cuentan aparte.
+     */
+    public record Estadisticas(long aciertos, long aciertosAusentes, long fallos, long vencidas, long desalojadas,
+                               long invalidaciones, int entradas) {
+        public double tasaAciertos() {
+            long total = aciertos + aciertosAusentes + fallos;
+            return total == 0 ? 0.0 : (double) (aciertos + aciertosAusentes) / total;
+        }
+    }
+
+    private final Segmento[] segmentos = new Segmento[CANTIDAD_SEGMENTOS];
+    private final long vigenciaNanos;
+    private final long vigenciaAusentesNanos;
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder aciertosAusentes = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder vencidas = new LongAdder();
+    private final LongAdder desalojadas = new LongAdder();
+    private final LongAdder invalidaciones = new LongAdder();
+
+    private CacheDirectorio(int capacidad, Duration vigencia, Duration vigenciaAusentes) {
+        int capacidadSegmento = Math.max(1, (capacidad + CANTIDAD_SEGMENTOS - 1) / CANTIDAD_SEGMENTOS);
+        for (int i = 0; i < CANTIDAD_SEGMENTOS; i++) {
+            segmentos[i] = new Segmento(capacidadSegmento);
+        }
+        this.vigenciaNanos = vigencia.toNanos();
+        this.vigenciaAusentesNanos = vigenciaAusentes.toNanos();
+    }
+
+    /**
+     * Obtiene (o crea y registra) la caché de la factory, con la capacidad y los vencimientos por defecto.
+     */
+    public static CacheDirectorio de(EntityManagerFactory emf) {
+        return de(emf, CAPACIDAD_POR_DEFECTO, VIGENCIA_POR_DEFECTO, VIGENCIA_AUSENTES_POR_DEFECTO);
+    }
+
+    /**
+     * Obtiene (o crea y registra) la caché de la factory. La configuración solo se usa si la caché todavía no existe.
+     *
+     * @param capacidad        Cantidad máxima de claves guardadas, contando las inexistentes.
+     * @param vigencia         Tiempo durante el que se usa una clave encontrada.
+     * @param vigenciaAusentes Tiempo durante el que se recuerda que una clave no existe; cero para no recordarlo.
+     */
+    public static CacheDirectorio de(EntityManagerFactory emf, int capacidad, Duration vigencia, Duration vigenciaAusentes) {
+        Objects.requireNonNull(emf, "La EntityManagerFactory no puede ser nula.");
+        if (capacidad <= 0) throw new IllegalArgumentException("La capacidad debe ser positiva.");
+        if (vigencia == null || vigencia.isNegative() || vigencia.isZero()) throw new IllegalArgumentException("La vigencia debe ser positiva.");
+        if (vigenciaAusentes == null || vigenciaAusentes.isNegative()) throw new IllegalArgumentException("La vigencia de ausentes no puede ser negativa.");
+        return INSTANCIAS.computeIfAbsent(emf.unwrap(SessionFactoryImplementor.class), sf -> {
+            CacheDirectorio cache = new CacheDirectorio(capacidad, vigencia, vigenciaAusentes);
+            EventListenerRegistry registro = sf.getServiceRegistry().getService(EventListenerRegistry.class);
+            registro.appendListeners(EventType.POST_INSERT, cache);
+            registro.appendListeners(EventType.POST_UPDATE, cache);
+            registro.appendListeners(EventType.POST_DELETE, cache);
+            registro.appendListeners(EventType.POST_COMMIT_INSERT, cache);
+            registro.appendListeners(EventType.POST_COMMIT_UPDATE, cache);
+            registro.appendListeners(EventType.POST_COMMIT_DELETE, cache);
+            return cache;
+        });
+    }
+
+    /**
+     * Devuelve la ficha guardada para la clave o, si no está o venció, la obtiene del cargador y la guarda.
+     *
+     * @param tipo     Tipo de la ficha; todas las búsquedas de una misma clave deben usar el mismo.
+     * @param cargador Consulta la ficha en la base; devuelve null si la clave no existe.
+     * @return La ficha, o null si la clave no existe.
+     * @throws ClassCastException si la ficha guardada para la clave no es del tipo pedido.
+     */
+    public <T> T obtener(Clave clave, String valor, Class<T> tipo, Supplier<? extends T> cargador) {
+        Llave llave = new Llave(clave, valor);
+        Segmento segmento = segmentoDe(llave);
+        long generacion;
+        segmento.lock.lock();
+        try {
+            Entrada entrada = segmento.entradas.get(llave);
+            if (entrada != null) {
+                if (entrada.vence - System.nanoTime() > 0) {
+                    (entrada.ficha == null ? aciertosAusentes : aciertos).increment();
+                    return tipo.cast(entrada.ficha);
+                }
+                segmento.entradas.remove(llave);
+                vencidas.increment();
+            }
+            generacion = segmento.generacion;
+        } finally {
+            segmento.lock.unlock();
+        }
+
+        fallos.increment();
+        T ficha = cargador.get();
+        long vigenciaEntrada = ficha == null ? vigenciaAusentesNanos : vigenciaNanos;
+        if (vigenciaEntrada == 0) return ficha;
+        segmento.lock.lock();
+        try {
+            // Si hubo una invalidación mientras se consultaba, el resultado puede ser anterior al cambio
+            if (segmento.generacion == generacion) {
+                segmento.entradas.put(llave, new Entrada(ficha, System.nanoTime() + vigenciaEntrada));
+            }
+        } finally {
+            segmento.lock.unlock();
+        }
+        return ficha;
+    }
+
+    public void invalidar(Clave clave, String valor) {
+        if (valor == null) return;
+        Llave llave = new Llave(clave, valor);
+        Segmento segmento = segmentoDe(llave);
+        segmento.lock.lock();
+        try {
+            segmento.entradas.remove(llave);
+            segmento.generacion++;
+        } finally {
+            segmento.lock.unlock();
+        }
+        invalidaciones.increment();
+    }
+
+    /**
+     * Descarta todas las entradas, por ejemplo después de modificar pacientes o médicos por fuera de Hibernate.
+     */
+    public void invalidarTodo() {
+        for (Segmento segmento : segmentos) {
+            segmento.lock.lock();
+            try {
+                segmento.entradas.clear();
+                segmento.generacion++;
+            } finally {
+                segmento.lock.unlock();
+            }
+        }
+        invalidaciones.increment();
+    }
+
+    public Estadisticas estadisticas() {
+        int entradas = 0;
+        for (Segmento segmento : segmentos) {
+            segmento.lock.lock();
+            try {
+                entradas += segmento.entradas.size();
+            } finally {
+                segmento.lock.unlock();
+            }
+        }
+        return new Estadisticas(aciertos.sum(), aciertosAusentes.sum(), fallos.sum(), vencidas.sum(), desalojadas.sum(),
+                invalidaciones.sum(), entradas);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        invalidarClaves(event.getEntity());
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        invalidarClaves(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        onPostUpdateCommitFailed(event);
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Persona)) return;
+        invalidarClaves(event.getEntity());
+        // Sin el estado anterior no se conocen las claves previas
+        if (event.getOldState() == null) {
+            invalidarTodo();
+            return;
+        }
+        String[] propiedades = event.getPersister().getPropertyNames();
+        Object dni = valor(propiedades, event.getOldState(), "dni");
+        if (event.getEntity() instanceof Paciente) {
+            invalidar(Clave.PACIENTE_DNI, (String) dni);
+        } else if (event.getEntity() instanceof Medico) {
+            invalidar(Clave.MEDICO_DNI, (String) dni);
+            if (valor(propiedades, event.getOldState(), "matricula") instanceof Matricula matricula) {
+                invalidar(Clave.MEDICO_MATRICULA, matricula.getNumero());
+            }
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        invalidarClaves(event.getEntity());
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        invalidarClaves(event.getEntity());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        Class<?> clase = persister.getMappedClass();
+        return clase == Paciente.class || clase == Medico.class;
+    }
+
+    private void invalidarClaves(Object entidad) {
+        if (entidad instanceof Paciente paciente) {
+            invalidar(Clave.PACIENTE_DNI, paciente.getDni());
+        } else if (entidad instanceof Medico medico) {
+            invalidar(Clave.MEDICO_DNI, medico.getDni());
+            if (medico.getMatricula() != null) invalidar(Clave.MEDICO_MATRICULA, medico.getMatricula().getNumero());
+        }
+    }
+
+    private static Object valor(String[] propiedades, Object[] estado, String propiedad) {
+        int i = Arrays.asList(propiedades).indexOf(propiedad);
+        return i < 0 ? null : estado[i];
+    }
+
+    private Segmento segmentoDe(Llave llave) {
+        int h = llave.hashCode();
+        return segmentos[(h ^ (h >>> 16)) & (CANTIDAD_SEGMENTOS - 1)];
+    }
+
+    private record Llave(Clave clave, String valor) {
+    }
+
+    /**
+     * @param ficha null si la clave no existe.
+     * @param vence Instante de vencimiento, en la escala de {@link System#nanoTime()}.
+     */
+    private record Entrada(Object ficha, long vence) {
+    }
+
+    private final class Segmento {
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<Llave, Entrada> entradas;
+        long generacion;
+
+        Segmento(int capacidad) {
+            // Orden de acceso: la primera entrada es la usada hace más tiempo
+            this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Llave, Entrada> mayor) {
+                    if (size() <= capacidad) return false;
+                    desalojadas.increment();
+                    return true;
+                }
+            };
+        }
+    }
+}
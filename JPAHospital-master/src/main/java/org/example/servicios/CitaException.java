@@ -4,7 +4,33 @@ package org.example.servicios;
  * Excepción personalizada para errores de negocio relacionados con la programación de citas.
  */
 public class CitaException extends Exception {
+
+    /**
+     * Regla de negocio que provocó el rechazo.
+     */
+    public enum Motivo {
+        FECHA_PASADA,
+        COSTO_INVALIDO,
+        ESPECIALIDAD_INCOMPATIBLE,
+        MEDICO_NO_DISPONIBLE,
+        SALA_NO_DISPONIBLE,
+        TRANSICION_INVALIDA,
+        CONFLICTO_CONCURRENTE,
+        OTRO
+    }
+
+    private final Motivo motivo;
+
     public CitaException(String message) {
+        this(Motivo.OTRO, message);
+    }
+
+    public CitaException(Motivo motivo, String message) {
         super(message);
+        this.motivo = motivo;
+    }
+
+    public Motivo getMotivo() {
+        return motivo;
     }
-}
\ No newline at end of file
+}
@@ -1,59 +1,351 @@
 package org.example.servicios;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
+import org.example.cambios.RegistroCambiosCita;
 import org.example.entidades.Cita;
+import org.example.entidades.EspecialidadMedica;
 import org.example.entidades.Medico;
 import org.example.entidades.Paciente;
 import org.example.entidades.Sala;
 import org.example.entidades.EstadoCita;
+import org.example.entidades.TipoCambioCita;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jpa.HibernateHints;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementación del servicio de gestión de citas.
  * Encapsula toda la lógica de negocio y validaciones.
  */
 public class CitaManager implements CitaService {
+    private static final String MEDICO_NO_DISPONIBLE = "El médico no tiene disponibilidad en ese horario (se requiere un búfer de 2 horas).";
+    private static final String REGISTRAR_CAMBIOS_DE_ESTADO = "INSERT INTO CambioCita (citaId, tipo, estadoAnterior, estado, "
+            + "medicoId, salaId, pacienteId, fechaHora, registrado, transaccion) SELECT c.id, :tipo, c.estado, :nuevo, c.medico.id, "
+            + "c.sala.id, c.paciente.id, c.fechaHora, :registrado, :transaccion FROM Cita c";
+    private static final String SALA_NO_DISPONIBLE = "La sala no está disponible en ese horario (se requiere un búfer de 2 horas).";
+
+    private static final int TAMANIO_BLOQUE = 500;
+    private static final long PASO_HUECOS_MINUTOS = 15;
+    private static final AgendaOrdenada AGENDA_VACIA = new AgendaOrdenada();
+    // Una sola sentencia con los JOIN necesarios; no se instancia ninguna entidad
+    private static final String SELECT_RESUMEN = "SELECT new org.example.servicios.CitaResumen("
+            + "c.id, c.fechaHora, c.estado, c.costo, CONCAT(m.nombre, ' ', m.apellido), s.numero, CONCAT(p.nombre, ' ', p.apellido)) "
+            + "FROM Cita c LEFT JOIN c.medico m LEFT JOIN c.sala s LEFT JOIN c.paciente p";
+
     private final EntityManager em;
+    private final DisponibilidadIndex disponibilidad;
+    private final MetricasCitas metricas;
 
     public CitaManager(EntityManager em) {
+        this(em, null);
+    }
+
+    /**
+     * @param disponibilidad Índice en memoria para validar el búfer sin consultas; si es null se consulta la base de datos.
+     */
+    public CitaManager(EntityManager em, DisponibilidadIndex disponibilidad) {
+        this(em, disponibilidad, MetricasCitas.de(em.getEntityManagerFactory()));
+    }
+
+    /**
+     * @param metricas Dónde registrar las mediciones, si no corresponden a la factory del EntityManager (réplica de lectura).
+     */
+    CitaManager(EntityManager em, DisponibilidadIndex disponibilidad, MetricasCitas metricas) {
         this.em = Objects.requireNonNull(em, "El EntityManager no puede ser nulo.");
+        this.disponibilidad = disponibilidad;
+        this.metricas = Objects.requireNonNull(metricas, "Las métricas no pueden ser nulas.");
     }
 
     @Override
     public Cita programarCita(Paciente paciente, Medico medico, Sala sala, LocalDateTime fechaHora, BigDecimal costo, String observaciones) throws CitaException {
+        long inicio = System.nanoTime();
+        try {
+            validarDatos(medico, sala, fechaHora, costo);
+            long etapa = metricas.etapa(MetricasCitas.Etapa.VALIDACION, inicio);
+
+            // 4. Validación de disponibilidad del médico
+            sincronizarIndice();
+            boolean medicoDisponible = esMedicoDisponible(medico, fechaHora);
+            etapa = metricas.etapa(MetricasCitas.Etapa.DISPONIBILIDAD_MEDICO, etapa);
+            if (!medicoDisponible) {
+                throw new CitaException(CitaException.Motivo.MEDICO_NO_DISPONIBLE, MEDICO_NO_DISPONIBLE); // [cite: 195]
+            }
+
+            // 5. Validación de disponibilidad de la sala
+            boolean salaDisponible = esSalaDisponible(sala, fechaHora);
+            metricas.etapa(MetricasCitas.Etapa.DISPONIBILIDAD_SALA, etapa);
+            if (!salaDisponible) {
+                throw new CitaException(CitaException.Motivo.SALA_NO_DISPONIBLE, SALA_NO_DISPONIBLE); // [cite: 198]
+            }
+
+            // Si todas las validaciones pasan, se crea la cita
+            return crearCita(paciente, medico, sala, fechaHora, costo, observaciones);
+        } catch (CitaException e) {
+            metricas.rechazo(e.getMotivo());
+            throw e;
+        } finally {
+            metricas.operacion(MetricasCitas.Operacion.PROGRAMAR_CITA, inicio);
+        }
+    }
+
+    @Override
+    public List<ResultadoSolicitud> programarCitas(List<SolicitudCita> solicitudes) {
+        if (solicitudes == null || solicitudes.isEmpty()) return Collections.emptyList();
+        long inicio = System.nanoTime();
+
+        // Agendas con las citas existentes (si no hay índice) más las aceptadas dentro del lote
+        Map<Long, AgendaOrdenada> agendasMedicos = new HashMap<>();
+        Map<Long, AgendaOrdenada> agendasSalas = new HashMap<>();
+        if (disponibilidad == null) {
+            cargarAgendas(solicitudes, agendasMedicos, agendasSalas);
+        } else {
+            sincronizarIndice();
+        }
+
+        List<ResultadoSolicitud> resultados = new ArrayList<>(solicitudes.size());
+        for (SolicitudCita s : solicitudes) {
+            try {
+                validarDatos(s.medico(), s.sala(), s.fechaHora(), s.costo());
+                long minuto = AgendaOrdenada.aMinutos(s.fechaHora());
+                if (!estaLibre(agendasMedicos, s.medico().getId(), minuto)
+                        || (disponibilidad != null && !disponibilidad.esMedicoDisponible(em, s.medico().getId(), s.fechaHora()))) {
+                    throw new CitaException(CitaException.Motivo.MEDICO_NO_DISPONIBLE, MEDICO_NO_DISPONIBLE);
+                }
+                if (!estaLibre(agendasSalas, s.sala().getId(), minuto)
+                        || (disponibilidad != null && !disponibilidad.esSalaDisponible(em, s.sala().getId(), s.fechaHora()))) {
+                    throw new CitaException(CitaException.Motivo.SALA_NO_DISPONIBLE, SALA_NO_DISPONIBLE);
+                }
+                Cita cita = crearCita(s.paciente(), s.medico(), s.sala(), s.fechaHora(), s.costo(), s.observaciones());
+                reservar(agendasMedicos, s.medico().getId(), minuto);
+                reservar(agendasSalas, s.sala().getId(), minuto);
+                em.persist(cita);
+                resultados.add(ResultadoSolicitud.aceptada(s, cita));
+            } catch (CitaException e) {
+                metricas.rechazo(e.getMotivo());
+                resultados.add(ResultadoSolicitud.rechazada(s, e));
+            }
+        }
+        // Los INSERT se envían agrupados según hibernate.jdbc.batch_size
+        em.flush();
+        metricas.operacion(MetricasCitas.Operacion.PROGRAMAR_CITAS, inicio);
+        return Collections.unmodifiableList(resultados);
+    }
+
+    @Override
+    public int cambiarEstadoMasivo(EstadoCita actual, EstadoCita nuevo, FiltroCitas filtro) throws CitaException {
+        Objects.requireNonNull(actual, "El estado actual no puede ser nulo.");
+        Objects.requireNonNull(nuevo, "El estado nuevo no puede ser nulo.");
+        if (!actual.puedeTransicionarA(nuevo)) {
+            metricas.rechazo(CitaException.Motivo.TRANSICION_INVALIDA);
+            throw new CitaException(CitaException.Motivo.TRANSICION_INVALIDA, "Una cita " + actual + " no puede pasar a " + nuevo + ".");
+        }
+        long inicio = System.nanoTime();
+        FiltroCitas f = filtro == null ? FiltroCitas.TODAS : filtro;
+
+        StringBuilder condiciones = new StringBuilder(" WHERE c.estado = :actual");
+        if (f.desde() != null) condiciones.append(" AND c.fechaHora >= :desde");
+        if (f.hasta() != null) condiciones.append(" AND c.fechaHora <= :hasta");
+        if (f.medico() != null) condiciones.append(" AND c.medico = :medico");
+        if (f.departamento() != null) condiciones.append(" AND c.sala IN (SELECT s FROM Sala s WHERE s.departamento = :departamento)");
+        // La versión se incrementa para que una edición concurrente de la misma cita falle en lugar de pisar el cambio
+        Query query = filtrar(em.createQuery("UPDATE Cita c SET c.estado = :nuevo, c.version = c.version + 1" + condiciones), actual, f)
+                .setParameter("nuevo", nuevo);
+
+        em.flush(); // Los cambios pendientes deben llegar a la base antes del UPDATE
+        // El UPDATE no genera eventos por cita: el historial se escribe antes, con las mismas condiciones
+        if (RegistroCambiosCita.activo(em.getEntityManagerFactory())) {
+            // Con las citas del filtro bloqueadas, ninguna puede cambiar de estado entre el historial y el UPDATE
+            int bloqueadas = filtrar(em.createQuery("SELECT c.id FROM Cita c" + condiciones, Long.class), actual, f)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultList()
+                    .size();
+            String transaccion = RegistroCambiosCita.transaccion(em);
+            int registrados = filtrar(em.createQuery(REGISTRAR_CAMBIOS_DE_ESTADO + condiciones), actual, f)
+                    .setParameter("tipo", TipoCambioCita.ESTADO)
+                    .setParameter("nuevo", nuevo)
+                    .setParameter("registrado", Instant.now())
+                    .setParameter("transaccion", transaccion)
+                    .executeUpdate();
+            if (registrados != bloqueadas) {
+                // Otra transacción agregó citas al filtro después del bloqueo; todavía no se cambió ninguna
+                metricas.rechazo(CitaException.Motivo.CONFLICTO_CONCURRENTE);
+                throw new CitaException(CitaException.Motivo.CONFLICTO_CONCURRENTE,
+                        "Las citas a cambiar se modificaron durante el cambio de estado; reintente.");
+            }
+            // Solo cambian las citas que quedaron en el historial, aunque después del bloqueo aparezcan otras
+            condiciones.append(" AND c.id IN (SELECT r.citaId FROM CambioCita r WHERE r.transaccion = :transaccion"
+                    + " AND r.tipo = :tipo AND r.estadoAnterior = :actual AND r.estado = :nuevo)");
+            query = filtrar(em.createQuery("UPDATE Cita c SET c.estado = :nuevo, c.version = c.version + 1" + condiciones), actual, f)
+                    .setParameter("nuevo", nuevo)
+                    .setParameter("transaccion", transaccion)
+                    .setParameter("tipo", TipoCambioCita.ESTADO);
+        }
+        int cantidad = query.executeUpdate();
+
+        // Las citas ya cargadas siguen con el estado anterior en memoria
+        for (Cita cita : citasGestionadas()) {
+            if (cita.getEstado() == actual && f.incluye(cita)) em.refresh(cita);
+        }
+        if (cantidad > 0) {
+            // Se avisa al confirmar, para que los observadores que recargan desde la base vean el cambio
+            EventosCita eventos = EventosCita.de(em.getEntityManagerFactory());
+            em.unwrap(SessionImplementor.class).getActionQueue().registerProcess((exito, sesion) -> {
+                if (exito) eventos.estadosCambiados(actual, nuevo, f, cantidad);
+            });
+        }
+        metricas.operacion(MetricasCitas.Operacion.CAMBIAR_ESTADO_MASIVO, inicio);
+        return cantidad;
+    }
+
+    private static Query filtrar(Query query, EstadoCita actual, FiltroCitas filtro) {
+        query.setParameter("actual", actual);
+        if (filtro.desde() != null) query.setParameter("desde", filtro.desde());
+        if (filtro.hasta() != null) query.setParameter("hasta", filtro.hasta());
+        if (filtro.medico() != null) query.setParameter("medico", filtro.medico());
+        if (filtro.departamento() != null) query.setParameter("departamento", filtro.departamento());
+        return query;
+    }
+
+    private List<Cita> citasGestionadas() {
+        List<Cita> citas = new ArrayList<>();
+        for (Map.Entry<Object, EntityEntry> entrada : em.unwrap(SessionImplementor.class).getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+            if (entrada.getKey() instanceof Cita cita) citas.add(cita);
+        }
+        return citas;
+    }
+
+    @Override
+    public List<HuecoLibre> buscarHuecosLibres(EspecialidadMedica especialidad, LocalDateTime desde, LocalDateTime hasta, int limite) {
+        Objects.requireNonNull(especialidad, "La especialidad no puede ser nula.");
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime inicio = desde == null || desde.isBefore(ahora) ? ahora : desde;
+        if (limite <= 0 || hasta == null || hasta.isBefore(inicio)) return Collections.emptyList();
+        long comienzo = System.nanoTime();
+
+        // 1. Médicos y salas de la especialidad; cada médico se combina con las salas de su departamento.
+        // Son datos de referencia: la caché de consultas guarda los ids y las entidades salen de la caché de segundo
+        // nivel, y cualquier escritura en medico, sala o departamento invalida el resultado.
+        List<Medico> medicos = em.createQuery(
+                "SELECT m FROM Medico m JOIN FETCH m.departamento d WHERE d.especialidad = :especialidad ORDER BY m.id", Medico.class)
+                .setParameter("especialidad", especialidad)
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .getResultList();
+        Map<Long, List<Sala>> salasPorDepartamento = new HashMap<>();
+        for (Sala sala : em.createQuery(
+                "SELECT s FROM Sala s JOIN FETCH s.departamento d WHERE d.especialidad = :especialidad ORDER BY s.id", Sala.class)
+                .setParameter("especialidad", especialidad)
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .getResultList()) {
+            salasPorDepartamento.computeIfAbsent(sala.getDepartamento().getId(), k -> new ArrayList<>()).add(sala);
+        }
+        if (medicos.isEmpty() || salasPorDepartamento.isEmpty()) return Collections.emptyList();
+
+        // 2. Citas del período (más el búfer) de esos médicos y salas, en una sola consulta
+        Set<Long> idsMedicos = new HashSet<>();
+        medicos.forEach(m -> idsMedicos.add(m.getId()));
+        Set<Long> idsSalas = new HashSet<>();
+        salasPorDepartamento.values().forEach(salas -> salas.forEach(s -> idsSalas.add(s.getId())));
+        Map<Long, AgendaOrdenada> agendasMedicos = new HashMap<>();
+        Map<Long, AgendaOrdenada> agendasSalas = new HashMap<>();
+        cargarAgendas(idsMedicos, idsSalas, inicio, hasta, agendasMedicos, agendasSalas);
+
+        // 3. El primer hueco de cada médico entra en una cola; al sacarlo se encola su siguiente hueco
+        long primerMinuto = AgendaOrdenada.aMinutos(inicio.minusNanos(1)) + 1; // redondeo hacia arriba al minuto
+        long ultimoMinuto = AgendaOrdenada.aMinutos(hasta);
+        PriorityQueue<Candidato> cola = new PriorityQueue<>(Comparator.comparingLong(Candidato::minuto)
+                .thenComparing(c -> c.medico().getId())
+                .thenComparing(c -> c.sala().getId()));
+        for (Medico medico : medicos) {
+            Candidato candidato = siguienteHueco(medico, salasPorDepartamento.get(medico.getDepartamento().getId()),
+                    primerMinuto, ultimoMinuto, agendasMedicos, agendasSalas);
+            if (candidato != null) cola.add(candidato);
+        }
+        List<HuecoLibre> huecos = new ArrayList<>(Math.min(limite, cola.size()));
+        while (huecos.size() < limite && !cola.isEmpty()) {
+            Candidato candidato = cola.poll();
+            huecos.add(new HuecoLibre(candidato.medico(), candidato.sala(), AgendaOrdenada.aFecha(candidato.minuto())));
+            Candidato siguiente = siguienteHueco(candidato.medico(), salasPorDepartamento.get(candidato.medico().getDepartamento().getId()),
+                    candidato.minuto() + DisponibilidadIndex.BUFER_MINUTOS + 1, ultimoMinuto, agendasMedicos, agendasSalas);
+            if (siguiente != null) cola.add(siguiente);
+        }
+        metricas.operacion(MetricasCitas.Operacion.BUSCAR_HUECOS, comienzo);
+        return Collections.unmodifiableList(huecos);
+    }
+
+    private record Candidato(long minuto, Medico medico, Sala sala) {
+    }
+
+    /**
+     * Primer horario en [desde, hasta] en el que el médico y alguna de las salas están libres a la vez;
+     * ante un empate gana la sala de menor id.
+     */
+    private static Candidato siguienteHueco(Medico medico, List<Sala> salas, long desde, long hasta,
+                                            Map<Long, AgendaOrdenada> agendasMedicos, Map<Long, AgendaOrdenada> agendasSalas) {
+        if (salas == null) return null;
+        AgendaOrdenada agendaMedico = agendasMedicos.getOrDefault(medico.getId(), AGENDA_VACIA);
+        Candidato mejor = null;
+        for (Sala sala : salas) {
+            AgendaOrdenada agendaSala = agendasSalas.getOrDefault(sala.getId(), AGENDA_VACIA);
+            long limite = mejor == null ? hasta : mejor.minuto() - 1;
+            // Se alterna entre ambas agendas hasta que las dos acepten el mismo horario
+            long minuto = agendaMedico.siguienteLibre(desde, DisponibilidadIndex.BUFER_MINUTOS, PASO_HUECOS_MINUTOS);
+            long enSala;
+            while (minuto <= limite
+                    && (enSala = agendaSala.siguienteLibre(minuto, DisponibilidadIndex.BUFER_MINUTOS, PASO_HUECOS_MINUTOS)) != minuto) {
+                minuto = agendaMedico.siguienteLibre(enSala, DisponibilidadIndex.BUFER_MINUTOS, PASO_HUECOS_MINUTOS);
+            }
+            if (minuto <= limite) mejor = new Candidato(minuto, medico, sala);
+        }
+        return mejor;
+    }
+
+    /**
+     * Validaciones que no dependen de otras citas.
+     */
+    private void validarDatos(Medico medico, Sala sala, LocalDateTime fechaHora, BigDecimal costo) throws CitaException {
         // 1. Validación temporal
         if (fechaHora.isBefore(LocalDateTime.now())) {
-            throw new CitaException("No se puede programar una cita en una fecha pasada."); // [cite: 186]
+            throw new CitaException(CitaException.Motivo.FECHA_PASADA, "No se puede programar una cita en una fecha pasada."); // [cite: 186]
         }
 
         // 2. Validación económica
         if (costo == null || costo.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new CitaException("El costo de la cita debe ser un valor positivo."); // [cite: 189]
+            throw new CitaException(CitaException.Motivo.COSTO_INVALIDO, "El costo de la cita debe ser un valor positivo."); // [cite: 189]
         }
 
         // 3. Validación de especialidad
         if (!medico.getEspecialidad().equals(sala.getDepartamento().getEspecialidad())) {
-            throw new CitaException("La especialidad del médico no coincide con la del departamento de la sala."); // [cite: 192]
-        }
-
-        // 4. Validación de disponibilidad del médico
-        if (!esMedicoDisponible(medico, fechaHora)) {
-            throw new CitaException("El médico no tiene disponibilidad en ese horario (se requiere un búfer de 2 horas)."); // [cite: 195]
-        }
-
-        // 5. Validación de disponibilidad de la sala
-        if (!esSalaDisponible(sala, fechaHora)) {
-            throw new CitaException("La sala no está disponible en ese horario (se requiere un búfer de 2 horas)."); // [cite: 198]
+            throw new CitaException(CitaException.Motivo.ESPECIALIDAD_INCOMPATIBLE, "La especialidad del médico no coincide con la del departamento de la sala."); // [cite: 192]
         }
+    }
 
-        // Si todas las validaciones pasan, se crea la cita
-        Cita nuevaCita = Cita.builder()
+    private Cita crearCita(Paciente paciente, Medico medico, Sala sala, LocalDateTime fechaHora, BigDecimal costo, String observaciones) {
+        return Cita.builder()
                 .paciente(paciente)
                 .medico(medico)
                 .sala(sala)
@@ -62,41 +354,271 @@ public class CitaManager implements CitaService {
                 .estado(EstadoCita.PROGRAMADA)
                 .observaciones(observaciones)
                 .build();
+    }
+
+    /**
+     * Carga en una sola consulta las citas que pueden chocar con alguna solicitud del lote.
+     */
+    private void cargarAgendas(List<SolicitudCita> solicitudes, Map<Long, AgendaOrdenada> agendasMedicos, Map<Long, AgendaOrdenada> agendasSalas) {
+        Set<Long> medicos = new HashSet<>();
+        Set<Long> salas = new HashSet<>();
+        LocalDateTime inicio = null;
+        LocalDateTime fin = null;
+        for (SolicitudCita s : solicitudes) {
+            if (s.fechaHora() == null || s.medico() == null || s.sala() == null) continue;
+            if (s.medico().getId() != null) medicos.add(s.medico().getId());
+            if (s.sala().getId() != null) salas.add(s.sala().getId());
+            if (inicio == null || s.fechaHora().isBefore(inicio)) inicio = s.fechaHora();
+            if (fin == null || s.fechaHora().isAfter(fin)) fin = s.fechaHora();
+        }
+        if (inicio == null) return;
+        cargarAgendas(medicos, salas, inicio, fin, agendasMedicos, agendasSalas);
+    }
 
-        return nuevaCita;
+    /**
+     * Carga en una sola consulta las citas de los médicos y salas indicados que ocupan algún horario de [inicio, fin].
+     */
+    private void cargarAgendas(Set<Long> medicos, Set<Long> salas, LocalDateTime inicio, LocalDateTime fin,
+                               Map<Long, AgendaOrdenada> agendasMedicos, Map<Long, AgendaOrdenada> agendasSalas) {
+        if (medicos.isEmpty() && salas.isEmpty()) return;
+
+        List<String> condiciones = new ArrayList<>();
+        if (!medicos.isEmpty()) condiciones.add("c.medico.id IN :medicos");
+        if (!salas.isEmpty()) condiciones.add("c.sala.id IN :salas");
+        TypedQuery<Object[]> query = em.createQuery(
+                "SELECT c.medico.id, c.sala.id, c.fechaHora FROM Cita c WHERE (" + String.join(" OR ", condiciones) + ")"
+                        + " AND c.fechaHora BETWEEN :inicio AND :fin AND c.estado IN :bloqueantes ORDER BY c.fechaHora", Object[].class);
+        if (!medicos.isEmpty()) query.setParameter("medicos", medicos);
+        if (!salas.isEmpty()) query.setParameter("salas", salas);
+        query.setParameter("inicio", inicio.minusHours(2));
+        query.setParameter("fin", fin.plusHours(2));
+        query.setParameter("bloqueantes", EstadoCita.BLOQUEANTES);
+        for (Object[] fila : query.getResultList()) {
+            long minuto = AgendaOrdenada.aMinutos((LocalDateTime) fila[2]);
+            if (medicos.contains((Long) fila[0])) reservar(agendasMedicos, (Long) fila[0], minuto);
+            if (salas.contains((Long) fila[1])) reservar(agendasSalas, (Long) fila[1], minuto);
+        }
+    }
+
+    private static boolean estaLibre(Map<Long, AgendaOrdenada> agendas, Long id, long minuto) {
+        AgendaOrdenada agenda = id == null ? null : agendas.get(id);
+        return agenda == null || !agenda.hayEntre(minuto - DisponibilidadIndex.BUFER_MINUTOS, minuto + DisponibilidadIndex.BUFER_MINUTOS);
+    }
+
+    private static void reservar(Map<Long, AgendaOrdenada> agendas, Long id, long minuto) {
+        if (id != null) agendas.computeIfAbsent(id, k -> new AgendaOrdenada()).agregar(minuto);
+    }
+
+    /**
+     * El índice cuenta las citas de esta transacción a partir de los eventos del flush. Las citas persistidas
+     * en este EntityManager y aún no enviadas a la base se envían antes de consultarlo, como hace Hibernate
+     * con las consultas JPQL.
+     */
+    private void sincronizarIndice() {
+        if (disponibilidad != null && em.isJoinedToTransaction()
+                && em.unwrap(SessionImplementor.class).getActionQueue().areInsertionsOrDeletionsQueued()) {
+            em.flush();
+        }
     }
 
     private boolean esMedicoDisponible(Medico medico, LocalDateTime nuevaFecha) {
+        if (disponibilidad != null) {
+            return disponibilidad.esMedicoDisponible(em, medico.getId(), nuevaFecha);
+        }
         TypedQuery<Long> query = em.createQuery(
-                "SELECT COUNT(c) FROM Cita c WHERE c.medico = :medico AND c.fechaHora BETWEEN :inicio AND :fin", Long.class);
+                "SELECT COUNT(c) FROM Cita c WHERE c.medico = :medico AND c.fechaHora BETWEEN :inicio AND :fin"
+                        + " AND c.estado IN :bloqueantes", Long.class);
         query.setParameter("medico", medico);
         query.setParameter("inicio", nuevaFecha.minusHours(2)); // [cite: 195]
         query.setParameter("fin", nuevaFecha.plusHours(2));
+        query.setParameter("bloqueantes", EstadoCita.BLOQUEANTES);
         return query.getSingleResult() == 0;
     }
 
     private boolean esSalaDisponible(Sala sala, LocalDateTime nuevaFecha) {
+        if (disponibilidad != null) {
+            return disponibilidad.esSalaDisponible(em, sala.getId(), nuevaFecha);
+        }
         TypedQuery<Long> query = em.createQuery(
-                "SELECT COUNT(c) FROM Cita c WHERE c.sala = :sala AND c.fechaHora BETWEEN :inicio AND :fin", Long.class);
+                "SELECT COUNT(c) FROM Cita c WHERE c.sala = :sala AND c.fechaHora BETWEEN :inicio AND :fin"
+                        + " AND c.estado IN :bloqueantes", Long.class);
         query.setParameter("sala", sala);
         query.setParameter("inicio", nuevaFecha.minusHours(2)); // [cite: 198]
         query.setParameter("fin", nuevaFecha.plusHours(2));
+        query.setParameter("bloqueantes", EstadoCita.BLOQUEANTES);
         return query.getSingleResult() == 0;
     }
 
     @Override
     public List<Cita> getCitasPorPaciente(Paciente paciente) {
         if (paciente == null) return Collections.emptyList();
+        long inicio = System.nanoTime();
         TypedQuery<Cita> query = em.createQuery("SELECT c FROM Cita c WHERE c.paciente = :paciente ORDER BY c.fechaHora DESC", Cita.class);
         query.setParameter("paciente", paciente);
-        return Collections.unmodifiableList(query.getResultList()); // [cite: 116]
+        List<Cita> citas = query.getResultList(); // [cite: 116]
+        metricas.listado(MetricasCitas.Operacion.CITAS_POR_PACIENTE, inicio, citas.size());
+        return Collections.unmodifiableList(citas);
     }
 
     @Override
     public List<Cita> getCitasPorMedico(Medico medico) {
         if (medico == null) return Collections.emptyList();
+        long inicio = System.nanoTime();
         TypedQuery<Cita> query = em.createQuery("SELECT c FROM Cita c WHERE c.medico = :medico ORDER BY c.fechaHora ASC", Cita.class);
         query.setParameter("medico", medico);
-        return Collections.unmodifiableList(query.getResultList()); // [cite: 116]
+        List<Cita> citas = query.getResultList(); // [cite: 116]
+        metricas.listado(MetricasCitas.Operacion.CITAS_POR_MEDICO, inicio, citas.size());
+        return Collections.unmodifiableList(citas);
+    }
+
+    @Override
+    public List<CitaResumen> getResumenCitasPorPaciente(Paciente paciente) {
+        if (paciente == null) return Collections.emptyList();
+        long inicio = System.nanoTime();
+        TypedQuery<CitaResumen> query = em.createQuery(SELECT_RESUMEN + " WHERE c.paciente = :paciente ORDER BY c.fechaHora DESC", CitaResumen.class);
+        query.setParameter("paciente", paciente);
+        List<CitaResumen> citas = query.getResultList();
+        metricas.listado(MetricasCitas.Operacion.RESUMEN_POR_PACIENTE, inicio, citas.size());
+        return Collections.unmodifiableList(citas);
+    }
+
+    @Override
+    public List<CitaResumen> getResumenCitasPorMedico(Medico medico) {
+        if (medico == null) return Collections.emptyList();
+        long inicio = System.nanoTime();
+        TypedQuery<CitaResumen> query = em.createQuery(SELECT_RESUMEN + " WHERE c.medico = :medico ORDER BY c.fechaHora ASC", CitaResumen.class);
+        query.setParameter("medico", medico);
+        List<CitaResumen> citas = query.getResultList();
+        metricas.listado(MetricasCitas.Operacion.RESUMEN_POR_MEDICO, inicio, citas.size());
+        return Collections.unmodifiableList(citas);
+    }
+
+    @Override
+    public Pagina<Cita> getCitasPorPaciente(Paciente paciente, LocalDateTime desde, LocalDateTime hasta, CursorCita cursor, int tamanio) {
+        if (paciente == null) return new Pagina<>(Collections.emptyList(), null);
+        long inicio = System.nanoTime();
+        TypedQuery<Cita> query = consultaListado("c.paciente = :propietario", false, desde, hasta, cursor);
+        query.setParameter("propietario", paciente);
+        Pagina<Cita> pagina = paginar(query, tamanio);
+        metricas.listado(MetricasCitas.Operacion.PAGINA_POR_PACIENTE, inicio, pagina.elementos().size());
+        return pagina;
+    }
+
+    @Override
+    public Pagina<Cita> getCitasPorMedico(Medico medico, LocalDateTime desde, LocalDateTime hasta, CursorCita cursor, int tamanio) {
+        if (medico == null) return new Pagina<>(Collections.emptyList(), null);
+        long inicio = System.nanoTime();
+        TypedQuery<Cita> query = consultaListado("c.medico = :propietario", true, desde, hasta, cursor);
+        query.setParameter("propietario", medico);
+        Pagina<Cita> pagina = paginar(query, tamanio);
+        metricas.listado(MetricasCitas.Operacion.PAGINA_POR_MEDICO, inicio, pagina.elementos().size());
+        return pagina;
+    }
+
+    @Override
+    public Stream<Cita> streamCitasPorPaciente(Paciente paciente, LocalDateTime desde, LocalDateTime hasta) {
+        if (paciente == null) return Stream.empty();
+        return recorrer(lectura -> lectura.consultaListado("c.paciente = :propietario", false, desde, hasta, null)
+                .setParameter("propietario", paciente));
+    }
+
+    @Override
+    public Stream<Cita> streamCitasPorMedico(Medico medico, LocalDateTime desde, LocalDateTime hasta) {
+        if (medico == null) return Stream.empty();
+        return recorrer(lectura -> lectura.consultaListado("c.medico = :propietario", true, desde, hasta, null)
+                .setParameter("propietario", medico));
+    }
+
+    /**
+     * Arma la consulta de un listado ordenado por (fechaHora, id), con ventana de fechas y cursor opcionales.
+     * Las asociaciones se traen en la misma consulta para no disparar una carga por fila.
+     */
+    private TypedQuery<Cita> consultaListado(String filtro, boolean ascendente, LocalDateTime desde, LocalDateTime hasta, CursorCita cursor) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT c FROM Cita c LEFT JOIN FETCH c.paciente LEFT JOIN FETCH c.medico LEFT JOIN FETCH c.sala WHERE ")
+                .append(filtro);
+        if (desde != null) jpql.append(" AND c.fechaHora >= :desde");
+        if (hasta != null) jpql.append(" AND c.fechaHora <= :hasta");
+        String comparador = ascendente ? ">" : "<";
+        if (cursor != null) {
+            jpql.append(" AND (c.fechaHora ").append(comparador).append(" :cursorFecha")
+                    .append(" OR (c.fechaHora = :cursorFecha AND c.id ").append(comparador).append(" :cursorId))");
+        }
+        String orden = ascendente ? " ASC" : " DESC";
+        jpql.append(" ORDER BY c.fechaHora").append(orden).append(", c.id").append(orden);
+
+        TypedQuery<Cita> query = em.createQuery(jpql.toString(), Cita.class);
+        if (desde != null) query.setParameter("desde", desde);
+        if (hasta != null) query.setParameter("hasta", hasta);
+        if (cursor != null) {
+            query.setParameter("cursorFecha", cursor.fechaHora());
+            query.setParameter("cursorId", cursor.id());
+        }
+        return query;
+    }
+
+    private Pagina<Cita> paginar(TypedQuery<Cita> query, int tamanio) {
+        if (tamanio <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser positivo.");
+        }
+        // Se pide un elemento extra solo para saber si existe una página siguiente
+        List<Cita> filas = query.setMaxResults(tamanio + 1).getResultList();
+        if (filas.size() <= tamanio) {
+            return new Pagina<>(Collections.unmodifiableList(filas), null);
+        }
+        List<Cita> pagina = filas.subList(0, tamanio);
+        return new Pagina<>(Collections.unmodifiableList(pagina), CursorCita.de(pagina.get(tamanio - 1)));
+    }
+
+    /**
+     * Recorre el resultado con un cursor de base de datos, en una sesión propia de solo lectura que comparte la
+     * conexión y la transacción del EntityManager. Esa sesión se limpia cada {@link #TAMANIO_BLOQUE} filas para que la
+     * memoria usada no crezca con el tamaño del resultado, sin tocar las entidades ni los cambios del EntityManager.
+     * Los cambios pendientes del EntityManager se envían antes, como haría la consulta con el flush automático.
+     */
+    private Stream<Cita> recorrer(Function<CitaManager, TypedQuery<Cita>> consulta) {
+        Session sesion = em.unwrap(Session.class);
+        if (em.isJoinedToTransaction() && sesion.getHibernateFlushMode() != FlushMode.MANUAL) {
+            em.flush();
+        }
+        Session lectura = sesion.sessionWithOptions().connection().openSession();
+        lectura.setDefaultReadOnly(true);
+        lectura.setHibernateFlushMode(FlushMode.MANUAL);
+        Stream<Cita> resultado;
+        try {
+            resultado = consulta.apply(new CitaManager(lectura, null, metricas))
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, TAMANIO_BLOQUE)
+                    .getResultStream();
+        } catch (RuntimeException e) {
+            lectura.close();
+            throw e;
+        }
+        Iterator<Cita> filas = resultado.iterator();
+        Iterator<Cita> conLimpieza = new Iterator<>() {
+            private int leidas;
+            private boolean limpiar;
+
+            @Override
+            public boolean hasNext() {
+                // Se limpia antes de avanzar el cursor, cuando la fila anterior ya fue consumida
+                if (limpiar) {
+                    lectura.clear();
+                    limpiar = false;
+                }
+                return filas.hasNext();
+            }
+
+            @Override
+            public Cita next() {
+                Cita cita = filas.next();
+                limpiar = ++leidas % TAMANIO_BLOQUE == 0;
+                return cita;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(conLimpieza, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    resultado.close();
+                    lectura.close();
+                });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,189 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.entidades.Cita;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implementación de {@link CitaServiceAsync} sobre un {@link CitaService} thread-safe
+ * (por defecto {@link CitaManagerConcurrente}, que abre un EntityManager por operación).
+ *
+ * La cantidad de operaciones en curso está acotada por un semáforo; conviene que el máximo no supere
+ * el tamaño del pool de conexiones (hibernate.connection.pool_size), o las tareas solo esperarán una conexión.
+ * Por defecto las tareas corren en hilos virtuales si la JVM los ofrece (Java 21+) y, si no,
+ * en un pool fijo de tantos hilos como operaciones admitidas.
+ */
+public class CitaManagerAsync implements CitaServiceAsync {
+    public static final int MAXIMO_EN_CURSO_POR_DEFECTO = 16;
+
+    private final CitaService delegado;
+    private final ExecutorService executor;
+    private final boolean executorPropio;
+    private final Semaphore permisos;
+    private final int maximoEnCurso;
+
+    public CitaManagerAsync(EntityManagerFactory emf, DisponibilidadIndex disponibilidad) {
+        this(new CitaManagerConcurrente(emf, disponibilidad), MAXIMO_EN_CURSO_POR_DEFECTO);
+    }
+
+    /**
+     * @param delegado      Servicio sincrónico que ejecuta cada operación; debe ser thread-safe.
+     * @param maximoEnCurso Operaciones admitidas a la vez; las que excedan el límite se rechazan.
+     */
+    public CitaManagerAsync(CitaService delegado, int maximoEnCurso) {
+        this(delegado, crearExecutor(maximoEnCurso), true, maximoEnCurso);
+    }
+
+    /**
+     * @param executor Executor provisto por el llamador; no se cierra con {@link #close()}.
+     */
+    public CitaManagerAsync(CitaService delegado, ExecutorService executor, int maximoEnCurso) {
+        this(delegado, executor, false, maximoEnCurso);
+    }
+
+    private CitaManagerAsync(CitaService delegado, ExecutorService executor, boolean executorPropio, int maximoEnCurso) {
+        if (maximoEnCurso <= 0) throw new IllegalArgumentException("El máximo de operaciones en curso debe ser positivo.");
+        this.delegado = Objects.requireNonNull(delegado, "El servicio delegado no puede ser nulo.");
+        this.executor = Objects.requireNonNull(executor, "El executor no puede ser nulo.");
+        this.executorPropio = executorPropio;
+        this.maximoEnCurso = maximoEnCurso;
+        this.permisos = new Semaphore(maximoEnCurso);
+    }
+
+    /**
+     * Cantidad de operaciones aceptadas que todavía no terminaron.
+     */
+    public int getEnCurso() {
+        return maximoEnCurso - permisos.availablePermits();
+    }
+
+    @Override
+    public CompletableFuture<Cita> programarCitaAsync(Paciente paciente, Medico medico, Sala sala, LocalDateTime fechaHora, BigDecimal costo, String observaciones) {
+        return enviar(() -> delegado.programarCita(paciente, medico, sala, fechaHora, costo, observaciones));
+    }
+
+    @Override
+    public CompletableFuture<List<ResultadoSolicitud>> programarCitasAsync(List<SolicitudCita> solicitudes) {
+        return enviar(() -> delegado.programarCitas(solicitudes));
+    }
+
+    @Override
+    public CompletableFuture<Integer> cambiarEstadoMasivoAsync(EstadoCita actual, EstadoCita nuevo, FiltroCitas filtro) {
+        return enviar(() -> delegado.cambiarEstadoMasivo(actual, nuevo, filtro));
+    }
+
+    @Override
+    public CompletableFuture<List<HuecoLibre>> buscarHuecosLibresAsync(EspecialidadMedica especialidad, LocalDateTime desde, LocalDateTime hasta, int limite) {
+        return enviar(() -> delegado.buscarHuecosLibres(especialidad, desde, hasta, limite));
+    }
+
+    @Override
+    public CompletableFuture<List<Cita>> getCitasPorPacienteAsync(Paciente paciente) {
+        return enviar(() -> delegado.getCitasPorPaciente(paciente));
+    }
+
+    @Override
+    public CompletableFuture<List<Cita>> getCitasPorMedicoAsync(Medico medico) {
+        return enviar(() -> delegado.getCitasPorMedico(medico));
+    }
+
+    @Override
+    public CompletableFuture<List<CitaResumen>> getResumenCitasPorPacienteAsync(Paciente paciente) {
+        return enviar(() -> delegado.getResumenCitasPorPaciente(paciente));
+    }
+
+    @Override
+    public CompletableFuture<List<CitaResumen>> getResumenCitasPorMedicoAsync(Medico medico) {
+        return enviar(() -> delegado.getResumenCitasPorMedico(medico));
+    }
+
+    @Override
+    public CompletableFuture<Pagina<Cita>> getCitasPorPacienteAsync(Paciente paciente, LocalDateTime desde, LocalDateTime hasta, CursorCita cursor, int tamanio) {
+        return enviar(() -> delegado.getCitasPorPaciente(paciente, desde, hasta, cursor, tamanio));
+    }
+
+    @Override
+    public CompletableFuture<Pagina<Cita>> getCitasPorMedicoAsync(Medico medico, LocalDateTime desde, LocalDateTime hasta, CursorCita cursor, int tamanio) {
+        return enviar(() -> delegado.getCitasPorMedico(medico, desde, hasta, cursor, tamanio));
+    }
+
+    @Override
+    public void close() {
+        if (!executorPropio) return;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Tarea<T> {
+        T ejecutar() throws CitaException;
+    }
+
+    private <T> CompletableFuture<T> enviar(Tarea<T> tarea) {
+        // Contrapresión: no se encola trabajo sin límite, se rechaza en el momento
+        if (!permisos.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "Hay " + maximoEnCurso + " operaciones de citas en curso; reintente más tarde."));
+        }
+        CompletableFuture<T> futuro = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                T resultado = null;
+                Throwable error = null;
+                try {
+                    resultado = tarea.ejecutar();
+                } catch (Throwable e) {
+                    error = e;
+                } finally {
+                    // Se libera antes de completar, para que las etapas encadenadas puedan enviar otra operación
+                    permisos.release();
+                }
+                if (error == null) futuro.complete(resultado);
+                else futuro.completeExceptionally(error);
+            });
+        } catch (RejectedExecutionException e) {
+            permisos.release();
+            futuro.completeExceptionally(e);
+        }
+        return futuro;
+    }
+
+    /**
+     * Hilos virtuales si la JVM los ofrece (se buscan por reflexión para seguir compilando con Java 17);
+     * si no, un pool fijo de hilos daemon.
+     */
+    static ExecutorService crearExecutor(int hilos) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger contador = new AtomicInteger();
+            ThreadFactory fabrica = r -> {
+                Thread hilo = new Thread(r, "citas-async-" + contador.incrementAndGet());
+                hilo.setDaemon(true);
+                return hilo;
+            };
+            return Executors.newFixedThreadPool(hilos, fabrica);
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.OptimisticLockException;
+import org.example.entidades.Cita;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.StaleStateException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Implementación thread-safe de {@link CitaService}: cada operación usa su propio EntityManager y su propia
+ * transacción, por lo que una misma instancia puede atender muchas reservas en paralelo (también desde hilos virtuales).
+ *
+ * Para evitar dobles reservas hay dos modos de {@link Bloqueo}:
+ * <ul>
+ *     <li>PESIMISTA (por defecto): la verificación y la inserción se hacen con el médico y la sala bloqueados,
+ *     dentro del proceso con un conjunto fijo de locks (lock striping) y entre procesos con un bloqueo pesimista
+ *     sobre sus filas. Los locks se toman siempre en el mismo orden para no generar interbloqueos.</li>
+ *     <li>OPTIMISTA: no se toma ningún lock; la reserva incrementa la versión del médico y de la sala al confirmar
+ *     ({@code OPTIMISTIC_FORCE_INCREMENT}). Si otra reserva sobre alguno de ellos confirmó antes, la transacción
+ *     falla y se repite completa, con una espera exponencial aleatoria, hasta {@value #MAXIMO_INTENTOS} veces.</li>
+ * </ul>
+ *
+ * Con un {@link DisponibilidadIndex} la verificación se hace contra el índice y no contra la base, y el índice solo
+ * recibe las reservas confirmadas por la misma EntityManagerFactory. En ese caso ningún modo impide dobles reservas
+ * entre procesos: los bloqueos de filas y las versiones ordenan las reservas, pero no muestran las citas que otro
+ * proceso confirmó. Con índice, todas las reservas deben hacerse desde un único proceso; sin índice, cada verificación
+ * consulta la base con el médico y la sala ya bloqueados o versionados, y ambos modos son seguros entre procesos.
+ *
+ * A diferencia de {@link CitaManager}, {@link #programarCita} persiste la cita y confirma la transacción;
+ * las entidades devueltas quedan separadas de cualquier EntityManager.
+ *
+ * Las consultas usan sesiones de solo lectura (sin copia del estado para el dirty checking y con
+ * {@code FlushMode.MANUAL}) y pueden dirigirse a una factory de lectura distinta, por ejemplo una réplica
+ * creada con {@link org.example.configuracion.PerfilPersistencia#crearEntityManagerFactoryLectura(String)}.
+ * En ese caso una cita recién reservada puede no aparecer hasta que la réplica se actualice.
+ */
+public class CitaManagerConcurrente implements CitaService {
+    private static final int CANTIDAD_LOCKS = 64;
+    static final int MAXIMO_INTENTOS = 8;
+    private static final long ESPERA_INICIAL_MICROS = 500;
+    private static final long ESPERA_MAXIMA_MICROS = 50_000;
+
+    public enum Bloqueo {
+        PESIMISTA,
+        OPTIMISTA
+    }
+
+    private final EntityManagerFactory emf;
+    private final EntityManagerFactory lectura;
+    private final DisponibilidadIndex disponibilidad;
+    private final Bloqueo bloqueo;
+    private final MetricasCitas metricas;
+    private final ReentrantLock[] locks = new ReentrantLock[CANTIDAD_LOCKS];
+
+    public CitaManagerConcurrente(EntityManagerFactory emf) {
+        this(emf, null);
+    }
+
+    /**
+     * @param disponibilidad Índice en memoria compartido por todas las operaciones; si es null se consulta la base de datos.
+     *                       Con índice, solo este proceso puede reservar citas en la base.
+     */
+    public CitaManagerConcurrente(EntityManagerFactory emf, DisponibilidadIndex disponibilidad) {
+        this(emf, disponibilidad, Bloqueo.PESIMISTA);
+    }
+
+    /**
+     * @param disponibilidad Índice en memoria compartido por todas las operaciones; si es null se consulta la base de datos.
+     *                       Con índice, solo este proceso puede reservar citas en la base.
+     * @param bloqueo        Cómo se evitan las dobles reservas.
+     */
+    public CitaManagerConcurrente(EntityManagerFactory emf, DisponibilidadIndex disponibilidad, Bloqueo bloqueo) {
+        this(emf, emf, disponibilidad, bloqueo);
+    }
+
+    /**
+     * @param lectura        Factory para las consultas; puede ser la misma que {@code emf}.
+     * @param disponibilidad Índice en memoria compartido por todas las operaciones; si es null se consulta la base de datos.
+     *                       Con índice, solo este proceso puede reservar citas en la base.
+     * @param bloqueo        Cómo se evitan las dobles reservas.
+     */
+    public CitaManagerConcurrente(EntityManagerFactory emf, EntityManagerFactory lectura, DisponibilidadIndex disponibilidad, Bloqueo bloqueo) {
+        this.emf = Objects.requireNonNull(emf, "La EntityManagerFactory no puede ser nula.");
+        this.lectura = Objects.requireNonNull(lectura, "La EntityManagerFactory de lectura no puede ser nula.");
+        this.disponibilidad = disponibilidad;
+        this.bloqueo = Objects.requireNonNull(bloqueo, "El modo de bloqueo no puede ser nulo.");
+        this.metricas = MetricasCitas.de(emf);
+        for (int i = 0; i < CANTIDAD_LOCKS; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public Cita programarCita(Paciente paciente, Medico medico, Sala sala, LocalDateTime fechaHora, BigDecimal costo, String observaciones) throws CitaException {
+        if (bloqueo == Bloqueo.OPTIMISTA) {
+            return conReintentos(() -> enTransaccion(em -> {
+                Medico medicoVersionado = em.find(Medico.class, medico.getId(), LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+                Sala salaVersionada = em.find(Sala.class, sala.getId(), LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+                Cita cita = new CitaManager(em, disponibilidad, metricas).programarCita(
+                        em.getReference(Paciente.class, paciente.getId()), medicoVersionado, salaVersionada, fechaHora, costo, observaciones);
+                em.persist(cita);
+                incrementarVersionesSinLote(em);
+                return cita;
+            }));
+        }
+        TreeSet<Integer> franjas = new TreeSet<>();
+        franjas.add(franjaMedico(medico.getId()));
+        franjas.add(franjaSala(sala.getId()));
+        long inicio = System.nanoTime();
+        return conLocks(franjas, () -> enTransaccion(em -> {
+            Medico medicoBloqueado = em.find(Medico.class, medico.getId(), LockModeType.PESSIMISTIC_WRITE);
+            Sala salaBloqueada = em.find(Sala.class, sala.getId(), LockModeType.PESSIMISTIC_WRITE);
+            metricas.etapa(MetricasCitas.Etapa.BLOQUEO, inicio);
+            Cita cita = new CitaManager(em, disponibilidad, metricas).programarCita(
+                    em.getReference(Paciente.class, paciente.getId()), medicoBloqueado, salaBloqueada, fechaHora, costo, observaciones);
+            em.persist(cita);
+            return cita;
+        }));
+    }
+
+    @Override
+    public List<ResultadoSolicitud> programarCitas(List<SolicitudCita> solicitudes) {
+        if (solicitudes == null || solicitudes.isEmpty()) return List.of();
+        TreeSet<Long> medicos = new TreeSet<>();
+        TreeSet<Long> salas = new TreeSet<>();
+        TreeSet<Integer> franjas = new TreeSet<>();
+        for (SolicitudCita s : solicitudes) {
+            medicos.add(s.medico().getId());
+            salas.add(s.sala().getId());
+            franjas.add(franjaMedico(s.medico().getId()));
+            franjas.add(franjaSala(s.sala().getId()));
+        }
+        long inicio = System.nanoTime();
+        LockModeType modo = bloqueo == Bloqueo.OPTIMISTA ? LockModeType.OPTIMISTIC_FORCE_INCREMENT : LockModeType.PESSIMISTIC_WRITE;
+        Bloque<List<ResultadoSolicitud>> lote = () -> enTransaccion(em -> {
+            // Se bloquean las filas en orden de id para que dos lotes no se esperen mutuamente
+            medicos.forEach(id -> em.find(Medico.class, id, modo));
+            salas.forEach(id -> em.find(Sala.class, id, modo));
+            metricas.etapa(MetricasCitas.Etapa.BLOQUEO, inicio);
+            List<SolicitudCita> gestionadas = new ArrayList<>(solicitudes.size());
+            for (SolicitudCita s : solicitudes) {
+                gestionadas.add(new SolicitudCita(
+                        em.getReference(Paciente.class, s.paciente().getId()),
+                        em.find(Medico.class, s.medico().getId()),
+                        em.find(Sala.class, s.sala().getId()),
+                        s.fechaHora(), s.costo(), s.observaciones()));
+            }
+            List<ResultadoSolicitud> resultados = new CitaManager(em, disponibilidad, metricas).programarCitas(gestionadas);
+            if (bloqueo == Bloqueo.OPTIMISTA) incrementarVersionesSinLote(em);
+            // Se devuelven los resultados asociados a las solicitudes originales
+            List<ResultadoSolicitud> originales = new ArrayList<>(resultados.size());
+            for (int i = 0; i < resultados.size(); i++) {
+                ResultadoSolicitud r = resultados.get(i);
+                originales.add(new ResultadoSolicitud(solicitudes.get(i), r.cita(), r.error()));
+            }
+            return originales;
+        });
+        try {
+            return bloqueo == Bloqueo.OPTIMISTA ? conReintentos(lote) : conLocks(franjas, lote);
+        } catch (CitaException e) {
+            if (e.getMotivo() != CitaException.Motivo.CONFLICTO_CONCURRENTE) {
+                throw new IllegalStateException(e); // programarCitas informa los rechazos en el resultado, nunca lanza
+            }
+            // Se agotaron los reintentos: no se confirmó ninguna solicitud del lote
+            List<ResultadoSolicitud> rechazadas = new ArrayList<>(solicitudes.size());
+            solicitudes.forEach(s -> rechazadas.add(ResultadoSolicitud.rechazada(s, e)));
+            return rechazadas;
+        }
+    }
+
+    @Override
+    public int cambiarEstadoMasivo(EstadoCita actual, EstadoCita nuevo, FiltroCitas filtro) throws CitaException {
+        return enTransaccion(em -> new CitaManager(em, disponibilidad, metricas).cambiarEstadoMasivo(actual, nuevo, filtro));
+    }
+
+    @Override
+    public List<HuecoLibre> buscarHuecosLibres(EspecialidadMedica especialidad, LocalDateTime desde, LocalDateTime hasta, int limite) {
+        return enLectura(em -> new CitaManager(em, null, metricas).buscarHuecosLibres(especialidad, desde, hasta, limite));
+    }
+
+    @Override
+    public List<Cita> getCitasPorPaciente(Paciente paciente) {
+        return enLectura(em -> new CitaManager(em, null, metricas).getCitasPorPaciente(paciente));
+    }
+
+    @Override
+    public List<Cita> getCitasPorMedico(Medico medico) {
+        return enLectura(em -> new CitaManager(em, null, metricas).getCitasPorMedico(medico));
+    }
+
+    @Override
+    public List<CitaResumen> getResumenCitasPorPaciente(Paciente paciente) {
+        return enLectura(em -> new CitaManager(em, null, metricas).getResumenCitasPorPaciente(paciente));
+    }
+
+    @Override
+    public List<CitaResumen> getResumenCitasPorMedico(Medico medico) {
+        return enLectura(em -> new CitaManager(em, null, metricas).getResumenCitasPorMedico(medico));
+    }
+
+    @Override
+    public Pagina<Cita> getCitasPorPaciente(Paciente paciente, LocalDateTime desde, LocalDateTime hasta, CursorCita cursor, int tamanio) {
+        return enLectura(em -> new CitaManager(em, null, metricas).getCitasPorPaciente(paciente, desde, hasta, cursor, tamanio));
+    }
+
+    @Override
+    public Pagina<Cita> getCitasPorMedico(Medico medico, LocalDateTime desde, LocalDateTime hasta, CursorCita cursor, int tamanio) {
+        return enLectura(em -> new CitaManager(em, null, metricas).getCitasPorMedico(medico, desde, hasta, cursor, tamanio));
+    }
+
+    /**
+     * El EntityManager de la operación permanece abierto hasta que se cierra el stream.
+     */
+    @Override
+    public Stream<Cita> streamCitasPorPaciente(Paciente paciente, LocalDateTime desde, LocalDateTime hasta) {
+        EntityManager em = crearEntityManagerLectura();
+        return new CitaManager(em, null, metricas).streamCitasPorPaciente(paciente, desde, hasta).onClose(em::close);
+    }
+
+    /**
+     * El EntityManager de la operación permanece abierto hasta que se cierra el stream.
+     */
+    @Override
+    public Stream<Cita> streamCitasPorMedico(Medico medico, LocalDateTime desde, LocalDateTime hasta) {
+        EntityManager em = crearEntityManagerLectura();
+        return new CitaManager(em, null, metricas).streamCitasPorMedico(medico, desde, hasta).onClose(em::close);
+    }
+
+    @FunctionalInterface
+    private interface Operacion<T> {
+        T ejecutar(EntityManager em) throws CitaException;
+    }
+
+    @FunctionalInterface
+    private interface Bloque<T> {
+        T ejecutar() throws CitaException;
+    }
+
+    private <T> T enTransaccion(Operacion<T> operacion) throws CitaException {
+        EntityManager em = emf.createEntityManager();
+        EntityTransaction tx = em.getTransaction();
+        try {
+            tx.begin();
+            T resultado = operacion.ejecutar(em);
+            long inicioCommit = System.nanoTime();
+            tx.commit();
+            metricas.etapa(MetricasCitas.Etapa.COMMIT, inicioCommit);
+            return resultado;
+        } catch (CitaException e) {
+            if (tx.isActive()) tx.rollback();
+            throw e;
+        } catch (RuntimeException e) {
+            if (tx.isActive()) tx.rollback();
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    private <T> T enLectura(Function<EntityManager, T> consulta) {
+        EntityManager em = crearEntityManagerLectura();
+        try {
+            return consulta.apply(em);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Ejecuta el bloque hasta que confirme sin conflictos de versión, esperando entre intentos un tiempo aleatorio
+     * de hasta {@value #ESPERA_INICIAL_MICROS} µs que se duplica en cada intento (con tope de {@value #ESPERA_MAXIMA_MICROS} µs).
+     */
+    private <T> T conReintentos(Bloque<T> bloque) throws CitaException {
+        long tope = ESPERA_INICIAL_MICROS;
+        for (int intento = 1; ; intento++) {
+            try {
+                return bloque.ejecutar();
+            } catch (RuntimeException e) {
+                if (!esConflictoDeVersion(e)) throw e;
+                if (intento == MAXIMO_INTENTOS) {
+                    metricas.rechazo(CitaException.Motivo.CONFLICTO_CONCURRENTE);
+                    throw new CitaException(CitaException.Motivo.CONFLICTO_CONCURRENTE,
+                            "El médico o la sala fueron reservados por otra operación; se agotaron los reintentos.");
+                }
+            }
+            metricas.reintento();
+            try {
+                TimeUnit.MICROSECONDS.sleep(ThreadLocalRandom.current().nextLong(tope + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CitaException(CitaException.Motivo.CONFLICTO_CONCURRENTE, "La reserva se interrumpió mientras esperaba un reintento.");
+            }
+            tope = Math.min(tope * 2, ESPERA_MAXIMA_MICROS);
+        }
+    }
+
+    /**
+     * Envía las citas del lote y deja sin batching el resto de la transacción: los incrementos de versión de
+     * {@code OPTIMISTIC_FORCE_INCREMENT} se ejecutan al confirmar, y así un conflicto llega como
+     * {@link StaleStateException} de su propia sentencia en vez de registrarse como un lote JDBC fallido.
+     */
+    private static void incrementarVersionesSinLote(EntityManager em) {
+        em.flush();
+        em.unwrap(Session.class).setJdbcBatchSize(1);
+    }
+
+    private static boolean esConflictoDeVersion(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockException || t instanceof StaleStateException) return true;
+        }
+        return false;
+    }
+
+    private EntityManager crearEntityManagerLectura() {
+        EntityManager em = lectura.createEntityManager();
+        Session session = em.unwrap(Session.class);
+        session.setDefaultReadOnly(true);
+        session.setHibernateFlushMode(FlushMode.MANUAL);
+        return em;
+    }
+
+    private <T> T conLocks(TreeSet<Integer> franjas, Bloque<T> bloque) throws CitaException {
+        List<ReentrantLock> tomados = new ArrayList<>(franjas.size());
+        try {
+            for (int franja : franjas) {
+                ReentrantLock lock = locks[franja];
+                lock.lock();
+                tomados.add(lock);
+            }
+            return bloque.ejecutar();
+        } finally {
+            for (int i = tomados.size() - 1; i >= 0; i--) {
+                tomados.get(i).unlock();
+            }
+        }
+    }
+
+    // Médicos y salas comparten el arreglo de locks; se desplazan para que el médico 1 y la sala 1 no choquen
+    private static int franjaMedico(Long id) {
+        return Math.floorMod(Long.hashCode(id), CANTIDAD_LOCKS);
+    }
+
+    private static int franjaSala(Long id) {
+        return Math.floorMod(Long.hashCode(id) + CANTIDAD_LOCKS / 2, CANTIDAD_LOCKS);
+    }
+}
@@ -0,0 +1,176 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.configuracion.FragmentosHospital;
+import org.example.entidades.Cita;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Implementación de {@link CitaService} sobre {@link FragmentosHospital}: cada operación se envía al servicio
+ * (por defecto un {@link CitaManagerConcurrente}) de la base del hospital de la sala, el médico o el paciente.
+ * Es thread-safe si lo son los servicios de cada fragmento.
+ *
+ * Una cita no puede unir entidades de bases distintas: si el paciente, el médico y la sala no están en el mismo
+ * fragmento, se rechaza con {@link CitaException.Motivo#OTRO}. La búsqueda de huecos libres se hace en todos los
+ * fragmentos en paralelo, y también un cambio de estado masivo sin departamento ni médico, que se confirma
+ * fragmento por fragmento (si uno falla, los anteriores ya quedaron confirmados).
+ */
+public class CitaManagerFragmentado implements CitaService {
+
+    private final FragmentosHospital fragmentos;
+    private final List<CitaService> delegados;
+
+    /**
+     * Usa un {@link CitaManagerConcurrente} con su {@link DisponibilidadIndex} por fragmento.
+     */
+    public CitaManagerFragmentado(FragmentosHospital fragmentos) {
+        this(fragmentos, emf -> new CitaManagerConcurrente(emf, new DisponibilidadIndex(emf)));
+    }
+
+    /**
+     * @param fabrica Crea el servicio thread-safe de cada fragmento a partir de su factory.
+     */
+    public CitaManagerFragmentado(FragmentosHospital fragmentos, Function<EntityManagerFactory, CitaService> fabrica) {
+        this.fragmentos = Objects.requireNonNull(fragmentos, "Los fragmentos no pueden ser nulos.");
+        Objects.requireNonNull(fabrica, "La fábrica de servicios no puede ser nula.");
+        List<CitaService> servicios = new ArrayList<>(fragmentos.cantidad());
+        for (EntityManagerFactory emf : fragmentos.factories()) {
+            servicios.add(Objects.requireNonNull(fabrica.apply(emf), "La fábrica devolvió un servicio nulo."));
+        }
+        this.delegados = List.copyOf(servicios);
+    }
+
+    @Override
+    public Cita programarCita(Paciente paciente, Medico medico, Sala sala, LocalDateTime fechaHora, BigDecimal costo, String observaciones) throws CitaException {
+        return delegados.get(indiceComun(paciente, medico, sala)).programarCita(paciente, medico, sala, fechaHora, costo, observaciones);
+    }
+
+    /**
+     * Las solicitudes se agrupan por fragmento y cada grupo se programa en su base, en paralelo y en su propia
+     * transacción; el orden de prioridad se respeta dentro de cada grupo.
+     */
+    @Override
+    public List<ResultadoSolicitud> programarCitas(List<SolicitudCita> solicitudes) {
+        if (solicitudes == null || solicitudes.isEmpty()) return List.of();
+        ResultadoSolicitud[] resultados = new ResultadoSolicitud[solicitudes.size()];
+        List<List<Integer>> posiciones = new ArrayList<>(fragmentos.cantidad());
+        for (int i = 0; i < fragmentos.cantidad(); i++) posiciones.add(new ArrayList<>());
+        for (int i = 0; i < solicitudes.size(); i++) {
+            SolicitudCita s = solicitudes.get(i);
+            try {
+                posiciones.get(indiceComun(s.paciente(), s.medico(), s.sala())).add(i);
+            } catch (CitaException e) {
+                resultados[i] = ResultadoSolicitud.rechazada(s, e);
+            }
+        }
+        List<List<ResultadoSolicitud>> porFragmento = fragmentos.enCadaFragmento(indice -> {
+            List<Integer> grupo = posiciones.get(indice);
+            if (grupo.isEmpty()) return List.of();
+            List<SolicitudCita> lote = new ArrayList<>(grupo.size());
+            grupo.forEach(i -> lote.add(solicitudes.get(i)));
+            return delegados.get(indice).programarCitas(lote);
+        });
+        // Cada resultado vuelve a la posición de su solicitud
+        for (int f = 0; f < porFragmento.size(); f++) {
+            List<ResultadoSolicitud> parcial = porFragmento.get(f);
+            for (int j = 0; j < parcial.size(); j++) {
+                resultados[posiciones.get(f).get(j)] = parcial.get(j);
+            }
+        }
+        return Arrays.asList(resultados);
+    }
+
+    @Override
+    public int cambiarEstadoMasivo(EstadoCita actual, EstadoCita nuevo, FiltroCitas filtro) throws CitaException {
+        if (filtro != null && filtro.medico() != null) {
+            return delegados.get(fragmentos.indiceDe(filtro.medico())).cambiarEstadoMasivo(actual, nuevo, filtro);
+        }
+        if (filtro != null && filtro.departamento() != null) {
+            return delegados.get(fragmentos.indiceDe(filtro.departamento())).cambiarEstadoMasivo(actual, nuevo, filtro);
+        }
+        int cambiadas = 0;
+        for (CitaService delegado : delegados) {
+            cambiadas += delegado.cambiarEstadoMasivo(actual, nuevo, filtro);
+        }
+        return cambiadas;
+    }
+
+    /**
+     * Los huecos de todos los fragmentos se ordenan por fecha; en un mismo horario, por fragmento, médico y sala.
+     */
+    @Override
+    public List<HuecoLibre> buscarHuecosLibres(EspecialidadMedica especialidad, LocalDateTime desde, LocalDateTime hasta, int limite) {
+        List<HuecoLibre> huecos = new ArrayList<>();
+        fragmentos.enCadaFragmento(indice -> delegados.get(indice).buscarHuecosLibres(especialidad, desde, hasta, limite))
+                .forEach(huecos::addAll);
+        // Orden estable: dentro de cada fragmento los huecos ya vienen ordenados por fecha, médico y sala
+        huecos.sort(Comparator.comparing(HuecoLibre::fechaHora));
+        return List.copyOf(huecos.subList(0, Math.min(limite, huecos.size())));
+    }
+
+    @Override
+    public List<Cita> getCitasPorPaciente(Paciente paciente) {
+        return delegados.get(fragmentos.indiceDe(paciente)).getCitasPorPaciente(paciente);
+    }
+
+    @Override
+    public List<Cita> getCitasPorMedico(Medico medico) {
+        return delegados.get(fragmentos.indiceDe(medico)).getCitasPorMedico(medico);
+    }
+
+    @Override
+    public List<CitaResumen> getResumenCitasPorPaciente(Paciente paciente) {
+        return delegados.get(fragmentos.indiceDe(paciente)).getResumenCitasPorPaciente(paciente);
+    }
+
+    @Override
+    public List<CitaResumen> getResumenCitasPorMedico(Medico medico) {
+        return delegados.get(fragmentos.indiceDe(medico)).getResumenCitasPorMedico(medico);
+    }
+
+    @Override
+    public Pagina<Cita> getCitasPorPaciente(Paciente paciente, LocalDateTime desde, LocalDateTime hasta, CursorCita cursor, int tamanio) {
+        return delegados.get(fragmentos.indiceDe(paciente)).getCitasPorPaciente(paciente, desde, hasta, cursor, tamanio);
+    }
+
+    @Override
+    public Pagina<Cita> getCitasPorMedico(Medico medico, LocalDateTime desde, LocalDateTime hasta, CursorCita cursor, int tamanio) {
+        return delegados.get(fragmentos.indiceDe(medico)).getCitasPorMedico(medico, desde, hasta, cursor, tamanio);
+    }
+
+    @Override
+    public Stream<Cita> streamCitasPorPaciente(Paciente paciente, LocalDateTime desde, LocalDateTime hasta) {
+        return delegados.get(fragmentos.indiceDe(paciente)).streamCitasPorPaciente(paciente, desde, hasta);
+    }
+
+    @Override
+    public Stream<Cita> streamCitasPorMedico(Medico medico, LocalDateTime desde, LocalDateTime hasta) {
+        return delegados.get(fragmentos.indiceDe(medico)).streamCitasPorMedico(medico, desde, hasta);
+    }
+
+    /**
+     * Fragmento de la cita: el de la sala, que debe ser también el del médico y el del paciente.
+     */
+    private int indiceComun(Paciente paciente, Medico medico, Sala sala) throws CitaException {
+        int indice = fragmentos.indiceDe(sala);
+        if (fragmentos.indiceDe(medico) != indice || fragmentos.indiceDe(paciente) != indice) {
+            throw new CitaException(CitaException.Motivo.OTRO,
+                    "El paciente, el médico y la sala deben estar registrados en hospitales de la misma base.");
+        }
+        return indice;
+    }
+}
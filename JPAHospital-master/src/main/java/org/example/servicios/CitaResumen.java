@@ -0,0 +1,14 @@
+package org.example.servicios;
+
+import org.example.entidades.EstadoCita;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Vista de solo lectura de una cita para agendas e historiales.
+ * Se construye directamente desde la consulta JPQL, sin cargar las entidades asociadas.
+ */
+public record CitaResumen(Long id, LocalDateTime fechaHora, EstadoCita estado, BigDecimal costo,
+                          String medico, String sala, String paciente) {
+}
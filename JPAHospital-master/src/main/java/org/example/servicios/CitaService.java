@@ -1,6 +1,8 @@
 package org.example.servicios;
 
 import org.example.entidades.Cita;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.EstadoCita;
 import org.example.entidades.Medico;
 import org.example.entidades.Paciente;
 import org.example.entidades.Sala;
@@ -8,6 +10,7 @@ import org.example.entidades.Sala;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Interfaz que define las operaciones de negocio para la gestión de citas médicas.
@@ -16,6 +19,7 @@ public interface CitaService {
 
     /**
      * Programa una nueva cita médica aplicando todas las reglas de negocio.
+     * Para el búfer de 2 horas solo cuentan las citas en estados de {@link EstadoCita#BLOQUEANTES}.
      *
      * @param paciente  El paciente para la cita.
      * @param medico    El médico asignado.
@@ -27,6 +31,47 @@ public interface CitaService {
      */
     Cita programarCita(Paciente paciente, Medico medico, Sala sala, LocalDateTime fechaHora, BigDecimal costo, String observaciones) throws CitaException;
 
+    /**
+     * Programa un lote de citas en una sola pasada.
+     * Los choques se detectan en memoria, tanto contra las citas existentes como entre las del propio lote,
+     * y las citas aceptadas se persisten en la transacción activa usando inserciones JDBC por lotes.
+     *
+     * @param solicitudes Las citas a programar, en orden de prioridad.
+     * @return Un resultado por solicitud, en el mismo orden: la cita persistida o el motivo del rechazo.
+     */
+    List<ResultadoSolicitud> programarCitas(List<SolicitudCita> solicitudes);
+
+    /**
+     * Cambia de estado, con una única sentencia UPDATE, todas las citas en estado {@code actual} que cumplen el filtro
+     * (por ejemplo, al cierre del día, las PROGRAMADA anteriores a hoy pasan a NO_ASISTIO).
+     * Las citas afectadas que ya estaban cargadas se refrescan y se avisa a los observadores de {@link EventosCita}.
+     * Si el historial de cambios está activo, cada cita cambiada deja su {@link org.example.entidades.CambioCita}; las
+     * citas del filtro se bloquean antes de escribirlo y solo cambian las que quedaron registradas.
+     *
+     * @param actual El estado de las citas a cambiar.
+     * @param nuevo  El estado nuevo.
+     * @param filtro Rango de fechas, departamento y médico; null o {@link FiltroCitas#TODAS} para no acotar.
+     * @return La cantidad de citas que cambiaron.
+     * @throws CitaException si la transición de estado no es válida, o si otra transacción agregó citas al filtro
+     *                       mientras se registraban sus cambios (CONFLICTO_CONCURRENTE; no se cambió ninguna cita,
+     *                       pero el historial ya escrito se descarta revirtiendo la transacción).
+     */
+    int cambiarEstadoMasivo(EstadoCita actual, EstadoCita nuevo, FiltroCitas filtro) throws CitaException;
+
+    /**
+     * Busca los primeros horarios libres para una especialidad, combinando cada médico con las salas de su departamento.
+     * Las citas del período se leen en una sola consulta y los huecos se calculan en memoria.
+     * Los horarios se ofrecen cada 15 minutos y, para un mismo médico, separados por el búfer de 2 horas.
+     * Los horarios de las citas canceladas o con inasistencia se consideran libres.
+     *
+     * @param especialidad La especialidad buscada.
+     * @param desde        Fecha mínima (inclusive); si es pasada se usa el momento actual.
+     * @param hasta        Fecha máxima (inclusive).
+     * @param limite       Cantidad máxima de huecos a devolver.
+     * @return Los huecos ordenados por fecha, luego por médico y por sala.
+     */
+    List<HuecoLibre> buscarHuecosLibres(EspecialidadMedica especialidad, LocalDateTime desde, LocalDateTime hasta, int limite);
+
     /**
      * Obtiene todas las citas programadas para un paciente específico.
      *
@@ -42,4 +87,60 @@ public interface CitaService {
      * @return Una lista inmutable de sus citas.
      */
     List<Cita> getCitasPorMedico(Medico medico);
+
+    /**
+     * Obtiene el resumen de las citas de un paciente, de la más reciente a la más antigua,
+     * con una única consulta sin importar la cantidad de resultados.
+     *
+     * @param paciente El paciente a consultar.
+     * @return Una lista inmutable de resúmenes.
+     */
+    List<CitaResumen> getResumenCitasPorPaciente(Paciente paciente);
+
+    /**
+     * Obtiene el resumen de las citas de un médico, de la más antigua a la más reciente,
+     * con una única consulta sin importar la cantidad de resultados.
+     *
+     * @param medico El médico a consultar.
+     * @return Una lista inmutable de resúmenes.
+     */
+    List<CitaResumen> getResumenCitasPorMedico(Medico medico);
+
+    /**
+     * Obtiene una página de las citas de un paciente, de la más reciente a la más antigua.
+     *
+     * @param paciente El paciente a consultar.
+     * @param desde    Fecha mínima (inclusive), o null para no acotar.
+     * @param hasta    Fecha máxima (inclusive), o null para no acotar.
+     * @param cursor   El cursor devuelto por la página anterior, o null para la primera página.
+     * @param tamanio  Cantidad máxima de citas por página.
+     * @return La página pedida y el cursor de la siguiente.
+     */
+    Pagina<Cita> getCitasPorPaciente(Paciente paciente, LocalDateTime desde, LocalDateTime hasta, CursorCita cursor, int tamanio);
+
+    /**
+     * Obtiene una página de las citas de un médico, de la más antigua a la más reciente.
+     *
+     * @param medico  El médico a consultar.
+     * @param desde   Fecha mínima (inclusive), o null para no acotar.
+     * @param hasta   Fecha máxima (inclusive), o null para no acotar.
+     * @param cursor  El cursor devuelto por la página anterior, o null para la primera página.
+     * @param tamanio Cantidad máxima de citas por página.
+     * @return La página pedida y el cursor de la siguiente.
+     */
+    Pagina<Cita> getCitasPorMedico(Medico medico, LocalDateTime desde, LocalDateTime hasta, CursorCita cursor, int tamanio);
+
+    /**
+     * Recorre las citas de un paciente con el mismo orden que {@link #getCitasPorPaciente(Paciente)},
+     * usando memoria constante. Las citas se leen en una sesión aparte, de solo lectura, que se limpia
+     * periódicamente: no quedan gestionadas por el EntityManager y sus cambios no se guardan. El stream debe cerrarse.
+     */
+    Stream<Cita> streamCitasPorPaciente(Paciente paciente, LocalDateTime desde, LocalDateTime hasta);
+
+    /**
+     * Recorre las citas de un médico con el mismo orden que {@link #getCitasPorMedico(Medico)},
+     * usando memoria constante. Las citas se leen en una sesión aparte, de solo lectura, que se limpia
+     * periódicamente: no quedan gestionadas por el EntityManager y sus cambios no se guardan. El stream debe cerrarse.
+     */
+    Stream<Cita> streamCitasPorMedico(Medico medico, LocalDateTime desde, LocalDateTime hasta);
 }
\ No newline at end of file
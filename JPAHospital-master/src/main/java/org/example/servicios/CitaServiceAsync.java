@@ -0,0 +1,82 @@
+package org.example.servicios;
+
+import org.example.entidades.Cita;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Variante asíncrona de {@link CitaService}: cada operación se ejecuta en otro hilo, con su propio
+ * EntityManager, y devuelve un CompletableFuture sin bloquear al llamador.
+ *
+ * Si ya hay demasiadas operaciones en curso, el futuro se completa de inmediato con una
+ * {@link RejectedExecutionException}; el llamador decide si reintenta o responde "ocupado".
+ * Los errores de negocio completan el futuro con {@link CitaException}.
+ * Los recorridos con Stream de {@link CitaService} no tienen equivalente: se usan las páginas.
+ */
+public interface CitaServiceAsync extends AutoCloseable {
+
+    /**
+     * @see CitaService#programarCita
+     */
+    CompletableFuture<Cita> programarCitaAsync(Paciente paciente, Medico medico, Sala sala, LocalDateTime fechaHora, BigDecimal costo, String observaciones);
+
+    /**
+     * @see CitaService#programarCitas
+     */
+    CompletableFuture<List<ResultadoSolicitud>> programarCitasAsync(List<SolicitudCita> solicitudes);
+
+    /**
+     * @see CitaService#cambiarEstadoMasivo
+     */
+    CompletableFuture<Integer> cambiarEstadoMasivoAsync(EstadoCita actual, EstadoCita nuevo, FiltroCitas filtro);
+
+    /**
+     * @see CitaService#buscarHuecosLibres
+     */
+    CompletableFuture<List<HuecoLibre>> buscarHuecosLibresAsync(EspecialidadMedica especialidad, LocalDateTime desde, LocalDateTime hasta, int limite);
+
+    /**
+     * @see CitaService#getCitasPorPaciente(Paciente)
+     */
+    CompletableFuture<List<Cita>> getCitasPorPacienteAsync(Paciente paciente);
+
+    /**
+     * @see CitaService#getCitasPorMedico(Medico)
+     */
+    CompletableFuture<List<Cita>> getCitasPorMedicoAsync(Medico medico);
+
+    /**
+     * @see CitaService#getResumenCitasPorPaciente
+     */
+    CompletableFuture<List<CitaResumen>> getResumenCitasPorPacienteAsync(Paciente paciente);
+
+    /**
+     * @see CitaService#getResumenCitasPorMedico
+     */
+    CompletableFuture<List<CitaResumen>> getResumenCitasPorMedicoAsync(Medico medico);
+
+    /**
+     * @see CitaService#getCitasPorPaciente(Paciente, LocalDateTime, LocalDateTime, CursorCita, int)
+     */
+    CompletableFuture<Pagina<Cita>> getCitasPorPacienteAsync(Paciente paciente, LocalDateTime desde, LocalDateTime hasta, CursorCita cursor, int tamanio);
+
+    /**
+     * @see CitaService#getCitasPorMedico(Medico, LocalDateTime, LocalDateTime, CursorCita, int)
+     */
+    CompletableFuture<Pagina<Cita>> getCitasPorMedicoAsync(Medico medico, LocalDateTime desde, LocalDateTime hasta, CursorCita cursor, int tamanio);
+
+    /**
+     * Deja de aceptar operaciones y espera a que terminen las que están en curso.
+     */
+    @Override
+    void close();
+}
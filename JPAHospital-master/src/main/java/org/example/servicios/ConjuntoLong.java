@@ -0,0 +1,127 @@
+package org.example.servicios;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto de valores long sin boxing: tabla hash de direccionamiento abierto con sondeo lineal.
+ * Ocupa unos 16 bytes por elemento, frente a los ~50 de un {@code HashSet<Long>}.
+ * Las modificaciones no son thread-safe; quien lo comparte debe sincronizar el acceso.
+ * Las lecturas sí pueden ser concurrentes entre sí: la copia ordenada se calcula una vez y se reutiliza
+ * hasta la próxima modificación.
+ */
+final class ConjuntoLong {
+    private static final long VACIO = Long.MIN_VALUE; // nunca es un id válido
+    private static final float CARGA_MAXIMA = 0.6f;
+
+    private long[] tabla;
+    private int tamanio;
+    private volatile long[] ordenado;
+
+    ConjuntoLong() {
+        this.tabla = nuevaTabla(16);
+    }
+
+    int tamanio() {
+        return tamanio;
+    }
+
+    boolean contiene(long valor) {
+        long[] t = tabla;
+        for (int i = posicion(valor, t.length); ; i = (i + 1) & (t.length - 1)) {
+            if (t[i] == VACIO) return false;
+            if (t[i] == valor) return true;
+        }
+    }
+
+    boolean agregar(long valor) {
+        if (valor == VACIO) throw new IllegalArgumentException("Valor no admitido: " + valor);
+        if (tamanio + 1 > tabla.length * CARGA_MAXIMA) redimensionar(tabla.length * 2);
+        int i = posicion(valor, tabla.length);
+        while (tabla[i] != VACIO) {
+            if (tabla[i] == valor) return false;
+            i = (i + 1) & (tabla.length - 1);
+        }
+        tabla[i] = valor;
+        tamanio++;
+        ordenado = null;
+        return true;
+    }
+
+    boolean quitar(long valor) {
+        int mascara = tabla.length - 1;
+        int i = posicion(valor, tabla.length);
+        while (tabla[i] != valor) {
+            if (tabla[i] == VACIO) return false;
+            i = (i + 1) & mascara;
+        }
+        // Se corren hacia atrás los elementos siguientes del mismo grupo para no dejar huecos en el sondeo
+        int hueco = i;
+        for (int j = (i + 1) & mascara; tabla[j] != VACIO; j = (j + 1) & mascara) {
+            int ideal = posicion(tabla[j], tabla.length);
+            if (((j - ideal) & mascara) >= ((j - hueco) & mascara)) {
+                tabla[hueco] = tabla[j];
+                hueco = j;
+            }
+        }
+        tabla[hueco] = VACIO;
+        tamanio--;
+        ordenado = null;
+        return true;
+    }
+
+    /**
+     * Los elementos en orden ascendente.
+     */
+    long[] aArreglo() {
+        return ordenados().clone();
+    }
+
+    /**
+     * Los elementos presentes en ambos conjuntos, en orden ascendente. Recorre el menor de los dos.
+     */
+    static long[] interseccion(ConjuntoLong a, ConjuntoLong b) {
+        ConjuntoLong menor = a.tamanio <= b.tamanio ? a : b;
+        ConjuntoLong mayor = menor == a ? b : a;
+        long[] candidatos = menor.ordenados();
+        long[] resultado = new long[candidatos.length];
+        int n = 0;
+        for (long valor : candidatos) {
+            if (mayor.contiene(valor)) resultado[n++] = valor;
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    private long[] ordenados() {
+        long[] copia = ordenado;
+        if (copia == null) {
+            copia = new long[tamanio];
+            int n = 0;
+            for (long valor : tabla) {
+                if (valor != VACIO) copia[n++] = valor;
+            }
+            Arrays.sort(copia);
+            ordenado = copia;
+        }
+        return copia;
+    }
+
+    private void redimensionar(int capacidad) {
+        long[] anterior = tabla;
+        tabla = nuevaTabla(capacidad);
+        tamanio = 0;
+        for (long valor : anterior) {
+            if (valor != VACIO) agregar(valor);
+        }
+    }
+
+    private static long[] nuevaTabla(int capacidad) {
+        long[] t = new long[capacidad];
+        Arrays.fill(t, VACIO);
+        return t;
+    }
+
+    private static int posicion(long valor, int capacidad) {
+        long h = valor * 0x9E3779B97F4A7C15L; // mezcla de Fibonacci: ids consecutivos no caen en posiciones consecutivas
+        return (int) (h ^ (h >>> 32)) & (capacidad - 1);
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.servicios;
+
+import org.example.entidades.Cita;
+
+import java.time.LocalDateTime;
+
+/**
+ * Posición de la última cita leída en un listado paginado por clave (fechaHora, id).
+ */
+public record CursorCita(LocalDateTime fechaHora, Long id) {
+
+    public static CursorCita de(Cita cita) {
+        return new CursorCita(cita.getFechaHora(), cita.getId());
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Implementación de {@link DirectorioService} con una consulta sobre el índice único de la clave.
+ * Con una {@link CacheDirectorio} la consulta solo se hace cuando la clave no está en la caché.
+ */
+public class DirectorioManager implements DirectorioService {
+    private static final String FICHA_PACIENTE = "SELECT new org.example.servicios.FichaPaciente("
+            + "p.id, p.dni, p.nombre, p.apellido, p.hospital.id) FROM Paciente p ";
+    private static final String FICHA_MEDICO = "SELECT new org.example.servicios.FichaMedico("
+            + "m.id, m.dni, m.matricula.numero, m.nombre, m.apellido, m.especialidad, m.departamento.id) FROM Medico m ";
+
+    private final EntityManager em;
+    private final CacheDirectorio cache;
+
+    public DirectorioManager(EntityManager em) {
+        this(em, null);
+    }
+
+    /**
+     * @param cache Caché compartida por todos los EntityManager de la factory; si es null se consulta siempre.
+     */
+    public DirectorioManager(EntityManager em, CacheDirectorio cache) {
+        this.em = Objects.requireNonNull(em, "El EntityManager no puede ser nulo.");
+        this.cache = cache;
+    }
+
+    @Override
+    public Optional<FichaPaciente> buscarPacientePorDni(String dni) {
+        Objects.requireNonNull(dni, "El DNI no puede ser nulo.");
+        return buscar(CacheDirectorio.Clave.PACIENTE_DNI, dni, FichaPaciente.class, FICHA_PACIENTE + "WHERE p.dni = :valor");
+    }
+
+    @Override
+    public Optional<FichaMedico> buscarMedicoPorDni(String dni) {
+        Objects.requireNonNull(dni, "El DNI no puede ser nulo.");
+        return buscar(CacheDirectorio.Clave.MEDICO_DNI, dni, FichaMedico.class, FICHA_MEDICO + "WHERE m.dni = :valor");
+    }
+
+    @Override
+    public Optional<FichaMedico> buscarMedicoPorMatricula(String numero) {
+        Objects.requireNonNull(numero, "El número de matrícula no puede ser nulo.");
+        return buscar(CacheDirectorio.Clave.MEDICO_MATRICULA, numero, FichaMedico.class, FICHA_MEDICO + "WHERE m.matricula.numero = :valor");
+    }
+
+    private <T> Optional<T> buscar(CacheDirectorio.Clave clave, String valor, Class<T> tipo, String consulta) {
+        if (cache == null) return Optional.ofNullable(consultar(tipo, consulta, valor));
+        return Optional.ofNullable(cache.obtener(clave, valor, tipo, () -> consultar(tipo, consulta, valor)));
+    }
+
+    private <T> T consultar(Class<T> tipo, String consulta, String valor) {
+        List<T> fichas = em.createQuery(consulta, tipo).setParameter("valor", valor).getResultList();
+        return fichas.isEmpty() ? null : fichas.get(0);
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.servicios;
+
+import java.util.Optional;
+
+/**
+ * Interfaz para identificar personas por sus claves de negocio: el DNI de pacientes y médicos
+ * y el número de matrícula de los médicos. Cada búsqueda usa el índice único de la columna y devuelve
+ * una ficha de solo lectura; la entidad, si hace falta, se carga después por id.
+ */
+public interface DirectorioService {
+
+    /**
+     * @param dni El DNI del paciente.
+     * @return La ficha del paciente, o vacío si no hay ninguno con ese DNI.
+     */
+    Optional<FichaPaciente> buscarPacientePorDni(String dni);
+
+    /**
+     * @param dni El DNI del médico.
+     * @return La ficha del médico, o vacío si no hay ninguno con ese DNI.
+     */
+    Optional<FichaMedico> buscarMedicoPorDni(String dni);
+
+    /**
+     * @param numero El número de matrícula, por ejemplo "MP-12345".
+     * @return La ficha del médico, o vacío si no hay ninguno con esa matrícula.
+     */
+    Optional<FichaMedico> buscarMedicoPorMatricula(String numero);
+}
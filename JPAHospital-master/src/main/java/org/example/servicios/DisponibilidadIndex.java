@@ -0,0 +1,385 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.TypedQuery;
+import org.example.entidades.EstadoCita;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Índice en memoria de la ocupación de cada médico y cada sala.
+ * Permite validar el búfer de 2 horas en O(log n) sin consultar la base de datos.
+ * Solo guarda las citas en estados que bloquean el horario ({@link EstadoCita#BLOQUEANTES}): al cancelarse
+ * una cita su horario queda libre.
+ *
+ * Se carga completo al crearse y se mantiene al día con los eventos de {@link EventosCita}, que llegan recién
+ * cuando la transacción confirma: una reserva revertida nunca entra al índice y otros hilos no ven reservas sin
+ * confirmar. Cada cita del índice recuerda su médico, sala y horario, de modo que una actualización o un borrado
+ * quita la entrada anterior aunque Hibernate no entregue el estado previo, y un cambio de estado masivo relee solo
+ * las citas de su filtro. Una consulta que coincide con la confirmación de una reserva del mismo médico o sala espera
+ * a que termine; si no termina a tiempo, la consulta cuenta las citas en la base.
+ * Las citas que la propia transacción ya envió a la base se cuentan aparte, con {@link #esMedicoDisponible(EntityManager, Long, LocalDateTime)}.
+ * Los horarios se guardan con precisión de minuto, por lo que en el borde exacto del búfer
+ * el índice es algo más conservador que la consulta JPQL.
+ * Si la base se modifica por fuera de Hibernate, el índice debe refrescarse con {@link #reconstruir()};
+ * {@link EventosCita#invalidar()} lo reconstruye en segundo plano y, mientras tanto, las consultas van a la base.
+ * Las citas que reservan otros procesos tampoco llegan al índice, por lo que validar reservas con él solo es seguro
+ * si un único proceso escribe las citas.
+ */
+public class DisponibilidadIndex implements ObservadorCitas {
+    static final long BUFER_MINUTOS = 120;
+    private static final Logger LOG = LoggerFactory.getLogger(DisponibilidadIndex.class);
+    private static final long PAUSA_REINTENTO_MILLIS = 1000;
+    private static final String CITAS_BLOQUEANTES = "SELECT c.id, c.medico.id, c.sala.id, c.fechaHora FROM Cita c"
+            + " WHERE c.estado IN :bloqueantes";
+
+    private final EntityManagerFactory emf;
+    private final EventosCita eventos;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, AgendaOrdenada> agendasMedicos = new HashMap<>();
+    private Map<Long, AgendaOrdenada> agendasSalas = new HashMap<>();
+    // Dónde está cada cita del índice, para quitarla sin conocer su estado anterior
+    private Map<Long, Ubicacion> ubicaciones = new HashMap<>();
+    // Mientras es true las consultas cuentan en la base: hay una reconstrucción pendiente
+    private volatile boolean desactualizado;
+    private final AtomicLong solicitudes = new AtomicLong();
+    private final AtomicBoolean reconstruyendo = new AtomicBoolean();
+
+    public DisponibilidadIndex(EntityManagerFactory emf) {
+        this.emf = Objects.requireNonNull(emf, "La EntityManagerFactory no puede ser nula.");
+        this.eventos = EventosCita.de(emf);
+        eventos.suscribir(this);
+        reconstruir();
+    }
+
+    public boolean esMedicoDisponible(Long medicoId, LocalDateTime fechaHora) {
+        return estaLibre(null, true, medicoId, fechaHora, List.of());
+    }
+
+    public boolean esSalaDisponible(Long salaId, LocalDateTime fechaHora) {
+        return estaLibre(null, false, salaId, fechaHora, List.of());
+    }
+
+    /**
+     * Como {@link #esMedicoDisponible(Long, LocalDateTime)}, contando además las citas que la transacción del
+     * EntityManager ya envió a la base y todavía no confirmó.
+     */
+    boolean esMedicoDisponible(EntityManager em, Long medicoId, LocalDateTime fechaHora) {
+        return estaLibre(em, true, medicoId, fechaHora, eventos.pendientes(em));
+    }
+
+    /**
+     * Como {@link #esSalaDisponible(Long, LocalDateTime)}, contando además las citas que la transacción del
+     * EntityManager ya envió a la base y todavía no confirmó.
+     */
+    boolean esSalaDisponible(EntityManager em, Long salaId, LocalDateTime fechaHora) {
+        return estaLibre(em, false, salaId, fechaHora, eventos.pendientes(em));
+    }
+
+    /**
+     * Descarta el índice y lo vuelve a cargar completo desde la base de datos.
+     *
+     * @throws IllegalStateException si una confirmación en curso no terminó a tiempo ({@link EventosCita#recargar}).
+     */
+    public void reconstruir() {
+        long solicitud = solicitudes.get();
+        eventos.recargar(() -> cargarTodo(solicitud));
+    }
+
+    /**
+     * Reconstruye el índice en un hilo aparte. Hasta que termina, las consultas cuentan las citas en la base.
+     * Las solicitudes que llegan durante una reconstrucción se atienden con una sola reconstrucción más.
+     */
+    public void reconstruirEnSegundoPlano() {
+        desactualizado = true;
+        solicitudes.incrementAndGet();
+        if (!reconstruyendo.compareAndSet(false, true)) return;
+        Thread hilo = new Thread(this::atenderSolicitudes, "disponibilidad-reconstruccion");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Indica si el índice tiene una reconstrucción pendiente y las consultas van a la base.
+     */
+    public boolean isDesactualizado() {
+        return desactualizado;
+    }
+
+    private void atenderSolicitudes() {
+        do {
+            try {
+                while (desactualizado) {
+                    try {
+                        reconstruir();
+                    } catch (RuntimeException e) {
+                        LOG.warn("No se pudo reconstruir el índice de disponibilidad; se reintenta: {}", e.getMessage());
+                        TimeUnit.MILLISECONDS.sleep(PAUSA_REINTENTO_MILLIS);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                reconstruyendo.set(false);
+            }
+            // Una solicitud que llegó justo al terminar no encontró un hilo activo
+        } while (desactualizado && reconstruyendo.compareAndSet(false, true));
+    }
+
+    /**
+     * @param solicitud Solicitudes de reconstrucción vistas antes de empezar; si llegan otras durante la carga, el
+     *                  índice sigue desactualizado.
+     */
+    private void cargarTodo(long solicitud) {
+        lock.writeLock().lock();
+        try {
+            Map<Long, AgendaOrdenada> medicos = new HashMap<>();
+            Map<Long, AgendaOrdenada> salas = new HashMap<>();
+            Map<Long, Ubicacion> citas = new HashMap<>();
+            EntityManager em = emf.createEntityManager();
+            try (Stream<Object[]> filas = em.createQuery(CITAS_BLOQUEANTES + " ORDER BY c.fechaHora", Object[].class)
+                    .setParameter("bloqueantes", EstadoCita.BLOQUEANTES)
+                    .getResultStream()) {
+                filas.forEach(fila -> {
+                    Ubicacion ubicacion = Ubicacion.de(fila);
+                    citas.put((Long) fila[0], ubicacion);
+                    agregar(medicos, ubicacion.medicoId(), ubicacion.minuto());
+                    agregar(salas, ubicacion.salaId(), ubicacion.minuto());
+                });
+            } finally {
+                em.close();
+            }
+            this.agendasMedicos = medicos;
+            this.agendasSalas = salas;
+            this.ubicaciones = citas;
+            if (solicitudes.get() == solicitud) desactualizado = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Recarga desde la base de datos únicamente las citas de un médico.
+     */
+    public void refrescarMedico(Long medicoId) {
+        refrescar("c.medico.id", medicoId, Ubicacion::medicoId);
+    }
+
+    /**
+     * Recarga desde la base de datos únicamente las citas de una sala.
+     */
+    public void refrescarSala(Long salaId) {
+        refrescar("c.sala.id", salaId, Ubicacion::salaId);
+    }
+
+    @Override
+    public void alInsertar(InstantaneaCita cita) {
+        ubicar(cita);
+    }
+
+    @Override
+    public void alActualizar(InstantaneaCita anterior, InstantaneaCita actual) {
+        // La ubicación guardada reemplaza al estado anterior, que falta tras un merge
+        ubicar(actual);
+    }
+
+    @Override
+    public void alEliminar(InstantaneaCita cita) {
+        lock.writeLock().lock();
+        try {
+            registrar(cita.id(), null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Relee las citas del filtro que quedaron en el estado nuevo: las que dejaron de bloquear se quitan y las que
+     * empezaron a bloquear se agregan. Las que ya estaban en el estado nuevo no cambian el índice.
+     */
+    @Override
+    public void alCambiarEstados(EstadoCita anterior, EstadoCita nuevo, FiltroCitas filtro, int cantidad) {
+        if (cantidad == 0 || anterior.bloqueaHorario() == nuevo.bloqueaHorario()) return;
+        FiltroCitas f = filtro == null ? FiltroCitas.TODAS : filtro;
+        StringBuilder jpql = new StringBuilder("SELECT c.id, c.medico.id, c.sala.id, c.fechaHora FROM Cita c WHERE c.estado = :nuevo");
+        if (f.desde() != null) jpql.append(" AND c.fechaHora >= :desde");
+        if (f.hasta() != null) jpql.append(" AND c.fechaHora <= :hasta");
+        if (f.medico() != null) jpql.append(" AND c.medico.id = :medico");
+        if (f.departamento() != null) jpql.append(" AND c.sala.departamento.id = :departamento");
+        try {
+            eventos.recargar(() -> {
+                EntityManager em = emf.createEntityManager();
+                try {
+                    TypedQuery<Object[]> query = em.createQuery(jpql.toString(), Object[].class).setParameter("nuevo", nuevo);
+                    if (f.desde() != null) query.setParameter("desde", f.desde());
+                    if (f.hasta() != null) query.setParameter("hasta", f.hasta());
+                    if (f.medico() != null) query.setParameter("medico", f.medico().getId());
+                    if (f.departamento() != null) query.setParameter("departamento", f.departamento().getId());
+                    List<Object[]> filas = query.getResultList();
+                    lock.writeLock().lock();
+                    try {
+                        for (Object[] fila : filas) {
+                            registrar((Long) fila[0], nuevo.bloqueaHorario() ? Ubicacion.de(fila) : null);
+                        }
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                } finally {
+                    em.close();
+                }
+            });
+        } catch (RuntimeException e) {
+            // Se invoca al terminar la transacción del cambio masivo, que ya confirmó: no se le puede devolver el error
+            LOG.warn("No se pudo aplicar un cambio de estado masivo al índice de disponibilidad: {}", e.getMessage());
+            reconstruirEnSegundoPlano();
+        }
+    }
+
+    @Override
+    public void alInvalidar() {
+        reconstruirEnSegundoPlano();
+    }
+
+    /**
+     * @param em      EntityManager de la transacción que consulta, o null.
+     * @param propios Cambios de la transacción que consulta, que el índice todavía no tiene.
+     */
+    private boolean estaLibre(EntityManager em, boolean esMedico, Long id, LocalDateTime fechaHora, List<EventosCita.Cambio> propios) {
+        if (id == null) return true; // Un recurso aún no persistido no tiene citas
+        long minuto = AgendaOrdenada.aMinutos(fechaHora);
+        long desde = minuto - BUFER_MINUTOS;
+        long hasta = minuto + BUFER_MINUTOS;
+        Predicate<InstantaneaCita> ocupa = cita -> cita != null && cita.bloqueaHorario()
+                && id.equals(esMedico ? cita.medicoId() : cita.salaId())
+                && AgendaOrdenada.aMinutos(cita.fechaHora()) >= desde && AgendaOrdenada.aMinutos(cita.fechaHora()) <= hasta;
+        // Una reserva que está confirmando se espera; si no termina a tiempo se cuenta en la base
+        if (desactualizado || !eventos.esperarConfirmaciones(ocupa)) {
+            return contarEnBase(em, esMedico, id, fechaHora) == 0;
+        }
+        int ocupadas;
+        lock.readLock().lock();
+        try {
+            AgendaOrdenada agenda = (esMedico ? agendasMedicos : agendasSalas).get(id);
+            ocupadas = agenda == null ? 0 : agenda.contarEntre(desde, hasta);
+        } finally {
+            lock.readLock().unlock();
+        }
+        // El índice tiene el estado confirmado de las citas que la transacción cambió
+        for (EventosCita.Cambio cambio : propios) {
+            if (ocupa.test(cambio.anterior())) ocupadas--;
+            if (ocupa.test(cambio.actual())) ocupadas++;
+        }
+        return ocupadas <= 0;
+    }
+
+    /**
+     * La consulta que {@link CitaManager} usa sin índice. Con el EntityManager de la transacción ve también sus
+     * propias citas; sin él abre uno.
+     */
+    private long contarEnBase(EntityManager em, boolean esMedico, Long id, LocalDateTime fechaHora) {
+        EntityManager consulta = em != null ? em : emf.createEntityManager();
+        try {
+            return consulta.createQuery("SELECT COUNT(c) FROM Cita c WHERE c." + (esMedico ? "medico" : "sala")
+                            + ".id = :id AND c.fechaHora BETWEEN :inicio AND :fin AND c.estado IN :bloqueantes", Long.class)
+                    .setParameter("id", id)
+                    .setParameter("inicio", fechaHora.minusMinutes(BUFER_MINUTOS))
+                    .setParameter("fin", fechaHora.plusMinutes(BUFER_MINUTOS))
+                    .setParameter("bloqueantes", EstadoCita.BLOQUEANTES)
+                    .getSingleResult();
+        } finally {
+            if (em == null) consulta.close();
+        }
+    }
+
+    /**
+     * Quita las citas del recurso y vuelve a cargar las que tiene en la base, con su médico y su sala.
+     */
+    private void refrescar(String atributo, Long id, Function<Ubicacion, Long> recurso) {
+        eventos.recargar(() -> {
+            List<Object[]> filas;
+            EntityManager em = emf.createEntityManager();
+            try {
+                filas = em.createQuery(CITAS_BLOQUEANTES + " AND " + atributo + " = :id", Object[].class)
+                        .setParameter("bloqueantes", EstadoCita.BLOQUEANTES)
+                        .setParameter("id", id)
+                        .getResultList();
+            } finally {
+                em.close();
+            }
+            lock.writeLock().lock();
+            try {
+                List<Long> anteriores = ubicaciones.entrySet().stream()
+                        .filter(e -> id.equals(recurso.apply(e.getValue())))
+                        .map(Map.Entry::getKey)
+                        .toList();
+                anteriores.forEach(cita -> registrar(cita, null));
+                filas.forEach(fila -> registrar((Long) fila[0], Ubicacion.de(fila)));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private void ubicar(InstantaneaCita cita) {
+        lock.writeLock().lock();
+        try {
+            registrar(cita.id(), cita.bloqueaHorario() ? Ubicacion.de(cita) : null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reemplaza la ubicación de la cita en el índice; null la quita. Con {@link #lock} de escritura tomado.
+     */
+    private void registrar(Long citaId, Ubicacion ubicacion) {
+        Ubicacion previa = citaId == null ? null
+                : ubicacion == null ? ubicaciones.remove(citaId) : ubicaciones.put(citaId, ubicacion);
+        if (previa != null) {
+            quitar(agendasMedicos, previa.medicoId(), previa.minuto());
+            quitar(agendasSalas, previa.salaId(), previa.minuto());
+        }
+        if (ubicacion != null) {
+            agregar(agendasMedicos, ubicacion.medicoId(), ubicacion.minuto());
+            agregar(agendasSalas, ubicacion.salaId(), ubicacion.minuto());
+        }
+    }
+
+    private static void agregar(Map<Long, AgendaOrdenada> agendas, Long id, long minuto) {
+        if (id == null) return;
+        agendas.computeIfAbsent(id, k -> new AgendaOrdenada()).agregar(minuto);
+    }
+
+    private static void quitar(Map<Long, AgendaOrdenada> agendas, Long id, long minuto) {
+        if (id == null) return;
+        AgendaOrdenada agenda = agendas.get(id);
+        if (agenda != null) agenda.quitar(minuto);
+    }
+
+    private record Ubicacion(Long medicoId, Long salaId, long minuto) {
+        static Ubicacion de(InstantaneaCita cita) {
+            return new Ubicacion(cita.medicoId(), cita.salaId(), AgendaOrdenada.aMinutos(cita.fechaHora()));
+        }
+
+        /** Fila de id, médico, sala y fecha. */
+        static Ubicacion de(Object[] fila) {
+            return new Ubicacion((Long) fila[1], (Long) fila[2], AgendaOrdenada.aMinutos((LocalDateTime) fila[3]));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Lectura en tiempo de ejecución de los aciertos y fallos de la caché de segundo nivel y de la caché de consultas.
+ * Requiere {@code hibernate.generate_statistics=true}.
+ */
+public final class EstadisticasCache {
+
+    /**
+     * Contadores acumulados de una región de caché. {@code elementosEnMemoria} es -1 si el proveedor no lo informa.
+     */
+    public record Region(String nombre, long aciertos, long fallos, long inserciones, long elementosEnMemoria) {
+        public double tasaAciertos() {
+            long total = aciertos + fallos;
+            return total == 0 ? 0.0 : (double) aciertos / total;
+        }
+    }
+
+    private EstadisticasCache() {
+    }
+
+    public static List<Region> regiones(EntityManagerFactory emf) {
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        return Arrays.stream(stats.getSecondLevelCacheRegionNames())
+                .sorted()
+                .map(nombre -> {
+                    CacheRegionStatistics region = stats.getCacheRegionStatistics(nombre);
+                    if (region == null) return null;
+                    return new Region(nombre, region.getHitCount(), region.getMissCount(),
+                            region.getPutCount(), Math.max(-1, region.getElementCountInMemory()));
+                })
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    public static Region consultas(EntityManagerFactory emf) {
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        return new Region("consultas", stats.getQueryCacheHitCount(), stats.getQueryCacheMissCount(),
+                stats.getQueryCachePutCount(), -1);
+    }
+
+    /**
+     * Cantidad de sentencias JDBC preparadas desde el último {@link #reiniciar(EntityManagerFactory)}.
+     */
+    public static long sentencias(EntityManagerFactory emf) {
+        return emf.unwrap(SessionFactory.class).getStatistics().getPrepareStatementCount();
+    }
+
+    public static void reiniciar(EntityManagerFactory emf) {
+        emf.unwrap(SessionFactory.class).getStatistics().clear();
+    }
+}
@@ -0,0 +1,316 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.entidades.Cita;
+import org.example.entidades.EstadoCita;
+import org.hibernate.SessionFactory;
+import org.hibernate.SessionFactoryObserver;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Publica a los {@link ObservadorCitas} suscritos cada inserción, actualización y borrado de {@link Cita}
+ * realizado a través de una misma EntityManagerFactory.
+ * Existe una única instancia por factory; los listeners de Hibernate se registran una sola vez y la instancia
+ * se descarta al cerrar la factory.
+ *
+ * Los cambios se juntan por transacción a medida que Hibernate hace flush y se entregan a los observadores solo
+ * si la transacción confirma; los de una transacción revertida se descartan. Mientras una transacción confirma,
+ * las recargas completas ({@link #recargar}) y las consultas que dependen de sus cambios ({@link #esperarConfirmaciones})
+ * esperan a que termine, para no contar una cita dos veces ni ignorar una ya confirmada.
+ */
+public final class EventosCita implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+    /** Tope de espera por una confirmación en curso; si se supera, quien espera decide cómo seguir. */
+    private static final long ESPERA_MAXIMA_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private static final Map<SessionFactoryImplementor, EventosCita> INSTANCIAS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final List<ObservadorCitas> observadores = new CopyOnWriteArrayList<>();
+    /** Cambios ya enviados a la base y todavía sin confirmar, por sesión. */
+    private final Map<SharedSessionContractImplementor, Transaccion> abiertas = Collections.synchronizedMap(new WeakHashMap<>());
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition terminada = lock.newCondition();
+    /** Transacciones entre el inicio de la confirmación y la entrega de sus cambios; protegido por {@link #lock}. */
+    private final Set<Transaccion> confirmando = new HashSet<>();
+    private volatile int cantidadConfirmando;
+    private int recargas;
+
+    private EventosCita() {
+    }
+
+    /**
+     * Obtiene (o crea y registra) el publicador de eventos asociado a la factory.
+     */
+    public static EventosCita de(EntityManagerFactory emf) {
+        SessionFactoryImplementor sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+        return INSTANCIAS.computeIfAbsent(sessionFactory, sf -> {
+            EventosCita eventos = new EventosCita();
+            EventListenerRegistry registro = sf.getServiceRegistry().getService(EventListenerRegistry.class);
+            registro.appendListeners(EventType.POST_INSERT, eventos);
+            registro.appendListeners(EventType.POST_UPDATE, eventos);
+            registro.appendListeners(EventType.POST_DELETE, eventos);
+            // Los observadores retienen la factory, que es la clave: sin esto la entrada no se liberaría nunca
+            sf.addObserver(new SessionFactoryObserver() {
+                @Override
+                public void sessionFactoryClosed(SessionFactory factory) {
+                    INSTANCIAS.remove(sf);
+                }
+            });
+            return eventos;
+        });
+    }
+
+    public void suscribir(ObservadorCitas observador) {
+        observadores.add(observador);
+    }
+
+    public void desuscribir(ObservadorCitas observador) {
+        observadores.remove(observador);
+    }
+
+    /**
+     * Avisa a los observadores que las citas cambiaron sin pasar por los eventos de entidad.
+     */
+    public void invalidar() {
+        observadores.forEach(ObservadorCitas::alInvalidar);
+    }
+
+    /**
+     * Avisa a los observadores que un UPDATE masivo cambió el estado de las citas que cumplen el filtro.
+     */
+    public void estadosCambiados(EstadoCita anterior, EstadoCita nuevo, FiltroCitas filtro, int cantidad) {
+        observadores.forEach(o -> o.alCambiarEstados(anterior, nuevo, filtro, cantidad));
+    }
+
+    /**
+     * Ejecuta una carga completa desde la base sin transacciones a medio entregar: espera a que terminen las que
+     * están confirmando y demora el inicio de nuevas confirmaciones hasta que la carga termina. Así la carga ve
+     * cada cita confirmada exactamente una vez, ya sea en la base o por su evento posterior.
+     *
+     * @throws IllegalStateException si alguna confirmación en curso no terminó en el tiempo máximo de espera; la
+     *                               carga no se ejecuta.
+     */
+    public void recargar(Runnable carga) {
+        lock.lock();
+        try {
+            recargas++;
+            if (!esperar(t -> true)) {
+                recargas--;
+                terminada.signalAll();
+                throw new IllegalStateException("Hay transacciones con cambios de citas que no terminaron de confirmar.");
+            }
+        } finally {
+            lock.unlock();
+        }
+        try {
+            carga.run();
+        } finally {
+            lock.lock();
+            try {
+                recargas--;
+                terminada.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Espera a que terminen de confirmar las transacciones de otros hilos con algún cambio cuyo estado nuevo cumple
+     * la condición, de modo que después de volver los observadores ya recibieron esos cambios.
+     *
+     * @return false si alguna no terminó en el tiempo máximo de espera; sus cambios se entregarán igual cuando termine.
+     */
+    boolean esperarConfirmaciones(Predicate<InstantaneaCita> condicion) {
+        if (cantidadConfirmando == 0) return true;
+        lock.lock();
+        try {
+            return esperar(t -> t.afecta(condicion));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cambios que la transacción del EntityManager ya envió a la base y que los observadores todavía no recibieron.
+     */
+    List<Cambio> pendientes(EntityManager em) {
+        Transaccion transaccion = abiertas.get(em.unwrap(SessionImplementor.class));
+        return transaccion == null ? List.of() : Collections.unmodifiableList(transaccion.cambios);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (!(event.getEntity() instanceof Cita cita) || observadores.isEmpty()) return;
+        transaccion(event.getSession()).cambios.add(new Cambio(Cambio.Tipo.INSERCION, null, InstantaneaCita.de(cita)));
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Cita cita) || observadores.isEmpty()) return;
+        InstantaneaCita anterior = event.getOldState() == null ? null
+                : InstantaneaCita.de(event.getId(), event.getPersister().getPropertyNames(), event.getOldState());
+        transaccion(event.getSession()).cambios.add(new Cambio(Cambio.Tipo.ACTUALIZACION, anterior, InstantaneaCita.de(cita)));
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (!(event.getEntity() instanceof Cita) || observadores.isEmpty()) return;
+        InstantaneaCita eliminada = InstantaneaCita.de(event.getId(), event.getPersister().getPropertyNames(), event.getDeletedState());
+        transaccion(event.getSession()).cambios.add(new Cambio(Cambio.Tipo.ELIMINACION, eliminada, null));
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    /**
+     * La transacción en curso de la sesión; la primera vez se registra para enterarse de cómo termina.
+     */
+    private Transaccion transaccion(EventSource sesion) {
+        Transaccion transaccion = abiertas.get(sesion);
+        if (transaccion != null) return transaccion;
+        Transaccion nueva = new Transaccion();
+        abiertas.put(sesion, nueva);
+        sesion.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) s -> antesDeConfirmar(nueva));
+        sesion.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (exito, s) -> alTerminar(sesion, nueva, exito));
+        return nueva;
+    }
+
+    private void antesDeConfirmar(Transaccion transaccion) {
+        boolean interrumpido = false;
+        lock.lock();
+        try {
+            // Una recarga en curso no debe ver la mitad de las confirmaciones
+            long limite = System.nanoTime() + ESPERA_MAXIMA_NANOS;
+            long restante;
+            while (recargas > 0 && (restante = limite - System.nanoTime()) > 0) {
+                try {
+                    terminada.awaitNanos(restante);
+                } catch (InterruptedException e) {
+                    interrumpido = true;
+                }
+            }
+            transaccion.hilo = Thread.currentThread();
+            confirmando.add(transaccion);
+            cantidadConfirmando = confirmando.size();
+        } finally {
+            lock.unlock();
+            if (interrumpido) Thread.currentThread().interrupt();
+        }
+    }
+
+    private void alTerminar(SharedSessionContractImplementor sesion, Transaccion transaccion, boolean exito) {
+        abiertas.remove(sesion);
+        try {
+            if (exito) {
+                for (Cambio cambio : transaccion.cambios) {
+                    observadores.forEach(cambio::entregar);
+                }
+            }
+        } finally {
+            lock.lock();
+            try {
+                confirmando.remove(transaccion);
+                cantidadConfirmando = confirmando.size();
+                terminada.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Espera, con {@link #lock} tomado, a que no quede ninguna transacción de otro hilo que cumpla la condición.
+     * Las que superan la espera máxima siguen contando como confirmando hasta que terminen de verdad: olvidarlas
+     * dejaría que una recarga o una consulta las ignore y después reciba sus cambios.
+     */
+    private boolean esperar(Predicate<Transaccion> condicion) {
+        long limite = System.nanoTime() + ESPERA_MAXIMA_NANOS;
+        boolean interrumpido = false;
+        try {
+            while (true) {
+                boolean pendientes = false;
+                for (Transaccion t : confirmando) {
+                    if (t.hilo != Thread.currentThread() && condicion.test(t)) {
+                        pendientes = true;
+                        break;
+                    }
+                }
+                if (!pendientes) return true;
+                long restante = limite - System.nanoTime();
+                if (restante <= 0) return false;
+                try {
+                    terminada.awaitNanos(restante);
+                } catch (InterruptedException e) {
+                    interrumpido = true;
+                }
+            }
+        } finally {
+            if (interrumpido) Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Un cambio de una cita enviado a la base en el flush.
+     *
+     * @param anterior El estado previo; null en una inserción o si Hibernate no lo conoce (merge de una entidad separada).
+     * @param actual   El estado nuevo; null en un borrado.
+     */
+    record Cambio(Tipo tipo, InstantaneaCita anterior, InstantaneaCita actual) {
+        enum Tipo {
+            INSERCION,
+            ACTUALIZACION,
+            ELIMINACION
+        }
+
+        void entregar(ObservadorCitas observador) {
+            switch (tipo) {
+                case INSERCION -> observador.alInsertar(actual);
+                case ACTUALIZACION -> observador.alActualizar(anterior, actual);
+                case ELIMINACION -> observador.alEliminar(anterior);
+            }
+        }
+    }
+
+    private static final class Transaccion {
+        final List<Cambio> cambios = new ArrayList<>();
+        Thread hilo;
+
+        boolean afecta(Predicate<InstantaneaCita> condicion) {
+            for (Cambio cambio : cambios) {
+                if (cambio.actual() != null && condicion.test(cambio.actual())) return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.servicios;
+
+import org.example.entidades.EspecialidadMedica;
+
+/**
+ * Datos con los que se identifica a un médico.
+ * Se construye directamente desde la consulta JPQL, sin cargar la entidad.
+ */
+public record FichaMedico(Long id, String dni, String matricula, String nombre, String apellido,
+                          EspecialidadMedica especialidad, Long departamentoId) {
+}
@@ -0,0 +1,8 @@
+package org.example.servicios;
+
+/**
+ * Datos con los que se identifica a un paciente en la recepción.
+ * Se construye directamente desde la consulta JPQL, sin cargar la entidad ni su historia clínica.
+ */
+public record FichaPaciente(Long id, String dni, String nombre, String apellido, Long hospitalId) {
+}
@@ -0,0 +1,35 @@
+package org.example.servicios;
+
+import org.example.entidades.Cita;
+import org.example.entidades.Departamento;
+import org.example.entidades.Medico;
+
+import java.time.LocalDateTime;
+
+/**
+ * Criterios para seleccionar citas en operaciones masivas. Los criterios null no se aplican.
+ *
+ * @param desde        Fecha mínima (inclusive).
+ * @param hasta        Fecha máxima (inclusive).
+ * @param departamento Departamento de la sala de la cita.
+ * @param medico       Médico de la cita.
+ */
+public record FiltroCitas(LocalDateTime desde, LocalDateTime hasta, Departamento departamento, Medico medico) {
+
+    public static final FiltroCitas TODAS = new FiltroCitas(null, null, null, null);
+
+    public static FiltroCitas anterioresA(LocalDateTime hasta) {
+        return new FiltroCitas(null, hasta, null, null);
+    }
+
+    /**
+     * Evalúa el filtro sobre una cita ya cargada, sin inicializar sus asociaciones lazy.
+     */
+    public boolean incluye(Cita cita) {
+        if (desde != null && cita.getFechaHora().isBefore(desde)) return false;
+        if (hasta != null && cita.getFechaHora().isAfter(hasta)) return false;
+        if (medico != null && (cita.getMedico() == null || !medico.getId().equals(cita.getMedico().getId()))) return false;
+        return departamento == null || (cita.getSala() != null && cita.getSala().getDepartamento() != null
+                && departamento.getId().equals(cita.getSala().getDepartamento().getId()));
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.servicios;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de valores no negativos con cubetas log-lineales, al estilo de HdrHistogram:
+ * cada potencia de dos se divide en {@value #SUBCUBETAS} cubetas, por lo que el error relativo
+ * de los percentiles es menor al 7%. Registrar un valor no toma locks ni reserva memoria.
+ */
+public final class Histograma {
+    private static final int BITS_SUBCUBETA = 4;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    // Valores hasta 2^45 (unas 9,7 horas en nanosegundos); los mayores se registran como ese máximo
+    private static final int EXPONENTE_MAXIMO = 44;
+    private static final int CUBETAS = (EXPONENTE_MAXIMO - BITS_SUBCUBETA + 2) * SUBCUBETAS;
+    private static final long VALOR_MAXIMO = (1L << (EXPONENTE_MAXIMO + 1)) - 1;
+
+    /**
+     * Resumen de los valores registrados. Los percentiles son el límite superior de su cubeta.
+     */
+    public record Resumen(long cantidad, double media, long p50, long p90, long p99, long p999, long maximo) {
+    }
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(CUBETAS);
+    private final LongAdder cantidad = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+    public void registrar(long valor) {
+        if (valor < 0) valor = 0;
+        if (valor > VALOR_MAXIMO) valor = VALOR_MAXIMO;
+        cubetas.incrementAndGet(indice(valor));
+        cantidad.increment();
+        suma.add(valor);
+        maximo.accumulate(valor);
+    }
+
+    public long getCantidad() {
+        return cantidad.sum();
+    }
+
+    /**
+     * Calcula el resumen sobre una copia de las cubetas; los valores registrados mientras tanto pueden quedar
+     * contados solo en parte.
+     */
+    public Resumen resumen() {
+        long[] copia = new long[CUBETAS];
+        long total = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            copia[i] = cubetas.get(i);
+            total += copia[i];
+        }
+        if (total == 0) return new Resumen(0, 0, 0, 0, 0, 0, 0);
+        long max = maximo.get();
+        return new Resumen(total, (double) suma.sum() / cantidad.sum(),
+                percentil(copia, total, 0.50, max), percentil(copia, total, 0.90, max),
+                percentil(copia, total, 0.99, max), percentil(copia, total, 0.999, max), max);
+    }
+
+    public void reiniciar() {
+        for (int i = 0; i < CUBETAS; i++) {
+            cubetas.set(i, 0);
+        }
+        cantidad.reset();
+        suma.reset();
+        maximo.reset();
+    }
+
+    static int indice(long valor) {
+        if (valor < SUBCUBETAS) return (int) valor;
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int desplazamiento = exponente - BITS_SUBCUBETA + 1;
+        // El bit más alto siempre está encendido: la subcubeta sale de los bits siguientes
+        return desplazamiento * SUBCUBETAS + (int) ((valor >>> (desplazamiento - 1)) & (SUBCUBETAS - 1));
+    }
+
+    static long limiteSuperior(int indice) {
+        if (indice < SUBCUBETAS) return indice;
+        int desplazamiento = indice / SUBCUBETAS;
+        long base = (long) (SUBCUBETAS + indice % SUBCUBETAS) << (desplazamiento - 1);
+        return base + (1L << (desplazamiento - 1)) - 1;
+    }
+
+    private static long percentil(long[] cubetas, long total, double fraccion, long maximo) {
+        long objetivo = (long) Math.ceil(total * fraccion);
+        long acumulado = 0;
+        for (int i = 0; i < cubetas.length; i++) {
+            acumulado += cubetas[i];
+            if (acumulado >= objetivo) return Math.min(limiteSuperior(i), maximo);
+        }
+        return maximo;
+    }
+}
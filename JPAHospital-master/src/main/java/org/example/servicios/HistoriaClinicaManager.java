@@ -0,0 +1,63 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.example.entidades.EntradaHistoria;
+import org.example.entidades.HistoriaClinica;
+import org.example.entidades.TipoEntradaHistoria;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Implementación del servicio de historias clínicas.
+ * Las lecturas consultan directamente las entradas, sin inicializar la colección de la historia.
+ */
+public class HistoriaClinicaManager implements HistoriaClinicaService {
+    private final EntityManager em;
+
+    public HistoriaClinicaManager(EntityManager em) {
+        this.em = Objects.requireNonNull(em, "El EntityManager no puede ser nulo.");
+    }
+
+    @Override
+    public EntradaHistoria registrar(HistoriaClinica historia, TipoEntradaHistoria tipo, String descripcion) {
+        Objects.requireNonNull(historia, "La historia clínica no puede ser null");
+        // Una historia separada se reemplaza por una referencia; su colección de entradas no se carga
+        HistoriaClinica gestionada = em.contains(historia) ? historia : em.getReference(HistoriaClinica.class, historia.getId());
+        EntradaHistoria entrada = gestionada.agregarEntrada(tipo, descripcion);
+        em.persist(entrada);
+        return entrada;
+    }
+
+    @Override
+    public List<EntradaHistoria> getUltimasEntradas(HistoriaClinica historia, TipoEntradaHistoria tipo, int cantidad) {
+        return consultar(historia, tipo, null, cantidad);
+    }
+
+    @Override
+    public List<EntradaHistoria> getEntradasAnteriores(HistoriaClinica historia, TipoEntradaHistoria tipo, EntradaHistoria referencia, int cantidad) {
+        return consultar(historia, tipo, Objects.requireNonNull(referencia, "La entrada de referencia no puede ser null"), cantidad);
+    }
+
+    private List<EntradaHistoria> consultar(HistoriaClinica historia, TipoEntradaHistoria tipo, EntradaHistoria referencia, int cantidad) {
+        if (cantidad <= 0) throw new IllegalArgumentException("La cantidad debe ser positiva.");
+        StringBuilder jpql = new StringBuilder("SELECT e FROM EntradaHistoria e WHERE e.historia = :historia");
+        if (tipo != null) jpql.append(" AND e.tipo = :tipo");
+        // Paginación por clave (fechaRegistro, id): usa el índice y no depende de la profundidad de la página
+        if (referencia != null) {
+            jpql.append(" AND (e.fechaRegistro < :fecha OR (e.fechaRegistro = :fecha AND e.id < :id))");
+        }
+        jpql.append(" ORDER BY e.fechaRegistro DESC, e.id DESC");
+
+        TypedQuery<EntradaHistoria> query = em.createQuery(jpql.toString(), EntradaHistoria.class)
+                .setParameter("historia", historia)
+                .setMaxResults(cantidad);
+        if (tipo != null) query.setParameter("tipo", tipo);
+        if (referencia != null) {
+            query.setParameter("fecha", referencia.getFechaRegistro());
+            query.setParameter("id", referencia.getId());
+        }
+        return List.copyOf(query.getResultList());
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.servicios;
+
+import org.example.entidades.EntradaHistoria;
+import org.example.entidades.HistoriaClinica;
+import org.example.entidades.TipoEntradaHistoria;
+
+import java.util.List;
+
+/**
+ * Interfaz que define las operaciones sobre las entradas de una historia clínica.
+ */
+public interface HistoriaClinicaService {
+
+    /**
+     * Agrega una entrada a la historia en la transacción activa, con un único INSERT
+     * sin importar cuántas entradas tenga ya la historia.
+     *
+     * @param historia    La historia clínica.
+     * @param tipo        Diagnóstico, tratamiento o alergia.
+     * @param descripcion El texto de la entrada.
+     * @return La entrada persistida.
+     */
+    EntradaHistoria registrar(HistoriaClinica historia, TipoEntradaHistoria tipo, String descripcion);
+
+    /**
+     * Obtiene las entradas más recientes de una historia, de la más nueva a la más antigua.
+     *
+     * @param historia La historia clínica.
+     * @param tipo     El tipo de entrada buscado, o null para todos.
+     * @param cantidad Cantidad máxima de entradas.
+     * @return Una lista inmutable de entradas.
+     */
+    List<EntradaHistoria> getUltimasEntradas(HistoriaClinica historia, TipoEntradaHistoria tipo, int cantidad);
+
+    /**
+     * Obtiene las entradas anteriores a una ya leída, para continuar la paginación de {@link #getUltimasEntradas}.
+     *
+     * @param historia   La historia clínica.
+     * @param tipo       El tipo de entrada buscado, o null para todos.
+     * @param referencia La última entrada de la página anterior.
+     * @param cantidad   Cantidad máxima de entradas.
+     * @return Una lista inmutable de entradas, de la más nueva a la más antigua.
+     */
+    List<EntradaHistoria> getEntradasAnteriores(HistoriaClinica historia, TipoEntradaHistoria tipo, EntradaHistoria referencia, int cantidad);
+}
@@ -0,0 +1,57 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import org.example.entidades.Departamento;
+import org.example.entidades.Hospital;
+import org.hibernate.Hibernate;
+import org.hibernate.jpa.SpecHints;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Implementación del servicio de carga de hospitales.
+ *
+ * Cada perfil trae con un grafo de entidades una de las colecciones del hospital (Hibernate no permite traer dos
+ * listas en el mismo JOIN). Los médicos y las salas de los departamentos se cargan por subselect: una consulta
+ * para todas las listas de médicos y otra para todas las de salas. Como máximo son cuatro consultas:
+ * <ul>
+ *     <li>DIRECTORIO: hospital y departamentos, médicos, salas.</li>
+ *     <li>CENSO: hospital y pacientes.</li>
+ *     <li>COMPLETO: las del censo más departamentos, médicos y salas.</li>
+ * </ul>
+ * Las colecciones que estén en la caché de segundo nivel no generan consulta.
+ */
+public class HospitalManager implements HospitalService {
+    private final EntityManager em;
+
+    public HospitalManager(EntityManager em) {
+        this.em = Objects.requireNonNull(em, "El EntityManager no puede ser nulo.");
+    }
+
+    @Override
+    public Hospital cargar(Long id, PerfilCarga perfil) {
+        Objects.requireNonNull(perfil, "El perfil de carga no puede ser nulo.");
+        if (id == null) return null;
+
+        // 1. Hospital con la colección del grafo; una consulta (y no find) para no depender de la caché del hospital
+        String grafo = perfil == PerfilCarga.DIRECTORIO ? Hospital.GRAFO_DIRECTORIO : Hospital.GRAFO_CENSO;
+        List<Hospital> encontrados = em.createQuery("SELECT h FROM Hospital h WHERE h.id = :id", Hospital.class)
+                .setParameter("id", id)
+                .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, em.getEntityGraph(grafo))
+                .getResultList();
+        if (encontrados.isEmpty()) return null;
+        Hospital hospital = encontrados.get(0);
+
+        // 2. Directorio: al inicializar la primera lista de médicos (o de salas) se cargan las de todos los departamentos
+        if (perfil != PerfilCarga.CENSO) {
+            List<Departamento> departamentos = hospital.getDepartamentos();
+            Hibernate.initialize(departamentos);
+            for (Departamento departamento : departamentos) {
+                Hibernate.initialize(departamento.getMedicos());
+                Hibernate.initialize(departamento.getSalas());
+            }
+        }
+        return hospital;
+    }
+}
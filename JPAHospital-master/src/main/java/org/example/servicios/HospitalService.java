@@ -0,0 +1,20 @@
+package org.example.servicios;
+
+import org.example.entidades.Hospital;
+
+/**
+ * Interfaz para cargar el agregado {@link Hospital} según el uso que se le va a dar.
+ */
+public interface HospitalService {
+
+    /**
+     * Carga un hospital con las colecciones del perfil ya inicializadas, con una cantidad de consultas
+     * que no depende de la cantidad de departamentos, médicos, salas ni pacientes.
+     * Las demás colecciones quedan sin cargar.
+     *
+     * @param id     El id del hospital.
+     * @param perfil Las colecciones a inicializar.
+     * @return El hospital, o null si no existe.
+     */
+    Hospital cargar(Long id, PerfilCarga perfil);
+}
@@ -0,0 +1,12 @@
+package org.example.servicios;
+
+import org.example.entidades.Medico;
+import org.example.entidades.Sala;
+
+import java.time.LocalDateTime;
+
+/**
+ * Horario en el que un médico y una sala de su departamento están libres, respetando el búfer de 2 horas.
+ */
+public record HuecoLibre(Medico medico, Sala sala, LocalDateTime fechaHora) {
+}
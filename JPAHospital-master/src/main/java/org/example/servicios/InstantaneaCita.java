@@ -0,0 +1,67 @@
+package org.example.servicios;
+
+import org.example.entidades.Cita;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Copia inmutable de los datos de una cita en un instante dado.
+ * Solo guarda identificadores de las asociaciones, por lo que nunca dispara cargas perezosas.
+ */
+public record InstantaneaCita(Long id, Long medicoId, Long salaId, Long pacienteId,
+                              LocalDateTime fechaHora, EstadoCita estado, BigDecimal costo) {
+
+    public static InstantaneaCita de(Cita cita) {
+        return new InstantaneaCita(
+                cita.getId(),
+                cita.getMedico() != null ? cita.getMedico().getId() : null,
+                cita.getSala() != null ? cita.getSala().getId() : null,
+                cita.getPaciente() != null ? cita.getPaciente().getId() : null,
+                cita.getFechaHora(),
+                cita.getEstado(),
+                cita.getCosto());
+    }
+
+    /**
+     * Indica si la cita ocupa su horario: tiene fecha y un estado de {@link EstadoCita#BLOQUEANTES}.
+     */
+    boolean bloqueaHorario() {
+        return fechaHora != null && estado != null && estado.bloqueaHorario();
+    }
+
+    /**
+     * Reconstruye la instantánea a partir del arreglo de estado que Hibernate entrega en sus eventos.
+     */
+    static InstantaneaCita de(Object id, String[] propiedades, Object[] estado) {
+        Medico medico = null;
+        Sala sala = null;
+        Paciente paciente = null;
+        LocalDateTime fechaHora = null;
+        EstadoCita estadoCita = null;
+        BigDecimal costo = null;
+        for (int i = 0; i < propiedades.length; i++) {
+            switch (propiedades[i]) {
+                case "medico" -> medico = (Medico) estado[i];
+                case "sala" -> sala = (Sala) estado[i];
+                case "paciente" -> paciente = (Paciente) estado[i];
+                case "fechaHora" -> fechaHora = (LocalDateTime) estado[i];
+                case "estado" -> estadoCita = (EstadoCita) estado[i];
+                case "costo" -> costo = (BigDecimal) estado[i];
+                default -> { }
+            }
+        }
+        return new InstantaneaCita(
+                (Long) id,
+                medico != null ? medico.getId() : null,
+                sala != null ? sala.getId() : null,
+                paciente != null ? paciente.getId() : null,
+                fechaHora,
+                estadoCita,
+                costo);
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import org.example.entidades.Cita;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.EstadoSolicitudEspera;
+import org.example.entidades.Medico;
+import org.example.entidades.Sala;
+import org.example.entidades.SolicitudEspera;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Implementación de {@link ListaEsperaService} sobre el EntityManager y la transacción del llamador.
+ * Las solicitudes pendientes se leen por el índice idx_solicitud_espera_pendientes, ya en el orden en que se atienden.
+ * El horario ofrecido se valida como cualquier reserva de {@link CitaManager}: con el {@link DisponibilidadIndex}
+ * de la aplicación si se indica uno, o con consultas en esta transacción.
+ */
+public class ListaEsperaManager implements ListaEsperaService {
+    private static final Logger LOG = LoggerFactory.getLogger(ListaEsperaManager.class);
+    private static final String ORDEN = " ORDER BY s.prioridad, s.creada, s.id";
+
+    private final EntityManager em;
+    private final DisponibilidadIndex disponibilidad;
+
+    public ListaEsperaManager(EntityManager em) {
+        this(em, null);
+    }
+
+    /**
+     * @param disponibilidad El índice con el que reserva el resto de la aplicación; si es null se consulta la base de datos.
+     */
+    public ListaEsperaManager(EntityManager em, DisponibilidadIndex disponibilidad) {
+        this.em = Objects.requireNonNull(em, "El EntityManager no puede ser nulo.");
+        this.disponibilidad = disponibilidad;
+    }
+
+    @Override
+    public SolicitudEspera anotar(SolicitudEspera solicitud) throws CitaException {
+        Objects.requireNonNull(solicitud, "La solicitud no puede ser nula.");
+        if (solicitud.getHasta().isBefore(solicitud.getDesde())) {
+            throw new CitaException(CitaException.Motivo.OTRO, "La fecha hasta no puede ser anterior a la fecha desde.");
+        }
+        if (solicitud.getHasta().isBefore(LocalDateTime.now())) {
+            throw new CitaException(CitaException.Motivo.FECHA_PASADA, "El rango de fechas de la solicitud ya pasó.");
+        }
+        if (solicitud.getCosto() == null || solicitud.getCosto().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new CitaException(CitaException.Motivo.COSTO_INVALIDO, "El costo de la cita debe ser un valor positivo.");
+        }
+        if (solicitud.getMedico() != null && solicitud.getMedico().getEspecialidad() != solicitud.getEspecialidad()) {
+            throw new CitaException(CitaException.Motivo.ESPECIALIDAD_INCOMPATIBLE, "El médico elegido no es de la especialidad solicitada.");
+        }
+        em.persist(solicitud);
+        return solicitud;
+    }
+
+    @Override
+    public void retirar(SolicitudEspera solicitud) throws CitaException {
+        Objects.requireNonNull(solicitud, "La solicitud no puede ser nula.");
+        SolicitudEspera gestionada = em.contains(solicitud) ? solicitud : em.find(SolicitudEspera.class, solicitud.getId());
+        if (gestionada == null || gestionada.getEstado() != EstadoSolicitudEspera.PENDIENTE) {
+            throw new CitaException(CitaException.Motivo.TRANSICION_INVALIDA, "Solo se puede retirar una solicitud pendiente.");
+        }
+        gestionada.retirar();
+    }
+
+    @Override
+    public List<SolicitudEspera> getPendientes(EspecialidadMedica especialidad) {
+        Objects.requireNonNull(especialidad, "La especialidad no puede ser nula.");
+        return List.copyOf(em.createQuery("SELECT s FROM SolicitudEspera s JOIN FETCH s.paciente"
+                        + " WHERE s.estado = :pendiente AND s.especialidad = :especialidad" + ORDEN, SolicitudEspera.class)
+                .setParameter("pendiente", EstadoSolicitudEspera.PENDIENTE)
+                .setParameter("especialidad", especialidad)
+                .getResultList());
+    }
+
+    @Override
+    public Optional<SolicitudEspera> ofrecerHorario(Long medicoId, Long salaId, LocalDateTime fechaHora) {
+        Objects.requireNonNull(medicoId, "El médico no puede ser nulo.");
+        Objects.requireNonNull(salaId, "La sala no puede ser nula.");
+        Objects.requireNonNull(fechaHora, "La fecha no puede ser nula.");
+        if (fechaHora.isBefore(LocalDateTime.now())) return Optional.empty();
+
+        // 1. Primera solicitud que acepta el horario; los bloqueos se toman solo si hay alguna
+        List<SolicitudEspera> candidatas = em.createQuery("SELECT s FROM SolicitudEspera s, Medico m WHERE m.id = :medico"
+                        + " AND s.estado = :pendiente AND s.especialidad = m.especialidad AND (s.medico IS NULL OR s.medico = m)"
+                        + " AND s.desde <= :fecha AND s.hasta >= :fecha" + ORDEN, SolicitudEspera.class)
+                .setParameter("medico", medicoId)
+                .setParameter("pendiente", EstadoSolicitudEspera.PENDIENTE)
+                .setParameter("fecha", fechaHora)
+                .setMaxResults(1)
+                .getResultList();
+        if (candidatas.isEmpty()) return Optional.empty();
+        SolicitudEspera solicitud = candidatas.get(0);
+
+        // 2. Mismo orden de bloqueo que CitaManagerConcurrente: primero el médico, después la sala
+        Medico medico = em.find(Medico.class, medicoId, LockModeType.PESSIMISTIC_FORCE_INCREMENT);
+        Sala sala = em.find(Sala.class, salaId, LockModeType.PESSIMISTIC_FORCE_INCREMENT);
+        if (medico == null || sala == null) return Optional.empty();
+
+        // 3. Las reglas de cualquier reserva (el rechazo queda en MetricasCitas); si el horario ya se ocupó,
+        // la solicitud sigue esperando
+        try {
+            Cita cita = new CitaManager(em, disponibilidad).programarCita(solicitud.getPaciente(), medico, sala, fechaHora,
+                    solicitud.getCosto(), solicitud.getObservaciones());
+            em.persist(cita);
+            solicitud.asignar(cita);
+            return Optional.of(solicitud);
+        } catch (CitaException e) {
+            LOG.info("El horario {} del médico {} no se asignó a la solicitud {}: {}", fechaHora, medicoId,
+                    solicitud.getId(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
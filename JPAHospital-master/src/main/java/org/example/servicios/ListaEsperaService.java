@@ -0,0 +1,53 @@
+package org.example.servicios;
+
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.SolicitudEspera;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Interfaz que define la lista de espera de citas. Cuando una cita se cancela, su horario se ofrece a las
+ * solicitudes pendientes que lo aceptan; la primera en orden de prioridad recibe una cita en ese horario.
+ */
+public interface ListaEsperaService {
+
+    /**
+     * Agrega la solicitud a la lista de espera en la transacción activa.
+     *
+     * @param solicitud La solicitud, creada con {@link SolicitudEspera#builder()}.
+     * @return La solicitud persistida.
+     * @throws CitaException si el rango de fechas ya pasó o está invertido, si el costo no es positivo, o si el
+     *                       médico elegido no es de la especialidad.
+     */
+    SolicitudEspera anotar(SolicitudEspera solicitud) throws CitaException;
+
+    /**
+     * Saca de la lista una solicitud pendiente.
+     *
+     * @throws CitaException si la solicitud ya fue asignada o retirada.
+     */
+    void retirar(SolicitudEspera solicitud) throws CitaException;
+
+    /**
+     * @param especialidad La especialidad.
+     * @return Las solicitudes pendientes de la especialidad, en el orden en que se atienden.
+     */
+    List<SolicitudEspera> getPendientes(EspecialidadMedica especialidad);
+
+    /**
+     * Ofrece un horario liberado a la lista de espera, en la transacción activa. La primera solicitud pendiente
+     * que lo acepta (por médico o por especialidad, y por rango de fechas) recibe una cita programada con
+     * {@link CitaService#programarCita}, con las mismas validaciones que cualquier otra reserva.
+     *
+     * Bloquea las filas del médico y de la sala incrementando su versión, por lo que no choca con las reservas
+     * de {@link CitaManagerConcurrente} en ninguno de sus modos.
+     *
+     * @param medicoId  El médico de la cita cancelada.
+     * @param salaId    La sala de la cita cancelada.
+     * @param fechaHora El horario liberado.
+     * @return La solicitud asignada, o vacío si ninguna acepta el horario o si este ya no está libre.
+     */
+    Optional<SolicitudEspera> ofrecerHorario(Long medicoId, Long salaId, LocalDateTime fechaHora);
+}
@@ -0,0 +1,275 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Métricas de las operaciones de {@link CitaService} realizadas a través de una misma EntityManagerFactory:
+ * latencia de cada operación y de cada etapa de programarCita, cantidad de citas devueltas por los listados,
+ * rechazos por {@link CitaException.Motivo} y las estadísticas de Hibernate (requieren {@code hibernate.generate_statistics}).
+ *
+ * Los contadores son {@link LongAdder} e {@link Histograma}s, por lo que registrar una medición no toma locks
+ * ni reserva memoria. Se consultan con {@link #instantanea()} o por JMX luego de {@link #registrarJmx()}.
+ */
+public final class MetricasCitas implements MetricasCitasMXBean {
+
+    public enum Operacion {
+        PROGRAMAR_CITA,
+        PROGRAMAR_CITAS,
+        CAMBIAR_ESTADO_MASIVO,
+        BUSCAR_HUECOS,
+        CITAS_POR_PACIENTE,
+        CITAS_POR_MEDICO,
+        RESUMEN_POR_PACIENTE,
+        RESUMEN_POR_MEDICO,
+        PAGINA_POR_PACIENTE,
+        PAGINA_POR_MEDICO
+    }
+
+    /**
+     * Etapas de programarCita. BLOQUEO (locks y carga con bloqueo del médico y la sala) y COMMIT
+     * solo las registra {@link CitaManagerConcurrente}; COMMIT incluye el flush de cualquier operación de escritura.
+     */
+    public enum Etapa {
+        VALIDACION,
+        DISPONIBILIDAD_MEDICO,
+        DISPONIBILIDAD_SALA,
+        BLOQUEO,
+        COMMIT
+    }
+
+    public record EstadisticasHibernate(long sentencias, long cargasEntidades, long flushes, long consultas,
+                                        long aciertosCache, long fallosCache) {
+    }
+
+    /**
+     * Copia de todas las métricas. Las latencias están en nanosegundos; los tamaños, en cantidad de citas.
+     */
+    public record Instantanea(Map<Operacion, Histograma.Resumen> latencias, Map<Etapa, Histograma.Resumen> etapas,
+                              Map<Operacion, Histograma.Resumen> tamanios, Map<CitaException.Motivo, Long> rechazos,
+                              long reintentos, EstadisticasHibernate hibernate) {
+    }
+
+    private static final Map<SessionFactoryImplementor, MetricasCitas> INSTANCIAS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    // Referencia débil: las estadísticas retienen la factory, que es la clave de INSTANCIAS
+    private final WeakReference<SessionFactoryImplementor> sessionFactory;
+    private final Histograma[] latencias = histogramas(Operacion.values().length);
+    private final Histograma[] etapas = histogramas(Etapa.values().length);
+    private final Histograma[] tamanios = histogramas(Operacion.values().length);
+    private final LongAdder[] rechazos = new LongAdder[CitaException.Motivo.values().length];
+    private final LongAdder reintentos = new LongAdder();
+    private ObjectName nombreJmx;
+
+    private MetricasCitas(SessionFactoryImplementor sessionFactory) {
+        this.sessionFactory = new WeakReference<>(sessionFactory);
+        for (int i = 0; i < rechazos.length; i++) {
+            rechazos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Obtiene (o crea) las métricas asociadas a la factory.
+     */
+    public static MetricasCitas de(EntityManagerFactory emf) {
+        return INSTANCIAS.computeIfAbsent(emf.unwrap(SessionFactoryImplementor.class), MetricasCitas::new);
+    }
+
+    /**
+     * Registra la latencia de una operación iniciada en {@code desde} (según {@link System#nanoTime()}).
+     */
+    public void operacion(Operacion operacion, long desde) {
+        latencias[operacion.ordinal()].registrar(System.nanoTime() - desde);
+    }
+
+    /**
+     * Registra la latencia de un listado y la cantidad de citas que devolvió.
+     */
+    public void listado(Operacion operacion, long desde, int cantidad) {
+        operacion(operacion, desde);
+        tamanios[operacion.ordinal()].registrar(cantidad);
+    }
+
+    /**
+     * Registra la duración de una etapa iniciada en {@code desde}.
+     *
+     * @return El instante de fin, para usar como inicio de la etapa siguiente.
+     */
+    public long etapa(Etapa etapa, long desde) {
+        long ahora = System.nanoTime();
+        etapas[etapa.ordinal()].registrar(ahora - desde);
+        return ahora;
+    }
+
+    public void rechazo(CitaException.Motivo motivo) {
+        rechazos[motivo.ordinal()].increment();
+    }
+
+    /**
+     * Registra una reserva que se repite por un conflicto de versión.
+     */
+    public void reintento() {
+        reintentos.increment();
+    }
+
+    public Instantanea instantanea() {
+        return new Instantanea(resumir(Operacion.class, latencias), resumir(Etapa.class, etapas), resumir(Operacion.class, tamanios),
+                Collections.unmodifiableMap(contar(CitaException.Motivo.class, rechazos)), reintentos.sum(), estadisticasHibernate());
+    }
+
+    public EstadisticasHibernate estadisticasHibernate() {
+        SessionFactoryImplementor sf = sessionFactory.get();
+        if (sf == null || sf.isClosed()) return new EstadisticasHibernate(0, 0, 0, 0, 0, 0);
+        Statistics s = sf.getStatistics();
+        return new EstadisticasHibernate(s.getPrepareStatementCount(), s.getEntityLoadCount(), s.getFlushCount(),
+                s.getQueryExecutionCount(), s.getSecondLevelCacheHitCount(), s.getSecondLevelCacheMissCount());
+    }
+
+    /**
+     * Publica las métricas en el MBeanServer de la plataforma como {@code org.example:type=MetricasCitas,name=<uuid de la factory>}.
+     */
+    public synchronized ObjectName registrarJmx() {
+        if (nombreJmx != null) return nombreJmx;
+        SessionFactoryImplementor sf = sessionFactory.get();
+        if (sf == null) throw new IllegalStateException("La EntityManagerFactory ya no existe.");
+        try {
+            ObjectName nombre = new ObjectName("org.example:type=MetricasCitas,name=" + sf.getUuid());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, nombre);
+            nombreJmx = nombre;
+            return nombre;
+        } catch (JMException e) {
+            throw new IllegalStateException("No se pudieron registrar las métricas en JMX.", e);
+        }
+    }
+
+    public synchronized void desregistrarJmx() {
+        if (nombreJmx == null) return;
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (servidor.isRegistered(nombreJmx)) servidor.unregisterMBean(nombreJmx);
+        } catch (JMException e) {
+            throw new IllegalStateException("No se pudieron quitar las métricas de JMX.", e);
+        } finally {
+            nombreJmx = null;
+        }
+    }
+
+    @Override
+    public Map<String, Long> getOperaciones() {
+        Map<String, Long> resultado = new LinkedHashMap<>();
+        for (Operacion o : Operacion.values()) {
+            resultado.put(o.name(), latencias[o.ordinal()].getCantidad());
+        }
+        return resultado;
+    }
+
+    @Override
+    public Map<String, Double> getLatenciaMediaMicros() {
+        return porNombre(Operacion.values(), latencias, r -> r.media() / 1_000.0);
+    }
+
+    @Override
+    public Map<String, Double> getLatenciaP99Micros() {
+        return porNombre(Operacion.values(), latencias, r -> r.p99() / 1_000.0);
+    }
+
+    @Override
+    public Map<String, Double> getEtapaP99Micros() {
+        return porNombre(Etapa.values(), etapas, r -> r.p99() / 1_000.0);
+    }
+
+    @Override
+    public Map<String, Double> getTamanioMedio() {
+        return porNombre(Operacion.values(), tamanios, Histograma.Resumen::media);
+    }
+
+    @Override
+    public Map<String, Long> getRechazos() {
+        Map<String, Long> resultado = new LinkedHashMap<>();
+        contar(CitaException.Motivo.class, rechazos).forEach((motivo, cantidad) -> resultado.put(motivo.name(), cantidad));
+        return resultado;
+    }
+
+    @Override
+    public long getReintentos() {
+        return reintentos.sum();
+    }
+
+    @Override
+    public Map<String, Long> getEstadisticasHibernate() {
+        EstadisticasHibernate e = estadisticasHibernate();
+        Map<String, Long> resultado = new LinkedHashMap<>();
+        resultado.put("sentencias", e.sentencias());
+        resultado.put("cargasEntidades", e.cargasEntidades());
+        resultado.put("flushes", e.flushes());
+        resultado.put("consultas", e.consultas());
+        resultado.put("aciertosCache", e.aciertosCache());
+        resultado.put("fallosCache", e.fallosCache());
+        return resultado;
+    }
+
+    /**
+     * Pone en cero las métricas propias y las estadísticas de Hibernate.
+     */
+    @Override
+    public void reiniciar() {
+        for (Histograma h : latencias) h.reiniciar();
+        for (Histograma h : etapas) h.reiniciar();
+        for (Histograma h : tamanios) h.reiniciar();
+        for (LongAdder r : rechazos) r.reset();
+        reintentos.reset();
+        SessionFactoryImplementor sf = sessionFactory.get();
+        if (sf != null && !sf.isClosed()) sf.getStatistics().clear();
+    }
+
+    private static Histograma[] histogramas(int cantidad) {
+        Histograma[] resultado = new Histograma[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            resultado[i] = new Histograma();
+        }
+        return resultado;
+    }
+
+    // Solo se incluyen las entradas con mediciones
+    private static <E extends Enum<E>> Map<E, Histograma.Resumen> resumir(Class<E> tipo, Histograma[] histogramas) {
+        Map<E, Histograma.Resumen> resultado = new EnumMap<>(tipo);
+        for (E clave : tipo.getEnumConstants()) {
+            Histograma h = histogramas[clave.ordinal()];
+            if (h.getCantidad() > 0) resultado.put(clave, h.resumen());
+        }
+        return Collections.unmodifiableMap(resultado);
+    }
+
+    private static <E extends Enum<E>> Map<E, Long> contar(Class<E> tipo, LongAdder[] contadores) {
+        Map<E, Long> resultado = new EnumMap<>(tipo);
+        for (E clave : tipo.getEnumConstants()) {
+            resultado.put(clave, contadores[clave.ordinal()].sum());
+        }
+        return resultado;
+    }
+
+    private static <E extends Enum<E>> Map<String, Double> porNombre(E[] claves, Histograma[] histogramas,
+                                                                   ToDoubleFunction<Histograma.Resumen> valor) {
+        Map<String, Double> resultado = new LinkedHashMap<>();
+        for (E clave : claves) {
+            Histograma h = histogramas[clave.ordinal()];
+            if (h.getCantidad() > 0) resultado.put(clave.name(), valor.applyAsDouble(h.resumen()));
+        }
+        return resultado;
+    }
+}
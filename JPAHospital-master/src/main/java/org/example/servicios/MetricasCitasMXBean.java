@@ -0,0 +1,33 @@
+package org.example.servicios;
+
+import java.util.Map;
+
+/**
+ * Vista JMX de {@link MetricasCitas}. Las latencias se expresan en microsegundos.
+ */
+public interface MetricasCitasMXBean {
+
+    /** Cantidad de llamadas por operación. */
+    Map<String, Long> getOperaciones();
+
+    Map<String, Double> getLatenciaMediaMicros();
+
+    Map<String, Double> getLatenciaP99Micros();
+
+    /** Percentil 99 de cada etapa de programarCita. */
+    Map<String, Double> getEtapaP99Micros();
+
+    /** Cantidad media de citas devueltas por los listados. */
+    Map<String, Double> getTamanioMedio();
+
+    /** Rechazos por {@link CitaException.Motivo}. */
+    Map<String, Long> getRechazos();
+
+    /** Reservas repetidas por conflictos de versión (bloqueo optimista). */
+    long getReintentos();
+
+    /** Sentencias, cargas de entidades, flushes, consultas y caché de segundo nivel según Hibernate. */
+    Map<String, Long> getEstadisticasHibernate();
+
+    void reiniciar();
+}
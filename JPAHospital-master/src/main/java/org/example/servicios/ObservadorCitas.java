@@ -0,0 +1,50 @@
+package org.example.servicios;
+
+import org.example.entidades.EstadoCita;
+
+/**
+ * Recibe los cambios de las citas una vez confirmados. Los métodos se invocan al terminar la transacción que los
+ * hizo, en su mismo hilo y fuera del flush; los cambios de una transacción revertida no se entregan.
+ * Para recargar desde la base se usa {@link EventosCita#recargar}.
+ */
+public interface ObservadorCitas {
+
+    /**
+     * Se invoca después de insertar una cita.
+     */
+    default void alInsertar(InstantaneaCita cita) {
+    }
+
+    /**
+     * Se invoca después de actualizar una cita.
+     *
+     * @param anterior El estado previo, o null si Hibernate no lo conoce (por ejemplo, tras un merge de una entidad separada).
+     * @param actual   El estado nuevo.
+     */
+    default void alActualizar(InstantaneaCita anterior, InstantaneaCita actual) {
+    }
+
+    /**
+     * Se invoca después de eliminar una cita.
+     */
+    default void alEliminar(InstantaneaCita cita) {
+    }
+
+    /**
+     * Se invoca cuando las citas cambiaron por fuera del ciclo de vida de las entidades
+     * (por ejemplo, una sentencia UPDATE masiva) y cualquier estado derivado debe recalcularse.
+     */
+    default void alInvalidar() {
+    }
+
+    /**
+     * Se invoca al confirmarse un cambio de estado masivo ({@link CitaService#cambiarEstadoMasivo}), que no genera
+     * eventos por cita.
+     * Por defecto equivale a {@link #alInvalidar()}.
+     *
+     * @param cantidad Cantidad de citas que cambiaron.
+     */
+    default void alCambiarEstados(EstadoCita anterior, EstadoCita nuevo, FiltroCitas filtro, int cantidad) {
+        alInvalidar();
+    }
+}
@@ -0,0 +1,16 @@
+package org.example.servicios;
+
+import java.util.List;
+
+/**
+ * Una página de resultados de un listado paginado por clave.
+ *
+ * @param elementos Los elementos de la página, en el orden del listado.
+ * @param siguiente El cursor para pedir la página siguiente, o null si no hay más resultados.
+ */
+public record Pagina<T>(List<T> elementos, CursorCita siguiente) {
+
+    public boolean hayMas() {
+        return siguiente != null;
+    }
+}
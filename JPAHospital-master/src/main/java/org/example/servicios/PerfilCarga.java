@@ -0,0 +1,13 @@
+package org.example.servicios;
+
+/**
+ * Qué partes del agregado {@link org.example.entidades.Hospital} carga {@link HospitalService}.
+ */
+public enum PerfilCarga {
+    /** Departamentos con sus médicos y salas. */
+    DIRECTORIO,
+    /** Pacientes, sin sus historias clínicas. */
+    CENSO,
+    /** Directorio y censo. */
+    COMPLETO
+}
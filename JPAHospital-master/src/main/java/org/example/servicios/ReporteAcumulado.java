@@ -0,0 +1,343 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.EstadoCita;
+import org.hibernate.SessionFactory;
+import org.hibernate.SessionFactoryObserver;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Totales de citas e ingresos mantenidos en memoria, para que refrescar un tablero cueste según la cantidad de
+ * grupos y no la de citas.
+ *
+ * Existe una única instancia por EntityManagerFactory. Se carga con una consulta GROUP BY por sala, médico, estado
+ * y día, y se mantiene al día con los eventos de {@link EventosCita} al reservar, modificar o borrar citas. Los totales
+ * por departamento y especialidad se suman a partir de los de cada sala. Un cambio de estado masivo no mueve citas
+ * entre salas, médicos ni días, así que solo se recargan los totales por estado, en la siguiente consulta.
+ * Con un rango de fechas, salvo en la agrupación por día, se consulta la base con {@link ReporteManager}.
+ *
+ * Los eventos llegan al confirmar cada transacción, así que los cambios revertidos no se suman nunca. Las recargas
+ * pasan por {@link EventosCita#recargar} para no sumar dos veces una cita confirmada mientras se consultaba la base;
+ * si una confirmación demora la recarga más de lo admitido, la consulta se responde desde la base y la recarga se
+ * reintenta en la siguiente.
+ * La instancia se descarta al cerrar la factory. Si la base se modifica por fuera de Hibernate, hay que llamar
+ * a {@link #reconstruir()}.
+ */
+public final class ReporteAcumulado implements ReporteService, ObservadorCitas {
+    private static final Logger LOG = LoggerFactory.getLogger(ReporteAcumulado.class);
+    private static final Map<SessionFactoryImplementor, ReporteAcumulado> INSTANCIAS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+    /** Mismo orden que el ORDER BY de {@link ReporteManager}: null primero y los enumerados por nombre. */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Comparator<Object> POR_CLAVE = Comparator.nullsFirst((a, b) -> a instanceof Enum<?> ea && b instanceof Enum<?> eb
+            ? ea.name().compareTo(eb.name()) : ((Comparable) a).compareTo(b));
+
+    // Referencia débil: la factory es la clave de INSTANCIAS y el acumulado queda retenido por sus eventos
+    private final WeakReference<SessionFactoryImplementor> sessionFactory;
+    private final EventosCita eventos;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Object, Acumulado> porSala = new HashMap<>();
+    private Map<Object, Acumulado> porMedico = new HashMap<>();
+    private Map<Object, Acumulado> porEstado = new HashMap<>();
+    private NavigableMap<Object, Acumulado> porDia = new TreeMap<>(POR_CLAVE);
+    /** Departamento de cada sala y especialidad de cada departamento, para derivar esos totales de los de las salas. */
+    private Map<Long, Long> departamentoDeSala = new HashMap<>();
+    private Map<Long, EspecialidadMedica> especialidadDeDepartamento = new HashMap<>();
+    private boolean recargarEstados;
+    private boolean recargarTodo;
+
+    private ReporteAcumulado(SessionFactoryImplementor sessionFactory, EventosCita eventos) {
+        this.sessionFactory = new WeakReference<>(sessionFactory);
+        this.eventos = eventos;
+    }
+
+    /**
+     * Obtiene (o crea, carga y suscribe) el acumulado asociado a la factory.
+     */
+    public static ReporteAcumulado de(EntityManagerFactory emf) {
+        Objects.requireNonNull(emf, "La EntityManagerFactory no puede ser nula.");
+        return INSTANCIAS.computeIfAbsent(emf.unwrap(SessionFactoryImplementor.class), sf -> {
+            EventosCita eventos = EventosCita.de(emf);
+            ReporteAcumulado acumulado = new ReporteAcumulado(sf, eventos);
+            eventos.suscribir(acumulado);
+            sf.addObserver(new SessionFactoryObserver() {
+                @Override
+                public void sessionFactoryClosed(SessionFactory factory) {
+                    INSTANCIAS.remove(sf);
+                }
+            });
+            try {
+                acumulado.reconstruir();
+            } catch (IllegalStateException e) {
+                // Ya está suscrito: se carga en la primera consulta en lugar de volver a crearlo
+                LOG.warn("No se pudieron cargar los totales de citas: {}", e.getMessage());
+                acumulado.alInvalidar();
+            }
+            return acumulado;
+        });
+    }
+
+    @Override
+    public List<TotalCitas> getTotales(Agrupacion agrupacion, LocalDate desde, LocalDate hasta) {
+        Objects.requireNonNull(agrupacion, "La agrupación no puede ser nula.");
+        boolean conRango = (desde != null || hasta != null) && agrupacion != Agrupacion.DIA;
+        if (conRango || !actualizarSiHaceFalta(agrupacion)) {
+            EntityManager em = crearEntityManager();
+            try {
+                return new ReporteManager(em).getTotales(agrupacion, desde, hasta);
+            } finally {
+                em.close();
+            }
+        }
+
+        lock.readLock().lock();
+        try {
+            return switch (agrupacion) {
+                case SALA -> totales(porSala);
+                case MEDICO -> totales(porMedico);
+                case ESTADO -> totales(porEstado);
+                case DIA -> totales(desde == null && hasta == null ? porDia
+                        : porDia.subMap(desde == null ? LocalDate.MIN : desde, true, hasta == null ? LocalDate.MAX : hasta, true));
+                case DEPARTAMENTO -> totales(sumarPorSala(departamentoDeSala::get));
+                case ESPECIALIDAD -> totales(sumarPorSala(sala -> {
+                    Long departamento = departamentoDeSala.get(sala);
+                    return departamento == null ? null : especialidadDeDepartamento.get(departamento);
+                }));
+            };
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Descarta los totales y los vuelve a cargar desde la base de datos.
+     *
+     * @throws IllegalStateException si una confirmación en curso no terminó a tiempo ({@link EventosCita#recargar}).
+     */
+    public void reconstruir() {
+        eventos.recargar(() -> {
+            lock.writeLock().lock();
+            try {
+                EntityManager em = crearEntityManager();
+                try {
+                    ReporteManager reportes = new ReporteManager(em);
+                    porSala = cargar(reportes, Agrupacion.SALA, new HashMap<>());
+                    porMedico = cargar(reportes, Agrupacion.MEDICO, new HashMap<>());
+                    porEstado = cargar(reportes, Agrupacion.ESTADO, new HashMap<>());
+                    porDia = cargar(reportes, Agrupacion.DIA, new TreeMap<>(POR_CLAVE));
+                    cargarSalas(em);
+                } finally {
+                    em.close();
+                }
+                recargarEstados = false;
+                recargarTodo = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public void alInsertar(InstantaneaCita cita) {
+        lock.writeLock().lock();
+        try {
+            sumar(cita, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void alActualizar(InstantaneaCita anterior, InstantaneaCita actual) {
+        lock.writeLock().lock();
+        try {
+            if (anterior == null) {
+                // Sin el estado previo no se sabe qué restar; se recarga en la siguiente consulta
+                recargarTodo = true;
+                return;
+            }
+            sumar(anterior, -1);
+            sumar(actual, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void alEliminar(InstantaneaCita cita) {
+        lock.writeLock().lock();
+        try {
+            sumar(cita, -1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void alCambiarEstados(EstadoCita anterior, EstadoCita nuevo, FiltroCitas filtro, int cantidad) {
+        // Se sabe cuántas citas cambiaron pero no la suma de sus costos
+        lock.writeLock().lock();
+        try {
+            recargarEstados = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void alInvalidar() {
+        lock.writeLock().lock();
+        try {
+            recargarTodo = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Hace las recargas pendientes que necesita la agrupación; se llama fuera de la transacción que las pidió,
+     * por lo que ve sus cambios una vez confirmados.
+     *
+     * @return false si no se pudo recargar; las recargas siguen pendientes para la próxima consulta.
+     */
+    private boolean actualizarSiHaceFalta(Agrupacion agrupacion) {
+        lock.readLock().lock();
+        boolean todo;
+        boolean estados;
+        boolean salas;
+        try {
+            todo = recargarTodo;
+            estados = recargarEstados && agrupacion == Agrupacion.ESTADO;
+            salas = (agrupacion == Agrupacion.DEPARTAMENTO || agrupacion == Agrupacion.ESPECIALIDAD)
+                    && !departamentoDeSala.keySet().containsAll(porSala.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!todo && !estados && !salas) return true;
+
+        try {
+            if (todo) {
+                reconstruir();
+            } else {
+                recargar(estados, salas);
+            }
+            return true;
+        } catch (IllegalStateException e) {
+            LOG.warn("No se pudieron recargar los totales de citas, se consulta la base: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void recargar(boolean estados, boolean salas) {
+        eventos.recargar(() -> {
+            lock.writeLock().lock();
+            try {
+                EntityManager em = crearEntityManager();
+                try {
+                    if (estados) {
+                        porEstado = cargar(new ReporteManager(em), Agrupacion.ESTADO, new HashMap<>());
+                        recargarEstados = false;
+                    }
+                    // Salas creadas después de la carga
+                    if (salas) cargarSalas(em);
+                } finally {
+                    em.close();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    private EntityManager crearEntityManager() {
+        SessionFactoryImplementor sf = sessionFactory.get();
+        if (sf == null || !sf.isOpen()) throw new IllegalStateException("La EntityManagerFactory está cerrada.");
+        return sf.createEntityManager();
+    }
+
+    private void sumar(InstantaneaCita cita, int signo) {
+        BigDecimal costo = cita.costo() == null ? BigDecimal.ZERO : cita.costo();
+        sumar(porSala, cita.salaId(), costo, signo);
+        sumar(porMedico, cita.medicoId(), costo, signo);
+        sumar(porEstado, cita.estado(), costo, signo);
+        sumar(porDia, cita.fechaHora() == null ? null : cita.fechaHora().toLocalDate(), costo, signo);
+    }
+
+    private static void sumar(Map<Object, Acumulado> totales, Object clave, BigDecimal costo, int signo) {
+        Acumulado acumulado = totales.computeIfAbsent(clave, k -> new Acumulado());
+        acumulado.sumar(costo, signo);
+        if (acumulado.citas <= 0) totales.remove(clave);
+    }
+
+    private Map<Object, Acumulado> sumarPorSala(Function<Object, Object> grupoDeSala) {
+        Map<Object, Acumulado> totales = new HashMap<>();
+        porSala.forEach((sala, acumulado) -> totales.computeIfAbsent(sala == null ? null : grupoDeSala.apply(sala), k -> new Acumulado())
+                .agregar(acumulado));
+        return totales;
+    }
+
+    private static <M extends Map<Object, Acumulado>> M cargar(ReporteManager reportes, Agrupacion agrupacion, M destino) {
+        for (TotalCitas total : reportes.getTotales(agrupacion, null, null)) {
+            Acumulado acumulado = new Acumulado();
+            acumulado.citas = total.citas();
+            acumulado.ingresos = total.ingresos();
+            destino.put(total.clave(), acumulado);
+        }
+        return destino;
+    }
+
+    private void cargarSalas(EntityManager em) {
+        Map<Long, Long> departamentos = new HashMap<>();
+        Map<Long, EspecialidadMedica> especialidades = new HashMap<>();
+        for (Object[] fila : em.createQuery("SELECT s.id, d.id, d.especialidad FROM Sala s LEFT JOIN s.departamento d", Object[].class)
+                .getResultList()) {
+            departamentos.put((Long) fila[0], (Long) fila[1]);
+            if (fila[1] != null) especialidades.put((Long) fila[1], (EspecialidadMedica) fila[2]);
+        }
+        departamentoDeSala = departamentos;
+        especialidadDeDepartamento = especialidades;
+    }
+
+    private static List<TotalCitas> totales(Map<Object, Acumulado> acumulados) {
+        List<TotalCitas> totales = new ArrayList<>(acumulados.size());
+        acumulados.forEach((clave, acumulado) -> totales.add(new TotalCitas(clave, acumulado.citas, acumulado.ingresos)));
+        totales.sort(Comparator.comparing(TotalCitas::clave, POR_CLAVE));
+        return Collections.unmodifiableList(totales);
+    }
+
+    private static final class Acumulado {
+        long citas;
+        BigDecimal ingresos = BigDecimal.ZERO;
+
+        void sumar(BigDecimal costo, int signo) {
+            citas += signo;
+            ingresos = signo > 0 ? ingresos.add(costo) : ingresos.subtract(costo);
+        }
+
+        void agregar(Acumulado otro) {
+            citas += otro.citas;
+            ingresos = ingresos.add(otro.ingresos);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Implementación de los reportes con una única consulta GROUP BY por llamada: la base devuelve una fila por grupo,
+ * por lo que el costo en memoria no depende de la cantidad de citas. Las agrupaciones por sala y por médico usan
+ * directamente las claves foráneas de la cita; por departamento y especialidad se une la sala (y el departamento).
+ */
+public class ReporteManager implements ReporteService {
+    private final EntityManager em;
+
+    public ReporteManager(EntityManager em) {
+        this.em = Objects.requireNonNull(em, "El EntityManager no puede ser nulo.");
+    }
+
+    @Override
+    public List<TotalCitas> getTotales(Agrupacion agrupacion, LocalDate desde, LocalDate hasta) {
+        Objects.requireNonNull(agrupacion, "La agrupación no puede ser nula.");
+        StringBuilder jpql = new StringBuilder("SELECT ").append(agrupacion.expresion)
+                .append(", COUNT(c), SUM(c.costo) FROM Cita c").append(agrupacion.joins);
+        if (desde != null) jpql.append(" WHERE c.fechaHora >= :desde");
+        if (hasta != null) jpql.append(desde != null ? " AND" : " WHERE").append(" c.fechaHora < :hasta");
+        jpql.append(" GROUP BY ").append(agrupacion.expresion)
+                .append(" ORDER BY ").append(agrupacion.expresion).append(" NULLS FIRST");
+
+        TypedQuery<Object[]> query = em.createQuery(jpql.toString(), Object[].class);
+        if (desde != null) query.setParameter("desde", desde.atStartOfDay());
+        if (hasta != null) query.setParameter("hasta", hasta.plusDays(1).atStartOfDay());
+        List<TotalCitas> totales = new ArrayList<>();
+        for (Object[] fila : query.getResultList()) {
+            BigDecimal ingresos = (BigDecimal) fila[2];
+            totales.add(new TotalCitas(fila[0], (Long) fila[1], ingresos == null ? BigDecimal.ZERO : ingresos));
+        }
+        return Collections.unmodifiableList(totales);
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.servicios;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Interfaz para los tableros de gestión: cantidad de citas e ingresos agrupados, sin instanciar citas.
+ * Los totales incluyen citas en cualquier estado; para separarlos se agrupa por {@link Agrupacion#ESTADO}.
+ */
+public interface ReporteService {
+
+    /**
+     * Calcula la cantidad de citas y la suma de sus costos por grupo.
+     *
+     * @param agrupacion El criterio de agrupación.
+     * @param desde      Primer día (inclusive), o null para no acotar.
+     * @param hasta      Último día (inclusive), o null para no acotar.
+     * @return Un total por grupo con al menos una cita, ordenados por clave (el grupo null primero).
+     */
+    List<TotalCitas> getTotales(Agrupacion agrupacion, LocalDate desde, LocalDate hasta);
+}
@@ -0,0 +1,22 @@
+package org.example.servicios;
+
+import org.example.entidades.Cita;
+
+/**
+ * Resultado de procesar una {@link SolicitudCita}: la cita persistida si fue aceptada,
+ * o la {@link CitaException} que explica el rechazo.
+ */
+public record ResultadoSolicitud(SolicitudCita solicitud, Cita cita, CitaException error) {
+
+    public static ResultadoSolicitud aceptada(SolicitudCita solicitud, Cita cita) {
+        return new ResultadoSolicitud(solicitud, cita, null);
+    }
+
+    public static ResultadoSolicitud rechazada(SolicitudCita solicitud, CitaException error) {
+        return new ResultadoSolicitud(solicitud, null, error);
+    }
+
+    public boolean isAceptada() {
+        return error == null;
+    }
+}
@@ -0,0 +1,15 @@
+package org.example.servicios;
+
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Datos de una cita a programar dentro de un lote.
+ */
+public record SolicitudCita(Paciente paciente, Medico medico, Sala sala, LocalDateTime fechaHora,
+                            BigDecimal costo, String observaciones) {
+}
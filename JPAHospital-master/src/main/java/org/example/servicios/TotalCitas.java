@@ -0,0 +1,13 @@
+package org.example.servicios;
+
+import java.math.BigDecimal;
+
+/**
+ * Cantidad de citas y suma de sus costos para un grupo de un reporte.
+ *
+ * @param clave    El valor que identifica al grupo; su tipo depende de la {@link Agrupacion}. Es null para las
+ *                 citas sin ese dato (por ejemplo, sin sala).
+ * @param ingresos Suma de los costos; las citas sin costo cuentan como cero.
+ */
+public record TotalCitas(Object clave, long citas, BigDecimal ingresos) {
+}
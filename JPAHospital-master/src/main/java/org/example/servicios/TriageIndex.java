@@ -0,0 +1,261 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.entidades.EntradaHistoria;
+import org.example.entidades.Hospital;
+import org.example.entidades.Paciente;
+import org.example.entidades.TipoEntradaHistoria;
+import org.example.entidades.TipoSangre;
+import org.hibernate.SessionFactory;
+import org.hibernate.SessionFactoryObserver;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Índice invertido en memoria para el triage: tipo de sangre por hospital y alergia → pacientes,
+ * con conjuntos de long primitivos.
+ *
+ * Existe una única instancia por EntityManagerFactory. Se carga completa al crearse y se mantiene al día
+ * con los eventos de Hibernate al insertar, actualizar o borrar pacientes y al registrar alergias
+ * ({@link org.example.entidades.HistoriaClinica#agregarAlergia}). Los eventos se aplican al confirmar la
+ * transacción, así que los cambios revertidos nunca llegan al índice; como los conjuntos no admiten repetidos,
+ * un evento que llega después de una recarga que ya lo vio no tiene efecto. La instancia se descarta al cerrar
+ * la factory. Si la base se modifica por fuera de Hibernate, hay que llamar a {@link #reconstruir()}.
+ */
+public final class TriageIndex implements TriageService, PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+
+    private static final Map<SessionFactoryImplementor, TriageIndex> INSTANCIAS =
+            Collections.synchronizedMap(new WeakHashMap<>());
+    private static final int TAMANIO_LECTURA = 10_000;
+
+    private final EntityManagerFactory emf;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Pacientes por hospital; la clave null agrupa a los que no tienen hospital. */
+    private Map<Long, ConjuntoLong> pacientesPorHospital = new HashMap<>();
+    /** Pacientes por hospital y tipo de sangre. */
+    private Map<Long, EnumMap<TipoSangre, ConjuntoLong>> sangrePorHospital = new HashMap<>();
+    /** Pacientes por alergia, con la clave normalizada de {@link EntradaHistoria}. */
+    private Map<String, ConjuntoLong> pacientesPorAlergia = new HashMap<>();
+
+    private TriageIndex(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    /**
+     * Obtiene (o crea, carga y registra) el índice asociado a la factory.
+     */
+    public static TriageIndex de(EntityManagerFactory emf) {
+        Objects.requireNonNull(emf, "La EntityManagerFactory no puede ser nula.");
+        SessionFactoryImplementor sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+        return INSTANCIAS.computeIfAbsent(sessionFactory, sf -> {
+            TriageIndex indice = new TriageIndex(emf);
+            EventListenerRegistry registro = sf.getServiceRegistry().getService(EventListenerRegistry.class);
+            registro.appendListeners(EventType.POST_COMMIT_INSERT, indice);
+            registro.appendListeners(EventType.POST_COMMIT_UPDATE, indice);
+            registro.appendListeners(EventType.POST_COMMIT_DELETE, indice);
+            // Los listeners retienen la factory, que es la clave: sin esto la entrada no se liberaría nunca
+            sf.addObserver(new SessionFactoryObserver() {
+                @Override
+                public void sessionFactoryClosed(SessionFactory factory) {
+                    INSTANCIAS.remove(sf);
+                }
+            });
+            indice.reconstruir();
+            return indice;
+        });
+    }
+
+    @Override
+    public long[] getPacientesPorTipoSangre(Hospital hospital, TipoSangre tipoSangre) {
+        Objects.requireNonNull(tipoSangre, "El tipo de sangre no puede ser null");
+        lock.readLock().lock();
+        try {
+            if (hospital != null) {
+                EnumMap<TipoSangre, ConjuntoLong> porTipo = sangrePorHospital.get(hospital.getId());
+                ConjuntoLong pacientes = porTipo == null ? null : porTipo.get(tipoSangre);
+                return pacientes == null ? new long[0] : pacientes.aArreglo();
+            }
+            return sangrePorHospital.values().stream()
+                    .map(porTipo -> porTipo.get(tipoSangre))
+                    .filter(Objects::nonNull)
+                    .flatMapToLong(pacientes -> Arrays.stream(pacientes.aArreglo()))
+                    .sorted()
+                    .toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long[] getPacientesConAlergia(Hospital hospital, String alergia) {
+        Objects.requireNonNull(alergia, "La alergia no puede ser null");
+        lock.readLock().lock();
+        try {
+            ConjuntoLong alergicos = pacientesPorAlergia.get(EntradaHistoria.normalizar(alergia));
+            if (alergicos == null) return new long[0];
+            if (hospital == null) return alergicos.aArreglo();
+            ConjuntoLong delHospital = pacientesPorHospital.get(hospital.getId());
+            return delHospital == null ? new long[0] : ConjuntoLong.interseccion(alergicos, delHospital);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Descarta el índice y lo vuelve a cargar completo desde la base de datos.
+     */
+    public void reconstruir() {
+        lock.writeLock().lock();
+        try {
+            Map<Long, ConjuntoLong> porHospital = new HashMap<>();
+            Map<Long, EnumMap<TipoSangre, ConjuntoLong>> sangre = new HashMap<>();
+            Map<String, ConjuntoLong> alergias = new HashMap<>();
+            EntityManager em = emf.createEntityManager();
+            try (Stream<Object[]> pacientes = em.createQuery(
+                    "SELECT p.id, p.hospital.id, p.tipoSangre FROM Paciente p", Object[].class)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, TAMANIO_LECTURA)
+                    .getResultStream();
+                 Stream<Object[]> entradas = em.createQuery(
+                    "SELECT h.paciente.id, e.clave FROM EntradaHistoria e JOIN e.historia h WHERE e.tipo = :tipo", Object[].class)
+                    .setParameter("tipo", TipoEntradaHistoria.ALERGIA)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, TAMANIO_LECTURA)
+                    .getResultStream()) {
+                pacientes.forEach(fila -> agregarPaciente(porHospital, sangre, (Long) fila[1], (TipoSangre) fila[2], (Long) fila[0]));
+                entradas.forEach(fila -> agregarAlergia(alergias, (String) fila[1], (Long) fila[0]));
+            } finally {
+                em.close();
+            }
+            this.pacientesPorHospital = porHospital;
+            this.sangrePorHospital = sangre;
+            this.pacientesPorAlergia = alergias;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Paciente paciente) {
+            conEscritura(() -> agregarPaciente(pacientesPorHospital, sangrePorHospital, idDe(paciente.getHospital()), paciente.getTipoSangre(), paciente.getId()));
+        } else if (event.getEntity() instanceof EntradaHistoria entrada && entrada.getTipo() == TipoEntradaHistoria.ALERGIA) {
+            // El id de la asociación lazy se lee sin inicializar el proxy del paciente
+            Long pacienteId = entrada.getHistoria().getPaciente().getId();
+            conEscritura(() -> agregarAlergia(pacientesPorAlergia, entrada.getClave(), pacienteId));
+        }
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Paciente paciente)) return;
+        if (event.getOldState() == null) {
+            // Sin el estado previo no se sabe de qué conjunto quitarlo
+            reconstruir();
+            return;
+        }
+        String[] propiedades = event.getPersister().getPropertyNames();
+        Long hospitalAnterior = idDe((Hospital) valor(propiedades, event.getOldState(), "hospital"));
+        TipoSangre tipoAnterior = (TipoSangre) valor(propiedades, event.getOldState(), "tipoSangre");
+        conEscritura(() -> {
+            quitarPaciente(hospitalAnterior, tipoAnterior, paciente.getId());
+            agregarPaciente(pacientesPorHospital, sangrePorHospital, idDe(paciente.getHospital()), paciente.getTipoSangre(), paciente.getId());
+        });
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        // Las entradas de historia solo se borran junto con su paciente, que se quita de todos los conjuntos
+        if (!(event.getEntity() instanceof Paciente)) return;
+        long pacienteId = (Long) event.getId();
+        String[] propiedades = event.getPersister().getPropertyNames();
+        Long hospital = idDe((Hospital) valor(propiedades, event.getDeletedState(), "hospital"));
+        TipoSangre tipo = (TipoSangre) valor(propiedades, event.getDeletedState(), "tipoSangre");
+        conEscritura(() -> {
+            quitarPaciente(hospital, tipo, pacienteId);
+            pacientesPorAlergia.values().removeIf(alergicos -> alergicos.quitar(pacienteId) && alergicos.tamanio() == 0);
+        });
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        Class<?> clase = persister.getMappedClass();
+        return clase == Paciente.class || clase == EntradaHistoria.class;
+    }
+
+    private void conEscritura(Runnable cambio) {
+        lock.writeLock().lock();
+        try {
+            cambio.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void quitarPaciente(Long hospitalId, TipoSangre tipoSangre, long pacienteId) {
+        ConjuntoLong delHospital = pacientesPorHospital.get(hospitalId);
+        if (delHospital != null) delHospital.quitar(pacienteId);
+        EnumMap<TipoSangre, ConjuntoLong> porTipo = sangrePorHospital.get(hospitalId);
+        if (porTipo != null && tipoSangre != null && porTipo.containsKey(tipoSangre)) {
+            porTipo.get(tipoSangre).quitar(pacienteId);
+        }
+    }
+
+    private static void agregarPaciente(Map<Long, ConjuntoLong> porHospital, Map<Long, EnumMap<TipoSangre, ConjuntoLong>> sangre,
+                                        Long hospitalId, TipoSangre tipoSangre, Long pacienteId) {
+        if (pacienteId == null) return;
+        porHospital.computeIfAbsent(hospitalId, k -> new ConjuntoLong()).agregar(pacienteId);
+        if (tipoSangre == null) return;
+        sangre.computeIfAbsent(hospitalId, k -> new EnumMap<>(TipoSangre.class))
+                .computeIfAbsent(tipoSangre, k -> new ConjuntoLong())
+                .agregar(pacienteId);
+    }
+
+    private static void agregarAlergia(Map<String, ConjuntoLong> alergias, String clave, Long pacienteId) {
+        if (clave == null || pacienteId == null) return;
+        alergias.computeIfAbsent(clave, k -> new ConjuntoLong()).agregar(pacienteId);
+    }
+
+    private static Long idDe(Hospital hospital) {
+        return hospital == null ? null : hospital.getId();
+    }
+
+    private static Object valor(String[] propiedades, Object[] estado, String propiedad) {
+        for (int i = 0; i < propiedades.length; i++) {
+            if (propiedades[i].equals(propiedad)) return estado[i];
+        }
+        return null;
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.example.entidades.EntradaHistoria;
+import org.example.entidades.Hospital;
+import org.example.entidades.TipoEntradaHistoria;
+import org.example.entidades.TipoSangre;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Implementación del triage con consultas a la base de datos, apoyadas en los índices
+ * idx_paciente_hospital_sangre e idx_entrada_historia_clave. No inicializa ninguna colección.
+ */
+public class TriageManager implements TriageService {
+    private final EntityManager em;
+
+    public TriageManager(EntityManager em) {
+        this.em = Objects.requireNonNull(em, "El EntityManager no puede ser nulo.");
+    }
+
+    @Override
+    public long[] getPacientesPorTipoSangre(Hospital hospital, TipoSangre tipoSangre) {
+        Objects.requireNonNull(tipoSangre, "El tipo de sangre no puede ser null");
+        TypedQuery<Long> query = em.createQuery("SELECT p.id FROM Paciente p WHERE p.tipoSangre = :tipoSangre"
+                + (hospital != null ? " AND p.hospital = :hospital" : "") + " ORDER BY p.id", Long.class)
+                .setParameter("tipoSangre", tipoSangre);
+        if (hospital != null) query.setParameter("hospital", hospital);
+        return aArreglo(query.getResultList());
+    }
+
+    @Override
+    public long[] getPacientesConAlergia(Hospital hospital, String alergia) {
+        Objects.requireNonNull(alergia, "La alergia no puede ser null");
+        TypedQuery<Long> query = em.createQuery("SELECT DISTINCT h.paciente.id FROM EntradaHistoria e JOIN e.historia h"
+                + (hospital != null ? " JOIN h.paciente p" : "")
+                + " WHERE e.tipo = :tipo AND e.clave = :clave"
+                + (hospital != null ? " AND p.hospital = :hospital" : "") + " ORDER BY h.paciente.id", Long.class)
+                .setParameter("tipo", TipoEntradaHistoria.ALERGIA)
+                .setParameter("clave", EntradaHistoria.normalizar(alergia));
+        if (hospital != null) query.setParameter("hospital", hospital);
+        return aArreglo(query.getResultList());
+    }
+
+    private static long[] aArreglo(List<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+}
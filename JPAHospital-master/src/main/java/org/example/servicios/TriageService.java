@@ -0,0 +1,31 @@
+package org.example.servicios;
+
+import org.example.entidades.Hospital;
+import org.example.entidades.TipoSangre;
+
+/**
+ * Interfaz que define las búsquedas de pacientes para el triage de emergencias.
+ * Devuelven ids de pacientes (ordenados de menor a mayor) para no instanciar entidades;
+ * los datos de cada paciente se cargan después solo para los que se van a atender.
+ */
+public interface TriageService {
+
+    /**
+     * Pacientes de un hospital con el tipo de sangre indicado.
+     *
+     * @param hospital   El hospital, o null para buscar en todos.
+     * @param tipoSangre El tipo de sangre buscado.
+     * @return Los ids de los pacientes, en orden ascendente.
+     */
+    long[] getPacientesPorTipoSangre(Hospital hospital, TipoSangre tipoSangre);
+
+    /**
+     * Pacientes con una alergia registrada en su historia clínica.
+     * El término se compara sin distinguir mayúsculas ni acentos ({@link org.example.entidades.EntradaHistoria#normalizar}).
+     *
+     * @param hospital El hospital, o null para buscar en todos.
+     * @param alergia  La alergia buscada, por ejemplo "penicilina".
+     * @return Los ids de los pacientes, en orden ascendente.
+     */
+    long[] getPacientesConAlergia(Hospital hospital, String alergia);
+}
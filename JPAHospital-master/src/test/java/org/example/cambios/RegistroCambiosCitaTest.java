@@ -0,0 +1,186 @@
+package org.example.cambios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.CambioCita;
+import org.example.entidades.Departamento;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.Hospital;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.example.servicios.CitaException;
+import org.example.servicios.CitaManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Una transacción revertida no deja registros ni consume números de confirmación; las confirmadas a la vez reciben
+ * números consecutivos y {@link PublicadorCambios} las entrega en ese orden, una sola vez.
+ */
+class RegistroCambiosCitaTest {
+    private static final LocalDateTime INICIO = LocalDate.now().plusDays(7).atTime(8, 0);
+    private static final int HILOS = 4;
+    private static final int RESERVAS_POR_HILO = 15;
+
+    private EntityManagerFactory emf;
+    private Long medicoId;
+    private Long salaId;
+    private Long pacienteId;
+
+    @BeforeEach
+    void sembrar() {
+        emf = DatosPrueba.crearFactory("registroCambios");
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Hospital hospital = Hospital.builder().nombre("Hospital").direccion("Calle 1").telefono("261-000-0000").build();
+        Departamento departamento = Departamento.builder().nombre("Cardiología").especialidad(EspecialidadMedica.CARDIOLOGIA).build();
+        hospital.agregarDepartamento(departamento);
+        Sala sala = Sala.builder().numero("S-1").tipo("Consultorio").departamento(departamento).build();
+        departamento.agregarSala(sala);
+        Medico medico = DatosPrueba.medico(1, EspecialidadMedica.CARDIOLOGIA);
+        departamento.agregarMedico(medico);
+        Paciente paciente = DatosPrueba.paciente(1);
+        hospital.agregarPaciente(paciente);
+        em.persist(hospital);
+        em.getTransaction().commit();
+        em.close();
+        medicoId = medico.getId();
+        salaId = sala.getId();
+        pacienteId = paciente.getId();
+    }
+
+    @AfterEach
+    void cerrar() {
+        emf.close();
+    }
+
+    @Test
+    void reservaRevertidaNoDejaRegistrosNiConsumeNumero() throws CitaException {
+        reservar(0, false);
+        assertEquals(0L, contar("SELECT COUNT(c) FROM CambioCita c"));
+
+        reservar(1, true);
+        assertEquals(List.of(1L), confirmaciones());
+    }
+
+    @Test
+    void confirmacionesConcurrentesConsecutivasYEntregadasEnOrden() throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        List<Future<Integer>> confirmadas = new ArrayList<>();
+        try {
+            for (int h = 0; h < HILOS; h++) {
+                int hilo = h;
+                confirmadas.add(hilos.submit(() -> {
+                    int total = 0;
+                    for (int r = 0; r < RESERVAS_POR_HILO; r++) {
+                        // Una de cada tres se revierte después del flush
+                        boolean confirmar = r % 3 != 0;
+                        reservar(hilo * RESERVAS_POR_HILO + r, confirmar);
+                        if (confirmar) total++;
+                    }
+                    return total;
+                }));
+            }
+        } finally {
+            hilos.shutdown();
+        }
+        long total = 0;
+        for (Future<Integer> f : confirmadas) total += f.get();
+
+        assertEquals(LongStream.rangeClosed(1, total).boxed().toList(), confirmaciones());
+
+        List<CambioCita> entregados = Collections.synchronizedList(new ArrayList<>());
+        try (PublicadorCambios publicador = new PublicadorCambios(emf, "prueba", List.of(entregados::addAll), 7,
+                PublicadorCambios.INTERVALO_POR_DEFECTO)) {
+            assertEquals(total, publicador.publicarPendientes());
+            assertEquals(0, publicador.publicarPendientes());
+            assertEquals(0, publicador.estadisticas().huecos());
+        }
+        for (int i = 1; i < entregados.size(); i++) {
+            CambioCita anterior = entregados.get(i - 1);
+            CambioCita actual = entregados.get(i);
+            assertTrue(actual.getConfirmacion() > anterior.getConfirmacion()
+                    || (actual.getConfirmacion().equals(anterior.getConfirmacion()) && actual.getId() > anterior.getId()),
+                    "orden de entrega en la posición " + i);
+        }
+    }
+
+    @Test
+    void publicadorEsperaElNumeroQueFaltaAntesDeSaltearlo() throws CitaException {
+        reservar(0, true);
+        // Un COMMIT que falla después de tomar su número deja ese número sin registros
+        EntityManager em = emf.createEntityManager();
+        em.createNativeQuery("SELECT NEXT VALUE FOR " + RegistroCambiosCita.SECUENCIA).getSingleResult();
+        em.close();
+        reservar(1, true);
+
+        List<CambioCita> entregados = new ArrayList<>();
+        try (PublicadorCambios esperando = new PublicadorCambios(emf, "esperando", List.of(entregados::addAll),
+                PublicadorCambios.TAMANIO_LOTE_POR_DEFECTO, PublicadorCambios.INTERVALO_POR_DEFECTO, Duration.ofHours(1))) {
+            assertEquals(1, esperando.publicarPendientes());
+            assertEquals(0, esperando.publicarPendientes());
+            assertEquals(1, esperando.pendientes());
+        }
+        try (PublicadorCambios salteando = new PublicadorCambios(emf, "salteando", List.of(entregados::addAll),
+                PublicadorCambios.TAMANIO_LOTE_POR_DEFECTO, PublicadorCambios.INTERVALO_POR_DEFECTO, Duration.ZERO)) {
+            assertEquals(2, salteando.publicarPendientes());
+            assertEquals(1, salteando.estadisticas().huecos());
+            assertEquals(3L, salteando.estadisticas().ultimaConfirmacion());
+        }
+    }
+
+    private void reservar(int turno, boolean confirmar) throws CitaException {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.persist(new CitaManager(em).programarCita(em.find(Paciente.class, pacienteId), em.find(Medico.class, medicoId),
+                    em.find(Sala.class, salaId), INICIO.plusHours(3L * turno), new BigDecimal("1500.00"), null));
+            em.flush();
+            if (confirmar) {
+                em.getTransaction().commit();
+            } else {
+                em.getTransaction().rollback();
+            }
+        } finally {
+            if (em.getTransaction().isActive()) em.getTransaction().rollback();
+            em.close();
+        }
+    }
+
+    private List<Long> confirmaciones() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("SELECT DISTINCT c.confirmacion FROM CambioCita c ORDER BY c.confirmacion", Long.class)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    private long contar(String jpql) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery(jpql, Long.class).getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.example.configuracion;
+
+import jakarta.persistence.EntityManager;
+import org.example.DatosPrueba;
+import org.example.entidades.Cita;
+import org.example.entidades.Departamento;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Hospital;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.example.entidades.TipoSangre;
+import org.example.servicios.CitaException;
+import org.example.servicios.CitaManagerFragmentado;
+import org.example.servicios.CitaService;
+import org.example.servicios.FiltroCitas;
+import org.example.servicios.HuecoLibre;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link FragmentosHospital} y {@link CitaManagerFragmentado} sobre tres bases H2 en memoria: reparto de los
+ * hospitales e intercalado de sus ids, ruteo de las citas, rechazo de citas entre fragmentos y unión de las
+ * consultas que recorren todos los fragmentos.
+ */
+class FragmentosHospitalTest {
+    private static final int FRAGMENTOS = 3;
+    private static final String DNI_COMPARTIDO = "40000000";
+
+    private static FragmentosHospital fragmentos;
+    private static CitaService citas;
+    /** Un hospital por fragmento, en el orden en que se registraron. */
+    private static final List<Hospital> hospitales = new ArrayList<>();
+    private static LocalDateTime manana;
+
+    @BeforeAll
+    static void crearFragmentos() {
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < FRAGMENTOS; i++) urls.add("jdbc:h2:mem:fragmento-prueba-" + i + ";DB_CLOSE_DELAY=-1");
+        fragmentos = FragmentosHospital.crear(PerfilPersistencia.DESARROLLO, urls,
+                Map.of("hibernate.hbm2ddl.auto", "create-drop", "hibernate.show_sql", "false", "hibernate.format_sql", "false"));
+        citas = new CitaManagerFragmentado(fragmentos);
+        for (int h = 0; h < 2 * FRAGMENTOS; h++) {
+            hospitales.add(fragmentos.registrar(hospital(h)));
+        }
+        manana = LocalDateTime.now().plusDays(1).withHour(8).withMinute(0).withSecond(0).withNano(0);
+    }
+
+    @AfterAll
+    static void cerrar() {
+        fragmentos.close();
+    }
+
+    @Test
+    void losHospitalesSeRepartenPorTurnosConIdsIntercalados() {
+        for (int h = 0; h < hospitales.size(); h++) {
+            Hospital hospital = hospitales.get(h);
+            assertEquals(h % FRAGMENTOS, fragmentos.indiceDe(hospital), "fragmento del hospital " + hospital.getId());
+            assertEquals(h + 1L, hospital.getId(), "los ids de los fragmentos se intercalan");
+            for (int f = 0; f < FRAGMENTOS; f++) {
+                EntityManager em = fragmentos.factory(f).createEntityManager();
+                try {
+                    Hospital guardado = em.find(Hospital.class, hospital.getId());
+                    if (f == fragmentos.indiceDe(hospital)) assertNotNull(guardado, "el hospital está en su fragmento");
+                    else assertNull(guardado, "el hospital no está en otro fragmento");
+                } finally {
+                    em.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    void laCitaSeGuardaEnElFragmentoDeSuHospital() throws CitaException {
+        Hospital hospital = hospitales.get(1);
+        Cita cita = citas.programarCita(paciente(hospital), medico(hospital), sala(hospital), manana.plusDays(10), BigDecimal.TEN, "Control");
+
+        for (int f = 0; f < FRAGMENTOS; f++) {
+            EntityManager em = fragmentos.factory(f).createEntityManager();
+            try {
+                long guardadas = em.createQuery("SELECT COUNT(c) FROM Cita c WHERE c.observaciones = 'Control'", Long.class).getSingleResult();
+                assertEquals(f == fragmentos.indiceDe(hospital) ? 1 : 0, guardadas, "citas en el fragmento " + f);
+            } finally {
+                em.close();
+            }
+        }
+        assertTrue(citas.getCitasPorMedico(medico(hospital)).stream().anyMatch(c -> c.getId().equals(cita.getId())));
+    }
+
+    @Test
+    void seRechazaUnaCitaEntreFragmentos() {
+        Hospital propio = hospitales.get(0);
+        Hospital ajeno = hospitales.get(2);
+        CitaException error = assertThrows(CitaException.class, () -> citas.programarCita(
+                paciente(ajeno), medico(propio), sala(propio), manana.plusDays(20), BigDecimal.TEN, "Entre fragmentos"));
+        assertEquals(CitaException.Motivo.OTRO, error.getMotivo());
+
+        long guardadas = fragmentos.enTodos(em -> em.createQuery(
+                "SELECT c FROM Cita c WHERE c.observaciones = 'Entre fragmentos'", Cita.class).getResultList()).size();
+        assertEquals(0, guardadas);
+    }
+
+    @Test
+    void lasConsultasDeTodosLosFragmentosSeUnen() {
+        // Cada fragmento tiene un médico de cardiología libre a primera hora
+        List<HuecoLibre> huecos = citas.buscarHuecosLibres(EspecialidadMedica.CARDIOLOGIA, manana, manana.plusHours(4), FRAGMENTOS);
+        assertEquals(FRAGMENTOS, huecos.size());
+        huecos.forEach(hueco -> assertEquals(manana, hueco.fechaHora()));
+        Set<String> medicos = huecos.stream().map(hueco -> hueco.medico().getApellido()).collect(Collectors.toSet());
+        assertEquals(FRAGMENTOS, medicos.size(), "un hueco de cada fragmento");
+
+        List<HuecoLibre> ordenados = citas.buscarHuecosLibres(EspecialidadMedica.CARDIOLOGIA, manana, manana.plusHours(4), 4 * FRAGMENTOS);
+        for (int i = 1; i < ordenados.size(); i++) {
+            assertTrue(!ordenados.get(i).fechaHora().isBefore(ordenados.get(i - 1).fechaHora()), "huecos ordenados por fecha");
+        }
+
+        // El mismo DNI está registrado en un hospital de cada fragmento
+        List<Paciente> pacientes = fragmentos.buscarPacientesPorDni(DNI_COMPARTIDO);
+        assertEquals(FRAGMENTOS, pacientes.size());
+        for (int i = 0; i < pacientes.size(); i++) {
+            assertEquals(i, fragmentos.indiceDe(pacientes.get(i)), "resultados en el orden de los fragmentos");
+        }
+    }
+
+    @Test
+    void elCambioMasivoSinFiltroRecorreTodosLosFragmentos() throws CitaException {
+        LocalDateTime fecha = manana.plusDays(30);
+        for (int f = 0; f < FRAGMENTOS; f++) {
+            Hospital hospital = hospitales.get(f);
+            citas.programarCita(paciente(hospital), medico(hospital), sala(hospital), fecha, BigDecimal.TEN, "Masivo");
+        }
+        int canceladas = citas.cambiarEstadoMasivo(EstadoCita.PROGRAMADA, EstadoCita.CANCELADA,
+                new FiltroCitas(fecha, fecha, null, null));
+        assertEquals(FRAGMENTOS, canceladas);
+    }
+
+    /**
+     * Hospital con un departamento de cardiología, un médico, una sala y un paciente; los pacientes de los primeros
+     * hospitales, uno por fragmento, tienen el mismo DNI.
+     */
+    private static Hospital hospital(int n) {
+        Hospital hospital = Hospital.builder().nombre("Hospital " + n).direccion("Calle " + n).telefono("261-000-0000").build();
+        Departamento departamento = Departamento.builder().nombre("Cardiología").especialidad(EspecialidadMedica.CARDIOLOGIA).build();
+        hospital.agregarDepartamento(departamento);
+        departamento.agregarSala(Sala.builder().numero("S-" + n).tipo("Consultorio").departamento(departamento).build());
+        departamento.agregarMedico(DatosPrueba.medico(n, EspecialidadMedica.CARDIOLOGIA));
+        hospital.agregarPaciente(Paciente.builder()
+                .nombre("Paciente").apellido("N" + n).dni(n < FRAGMENTOS ? DNI_COMPARTIDO : String.valueOf(50_000_000 + n))
+                .fechaNacimiento(LocalDate.of(1990, 1, 1)).tipoSangre(TipoSangre.O_POSITIVO)
+                .telefono("261-000-0000").direccion("Calle " + n)
+                .build());
+        return hospital;
+    }
+
+    private static Medico medico(Hospital hospital) {
+        return hospital.getDepartamentos().get(0).getMedicos().get(0);
+    }
+
+    private static Sala sala(Hospital hospital) {
+        return hospital.getDepartamentos().get(0).getSalas().get(0);
+    }
+
+    private static Paciente paciente(Hospital hospital) {
+        return hospital.getPacientes().get(0);
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.configuracion;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Departamento;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.Hospital;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.TipoEntradaHistoria;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Las migraciones de datos se aplican una sola vez, a pedido, y solo sobre una factory que actualiza el esquema.
+ */
+class MigracionesDatosTest {
+    private EntityManagerFactory emf;
+    private Long historiaId;
+    private Long medicoId;
+    private Long pacienteId;
+
+    @BeforeEach
+    void crearBaseAnterior() {
+        emf = DatosPrueba.crearFactory("migraciones", Map.of("hibernate.hbm2ddl.auto", "update"));
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Hospital hospital = Hospital.builder().nombre("Hospital").direccion("Calle 1").telefono("261-000-0000").build();
+        Paciente paciente = DatosPrueba.paciente(1);
+        hospital.agregarPaciente(paciente);
+        Departamento departamento = Departamento.builder().nombre("Cardiología").especialidad(EspecialidadMedica.CARDIOLOGIA).build();
+        hospital.agregarDepartamento(departamento);
+        Medico medico = DatosPrueba.medico(1, EspecialidadMedica.CARDIOLOGIA);
+        departamento.agregarMedico(medico);
+        em.persist(hospital);
+        em.flush();
+        historiaId = paciente.getHistoriaClinica().getId();
+        medicoId = medico.getId();
+        pacienteId = paciente.getId();
+        // Colección de la versión anterior de HistoriaClinica
+        em.unwrap(Session.class).doWork(conexion -> {
+            try (Statement sentencia = conexion.createStatement()) {
+                sentencia.execute("CREATE TABLE historia_diagnosticos (historia_id BIGINT NOT NULL, diagnostico VARCHAR(255))");
+                sentencia.executeUpdate("INSERT INTO historia_diagnosticos VALUES (" + historiaId + ", 'Hipertensión'), ("
+                        + historiaId + ", 'Diabetes tipo 2')");
+                // Fila creada antes de la columna de versión
+                sentencia.executeUpdate("UPDATE Medico SET version = NULL WHERE id = " + medicoId);
+                // Secuencia recién creada sobre filas insertadas con IDENTITY
+                sentencia.execute("ALTER SEQUENCE Paciente_SEQ RESTART WITH 1");
+            }
+        });
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    @AfterEach
+    void borrarBase() {
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        em.createNativeQuery("DROP ALL OBJECTS").executeUpdate();
+        em.getTransaction().commit();
+        em.close();
+        emf.close();
+    }
+
+    @Test
+    void aplicaCadaMigracionUnaSolaVez() {
+        assertEquals(List.of(1, 2, 3, 4), MigracionesDatos.aplicar(emf));
+        assertEquals(List.of("Diabetes tipo 2", "Hipertensión"), diagnosticos());
+        assertEquals(0L, contar("SELECT COUNT(*) FROM historia_diagnosticos"));
+        assertEquals(0L, contar("SELECT version FROM Medico WHERE id = " + medicoId));
+        assertTrue(contar("SELECT NEXT VALUE FOR Paciente_SEQ") > pacienteId, "la secuencia no vuelve a generar ids existentes");
+
+        assertEquals(List.of(), MigracionesDatos.aplicar(emf));
+        assertEquals(2, diagnosticos().size());
+    }
+
+    @Test
+    void noMigraUnaFactoryQueNoActualizaElEsquema() {
+        for (String esquema : List.of("none", "validate")) {
+            // La misma base, como la abriría una réplica de lectura o el perfil PRODUCCION
+            EntityManagerFactory otra = DatosPrueba.crearFactory("migraciones", Map.of(
+                    "hibernate.hbm2ddl.auto", esquema,
+                    "hibernate.cache.use_second_level_cache", "false",
+                    "hibernate.cache.use_query_cache", "false"));
+            try {
+                assertThrows(IllegalStateException.class, () -> MigracionesDatos.aplicar(otra));
+            } finally {
+                otra.close();
+            }
+        }
+        assertEquals(1L, contar("SELECT COUNT(*) FROM historia_diagnosticos WHERE diagnostico = 'Hipertensión'"));
+        assertEquals(1L, contar("SELECT COUNT(*) FROM Medico WHERE version IS NULL"));
+        assertEquals(1L, contar("SELECT NEXT VALUE FOR Paciente_SEQ"));
+    }
+
+    private List<String> diagnosticos() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("SELECT e.descripcion FROM EntradaHistoria e WHERE e.historia.id = :historia"
+                            + " AND e.tipo = :tipo ORDER BY e.descripcion", String.class)
+                    .setParameter("historia", historiaId)
+                    .setParameter("tipo", TipoEntradaHistoria.DIAGNOSTICO)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    private long contar(String sql) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return ((Number) em.createNativeQuery(sql).getSingleResult()).longValue();
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.exportacion;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Cita;
+import org.example.entidades.Departamento;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Hospital;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.example.servicios.CitaException;
+import org.example.servicios.CitaManager;
+import org.example.servicios.CitaResumen;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Lo que {@link LectorColumnar} lee de un archivo por columnas es exactamente lo que se escribió: las citas de la
+ * base exportadas con {@link ExportadorCitas}, y filas con nulos, costos negativos o de distinta escala, id que
+ * retroceden y fechas anteriores a la época repartidas en más de un bloque.
+ */
+class ExportadorCitasTest {
+    @TempDir
+    Path directorio;
+
+    @Test
+    void columnarConservaCadaFilaEntreBloques() throws IOException {
+        List<CitaResumen> escritas = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.of(1965, 3, 1, 8, 0);
+        EstadoCita[] estados = EstadoCita.values();
+        for (int i = 0; i < EscritorColumnar.FILAS_POR_BLOQUE + 10; i++) {
+            // Cada diez filas una con todas las columnas nulas salvo el id
+            escritas.add(i % 10 == 9
+                    ? new CitaResumen((long) i * 3, null, null, null, null, null, null)
+                    : new CitaResumen(i % 7 == 0 ? i * 3L - 100 : i * 3L,
+                            base.plusMinutes(37L * i),
+                            estados[i % estados.length],
+                            BigDecimal.valueOf(i % 5 == 0 ? -i : i * 125L, i % 4),
+                            "Medico " + (i % 13),
+                            "S-" + (i % 3),
+                            "Paciente Ñandú " + i));
+        }
+
+        Path archivo = directorio.resolve("citas.hcit");
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             EscritorCitas escritor = new EscritorColumnar(canal)) {
+            for (CitaResumen cita : escritas) escritor.escribir(cita);
+        }
+
+        List<CitaResumen> leidas = new ArrayList<>();
+        assertEquals(escritas.size(), LectorColumnar.leer(archivo, leidas::add));
+        assertEquals(escritas, leidas);
+    }
+
+    @Test
+    void exportarYLeerDevuelveLasCitasDeLaBase() throws Exception {
+        EntityManagerFactory emf = DatosPrueba.crearFactory("exportacion");
+        try {
+            sembrarCitas(emf, 25);
+            Path archivo = directorio.resolve("exportacion.hcit");
+
+            ExportadorCitas.Resultado resultado = new ExportadorCitas(emf).exportar(null, ExportadorCitas.Formato.COLUMNAR, archivo);
+
+            List<CitaResumen> leidas = new ArrayList<>();
+            assertEquals(25, LectorColumnar.leer(archivo, leidas::add));
+            assertEquals(25, resultado.filas());
+            assertEquals(Files.size(archivo), resultado.bytes());
+            assertEquals(citasDeLaBase(emf), leidas);
+        } finally {
+            emf.close();
+        }
+    }
+
+    private static void sembrarCitas(EntityManagerFactory emf, int cantidad) throws CitaException {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Hospital hospital = Hospital.builder().nombre("Hospital").direccion("Calle 1").telefono("261-000-0000").build();
+            Departamento departamento = Departamento.builder().nombre("Cardiología").especialidad(EspecialidadMedica.CARDIOLOGIA).build();
+            hospital.agregarDepartamento(departamento);
+            Sala sala = Sala.builder().numero("S-1").tipo("Consultorio").departamento(departamento).build();
+            departamento.agregarSala(sala);
+            Medico medico = DatosPrueba.medico(1, EspecialidadMedica.CARDIOLOGIA);
+            departamento.agregarMedico(medico);
+            Paciente paciente = DatosPrueba.paciente(1);
+            hospital.agregarPaciente(paciente);
+            em.persist(hospital);
+
+            CitaManager citas = new CitaManager(em);
+            LocalDateTime inicio = LocalDate.now().plusDays(7).atTime(8, 0);
+            for (int i = 0; i < cantidad; i++) {
+                Cita cita = citas.programarCita(paciente, medico, sala, inicio.plusHours(3L * i),
+                        new BigDecimal("1500.00").add(BigDecimal.valueOf(i)), null);
+                em.persist(cita);
+                em.flush();
+            }
+            em.getTransaction().commit();
+        } finally {
+            if (em.getTransaction().isActive()) em.getTransaction().rollback();
+            em.close();
+        }
+    }
+
+    private static List<CitaResumen> citasDeLaBase(EntityManagerFactory emf) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("SELECT new org.example.servicios.CitaResumen(c.id, c.fechaHora, c.estado, c.costo, "
+                    + "CONCAT(c.medico.nombre, ' ', c.medico.apellido), c.sala.numero, "
+                    + "CONCAT(c.paciente.nombre, ' ', c.paciente.apellido)) FROM Cita c ORDER BY c.id", CitaResumen.class)
+                    .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Departamento;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.Hospital;
+import org.example.entidades.Sala;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Los médicos y salas de una especialidad salen de la caché de consultas en las búsquedas de huecos repetidas,
+ * y una sala nueva invalida el resultado guardado de las salas sin tocar el de los médicos.
+ */
+class BuscarHuecosCacheTest {
+    // buscarHuecosLibres no busca antes del momento actual
+    private static final LocalDateTime DESDE = LocalDate.now().plusDays(7).atTime(8, 0);
+    private static final LocalDateTime HASTA = DESDE.plusDays(5);
+    private static final int MEDICOS = 5;
+    private static final int LIMITE = 500;
+
+    private EntityManagerFactory emf;
+    private Statistics estadisticas;
+    private Long departamentoSinSalasId;
+
+    @BeforeEach
+    void sembrar() {
+        emf = DatosPrueba.crearFactory("huecos");
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Hospital hospital = Hospital.builder().nombre("Hospital").direccion("Calle 1").telefono("261-000-0000").build();
+        Departamento departamento = Departamento.builder().nombre("Cardiología").especialidad(EspecialidadMedica.CARDIOLOGIA).build();
+        hospital.agregarDepartamento(departamento);
+        departamento.agregarSala(Sala.builder().numero("S-1").tipo("Consultorio").departamento(departamento).build());
+        for (int m = 0; m < MEDICOS; m++) {
+            departamento.agregarMedico(DatosPrueba.medico(m, EspecialidadMedica.CARDIOLOGIA));
+        }
+        // Su médico no tiene huecos hasta que el departamento tenga una sala
+        Departamento sinSalas = Departamento.builder().nombre("Cardiología infantil").especialidad(EspecialidadMedica.CARDIOLOGIA).build();
+        hospital.agregarDepartamento(sinSalas);
+        sinSalas.agregarMedico(DatosPrueba.medico(MEDICOS, EspecialidadMedica.CARDIOLOGIA));
+        em.persist(hospital);
+        em.getTransaction().commit();
+        em.close();
+        departamentoSinSalasId = sinSalas.getId();
+        estadisticas = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void cerrar() {
+        emf.close();
+    }
+
+    @Test
+    void busquedaRepetidaSoloConsultaLasCitas() {
+        buscar();
+        estadisticas.clear();
+        buscar();
+        assertEquals(2, estadisticas.getQueryCacheHitCount(), "aciertos en la caché de consultas");
+        assertEquals(1, estadisticas.getPrepareStatementCount(), "sentencias preparadas");
+        assertEquals(0, estadisticas.getEntityLoadCount(), "entidades cargadas desde la base");
+    }
+
+    @Test
+    void salaNuevaInvalidaElResultado() {
+        assertTrue(buscar().stream().allMatch(h -> "S-1".equals(h.sala().getNumero())));
+
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Departamento departamento = em.find(Departamento.class, departamentoSinSalasId);
+        departamento.agregarSala(Sala.builder().numero("S-2").tipo("Consultorio").departamento(departamento).build());
+        em.getTransaction().commit();
+        em.close();
+
+        estadisticas.clear();
+        assertTrue(buscar().stream().anyMatch(h -> "S-2".equals(h.sala().getNumero())));
+        assertEquals(1, estadisticas.getQueryCacheHitCount(), "aciertos en la caché de consultas");
+    }
+
+    private List<HuecoLibre> buscar() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return new CitaManager(em).buscarHuecosLibres(EspecialidadMedica.CARDIOLOGIA, DESDE, HASTA, LIMITE);
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Hospital;
+import org.example.entidades.Paciente;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Un DNI no registrado se recuerda y la búsqueda repetida no llega a la base, hasta que se registra un paciente con
+ * ese DNI. Al corregir el DNI de un paciente se descartan la clave anterior y la nueva.
+ */
+class CacheDirectorioTest {
+    private static final String DNI_NUEVO = "40000001";
+
+    private EntityManagerFactory emf;
+    private CacheDirectorio cache;
+    private Hospital hospital;
+    private Paciente paciente;
+
+    @BeforeEach
+    void sembrar() {
+        emf = DatosPrueba.crearFactory("cacheDirectorio");
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        hospital = Hospital.builder().nombre("Hospital").direccion("Calle 1").telefono("261-000-0000").build();
+        paciente = DatosPrueba.paciente(1);
+        hospital.agregarPaciente(paciente);
+        em.persist(hospital);
+        em.getTransaction().commit();
+        em.close();
+        cache = CacheDirectorio.de(emf);
+    }
+
+    @AfterEach
+    void cerrar() {
+        emf.close();
+    }
+
+    @Test
+    void dniNoRegistradoSeRecuerdaHastaQueSeRegistra() {
+        assertTrue(buscar(DNI_NUEVO).isEmpty());
+        assertTrue(buscar(DNI_NUEVO).isEmpty());
+
+        CacheDirectorio.Estadisticas estadisticas = cache.estadisticas();
+        assertEquals(1, estadisticas.fallos(), "solo la primera búsqueda consulta la base");
+        assertEquals(1, estadisticas.aciertosAusentes());
+
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Paciente registrado = Paciente.builder()
+                .nombre("Nuevo").apellido("Paciente").dni(DNI_NUEVO).fechaNacimiento(paciente.getFechaNacimiento())
+                .tipoSangre(paciente.getTipoSangre()).telefono("261-000-0000").direccion("Calle 2")
+                .build();
+        em.find(Hospital.class, hospital.getId()).agregarPaciente(registrado);
+        em.persist(registrado);
+        em.getTransaction().commit();
+        em.close();
+
+        assertEquals(Optional.of(registrado.getId()), buscar(DNI_NUEVO).map(FichaPaciente::id));
+    }
+
+    @Test
+    void corregirDniDescartaLaClaveAnteriorYLaNueva() {
+        String anterior = paciente.getDni();
+        assertEquals(Optional.of(paciente.getId()), buscar(anterior).map(FichaPaciente::id));
+        assertTrue(buscar(DNI_NUEVO).isEmpty());
+        long fallos = cache.estadisticas().fallos();
+        // Las dos claves están guardadas: la del paciente y la del DNI inexistente
+        buscar(anterior);
+        buscar(DNI_NUEVO);
+        assertEquals(fallos, cache.estadisticas().fallos());
+
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        em.find(Paciente.class, paciente.getId()).corregirDni(DNI_NUEVO);
+        em.getTransaction().commit();
+        em.close();
+
+        assertTrue(buscar(anterior).isEmpty());
+        assertEquals(Optional.of(paciente.getId()), buscar(DNI_NUEVO).map(FichaPaciente::id));
+        assertEquals(fallos + 2, cache.estadisticas().fallos());
+    }
+
+    private Optional<FichaPaciente> buscar(String dni) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return new DirectorioManager(em, cache).buscarPacientePorDni(dni);
+        } finally {
+            em.close();
+        }
+    }
+}
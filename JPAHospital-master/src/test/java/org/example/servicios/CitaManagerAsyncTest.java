@@ -0,0 +1,69 @@
+package org.example.servicios;
+
+import org.example.entidades.Cita;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Contrapresión de {@link CitaManagerAsync}: con todas las operaciones admitidas en curso, la siguiente se rechaza
+ * en el momento con un futuro fallido, sin encolarse ni llegar al servicio, y se vuelve a admitir al liberarse lugar.
+ */
+class CitaManagerAsyncTest {
+    private static final int MAXIMO_EN_CURSO = 2;
+
+    @Test
+    void rechazaLaOperacionQueExcedeElMaximoEnCurso() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        CountDownLatch ejecutadas = new CountDownLatch(MAXIMO_EN_CURSO);
+        CitaService bloqueado = servicio(liberar, ejecutadas);
+
+        try (CitaManagerAsync async = new CitaManagerAsync(bloqueado, MAXIMO_EN_CURSO)) {
+            CompletableFuture<?>[] admitidas = new CompletableFuture<?>[MAXIMO_EN_CURSO];
+            for (int i = 0; i < MAXIMO_EN_CURSO; i++) {
+                admitidas[i] = reservar(async);
+            }
+            assertTrue(ejecutadas.await(10, TimeUnit.SECONDS));
+            assertEquals(MAXIMO_EN_CURSO, async.getEnCurso());
+
+            CompletableFuture<Cita> rechazada = reservar(async);
+            assertTrue(rechazada.isCompletedExceptionally(), "se rechaza sin esperar");
+            ExecutionException e = assertThrows(ExecutionException.class, rechazada::get);
+            assertInstanceOf(RejectedExecutionException.class, e.getCause());
+            assertEquals(MAXIMO_EN_CURSO, async.getEnCurso(), "la rechazada no ocupa lugar");
+
+            liberar.countDown();
+            CompletableFuture.allOf(admitidas).get(10, TimeUnit.SECONDS);
+            assertEquals(0, async.getEnCurso());
+            reservar(async).get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static CompletableFuture<Cita> reservar(CitaManagerAsync async) {
+        return async.programarCitaAsync(null, null, null, LocalDateTime.now().plusDays(1), BigDecimal.TEN, null);
+    }
+
+    /**
+     * Servicio cuyas operaciones esperan a {@code liberar} antes de terminar.
+     */
+    private static CitaService servicio(CountDownLatch liberar, CountDownLatch ejecutadas) {
+        return (CitaService) Proxy.newProxyInstance(CitaService.class.getClassLoader(), new Class<?>[]{CitaService.class},
+                (proxy, metodo, args) -> {
+                    ejecutadas.countDown();
+                    liberar.await();
+                    return null;
+                });
+    }
+}
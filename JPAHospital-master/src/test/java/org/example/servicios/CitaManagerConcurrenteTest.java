@@ -0,0 +1,196 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.LockModeType;
+import org.example.DatosPrueba;
+import org.example.entidades.Cita;
+import org.example.entidades.Departamento;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.Hospital;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Muchas reservas simultáneas del mismo médico, la misma sala y el mismo horario dejan una sola cita. En modo
+ * OPTIMISTA, una reserva cuyo médico cambió de versión antes de confirmar se repite, y se rechaza al agotar los intentos.
+ */
+class CitaManagerConcurrenteTest {
+    private static final LocalDateTime HORARIO = LocalDate.now().plusDays(7).atTime(8, 0);
+    private static final int HILOS = 8;
+
+    private EntityManagerFactory emf;
+    private Medico medico;
+    private Sala sala;
+    private final List<Paciente> pacientes = new ArrayList<>();
+
+    @BeforeEach
+    void sembrar() {
+        emf = DatosPrueba.crearFactory("reservasConcurrentes");
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Hospital hospital = Hospital.builder().nombre("Hospital").direccion("Calle 1").telefono("261-000-0000").build();
+        Departamento departamento = Departamento.builder().nombre("Cardiología").especialidad(EspecialidadMedica.CARDIOLOGIA).build();
+        hospital.agregarDepartamento(departamento);
+        sala = Sala.builder().numero("S-1").tipo("Consultorio").departamento(departamento).build();
+        departamento.agregarSala(sala);
+        medico = DatosPrueba.medico(1, EspecialidadMedica.CARDIOLOGIA);
+        departamento.agregarMedico(medico);
+        for (int i = 0; i < HILOS; i++) {
+            Paciente paciente = DatosPrueba.paciente(i);
+            hospital.agregarPaciente(paciente);
+            pacientes.add(paciente);
+        }
+        em.persist(hospital);
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    @AfterEach
+    void cerrar() {
+        emf.close();
+    }
+
+    @Test
+    void pesimistaSinIndiceReservaUnaSolaVez() throws Exception {
+        reservarALaVez(new CitaManagerConcurrente(emf, null, CitaManagerConcurrente.Bloqueo.PESIMISTA));
+    }
+
+    @Test
+    void pesimistaConIndiceReservaUnaSolaVez() throws Exception {
+        reservarALaVez(new CitaManagerConcurrente(emf, new DisponibilidadIndex(emf), CitaManagerConcurrente.Bloqueo.PESIMISTA));
+    }
+
+    @Test
+    void optimistaReintentaTrasUnConflictoDeVersion() throws CitaException {
+        CitaManagerConcurrente servicio = new CitaManagerConcurrente(emf, new IndiceConConflictos(emf, 2),
+                CitaManagerConcurrente.Bloqueo.OPTIMISTA);
+        long versionInicial = versionMedico();
+
+        Cita cita = servicio.programarCita(pacientes.get(0), medico, sala, HORARIO, new BigDecimal("1500.00"), null);
+
+        assertNotNull(cita.getId());
+        assertEquals(2, MetricasCitas.de(emf).getReintentos());
+        assertEquals(1L, contarCitas());
+        // Dos incrementos de la otra transacción y el de la reserva que confirmó
+        assertEquals(versionInicial + 3, versionMedico());
+    }
+
+    @Test
+    void optimistaRechazaAlAgotarLosIntentos() {
+        CitaManagerConcurrente servicio = new CitaManagerConcurrente(emf, new IndiceConConflictos(emf, Integer.MAX_VALUE),
+                CitaManagerConcurrente.Bloqueo.OPTIMISTA);
+
+        CitaException e = assertThrows(CitaException.class,
+                () -> servicio.programarCita(pacientes.get(0), medico, sala, HORARIO, new BigDecimal("1500.00"), null));
+
+        assertEquals(CitaException.Motivo.CONFLICTO_CONCURRENTE, e.getMotivo());
+        assertEquals(CitaManagerConcurrente.MAXIMO_INTENTOS - 1, MetricasCitas.de(emf).getReintentos());
+        assertEquals(0L, contarCitas());
+    }
+
+    /**
+     * Índice que, mientras la reserva valida al médico, confirma otra transacción que incrementa su versión.
+     */
+    private static class IndiceConConflictos extends DisponibilidadIndex {
+        private final EntityManagerFactory emf;
+        private int conflictos;
+
+        IndiceConConflictos(EntityManagerFactory emf, int conflictos) {
+            super(emf);
+            this.emf = emf;
+            this.conflictos = conflictos;
+        }
+
+        @Override
+        boolean esMedicoDisponible(EntityManager em, Long medicoId, LocalDateTime fechaHora) {
+            if (conflictos > 0) {
+                conflictos--;
+                EntityManager otra = emf.createEntityManager();
+                try {
+                    otra.getTransaction().begin();
+                    otra.find(Medico.class, medicoId, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+                    otra.getTransaction().commit();
+                } finally {
+                    otra.close();
+                }
+            }
+            return super.esMedicoDisponible(em, medicoId, fechaHora);
+        }
+    }
+
+    private void reservarALaVez(CitaService servicio) throws Exception {
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        List<Future<CitaException.Motivo>> reservas = new ArrayList<>();
+        try {
+            for (Paciente paciente : pacientes) {
+                reservas.add(executor.submit(() -> {
+                    largada.await();
+                    try {
+                        servicio.programarCita(paciente, medico, sala, HORARIO, new BigDecimal("1500.00"), null);
+                        return null;
+                    } catch (CitaException e) {
+                        return e.getMotivo();
+                    }
+                }));
+            }
+            largada.countDown();
+            int aceptadas = 0;
+            for (Future<CitaException.Motivo> f : reservas) {
+                CitaException.Motivo motivo = f.get(1, TimeUnit.MINUTES);
+                if (motivo == null) {
+                    aceptadas++;
+                } else {
+                    assertEquals(CitaException.Motivo.MEDICO_NO_DISPONIBLE, motivo);
+                }
+            }
+            assertEquals(1, aceptadas);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1L, contarCitas());
+    }
+
+    private long versionMedico() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("SELECT m.version FROM Medico m WHERE m.id = :id", Long.class)
+                    .setParameter("id", medico.getId())
+                    .getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    private long contarCitas() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.createQuery("SELECT COUNT(c) FROM Cita c WHERE c.medico.id = :medico AND c.fechaHora = :fechaHora", Long.class)
+                    .setParameter("medico", medico.getId())
+                    .setParameter("fechaHora", HORARIO)
+                    .getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+}
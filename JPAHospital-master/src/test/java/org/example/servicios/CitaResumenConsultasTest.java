@@ -0,0 +1,115 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Cita;
+import org.example.entidades.Departamento;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Hospital;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.RepeatedTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Los listados de {@link CitaResumen} se resuelven con una sola sentencia y sin cargar entidades, tengan el médico
+ * o el paciente una cita o muchas.
+ */
+class CitaResumenConsultasTest {
+    private static final int CITAS = 40;
+
+    private static EntityManagerFactory emf;
+    private static Statistics estadisticas;
+    private static Long medicoConMuchas;
+    private static Long medicoConUna;
+    private static Long pacienteConMuchas;
+    private static Long pacienteConUna;
+
+    @BeforeAll
+    static void sembrar() {
+        emf = DatosPrueba.crearFactory("resumen");
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Hospital hospital = Hospital.builder().nombre("Hospital").direccion("Calle 1").telefono("261-000-0000").build();
+        Departamento departamento = Departamento.builder().nombre("Cardiología").especialidad(EspecialidadMedica.CARDIOLOGIA).build();
+        hospital.agregarDepartamento(departamento);
+        Sala sala = Sala.builder().numero("S-1").tipo("Consultorio").departamento(departamento).build();
+        departamento.agregarSala(sala);
+        Medico muchas = DatosPrueba.medico(1, EspecialidadMedica.CARDIOLOGIA);
+        Medico una = DatosPrueba.medico(2, EspecialidadMedica.CARDIOLOGIA);
+        departamento.agregarMedico(muchas);
+        departamento.agregarMedico(una);
+        Paciente frecuente = DatosPrueba.paciente(1);
+        Paciente ocasional = DatosPrueba.paciente(2);
+        hospital.agregarPaciente(frecuente);
+        hospital.agregarPaciente(ocasional);
+        em.persist(hospital);
+
+        LocalDateTime inicio = LocalDateTime.of(2030, 1, 7, 8, 0);
+        for (int i = 0; i < CITAS; i++) {
+            em.persist(cita(frecuente, muchas, sala, inicio.plusHours(3L * i)));
+        }
+        em.persist(cita(ocasional, una, sala, inicio.minusDays(1)));
+        em.getTransaction().commit();
+        em.close();
+
+        medicoConMuchas = muchas.getId();
+        medicoConUna = una.getId();
+        pacienteConMuchas = frecuente.getId();
+        pacienteConUna = ocasional.getId();
+        estadisticas = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterAll
+    static void cerrar() {
+        emf.close();
+    }
+
+    @RepeatedTest(3)
+    void resumenPorMedicoUsaUnaSentencia() {
+        assertEquals(CITAS, listarEnUnaSentencia(em -> new CitaManager(em).getResumenCitasPorMedico(em.getReference(Medico.class, medicoConMuchas))));
+        assertEquals(1, listarEnUnaSentencia(em -> new CitaManager(em).getResumenCitasPorMedico(em.getReference(Medico.class, medicoConUna))));
+    }
+
+    @RepeatedTest(3)
+    void resumenPorPacienteUsaUnaSentencia() {
+        assertEquals(CITAS, listarEnUnaSentencia(em -> new CitaManager(em).getResumenCitasPorPaciente(em.getReference(Paciente.class, pacienteConMuchas))));
+        assertEquals(1, listarEnUnaSentencia(em -> new CitaManager(em).getResumenCitasPorPaciente(em.getReference(Paciente.class, pacienteConUna))));
+    }
+
+    /**
+     * Ejecuta el listado en un EntityManager nuevo, comprueba que usó una sola sentencia y ninguna entidad,
+     * y devuelve la cantidad de citas listadas.
+     */
+    private static int listarEnUnaSentencia(Function<EntityManager, List<CitaResumen>> listado) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            estadisticas.clear();
+            List<CitaResumen> citas = listado.apply(em);
+            assertEquals(1, estadisticas.getPrepareStatementCount(), "sentencias preparadas");
+            assertEquals(0, estadisticas.getEntityLoadCount(), "entidades cargadas");
+            return citas.size();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static Cita cita(Paciente paciente, Medico medico, Sala sala, LocalDateTime fechaHora) {
+        return Cita.builder().paciente(paciente).medico(medico).sala(sala)
+                .fechaHora(fechaHora).costo(new BigDecimal("1500.00")).estado(EstadoCita.PROGRAMADA)
+                .build();
+    }
+}
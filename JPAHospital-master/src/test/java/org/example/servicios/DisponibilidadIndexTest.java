@@ -0,0 +1,242 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Cita;
+import org.example.entidades.Departamento;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Hospital;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El índice sigue las reservas confirmadas sin recargarse: una inserción ocupa el horario, mover o cancelar la cita
+ * lo libera, una reserva revertida no lo ocupa y un cambio de estado masivo se aplica sin reconstruir el índice.
+ * Las reconstrucciones concurrentes con las reservas no pierden ni duplican citas.
+ */
+class DisponibilidadIndexTest {
+    private static final LocalDateTime INICIO = LocalDate.now().plusDays(7).atTime(8, 0);
+
+    private EntityManagerFactory emf;
+    private DisponibilidadIndex indice;
+    private Long medicoId;
+    private Long salaId;
+    private Long otraSalaId;
+    private Long pacienteId;
+
+    @BeforeEach
+    void sembrar() {
+        emf = DatosPrueba.crearFactory("disponibilidad");
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Hospital hospital = Hospital.builder().nombre("Hospital").direccion("Calle 1").telefono("261-000-0000").build();
+        Departamento departamento = Departamento.builder().nombre("Cardiología").especialidad(EspecialidadMedica.CARDIOLOGIA).build();
+        hospital.agregarDepartamento(departamento);
+        Sala sala = Sala.builder().numero("S-1").tipo("Consultorio").departamento(departamento).build();
+        Sala otraSala = Sala.builder().numero("S-2").tipo("Consultorio").departamento(departamento).build();
+        departamento.agregarSala(sala);
+        departamento.agregarSala(otraSala);
+        Medico medico = DatosPrueba.medico(1, EspecialidadMedica.CARDIOLOGIA);
+        departamento.agregarMedico(medico);
+        Paciente paciente = DatosPrueba.paciente(1);
+        hospital.agregarPaciente(paciente);
+        em.persist(hospital);
+        em.getTransaction().commit();
+        em.close();
+        medicoId = medico.getId();
+        salaId = sala.getId();
+        otraSalaId = otraSala.getId();
+        pacienteId = paciente.getId();
+        indice = new DisponibilidadIndex(emf);
+    }
+
+    @AfterEach
+    void cerrar() {
+        emf.close();
+    }
+
+    @Test
+    void reservaOcupaMedicoYSala() throws CitaException {
+        reservar(INICIO, salaId, true);
+        assertFalse(indice.esMedicoDisponible(medicoId, INICIO.plusMinutes(90)));
+        assertFalse(indice.esSalaDisponible(salaId, INICIO.minusMinutes(90)));
+        assertTrue(indice.esMedicoDisponible(medicoId, INICIO.plusHours(3)));
+        assertTrue(indice.esSalaDisponible(otraSalaId, INICIO));
+    }
+
+    @Test
+    void reservaRevertidaNoOcupa() throws CitaException {
+        reservar(INICIO, salaId, false);
+        assertTrue(indice.esMedicoDisponible(medicoId, INICIO));
+        assertTrue(indice.esSalaDisponible(salaId, INICIO));
+    }
+
+    @Test
+    void moverLiberaElHorarioAnterior() throws CitaException {
+        Long citaId = reservar(INICIO, salaId, true);
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Cita cita = em.find(Cita.class, citaId);
+        cita.setFechaHora(INICIO.plusHours(6));
+        cita.setSala(em.find(Sala.class, otraSalaId));
+        em.getTransaction().commit();
+        em.close();
+
+        assertTrue(indice.esMedicoDisponible(medicoId, INICIO));
+        assertTrue(indice.esSalaDisponible(salaId, INICIO.plusHours(6)));
+        assertFalse(indice.esMedicoDisponible(medicoId, INICIO.plusHours(6)));
+        assertFalse(indice.esSalaDisponible(otraSalaId, INICIO.plusHours(6)));
+    }
+
+    @Test
+    void actualizacionSinEstadoAnteriorLiberaElHorarioAnterior() throws CitaException {
+        Long citaId = reservar(INICIO, salaId, true);
+        // Lo que EventosCita entrega cuando Hibernate no conoce el estado previo (una entidad separada reasociada)
+        indice.alActualizar(null, new InstantaneaCita(citaId, medicoId, salaId, pacienteId, INICIO.plusHours(6),
+                EstadoCita.PROGRAMADA, new BigDecimal("1500.00")));
+
+        assertFalse(indice.isDesactualizado(), "la actualización no reconstruye el índice");
+        assertTrue(indice.esMedicoDisponible(medicoId, INICIO));
+        assertFalse(indice.esMedicoDisponible(medicoId, INICIO.plusHours(6)));
+    }
+
+    @Test
+    void cancelarLiberaElHorario() throws CitaException {
+        Long citaId = reservar(INICIO, salaId, true);
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        em.find(Cita.class, citaId).setEstado(EstadoCita.CANCELADA);
+        em.getTransaction().commit();
+        em.close();
+
+        assertTrue(indice.esMedicoDisponible(medicoId, INICIO));
+        assertTrue(indice.esSalaDisponible(salaId, INICIO));
+    }
+
+    @Test
+    void cancelacionMasivaLiberaSoloLasDelFiltro() throws CitaException {
+        reservar(INICIO, salaId, true);
+        reservar(INICIO.plusHours(3), salaId, true);
+        reservar(INICIO.plusDays(1), salaId, true);
+
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        int canceladas = new CitaManager(em, indice).cambiarEstadoMasivo(EstadoCita.PROGRAMADA, EstadoCita.CANCELADA,
+                new FiltroCitas(INICIO, INICIO.plusHours(12), null, null));
+        em.getTransaction().commit();
+        em.close();
+
+        assertEquals(2, canceladas);
+        assertFalse(indice.isDesactualizado(), "el cambio masivo no reconstruye el índice");
+        assertTrue(indice.esMedicoDisponible(medicoId, INICIO));
+        assertTrue(indice.esMedicoDisponible(medicoId, INICIO.plusHours(3)));
+        assertFalse(indice.esMedicoDisponible(medicoId, INICIO.plusDays(1)));
+    }
+
+    @Test
+    void reconstruccionesConcurrentesNoPierdenNiDuplicanCitas() throws Exception {
+        int hilos = 4;
+        int reservasPorHilo = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(hilos + 1);
+        AtomicBoolean reservando = new AtomicBoolean(true);
+        AtomicInteger reconstrucciones = new AtomicInteger();
+        try {
+            Future<?> reconstructor = executor.submit(() -> {
+                while (reservando.get()) {
+                    indice.reconstruir();
+                    reconstrucciones.incrementAndGet();
+                }
+            });
+            List<Future<?>> reservas = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                int hilo = h;
+                reservas.add(executor.submit(() -> {
+                    for (int r = 0; r < reservasPorHilo; r++) {
+                        reservar(turno(hilo * reservasPorHilo + r), salaId, true);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : reservas) f.get(1, TimeUnit.MINUTES);
+            reservando.set(false);
+            reconstructor.get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(reconstrucciones.get() > 0);
+
+        for (int t = 0; t < hilos * reservasPorHilo; t++) {
+            assertFalse(indice.esMedicoDisponible(medicoId, turno(t)), "turno " + t);
+        }
+        // Una entrada duplicada seguiría ocupando el horario después de cancelar
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        em.createQuery("SELECT c FROM Cita c", Cita.class).getResultList().forEach(c -> c.setEstado(EstadoCita.CANCELADA));
+        em.getTransaction().commit();
+        em.close();
+        for (int t = 0; t < hilos * reservasPorHilo; t++) {
+            assertTrue(indice.esMedicoDisponible(medicoId, turno(t)), "turno " + t);
+        }
+    }
+
+    @Test
+    void invalidarReconstruyeEnSegundoPlanoYConsultaLaBaseMientrasTanto() throws Exception {
+        reservar(INICIO, salaId, true);
+        EventosCita.de(emf).invalidar();
+        // Reservado o no, con el índice al día o contando en la base, la respuesta es la misma
+        assertFalse(indice.esMedicoDisponible(medicoId, INICIO));
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (indice.isDesactualizado() && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        assertFalse(indice.isDesactualizado());
+        assertFalse(indice.esMedicoDisponible(medicoId, INICIO));
+        assertTrue(indice.esMedicoDisponible(medicoId, INICIO.plusHours(3)));
+    }
+
+    private static LocalDateTime turno(int n) {
+        return INICIO.plusHours(3L * n);
+    }
+
+    private Long reservar(LocalDateTime fechaHora, Long sala, boolean confirmar) throws CitaException {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Cita cita = new CitaManager(em, indice).programarCita(em.find(Paciente.class, pacienteId),
+                    em.find(Medico.class, medicoId), em.find(Sala.class, sala), fechaHora, new BigDecimal("1500.00"), null);
+            em.persist(cita);
+            em.flush();
+            if (confirmar) {
+                em.getTransaction().commit();
+            } else {
+                em.getTransaction().rollback();
+            }
+            return cita.getId();
+        } finally {
+            if (em.getTransaction().isActive()) em.getTransaction().rollback();
+            em.close();
+        }
+    }
+}
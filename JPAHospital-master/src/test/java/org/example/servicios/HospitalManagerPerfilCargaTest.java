@@ -0,0 +1,107 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnitUtil;
+import org.example.DatosPrueba;
+import org.example.entidades.Departamento;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.Hospital;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cada {@link PerfilCarga} carga un hospital de {@value #DEPARTAMENTOS} departamentos y {@value #PACIENTES} pacientes
+ * con a lo sumo {@value #MAXIMO_SENTENCIAS} sentencias, con la caché de segundo nivel vacía, y deja inicializado
+ * todo lo que el perfil promete. El censo deja sin cargar las historias clínicas.
+ */
+class HospitalManagerPerfilCargaTest {
+    private static final int DEPARTAMENTOS = 40;
+    private static final int MEDICOS_POR_DEPARTAMENTO = 5;
+    private static final int SALAS_POR_DEPARTAMENTO = 2;
+    private static final int PACIENTES = 10_000;
+    private static final int MAXIMO_SENTENCIAS = 4;
+    private static final EspecialidadMedica[] ESPECIALIDADES = EspecialidadMedica.values();
+
+    private static EntityManagerFactory emf;
+    private static Long hospitalId;
+
+    @BeforeAll
+    static void sembrar() {
+        emf = DatosPrueba.crearFactory("perfiles");
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Hospital hospital = Hospital.builder().nombre("Hospital").direccion("Calle 1").telefono("261-000-0000").build();
+        for (int d = 0; d < DEPARTAMENTOS; d++) {
+            EspecialidadMedica especialidad = ESPECIALIDADES[d % ESPECIALIDADES.length];
+            Departamento departamento = Departamento.builder().nombre("Departamento " + d).especialidad(especialidad).build();
+            hospital.agregarDepartamento(departamento);
+            for (int m = 0; m < MEDICOS_POR_DEPARTAMENTO; m++) {
+                departamento.agregarMedico(DatosPrueba.medico(d * MEDICOS_POR_DEPARTAMENTO + m, especialidad));
+            }
+            for (int s = 0; s < SALAS_POR_DEPARTAMENTO; s++) {
+                departamento.agregarSala(Sala.builder().numero("S-" + d + "-" + s).tipo("Consultorio").departamento(departamento).build());
+            }
+        }
+        em.persist(hospital);
+        for (int p = 0; p < PACIENTES; p++) {
+            Paciente paciente = DatosPrueba.paciente(p);
+            hospital.agregarPaciente(paciente);
+            em.persist(paciente);
+            if ((p + 1) % 1_000 == 0) em.flush();
+        }
+        em.getTransaction().commit();
+        em.close();
+        hospitalId = hospital.getId();
+    }
+
+    @AfterAll
+    static void cerrar() {
+        emf.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(PerfilCarga.class)
+    void cargaElPerfilConPocasSentencias(PerfilCarga perfil) {
+        SessionFactory sessionFactory = emf.unwrap(SessionFactory.class);
+        // Cache.evictAll de JPA no vacía las regiones de colecciones
+        sessionFactory.getCache().evictAllRegions();
+        Statistics estadisticas = sessionFactory.getStatistics();
+        estadisticas.clear();
+
+        EntityManager em = emf.createEntityManager();
+        Hospital hospital;
+        try {
+            hospital = new HospitalManager(em).cargar(hospitalId, perfil);
+        } finally {
+            em.close(); // Lo que el perfil no inicializó ya no se puede cargar
+        }
+        long sentencias = estadisticas.getPrepareStatementCount();
+
+        if (perfil != PerfilCarga.CENSO) {
+            int elementos = 0;
+            for (Departamento departamento : hospital.getDepartamentos()) {
+                elementos += 1 + departamento.getMedicos().size() + departamento.getSalas().size();
+            }
+            assertEquals(DEPARTAMENTOS * (1 + MEDICOS_POR_DEPARTAMENTO + SALAS_POR_DEPARTAMENTO), elementos, "directorio");
+        }
+        if (perfil != PerfilCarga.DIRECTORIO) {
+            assertEquals(PACIENTES, hospital.getPacientes().size(), "censo");
+            PersistenceUnitUtil util = emf.getPersistenceUnitUtil();
+            for (Paciente paciente : hospital.getPacientes()) {
+                assertFalse(util.isLoaded(paciente, "historias"), "historia clínica sin cargar");
+            }
+        }
+        assertTrue(sentencias <= MAXIMO_SENTENCIAS, "el perfil " + perfil + " usó " + sentencias + " sentencias");
+    }
+}
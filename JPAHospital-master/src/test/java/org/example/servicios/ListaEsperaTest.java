@@ -0,0 +1,203 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.cambios.PublicadorCambios;
+import org.example.entidades.Cita;
+import org.example.entidades.Departamento;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.EstadoSolicitudEspera;
+import org.example.entidades.Hospital;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.example.entidades.SolicitudEspera;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * El horario de una cita cancelada se asigna a la primera solicitud que lo acepta, validado con el mismo índice que
+ * el resto de las reservas. Si el horario ya se ocupó la solicitud sigue esperando, y una oferta que falla no impide
+ * las demás del lote.
+ */
+class ListaEsperaTest {
+    private static final LocalDateTime HORARIO = LocalDate.now().plusDays(7).atTime(8, 0);
+    private static final BigDecimal COSTO = new BigDecimal("1500.00");
+
+    private EntityManagerFactory emf;
+    private IndiceConFallas indice;
+    private CitaService citas;
+    private Medico medico;
+    private Medico otroMedico;
+    private Sala sala;
+    private Sala otraSala;
+    private Paciente titular;
+    private Paciente primero;
+    private Paciente segundo;
+
+    @BeforeEach
+    void sembrar() {
+        emf = DatosPrueba.crearFactory("listaEspera");
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Hospital hospital = Hospital.builder().nombre("Hospital").direccion("Calle 1").telefono("261-000-0000").build();
+        Departamento departamento = Departamento.builder().nombre("Cardiología").especialidad(EspecialidadMedica.CARDIOLOGIA).build();
+        hospital.agregarDepartamento(departamento);
+        sala = Sala.builder().numero("S-1").tipo("Consultorio").departamento(departamento).build();
+        otraSala = Sala.builder().numero("S-2").tipo("Consultorio").departamento(departamento).build();
+        departamento.agregarSala(sala);
+        departamento.agregarSala(otraSala);
+        medico = DatosPrueba.medico(1, EspecialidadMedica.CARDIOLOGIA);
+        otroMedico = DatosPrueba.medico(2, EspecialidadMedica.CARDIOLOGIA);
+        departamento.agregarMedico(medico);
+        departamento.agregarMedico(otroMedico);
+        titular = DatosPrueba.paciente(1);
+        primero = DatosPrueba.paciente(2);
+        segundo = DatosPrueba.paciente(3);
+        hospital.agregarPaciente(titular);
+        hospital.agregarPaciente(primero);
+        hospital.agregarPaciente(segundo);
+        em.persist(hospital);
+        em.getTransaction().commit();
+        em.close();
+        indice = new IndiceConFallas(emf);
+        citas = new CitaManagerConcurrente(emf, indice);
+    }
+
+    @AfterEach
+    void cerrar() {
+        emf.close();
+    }
+
+    @Test
+    void cancelacionAsignaLaSolicitudDeMayorPrioridad() throws CitaException {
+        Cita cita = citas.programarCita(titular, medico, sala, HORARIO, COSTO, null);
+        Long tarde = anotar(primero, null, 2);
+        Long antes = anotar(segundo, null, 1);
+        cancelar(cita.getId());
+
+        AsignadorListaEspera asignador = new AsignadorListaEspera(emf, indice);
+        publicar(asignador);
+
+        assertEquals(1, asignador.getOfrecidos());
+        assertEquals(1, asignador.getAsignados());
+        assertEquals(EstadoSolicitudEspera.ASIGNADA, estado(antes));
+        assertEquals(EstadoSolicitudEspera.PENDIENTE, estado(tarde));
+        assertFalse(indice.esMedicoDisponible(medico.getId(), HORARIO), "el índice ve la cita asignada");
+    }
+
+    @Test
+    void horarioOcupadoDejaLaSolicitudEsperando() throws CitaException {
+        Cita cita = citas.programarCita(titular, medico, sala, HORARIO, COSTO, null);
+        Long solicitud = anotar(primero, medico, 1);
+        cancelar(cita.getId());
+        // Otra reserva toma el horario antes de que se ofrezca
+        citas.programarCita(titular, medico, sala, HORARIO, COSTO, null);
+        long rechazosPrevios = rechazos();
+
+        AsignadorListaEspera asignador = new AsignadorListaEspera(emf, indice);
+        publicar(asignador);
+
+        assertEquals(1, asignador.getOfrecidos());
+        assertEquals(0, asignador.getAsignados());
+        assertEquals(EstadoSolicitudEspera.PENDIENTE, estado(solicitud));
+        assertEquals(rechazosPrevios + 1, rechazos());
+    }
+
+    @Test
+    void unaOfertaFallidaNoDetieneElLote() throws CitaException {
+        Long citaA = citas.programarCita(titular, medico, sala, HORARIO, COSTO, null).getId();
+        Long citaB = citas.programarCita(titular, otroMedico, otraSala, HORARIO, COSTO, null).getId();
+        Long solicitudA = anotar(primero, medico, 1);
+        Long solicitudB = anotar(segundo, otroMedico, 1);
+        cancelar(citaA, citaB);
+        indice.medicoConFalla = medico.getId();
+
+        AsignadorListaEspera asignador = new AsignadorListaEspera(emf, indice);
+        try (PublicadorCambios publicador = new PublicadorCambios(emf, "prueba", List.of(asignador))) {
+            publicador.publicarPendientes();
+            assertEquals(0, publicador.estadisticas().fallos(), "el lote no se repite");
+        }
+
+        assertEquals(1, asignador.getFallidos());
+        assertEquals(1, asignador.getAsignados());
+        assertEquals(EstadoSolicitudEspera.PENDIENTE, estado(solicitudA));
+        assertEquals(EstadoSolicitudEspera.ASIGNADA, estado(solicitudB));
+    }
+
+    /**
+     * Índice que falla con un error inesperado al validar un médico.
+     */
+    private static class IndiceConFallas extends DisponibilidadIndex {
+        private volatile Long medicoConFalla;
+
+        IndiceConFallas(EntityManagerFactory emf) {
+            super(emf);
+        }
+
+        @Override
+        boolean esMedicoDisponible(EntityManager em, Long medicoId, LocalDateTime fechaHora) {
+            if (medicoId.equals(medicoConFalla)) throw new IllegalStateException("Falla del índice");
+            return super.esMedicoDisponible(em, medicoId, fechaHora);
+        }
+    }
+
+    private Long anotar(Paciente paciente, Medico elegido, int prioridad) throws CitaException {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            SolicitudEspera solicitud = new ListaEsperaManager(em).anotar(SolicitudEspera.builder()
+                    .paciente(em.find(Paciente.class, paciente.getId()))
+                    .especialidad(EspecialidadMedica.CARDIOLOGIA)
+                    .medico(elegido == null ? null : em.find(Medico.class, elegido.getId()))
+                    .desde(HORARIO.minusDays(1)).hasta(HORARIO.plusDays(1))
+                    .prioridad(prioridad).costo(COSTO)
+                    .build());
+            em.getTransaction().commit();
+            return solicitud.getId();
+        } finally {
+            if (em.getTransaction().isActive()) em.getTransaction().rollback();
+            em.close();
+        }
+    }
+
+    private void cancelar(Long... ids) {
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        for (Long id : ids) {
+            em.find(Cita.class, id).setEstado(EstadoCita.CANCELADA);
+        }
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    private void publicar(AsignadorListaEspera asignador) {
+        try (PublicadorCambios publicador = new PublicadorCambios(emf, "prueba", List.of(asignador))) {
+            publicador.publicarPendientes();
+        }
+    }
+
+    private EstadoSolicitudEspera estado(Long solicitud) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return em.find(SolicitudEspera.class, solicitud).getEstado();
+        } finally {
+            em.close();
+        }
+    }
+
+    private long rechazos() {
+        return MetricasCitas.de(emf).instantanea().rechazos().get(CitaException.Motivo.MEDICO_NO_DISPONIBLE);
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Cita;
+import org.example.entidades.Departamento;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.Hospital;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Una reserva como la de {@code Main} (buscar médico, sala y paciente, validar y persistir la cita) toma el médico,
+ * la sala y el departamento de la caché de segundo nivel una vez que están en ella, y usa menos sentencias.
+ */
+class ProgramarCitaCacheTest {
+    private static final List<String> REGIONES = List.of("medico", "sala", "departamento");
+
+    private static EntityManagerFactory emf;
+    private static Long medicoId;
+    private static Long salaId;
+    private static Long pacienteId;
+    private static LocalDateTime fechaHora = LocalDate.now().plusDays(7).atTime(8, 0);
+
+    @BeforeAll
+    static void sembrar() {
+        emf = DatosPrueba.crearFactory("reservaCache");
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Hospital hospital = Hospital.builder().nombre("Hospital").direccion("Calle 1").telefono("261-000-0000").build();
+        Departamento departamento = Departamento.builder().nombre("Cardiología").especialidad(EspecialidadMedica.CARDIOLOGIA).build();
+        hospital.agregarDepartamento(departamento);
+        Sala sala = Sala.builder().numero("S-1").tipo("Consultorio").departamento(departamento).build();
+        departamento.agregarSala(sala);
+        Medico medico = DatosPrueba.medico(1, EspecialidadMedica.CARDIOLOGIA);
+        departamento.agregarMedico(medico);
+        Paciente paciente = DatosPrueba.paciente(1);
+        hospital.agregarPaciente(paciente);
+        em.persist(hospital);
+        em.getTransaction().commit();
+        em.close();
+        medicoId = medico.getId();
+        salaId = sala.getId();
+        pacienteId = paciente.getId();
+    }
+
+    @AfterAll
+    static void cerrar() {
+        emf.close();
+    }
+
+    @Test
+    void reservaConCacheCaliente() throws CitaException {
+        emf.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        EstadisticasCache.reiniciar(emf);
+        reservar();
+        long sentenciasEnFrio = EstadisticasCache.sentencias(emf);
+        Map<String, EstadisticasCache.Region> enFrio = regiones();
+        for (String region : REGIONES) {
+            assertEquals(0, enFrio.get(region).aciertos(), "aciertos en frío de " + region);
+            assertTrue(enFrio.get(region).fallos() > 0, "fallos en frío de " + region);
+        }
+
+        EstadisticasCache.reiniciar(emf);
+        reservar();
+        long sentenciasEnCaliente = EstadisticasCache.sentencias(emf);
+        Map<String, EstadisticasCache.Region> enCaliente = regiones();
+        for (String region : REGIONES) {
+            assertEquals(1, enCaliente.get(region).aciertos(), "aciertos en caliente de " + region);
+            assertEquals(0, enCaliente.get(region).fallos(), "fallos en caliente de " + region);
+        }
+        // Médico, sala y departamento dejan de leerse de la base
+        assertTrue(sentenciasEnCaliente <= sentenciasEnFrio - REGIONES.size(),
+                "sentencias en frío " + sentenciasEnFrio + ", en caliente " + sentenciasEnCaliente);
+    }
+
+    private static void reservar() throws CitaException {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            Cita cita = new CitaManager(em).programarCita(em.find(Paciente.class, pacienteId), em.find(Medico.class, medicoId),
+                    em.find(Sala.class, salaId), fechaHora, new BigDecimal("1500.00"), null);
+            em.persist(cita);
+            em.getTransaction().commit();
+            fechaHora = fechaHora.plusHours(3);
+        } finally {
+            if (em.getTransaction().isActive()) em.getTransaction().rollback();
+            em.close();
+        }
+    }
+
+    private static Map<String, EstadisticasCache.Region> regiones() {
+        return EstadisticasCache.regiones(emf).stream()
+                .collect(Collectors.toMap(EstadisticasCache.Region::nombre, r -> r));
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.cambios.RegistroCambiosCita;
+import org.example.entidades.Departamento;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.Hospital;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Las citas de un lote toman sus ids de bloques de cita_seq y se insertan con lotes JDBC, en lugar de una sentencia
+ * (y una lectura del id generado) por cita.
+ */
+class ProgramarCitasLotesTest {
+    private static final int SOLICITUDES = 200;
+    private static final int AGENDAS = 4;
+    /** hibernate.jdbc.batch_size y allocationSize de cita_seq. */
+    private static final int LOTE = 50;
+
+    private static EntityManagerFactory emf;
+    private static final List<Long> medicos = new ArrayList<>();
+    private static final List<Long> salas = new ArrayList<>();
+    private static Long pacienteId;
+
+    @BeforeAll
+    static void sembrar() {
+        // Sin el historial de cambios, que escribe sus propias filas
+        emf = DatosPrueba.crearFactory("lotesCitas", Map.of(RegistroCambiosCita.PROPIEDAD, "false"));
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Hospital hospital = Hospital.builder().nombre("Hospital").direccion("Calle 1").telefono("261-000-0000").build();
+        Departamento departamento = Departamento.builder().nombre("Cardiología").especialidad(EspecialidadMedica.CARDIOLOGIA).build();
+        hospital.agregarDepartamento(departamento);
+        List<Medico> nuevosMedicos = new ArrayList<>();
+        List<Sala> nuevasSalas = new ArrayList<>();
+        for (int i = 0; i < AGENDAS; i++) {
+            Sala sala = Sala.builder().numero("S-" + i).tipo("Consultorio").departamento(departamento).build();
+            departamento.agregarSala(sala);
+            nuevasSalas.add(sala);
+            Medico medico = DatosPrueba.medico(i, EspecialidadMedica.CARDIOLOGIA);
+            departamento.agregarMedico(medico);
+            nuevosMedicos.add(medico);
+        }
+        Paciente paciente = DatosPrueba.paciente(1);
+        hospital.agregarPaciente(paciente);
+        em.persist(hospital);
+        em.getTransaction().commit();
+        em.close();
+        nuevosMedicos.forEach(m -> medicos.add(m.getId()));
+        nuevasSalas.forEach(s -> salas.add(s.getId()));
+        pacienteId = paciente.getId();
+    }
+
+    @AfterAll
+    static void cerrar() {
+        emf.close();
+    }
+
+    @Test
+    void insertaLasCitasPorLotes() {
+        Statistics estadisticas = emf.unwrap(SessionFactory.class).getStatistics();
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            List<SolicitudCita> solicitudes = new ArrayList<>(SOLICITUDES);
+            LocalDateTime inicio = LocalDate.now().plusDays(7).atTime(8, 0);
+            Paciente paciente = em.find(Paciente.class, pacienteId);
+            for (int i = 0; i < SOLICITUDES; i++) {
+                solicitudes.add(new SolicitudCita(paciente, em.find(Medico.class, medicos.get(i % AGENDAS)),
+                        em.find(Sala.class, salas.get(i % AGENDAS)), inicio.plusHours(3L * (i / AGENDAS)),
+                        new BigDecimal("1500.00"), null));
+            }
+            estadisticas.clear();
+            List<ResultadoSolicitud> resultados = new CitaManager(em).programarCitas(solicitudes);
+            em.getTransaction().commit();
+            assertEquals(SOLICITUDES, resultados.stream().filter(ResultadoSolicitud::isAceptada).count());
+            // Una consulta de agendas y, por cada lote, un INSERT y una lectura de cita_seq (más la del primer bloque)
+            long lotes = SOLICITUDES / LOTE;
+            assertTrue(estadisticas.getPrepareStatementCount() <= 2 * lotes + 2,
+                    "sentencias preparadas: " + estadisticas.getPrepareStatementCount());
+        } finally {
+            if (em.getTransaction().isActive()) em.getTransaction().rollback();
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Departamento;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.EstadoCita;
+import org.example.entidades.Hospital;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.Sala;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Los totales en memoria coinciden con el GROUP BY de {@link ReporteManager} en todas las agrupaciones después de
+ * reservar y después de un cambio de estado masivo. Si una confirmación demora la recarga más de lo admitido, la
+ * consulta se responde desde la base y la recarga se hace en la siguiente.
+ */
+class ReporteAcumuladoTest {
+    private static final LocalDateTime INICIO = LocalDate.now().plusDays(7).atTime(8, 0);
+    private static final BigDecimal COSTO = new BigDecimal("1500.00");
+
+    private EntityManagerFactory emf;
+    private CitaService citas;
+    private Medico cardiologo;
+    private Medico pediatra;
+    private Sala consultorio;
+    private Sala otroConsultorio;
+    private Paciente paciente;
+
+    @BeforeEach
+    void sembrar() {
+        emf = DatosPrueba.crearFactory("reporteAcumulado");
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Hospital hospital = Hospital.builder().nombre("Hospital").direccion("Calle 1").telefono("261-000-0000").build();
+        Departamento cardiologia = Departamento.builder().nombre("Cardiología").especialidad(EspecialidadMedica.CARDIOLOGIA).build();
+        Departamento pediatria = Departamento.builder().nombre("Pediatría").especialidad(EspecialidadMedica.PEDIATRIA).build();
+        hospital.agregarDepartamento(cardiologia);
+        hospital.agregarDepartamento(pediatria);
+        consultorio = Sala.builder().numero("C-1").tipo("Consultorio").departamento(cardiologia).build();
+        otroConsultorio = Sala.builder().numero("P-1").tipo("Consultorio").departamento(pediatria).build();
+        cardiologia.agregarSala(consultorio);
+        pediatria.agregarSala(otroConsultorio);
+        cardiologo = DatosPrueba.medico(1, EspecialidadMedica.CARDIOLOGIA);
+        pediatra = DatosPrueba.medico(2, EspecialidadMedica.PEDIATRIA);
+        cardiologia.agregarMedico(cardiologo);
+        pediatria.agregarMedico(pediatra);
+        paciente = DatosPrueba.paciente(1);
+        hospital.agregarPaciente(paciente);
+        em.persist(hospital);
+        em.getTransaction().commit();
+        em.close();
+        citas = new CitaManagerConcurrente(emf, new DisponibilidadIndex(emf));
+    }
+
+    @AfterEach
+    void cerrar() {
+        emf.close();
+    }
+
+    @Test
+    void coincideConElGroupByTrasReservar() throws CitaException {
+        ReporteAcumulado acumulado = ReporteAcumulado.de(emf);
+        assertCoincideConLaBase(acumulado);
+
+        reservarVarias();
+
+        assertEquals(4, citasEn(acumulado.getTotales(Agrupacion.ESTADO, null, null)));
+        assertCoincideConLaBase(acumulado);
+    }
+
+    @Test
+    void coincideConElGroupByTrasUnCambioMasivo() throws CitaException {
+        ReporteAcumulado acumulado = ReporteAcumulado.de(emf);
+        reservarVarias();
+
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        int canceladas = new CitaManager(em).cambiarEstadoMasivo(EstadoCita.PROGRAMADA, EstadoCita.CANCELADA,
+                new FiltroCitas(INICIO, INICIO.plusHours(12), null, null));
+        em.getTransaction().commit();
+        em.close();
+
+        assertEquals(2, canceladas);
+        assertCoincideConLaBase(acumulado);
+    }
+
+    @Test
+    void recargaDemoradaConsultaLaBase() throws Exception {
+        ReporteAcumulado acumulado = ReporteAcumulado.de(emf);
+        CountDownLatch entregando = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        // Un observador lento deja la confirmación de la reserva en curso
+        EventosCita.de(emf).suscribir(new ObservadorCitas() {
+            @Override
+            public void alInsertar(InstantaneaCita cita) {
+                entregando.countDown();
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> reserva = executor.submit(() -> citas.programarCita(paciente, cardiologo, consultorio, INICIO, COSTO, null));
+            assertTrue(entregando.await(10, TimeUnit.SECONDS));
+            EventosCita.de(emf).invalidar();
+
+            // La recarga no puede esperar a la reserva: responde la base, que ya la tiene
+            List<TotalCitas> porSala = acumulado.getTotales(Agrupacion.SALA, null, null);
+            assertEquals(1, citasEn(porSala));
+            assertEquals(totalesDeLaBase(Agrupacion.SALA), porSala);
+
+            liberar.countDown();
+            reserva.get(10, TimeUnit.SECONDS);
+        } finally {
+            liberar.countDown();
+            executor.shutdownNow();
+        }
+        assertCoincideConLaBase(acumulado);
+    }
+
+    private void reservarVarias() throws CitaException {
+        citas.programarCita(paciente, cardiologo, consultorio, INICIO, COSTO, null);
+        citas.programarCita(paciente, pediatra, otroConsultorio, INICIO.plusHours(3), new BigDecimal("2750.50"), null);
+        citas.programarCita(paciente, cardiologo, consultorio, INICIO.plusDays(1), COSTO, null);
+        citas.programarCita(paciente, pediatra, otroConsultorio, INICIO.plusDays(1).plusHours(3), new BigDecimal("980.25"), null);
+    }
+
+    private void assertCoincideConLaBase(ReporteAcumulado acumulado) {
+        for (Agrupacion agrupacion : Agrupacion.values()) {
+            assertEquals(totalesDeLaBase(agrupacion), acumulado.getTotales(agrupacion, null, null), agrupacion.name());
+        }
+    }
+
+    private List<TotalCitas> totalesDeLaBase(Agrupacion agrupacion) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            return new ReporteManager(em).getTotales(agrupacion, null, null);
+        } finally {
+            em.close();
+        }
+    }
+
+    private static long citasEn(List<TotalCitas> totales) {
+        return totales.stream().mapToLong(TotalCitas::citas).sum();
+    }
+}
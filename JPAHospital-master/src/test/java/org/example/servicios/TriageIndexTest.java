@@ -0,0 +1,128 @@
+package org.example.servicios;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.DatosPrueba;
+import org.example.entidades.Hospital;
+import org.example.entidades.Paciente;
+import org.example.entidades.TipoSangre;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * El índice de triage sigue los cambios confirmados sin reconstruirse: una alergia agregada a la historia suma al
+ * paciente, una revertida no, y borrar al paciente lo quita de todos los conjuntos.
+ * Tras cada cambio el índice responde lo mismo que la consulta a la base.
+ */
+class TriageIndexTest {
+    private static final String ALERGIA = "Penicilina";
+
+    private EntityManagerFactory emf;
+    private TriageIndex indice;
+    private Hospital hospital;
+    private Long pacienteId;
+    private Long otroPacienteId;
+    private TipoSangre tipoSangre;
+
+    @BeforeEach
+    void sembrar() {
+        emf = DatosPrueba.crearFactory("triage");
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        hospital = Hospital.builder().nombre("Hospital").direccion("Calle 1").telefono("261-000-0000").build();
+        Paciente paciente = DatosPrueba.paciente(1);
+        Paciente otroPaciente = DatosPrueba.paciente(2);
+        hospital.agregarPaciente(paciente);
+        hospital.agregarPaciente(otroPaciente);
+        em.persist(hospital);
+        em.getTransaction().commit();
+        em.close();
+        pacienteId = paciente.getId();
+        otroPacienteId = otroPaciente.getId();
+        tipoSangre = paciente.getTipoSangre();
+        indice = TriageIndex.de(emf);
+    }
+
+    @AfterEach
+    void cerrar() {
+        emf.close();
+    }
+
+    @Test
+    void alergiaConfirmadaSumaAlPaciente() {
+        assertArrayEquals(new long[0], indice.getPacientesConAlergia(hospital, ALERGIA));
+
+        agregarAlergia(pacienteId, ALERGIA, true);
+
+        assertArrayEquals(new long[]{pacienteId}, indice.getPacientesConAlergia(hospital, ALERGIA));
+        // La clave se normaliza igual que en la consulta
+        assertArrayEquals(new long[]{pacienteId}, indice.getPacientesConAlergia(null, " penicilina "));
+        assertConsistenteConLaBase();
+    }
+
+    @Test
+    void alergiaRevertidaNoSumaAlPaciente() {
+        agregarAlergia(pacienteId, ALERGIA, false);
+
+        assertArrayEquals(new long[0], indice.getPacientesConAlergia(hospital, ALERGIA));
+        assertConsistenteConLaBase();
+    }
+
+    @Test
+    void borrarPacienteLoQuitaDeTodosLosConjuntos() {
+        agregarAlergia(pacienteId, ALERGIA, true);
+        agregarAlergia(otroPacienteId, ALERGIA, true);
+
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        em.remove(em.find(Paciente.class, pacienteId));
+        em.getTransaction().commit();
+        em.close();
+
+        assertArrayEquals(new long[]{otroPacienteId}, indice.getPacientesConAlergia(hospital, ALERGIA));
+        assertFalse(contiene(indice.getPacientesPorTipoSangre(hospital, tipoSangre), pacienteId));
+        assertFalse(contiene(indice.getPacientesPorTipoSangre(null, tipoSangre), pacienteId));
+        assertConsistenteConLaBase();
+    }
+
+    private void agregarAlergia(Long paciente, String alergia, boolean confirmar) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.find(Paciente.class, paciente).getHistoriaClinica().agregarAlergia(alergia);
+            em.flush();
+            if (confirmar) {
+                em.getTransaction().commit();
+            } else {
+                em.getTransaction().rollback();
+            }
+        } finally {
+            if (em.getTransaction().isActive()) em.getTransaction().rollback();
+            em.close();
+        }
+    }
+
+    private void assertConsistenteConLaBase() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            TriageManager consultas = new TriageManager(em);
+            assertArrayEquals(consultas.getPacientesConAlergia(hospital, ALERGIA), indice.getPacientesConAlergia(hospital, ALERGIA));
+            for (TipoSangre tipo : TipoSangre.values()) {
+                assertArrayEquals(consultas.getPacientesPorTipoSangre(hospital, tipo), indice.getPacientesPorTipoSangre(hospital, tipo),
+                        tipo.name());
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    private static boolean contiene(long[] ids, long id) {
+        return Arrays.stream(ids).anyMatch(i -> i == id);
+    }
+}
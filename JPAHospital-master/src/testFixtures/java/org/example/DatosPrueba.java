@@ -0,0 +1,55 @@
+package org.example;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.example.entidades.EspecialidadMedica;
+import org.example.entidades.Matricula;
+import org.example.entidades.Medico;
+import org.example.entidades.Paciente;
+import org.example.entidades.TipoSangre;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bases H2 en memoria y entidades sintéticas para las pruebas y los benchmarks.
+ */
+public final class DatosPrueba {
+
+    private DatosPrueba() {
+    }
+
+    /**
+     * Factory sobre una base H2 en memoria propia, con el esquema creado desde cero.
+     */
+    public static EntityManagerFactory crearFactory(String nombre) {
+        return crearFactory(nombre, Map.of());
+    }
+
+    public static EntityManagerFactory crearFactory(String nombre, Map<String, Object> extra) {
+        Map<String, Object> propiedades = new HashMap<>();
+        propiedades.put("jakarta.persistence.jdbc.url", "jdbc:h2:mem:" + nombre + ";DB_CLOSE_DELAY=-1");
+        propiedades.put("hibernate.hbm2ddl.auto", "create-drop");
+        propiedades.put("hibernate.show_sql", "false");
+        propiedades.put("hibernate.format_sql", "false");
+        propiedades.putAll(extra);
+        return Persistence.createEntityManagerFactory("hospital-persistence-unit", propiedades);
+    }
+
+    public static Medico medico(int n, EspecialidadMedica especialidad) {
+        return Medico.builder()
+                .nombre("Medico").apellido("N" + n).dni(String.valueOf(10_000_000 + n))
+                .fechaNacimiento(LocalDate.of(1980, 1, 1)).tipoSangre(TipoSangre.A_POSITIVO)
+                .matricula(new Matricula(String.format("MP-%06d", n % 1_000_000))).especialidad(especialidad)
+                .build();
+    }
+
+    public static Paciente paciente(int n) {
+        return Paciente.builder()
+                .nombre("Paciente").apellido("N" + n).dni(String.valueOf(50_000_000 + n))
+                .fechaNacimiento(LocalDate.of(1990, 1, 1)).tipoSangre(TipoSangre.values()[n % TipoSangre.values().length])
+                .telefono("261-000-0000").direccion("Calle " + n)
+                .build();
+    }
+}